@@ -0,0 +1,16 @@
+package com.example.todolist.benchmark;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+@Entity
+@Table(name = "benchmark_auto_tasks")
+public class AutoBenchmarkTask extends BenchmarkTask {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO) //the mapping of Task.id before tasks_seq was declared.
+    private long id;
+}
@@ -0,0 +1,17 @@
+package com.example.todolist.benchmark;
+
+import jakarta.persistence.MappedSuperclass;
+
+import java.time.LocalDateTime;
+
+//the columns of Task without its id, TaskIdGenerationBenchmark maps one entity per id strategy on top of it.
+@MappedSuperclass
+public abstract class BenchmarkTask {
+    String taskName;
+    String taskDescription;
+    LocalDateTime dueDate;
+    Boolean completed;
+    long version;
+    long changeSeq;
+    LocalDateTime updatedAt;
+}
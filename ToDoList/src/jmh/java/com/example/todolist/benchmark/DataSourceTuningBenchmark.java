@@ -0,0 +1,138 @@
+package com.example.todolist.benchmark;
+
+import com.example.todolist.ToDoListApplication;
+import com.example.todolist.dto.TaskBatchPatchDTO;
+import com.example.todolist.dto.TaskBatchResultDTO;
+import com.example.todolist.dto.TaskDTO;
+import com.example.todolist.dto.TaskFilterDTO;
+import com.example.todolist.dto.TaskPatchDTO;
+import com.example.todolist.repository.TaskRepository;
+import com.example.todolist.service.TaskBatchService;
+import com.example.todolist.service.TaskService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Sort;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+//Load test of the production datasource profile: 16 threads of batch creates, batch PATCHes, IN-list lookups of a random
+//number of ids or filtered queries, on a pool that is smaller than the load by default. By default it runs against H2
+//in MySQL mode in memory, which ignores the Connector/J settings (IGNORE_UNKNOWN_SETTINGS) and has no network round
+//trips, so both variants measure the same within noise there. The settings save round trips, measure them against a
+//MySQL with -p url=jdbc:mysql://host/db -p username=... -p password=..., on a scratch database: the test profile
+//creates the tables and drops them again.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 5, time = 5) //the JIT needs longer than in the other benchmarks, every operation runs several queries.
+@Measurement(iterations = 5, time = 5)
+@Threads(16) //more threads than the default pool of 10 connections.
+public class DataSourceTuningBenchmark {
+    private static final int MAX_IDS = 50;
+
+    @Param({"default", "production"})
+    private String datasource;
+
+    @Param({"5000"})
+    private int tableSize;
+
+    @Param({"jdbc:h2:mem:loadtest;MODE=MySQL;DATABASE_TO_LOWER=TRUE;IGNORE_UNKNOWN_SETTINGS=TRUE;DB_CLOSE_DELAY=-1"})
+    private String url;
+
+    @Param({"sa"})
+    private String username;
+
+    @Param({""})
+    private String password;
+
+    private ConfigurableApplicationContext context;
+    private TaskService taskService;
+    private TaskBatchService taskBatchService;
+    private TaskRepository taskRepository;
+    private long[] ids;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<String> args = new ArrayList<>(List.of(
+                "--spring.datasource.url=" + url,
+                "--spring.datasource.username=" + username,
+                "--spring.datasource.password=" + password,
+                "--spring.jpa.properties.hibernate.generate_statistics=false",
+                "--logging.level.root=WARN"));
+        if (datasource.equals("production") && url.startsWith("jdbc:h2:")) { //stands in for cachePrepStmts/prepStmtCacheSize.
+            args.add("--spring.datasource.hikari.data-source-properties.QUERY_CACHE_SIZE=250");
+        }
+        context = new SpringApplicationBuilder(ToDoListApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles(datasource.equals("production") ? new String[]{"test", "production"} : new String[]{"test"})
+                .run(args.toArray(String[]::new));
+        taskService = context.getBean(TaskService.class);
+        taskBatchService = context.getBean(TaskBatchService.class);
+        taskRepository = context.getBean(TaskRepository.class);
+        List<TaskDTO> tasks = new ArrayList<>(tableSize);
+        for (int i = 0; i < tableSize; i++) {
+            tasks.add(createTaskDTO("Task " + i, i));
+        }
+        ids = taskBatchService.createTasks(tasks).stream().mapToLong(TaskBatchResultDTO::getId).toArray();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<TaskBatchResultDTO> createTasks() { //named so that they are not matched by findTasks.
+        List<TaskDTO> tasks = new ArrayList<>(MAX_IDS);
+        for (int i = 0; i < MAX_IDS; i++) {
+            tasks.add(createTaskDTO("New task " + i, i));
+        }
+        return taskBatchService.createTasks(tasks);
+    }
+
+    @Benchmark
+    public List<TaskBatchResultDTO> patchTasks() {
+        List<TaskBatchPatchDTO> patches = new ArrayList<>();
+        for (long id : randomIds()) {
+            patches.add(TaskBatchPatchDTO.builder().id(id).patch(TaskPatchDTO.builder().completed(ThreadLocalRandom.current().nextBoolean()).build()).build());
+        }
+        return taskBatchService.patchTasks(patches);
+    }
+
+    @Benchmark
+    public List<TaskDTO> findAllByIdIn() {
+        return taskRepository.findAllAsDTOByIdIn(randomIds());
+    }
+
+    @Benchmark
+    public List<TaskDTO> findTasks() {
+        return taskService.findTasks(TaskFilterDTO.builder().completed(false).namePrefix("Task 12").build(), Sort.by("dueDate"));
+    }
+
+    private List<Long> randomIds() { //1 to 50 distinct ids, every list size is a different IN clause without padding.
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int count = random.nextInt(1, MAX_IDS + 1);
+        int first = random.nextInt(ids.length - count + 1);
+        List<Long> randomIds = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            randomIds.add(ids[first + i]);
+        }
+        return randomIds;
+    }
+
+    private static TaskDTO createTaskDTO(String taskName, int i) {
+        return TaskDTO.builder()
+                .taskName(taskName)
+                .taskDescription("Description of " + taskName)
+                .dueDate(LocalDateTime.of(2030, 1, 1, 12, 30).plusMinutes(i))
+                .completed(false)
+                .build();
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.todolist.benchmark;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+@Entity
+@Table(name = "benchmark_identity_tasks")
+public class IdentityBenchmarkTask extends BenchmarkTask {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY) //the id comes back from each INSERT, Hibernate cannot batch them.
+    private long id;
+}
@@ -0,0 +1,18 @@
+package com.example.todolist.benchmark;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+
+@Entity
+@Table(name = "benchmark_sequence_tasks")
+public class SequenceBenchmarkTask extends BenchmarkTask {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "benchmark_task_id_generator")
+    @SequenceGenerator(name = "benchmark_task_id_generator", sequenceName = "benchmark_tasks_seq", allocationSize = 50) //like Task.id.
+    private long id;
+}
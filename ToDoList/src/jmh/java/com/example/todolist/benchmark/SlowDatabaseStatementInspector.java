@@ -0,0 +1,19 @@
+package com.example.todolist.benchmark;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+//simulates a slow database: every statement holds its connection for a fixed time before it is sent to H2.
+public class SlowDatabaseStatementInspector implements StatementInspector {
+
+    static final long LATENCY_MILLIS = 50;
+
+    @Override
+    public String inspect(String sql) {
+        try {
+            Thread.sleep(LATENCY_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return sql;
+    }
+}
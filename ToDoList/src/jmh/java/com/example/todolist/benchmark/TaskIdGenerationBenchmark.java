@@ -0,0 +1,98 @@
+package com.example.todolist.benchmark;
+
+import com.example.todolist.ToDoListApplication;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+//N inserts per transaction with the id strategies of Task: IDENTITY, AUTO (the mapping before tasks_seq was declared,
+//a pooled sequence of its own) and the pooled-lo tasks_seq of today. The entities have the columns of Task, see
+//BenchmarkTask, and only differ in their id. Throughput is transactions per second, rows per second is that times
+//rowsPerTransaction. The statements column counts the prepared statements, a JDBC batch is one of them: on a database
+//behind a network each is a round trip, which in-memory H2 does not have.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class TaskIdGenerationBenchmark {
+
+    @Param({"identity", "auto", "sequence"})
+    private String idStrategy;
+
+    @Param({"1", "50", "500"})
+    private int rowsPerTransaction;
+
+    private ConfigurableApplicationContext context;
+    private EntityManager entityManager;
+    private TransactionTemplate transactionTemplate;
+    private Statistics statistics;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(ToDoListApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles("test")
+                .run("--logging.level.root=WARN"); //statistics stay on for the statement count.
+        EntityManagerFactory entityManagerFactory = context.getBean(EntityManagerFactory.class);
+        entityManager = SharedEntityManagerCreator.createSharedEntityManager(entityManagerFactory);
+        transactionTemplate = context.getBean(TransactionTemplate.class);
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @TearDown(Level.Iteration)
+    public void deleteRows() { //the table does not grow over the run.
+        transactionTemplate.executeWithoutResult(status -> entityManager.createQuery("delete from " + entityClass().getSimpleName()).executeUpdate());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void saveRows(Statements statements) {
+        long before = statistics.getPrepareStatementCount();
+        transactionTemplate.executeWithoutResult(status -> {
+            for (int i = 0; i < rowsPerTransaction; i++) {
+                entityManager.persist(createTask(i));
+            }
+        });
+        statements.statements += statistics.getPrepareStatementCount() - before;
+    }
+
+    private BenchmarkTask createTask(int i) {
+        BenchmarkTask task = switch (idStrategy) {
+            case "identity" -> new IdentityBenchmarkTask();
+            case "auto" -> new AutoBenchmarkTask();
+            default -> new SequenceBenchmarkTask();
+        };
+        task.taskName = "Task " + i;
+        task.taskDescription = "Description of task " + i;
+        task.dueDate = LocalDateTime.of(2030, 1, 1, 12, 30).plusMinutes(i);
+        task.completed = false;
+        task.updatedAt = LocalDateTime.now();
+        return task;
+    }
+
+    private Class<? extends BenchmarkTask> entityClass() {
+        return createTask(0).getClass();
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Statements {
+        public long statements; //per iteration, divide by the transactions of the iteration.
+    }
+}
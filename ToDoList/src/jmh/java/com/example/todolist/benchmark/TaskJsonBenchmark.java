@@ -0,0 +1,81 @@
+package com.example.todolist.benchmark;
+
+import com.example.todolist.dto.TaskDTO;
+import com.example.todolist.json.TaskDTOSerializer;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+//serialization of TaskDTO including the @JsonFormat(pattern = "MM-dd-yyyy HH:mm") dueDate, with the same builder Spring Boot uses.
+//serializer=reflective is the plain bean serializer, specialized adds TaskDTOSerializer like the application context does.
+//Run with -Djmh.args="TaskJsonBenchmark -prof gc" to compare gc.alloc.rate.norm (bytes per operation).
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class TaskJsonBenchmark {
+
+    @Param({"1000"})
+    private int listSize;
+
+    @Param({"reflective", "specialized"})
+    private String serializer;
+
+    private ObjectMapper objectMapper;
+    private TaskDTO taskDTO;
+    private List<TaskDTO> taskDTOs;
+    private byte[] taskJson;
+
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS); //Spring Boot's default.
+        if (serializer.equals("specialized")) {
+            builder.serializerByType(TaskDTO.class, new TaskDTOSerializer());
+        }
+        objectMapper = builder.build();
+        taskDTO = createTaskDTO(1);
+        taskDTOs = new ArrayList<>(listSize);
+        for (int i = 0; i < listSize; i++) {
+            taskDTOs.add(createTaskDTO(i));
+        }
+        taskJson = objectMapper.writeValueAsBytes(taskDTO);
+    }
+
+    @Benchmark
+    public byte[] serializeTask() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(taskDTO);
+    }
+
+    @Benchmark
+    public byte[] serializeTaskList() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(taskDTOs);
+    }
+
+    @Benchmark
+    public TaskDTO deserializeTask() throws IOException {
+        return objectMapper.readValue(taskJson, new TypeReference<>() {});
+    }
+
+    private static TaskDTO createTaskDTO(long id) {
+        return TaskDTO.builder()
+                .id(id)
+                .taskName("Task " + id)
+                .taskDescription("Description of task " + id)
+                .dueDate(LocalDateTime.of(2030, 1, 1, 12, 30).plusMinutes(id))
+                .completed(id % 2 == 0)
+                .updatedAt(LocalDateTime.of(2026, 1, 1, 8, 0).plusNanos(id * 1_000_000))
+                .build();
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.todolist.benchmark;
+
+import com.example.todolist.dto.TaskDTO;
+import com.example.todolist.mapper.TaskMapper;
+import com.example.todolist.mapper.TaskMapperImpl;
+import com.example.todolist.model.Task;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class TaskMapperBenchmark {
+
+    @Param({"1000"})
+    private int listSize;
+
+    private final TaskMapper taskMapper = new TaskMapperImpl(); //the generated MapStruct mapper, no Spring context needed.
+    private Task task;
+    private List<Task> tasks;
+
+    @Setup
+    public void setUp() {
+        task = createTask(1);
+        tasks = new ArrayList<>(listSize);
+        for (int i = 0; i < listSize; i++) {
+            tasks.add(createTask(i));
+        }
+    }
+
+    @Benchmark
+    public TaskDTO toDTO() {
+        return taskMapper.toDTO(task);
+    }
+
+    @Benchmark
+    public List<TaskDTO> toDTOList() {
+        return taskMapper.toDTOList(tasks);
+    }
+
+    private static Task createTask(long id) {
+        return Task.builder()
+                .id(id)
+                .taskName("Task " + id)
+                .taskDescription("Description of task " + id)
+                .dueDate(LocalDateTime.of(2030, 1, 1, 12, 30).plusMinutes(id))
+                .completed(id % 2 == 0)
+                .build();
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.todolist.benchmark;
+
+import com.example.todolist.ToDoListApplication;
+import com.example.todolist.dto.TaskDTO;
+import com.example.todolist.dto.TaskFilterDTO;
+import com.example.todolist.dto.TaskPageDTO;
+import com.example.todolist.dto.TaskPatchDTO;
+import com.example.todolist.service.TaskService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Sort;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+//TaskService CRUD through the real Spring context, JPA and the in-memory H2 datasource of the test profile.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class TaskServiceBenchmark {
+
+    @Param({"1000"})
+    private int tableSize;
+
+    private ConfigurableApplicationContext context;
+    private TaskService taskService;
+    private long existingId;
+    private boolean completed;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(ToDoListApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles("test")
+                .run("--spring.jpa.properties.hibernate.generate_statistics=false", "--logging.level.root=WARN");
+        taskService = context.getBean(TaskService.class);
+        for (int i = 0; i < tableSize; i++) {
+            existingId = taskService.createTask(createTaskDTO(i)).getId();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public TaskDTO createTask() {
+        return taskService.createTask(createTaskDTO(0));
+    }
+
+    @Benchmark
+    public TaskDTO getTask() {
+        return taskService.getTask(existingId);
+    }
+
+    @Benchmark
+    public TaskDTO patchTask() {
+        completed = !completed;
+        return taskService.patchTask(existingId, TaskPatchDTO.builder().completed(completed).build());
+    }
+
+    @Benchmark
+    public List<TaskDTO> findTasks() {
+        return taskService.findTasks(TaskFilterDTO.builder().completed(false).namePrefix("Task 1").build(), Sort.by("dueDate"));
+    }
+
+    @Benchmark
+    public TaskPageDTO getTaskPage() { //the first 500 rows, the rows createTask adds are behind them.
+        return taskService.getTaskPage(null, 500);
+    }
+
+    private static TaskDTO createTaskDTO(long i) {
+        return TaskDTO.builder()
+                .taskName("Task " + i)
+                .taskDescription("Description of task " + i)
+                .dueDate(LocalDateTime.of(2030, 1, 1, 12, 30).plusMinutes(i))
+                .completed(false)
+                .build();
+    }
+}
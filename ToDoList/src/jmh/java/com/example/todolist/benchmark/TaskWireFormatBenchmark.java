@@ -0,0 +1,83 @@
+package com.example.todolist.benchmark;
+
+import com.example.todolist.dto.TaskDTO;
+import com.example.todolist.json.TaskDTOSerializer;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+//encode and decode of a TaskDTO list in the formats GET /tasks negotiates, with the mapper setup of BinaryFormatConfig.
+//The payload size of each format is logged once per fork.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class TaskWireFormatBenchmark {
+    private static final Logger log = LoggerFactory.getLogger(TaskWireFormatBenchmark.class);
+
+    @Param({"1000"})
+    private int listSize;
+
+    @Param({"json", "cbor", "smile"})
+    private String format;
+
+    private ObjectMapper objectMapper;
+    private List<TaskDTO> taskDTOs;
+    private byte[] payload;
+
+    @Setup
+    public void setUp() throws IOException {
+        JsonFactory factory = switch (format) {
+            case "cbor" -> new CBORFactory();
+            case "smile" -> new SmileFactory();
+            default -> new JsonFactory();
+        };
+        objectMapper = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .serializerByType(TaskDTO.class, new TaskDTOSerializer())
+                .factory(factory)
+                .build();
+        taskDTOs = new ArrayList<>(listSize);
+        for (int i = 0; i < listSize; i++) {
+            taskDTOs.add(createTaskDTO(i));
+        }
+        payload = objectMapper.writeValueAsBytes(taskDTOs);
+        log.info("{} payload for {} tasks: {} bytes", format, listSize, payload.length);
+    }
+
+    @Benchmark
+    public byte[] encodeTaskList() throws IOException {
+        return objectMapper.writeValueAsBytes(taskDTOs);
+    }
+
+    @Benchmark
+    public List<TaskDTO> decodeTaskList() throws IOException {
+        return objectMapper.readValue(payload, new TypeReference<>() {});
+    }
+
+    private static TaskDTO createTaskDTO(long id) {
+        return TaskDTO.builder()
+                .id(id)
+                .taskName("Task " + id)
+                .taskDescription("Description of task " + id)
+                .dueDate(LocalDateTime.of(2030, 1, 1, 12, 30).plusMinutes(id))
+                .completed(id % 2 == 0)
+                .updatedAt(LocalDateTime.of(2026, 1, 1, 8, 0).plusNanos(id * 1_000_000))
+                .build();
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.todolist.benchmark;
+
+import com.example.todolist.ToDoListApplication;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.TimeUnit;
+
+//HTTP load test of GET /tasks with a filter (not cached) on platform vs virtual request threads while every
+//statement takes SlowDatabaseStatementInspector.LATENCY_MILLIS. Both run the virtual-threads profile as shipped on a
+//connection pool of 50, only the request threads differ. Run with -prof gc or compare the sample percentiles, and check
+//the failed column: on virtual threads requests beyond the pool queue in RequestAdmissionFilter and only fail, with 503,
+//after todolist.requests.queue-timeout. Without the filter they waited in Hikari and failed with 500 after its 5s.
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = "-Djdk.tracePinnedThreads=short") //any pinned virtual thread is printed to the console.
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Threads(400)
+public class VirtualThreadLoadBenchmark {
+
+    @Param({"false", "true"})
+    private boolean virtualThreads;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient httpClient;
+    private HttpRequest request;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(ToDoListApplication.class)
+                .profiles("test", "virtual-threads")
+                .run("--server.port=0",
+                        "--spring.threads.virtual.enabled=" + virtualThreads,
+                        "--server.tomcat.threads.max=200", //the default platform thread pool
+                        "--spring.datasource.hikari.maximum-pool-size=50",
+                        "--spring.datasource.hikari.connection-timeout=5000",
+                        "--spring.jpa.properties.hibernate.session_factory.statement_inspector=" + SlowDatabaseStatementInspector.class.getName(),
+                        "--spring.jpa.properties.hibernate.generate_statistics=false",
+                        "--logging.level.root=WARN");
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/tasks?completed=false")).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int getFilteredTasks(Responses responses) throws IOException, InterruptedException {
+        int status = httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+        if (status != 200) {
+            responses.failed++;
+        }
+        return status;
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Responses {
+        public long failed; //reported next to the latencies, a fast error is no fast response.
+    }
+}
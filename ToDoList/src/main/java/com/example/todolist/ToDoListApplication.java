@@ -2,8 +2,9 @@ package com.example.todolist;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration;
 
-@SpringBootApplication
+@SpringBootApplication(exclude = R2dbcAutoConfiguration.class) //R2DBC is only on the classpath with -Preactive, for ReactiveToDoListApplication.
 public class ToDoListApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,64 @@
+package com.example.todolist.config;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+//application/cbor and application/x-jackson-smile for Accept and Content-Type. Smile also writes each repeated field name
+//only once. The mappers come from Spring Boot's builder so they carry the same modules, TaskDTOSerializer and date settings
+//as the JSON one. Spring MVC already registers CBOR and Smile converters with plain mappers when the formats are on the
+//classpath, those would win and write dates as arrays, so they are replaced in place, behind the JSON converter.
+//Every /tasks response varies by Accept, a shared cache must not answer a JSON client with a cached CBOR body. The ETags
+//carry the format too, see TaskController.formatSuffix.
+@Configuration
+public class BinaryFormatConfig implements WebMvcConfigurer {
+
+    private final ObjectProvider<Jackson2ObjectMapperBuilder> objectMapperBuilder;
+
+    public BinaryFormatConfig(ObjectProvider<Jackson2ObjectMapperBuilder> objectMapperBuilder){
+        this.objectMapperBuilder = objectMapperBuilder; //prototype bean, each getObject() is a fresh builder.
+    }
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters){
+        replaceOrAdd(converters, new MappingJackson2CborHttpMessageConverter(objectMapperBuilder.getObject().factory(new CBORFactory()).build()));
+        replaceOrAdd(converters, new MappingJackson2SmileHttpMessageConverter(objectMapperBuilder.getObject().factory(new SmileFactory()).build()));
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry){
+        registry.addInterceptor(new HandlerInterceptor() {
+            @Override
+            public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler){
+                response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT); //before the body, also on a 304.
+                return true;
+            }
+        }).addPathPatterns("/tasks", "/tasks/**");
+    }
+
+    private static void replaceOrAdd(List<HttpMessageConverter<?>> converters, HttpMessageConverter<?> converter){
+        boolean replaced = false;
+        for (int i = 0; i < converters.size(); i++) {
+            if (converters.get(i).getClass() == converter.getClass()) {
+                converters.set(i, converter);
+                replaced = true;
+            }
+        }
+        if (!replaced) {
+            converters.add(converter);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.todolist.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.cache.CacheManagerCustomizer;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import java.time.Duration;
+
+//size, eviction and TTL of the caches are set with spring.cache.caffeine.spec in application.properties.
+@Configuration
+@EnableCaching(order = Ordered.LOWEST_PRECEDENCE - 1) //runs outside @Transactional so the cache is only written after the commit.
+public class CacheConfig {
+    public static final String TASKS_CACHE = "tasks";
+    public static final String TASK_STATS_CACHE = "taskStats";
+
+    //the stats are not evicted on writes, they get their own short TTL instead of the spec of the task cache. One entry
+    //per requested window, most clients ask for the default one.
+    @Bean
+    public CacheManagerCustomizer<CaffeineCacheManager> taskStatsCacheCustomizer(@Value("${todolist.stats.cache-ttl:5s}") Duration ttl){
+        return cacheManager -> cacheManager.registerCustomCache(TASK_STATS_CACHE,
+                Caffeine.newBuilder().maximumSize(100).expireAfterWrite(ttl).recordStats().build());
+    }
+}
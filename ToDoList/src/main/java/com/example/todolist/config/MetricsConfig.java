@@ -0,0 +1,15 @@
+package com.example.todolist.config;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry meterRegistry){ //makes @Timed work on any bean, not only on controllers.
+        return new TimedAspect(meterRegistry);
+    }
+}
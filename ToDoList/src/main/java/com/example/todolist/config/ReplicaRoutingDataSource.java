@@ -0,0 +1,61 @@
+package com.example.todolist.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+//DataSource of the read-only transactions in the replicas profile. A connection comes from the pool the current thread
+//is pinned to (see ReplicaRoutingFilter), otherwise from the next replica pool in turn.
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements AutoCloseable {
+    private static final String PRIMARY = "primary";
+    private static final ThreadLocal<Object> PINNED = new ThreadLocal<>();
+
+    private final List<HikariDataSource> replicas;
+    private final AtomicInteger next = new AtomicInteger();
+
+    public ReplicaRoutingDataSource(DataSource primary, List<HikariDataSource> replicas){
+        this.replicas = List.copyOf(replicas);
+        Map<Object, Object> targetDataSources = new HashMap<>();
+        targetDataSources.put(PRIMARY, primary);
+        for (int i = 0; i < replicas.size(); i++) {
+            targetDataSources.put(i, replicas.get(i));
+        }
+        setTargetDataSources(targetDataSources);
+        setLenientFallback(false); //an unknown key is a bug, never a silent read from the primary.
+    }
+
+    public void pinPrimary(){ //read-your-writes, the replicas may not have the writes of this client yet.
+        PINNED.set(PRIMARY);
+    }
+
+    public void pinReplica(){ //all reads of a request see the same replica, e.g. the ETag and the list it is for.
+        PINNED.set(nextKey());
+    }
+
+    public void unpin(){
+        PINNED.remove();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey(){
+        Object pinned = PINNED.get();
+        return pinned != null ? pinned : nextKey();
+    }
+
+    private Object nextKey(){
+        if (replicas.isEmpty()) {
+            return PRIMARY;
+        }
+        return Math.floorMod(next.getAndIncrement(), replicas.size()); //round robin, every replica pool gets the same share.
+    }
+
+    @Override
+    public void close(){ //the replica pools are not beans of their own, they are closed with this one.
+        replicas.forEach(HikariDataSource::close);
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.todolist.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+
+//replicas profile: the reads of a request go to one replica. A client that wrote within the read-your-writes window
+//reads from the primary instead, so replication lag never hides its own writes from it. Clients are told apart by a
+//header only, an address is shared behind NAT and proxies and would send every client behind it to the primary. Clients
+//without the header always read from a replica. A zero window turns read-your-writes off.
+@Component
+@Profile("replicas")
+public class ReplicaRoutingFilter extends OncePerRequestFilter {
+    private static final Set<String> WRITE_METHODS = Set.of("POST", "PUT", "PATCH", "DELETE");
+
+    private final ReplicaRoutingDataSource replicaDataSource;
+    private final String clientHeader;
+    private final Cache<String, Boolean> recentWriters;
+
+    public ReplicaRoutingFilter(ReplicaRoutingDataSource replicaDataSource,
+                                @Value("${todolist.replicas.client-header:X-Client-Id}") String clientHeader,
+                                @Value("${todolist.replicas.read-your-writes-window:5s}") Duration window){
+        this.replicaDataSource = replicaDataSource;
+        this.clientHeader = clientHeader;
+        this.recentWriters = window.isZero() ? null : Caffeine.newBuilder()
+                .expireAfterWrite(window) //the window starts when the last write of the client completed.
+                .maximumSize(100_000)
+                .build();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        if (WRITE_METHODS.contains(request.getMethod())) {
+            try {
+                filterChain.doFilter(request, response);
+            } finally {
+                String client = request.getHeader(clientHeader);
+                if (recentWriters != null && client != null) {
+                    recentWriters.put(client, true); //also after a failed batch, part of it may have been committed.
+                }
+            }
+            return;
+        }
+        String client = request.getHeader(clientHeader);
+        if (recentWriters != null && client != null && recentWriters.getIfPresent(client) != null) {
+            replicaDataSource.pinPrimary();
+        } else {
+            replicaDataSource.pinReplica();
+        }
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            replicaDataSource.unpin();
+        }
+    }
+}
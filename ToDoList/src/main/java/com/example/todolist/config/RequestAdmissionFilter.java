@@ -0,0 +1,107 @@
+package com.example.todolist.config;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+//virtual-threads profile: Tomcat starts a virtual thread for every request, so nothing but the connection pool limits how
+//many run at once and requests beyond the pool would fail with a 500 after the pool's connection-timeout. This filter
+//admits max-concurrent requests at a time, the others queue here in arrival order and are answered with 503 and
+//Retry-After once they waited queue-timeout. An async request (GET /tasks/stream) keeps its permit until it completes,
+//times out or fails, its connection is held for as long as it streams. The change feed is not admitted here: it holds no
+//connection while it streams and is open for up to todolist.changes.timeout, each open feed would take a permit.
+@Component
+@Profile("virtual-threads")
+@Order(Ordered.HIGHEST_PRECEDENCE) //before any filter that may take a connection.
+public class RequestAdmissionFilter extends OncePerRequestFilter {
+    private static final String CHANGE_FEED_PATH = "/tasks/changes";
+
+    private final Semaphore permits;
+    private final long queueTimeoutNanos;
+
+    public RequestAdmissionFilter(@Value("${todolist.requests.max-concurrent}") int maxConcurrent,
+                                  @Value("${todolist.requests.queue-timeout:30s}") Duration queueTimeout){
+        this.permits = new Semaphore(maxConcurrent, true); //fair, the request that waited longest goes first.
+        this.queueTimeoutNanos = queueTimeout.toNanos();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request){
+        return CHANGE_FEED_PATH.equals(request.getRequestURI().substring(request.getContextPath().length()));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        boolean admitted;
+        try {
+            admitted = permits.tryAcquire(queueTimeoutNanos, TimeUnit.NANOSECONDS); //parks the virtual thread, no carrier is held.
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            admitted = false;
+        }
+        if (!admitted) {
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            return;
+        }
+        boolean async = false;
+        try {
+            filterChain.doFilter(request, response);
+            if (request.isAsyncStarted()) { //the async dispatch is not filtered again, the listener gives the permit back.
+                request.getAsyncContext().addListener(new PermitRelease());
+                async = true;
+            }
+        } finally {
+            if (!async) {
+                permits.release();
+            }
+        }
+    }
+
+    private class PermitRelease implements AsyncListener {
+        private final AtomicBoolean released = new AtomicBoolean(); //a timeout or error is followed by the completion.
+
+        @Override
+        public void onComplete(AsyncEvent event){
+            release();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event){
+            release();
+        }
+
+        @Override
+        public void onError(AsyncEvent event){
+            release();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event){
+            event.getAsyncContext().addListener(this); //listeners are dropped when async is started again.
+        }
+
+        private void release(){
+            if (released.compareAndSet(false, true)) {
+                permits.release();
+            }
+        }
+    }
+}
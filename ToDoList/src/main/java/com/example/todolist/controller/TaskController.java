@@ -1,28 +1,71 @@
 package com.example.todolist.controller;
 
 
+import com.example.todolist.dto.TaskBatchPatchDTO;
+import com.example.todolist.dto.TaskBatchResultDTO;
 import com.example.todolist.dto.TaskDTO;
+import com.example.todolist.dto.TaskFilterDTO;
+import com.example.todolist.dto.TaskPageDTO;
 import com.example.todolist.dto.TaskPatchDTO;
+import com.example.todolist.dto.TaskStatsDTO;
+import com.example.todolist.dto.TaskStatsWindow;
+import com.example.todolist.dto.TaskSyncDTO;
+import com.example.todolist.exception.TaskVersionMismatchException;
+import com.example.todolist.service.TaskBatchService;
+import com.example.todolist.service.TaskChangeFeed;
 import com.example.todolist.service.TaskService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
+import org.springframework.web.accept.ContentNegotiationManager;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
 import java.util.List;
 
 @RestController
 @RequestMapping("/tasks")
 public class TaskController {
+    private static final int DEFAULT_PAGE_SIZE = 500; //like the default limit of GET /tasks/sync.
+    //the formats a task can be written in, in the order of their converters: JSON wins a tie, like */*.
+    private static final List<MediaType> TASK_FORMATS = List.of(MediaType.APPLICATION_JSON, MediaType.APPLICATION_CBOR,
+            MediaType.parseMediaType("application/x-jackson-smile"));
 
     private final TaskService taskService;
+    private final TaskBatchService taskBatchService;
+    private final TaskChangeFeed taskChangeFeed;
+    private final ObjectMapper objectMapper;
+    private final ContentNegotiationManager contentNegotiationManager;
 
-    public TaskController(TaskService taskService){
+    public TaskController(TaskService taskService, TaskBatchService taskBatchService, TaskChangeFeed taskChangeFeed,
+                          ObjectMapper objectMapper, ContentNegotiationManager contentNegotiationManager){
         this.taskService = taskService;
+        this.taskBatchService = taskBatchService;
+        this.taskChangeFeed = taskChangeFeed;
+        this.objectMapper = objectMapper;
+        this.contentNegotiationManager = contentNegotiationManager;
     }
 
     @GetMapping("/{id}")
-    public TaskDTO getTask(@PathVariable Long id){
-        return taskService.getTask(id);
+    public ResponseEntity<TaskDTO> getTask(@PathVariable Long id, NativeWebRequest webRequest){
+        return withTaskETag(taskService.getTask(id), webRequest); //a matching If-None-Match is answered with 304 and the body is never serialized.
     }
 
 
@@ -40,17 +83,175 @@ public class TaskController {
     }
 
     @PutMapping("/{id}")
-    public TaskDTO editTask(@PathVariable Long id, @Valid @RequestBody TaskDTO taskDTO){
-        return taskService.editTask(id, taskDTO);
+    public ResponseEntity<TaskDTO> editTask(@PathVariable Long id, @Valid @RequestBody TaskDTO taskDTO,
+                                            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                            NativeWebRequest webRequest){
+        Long expectedVersion = expectedVersion(id, ifMatch);
+        if (expectedVersion == null) {
+            return withTaskETag(taskService.editTask(id, taskDTO), webRequest);
+        }
+        return withTaskETag(taskService.editTask(id, taskDTO, expectedVersion), webRequest);
     }
 
     @PatchMapping("/{id}")
-    public TaskDTO patchTask(@PathVariable Long id, @RequestBody TaskPatchDTO patchDTO) {
-        return taskService.patchTask(id, patchDTO);
+    public ResponseEntity<TaskDTO> patchTask(@PathVariable Long id, @RequestBody TaskPatchDTO patchDTO,
+                                             @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                             NativeWebRequest webRequest) {
+        Long expectedVersion = expectedVersion(id, ifMatch);
+        if (expectedVersion == null) {
+            return withTaskETag(taskService.patchTask(id, patchDTO), webRequest);
+        }
+        return withTaskETag(taskService.patchTask(id, patchDTO, expectedVersion), webRequest);
     }
 
+    @PostMapping("/batch") //items are validated one by one, the response holds a result per item.
+    public List<TaskBatchResultDTO> createTasks(@RequestBody List<TaskDTO> taskDTOs){
+        return taskBatchService.createTasks(taskDTOs);
+    }
+
+    @PatchMapping("/batch")
+    public List<TaskBatchResultDTO> patchTasks(@RequestBody List<TaskBatchPatchDTO> patchDTOs){
+        return taskBatchService.patchTasks(patchDTOs);
+    }
+
+    @DeleteMapping("/batch")
+    public List<TaskBatchResultDTO> deleteTasks(@RequestBody List<Long> ids){
+        return taskBatchService.deleteTasks(ids);
+    }
+
+    //e.g. ?completed=false&dueBefore=07-19-2026 23:30&sort=dueDate,desc. Answered in pages of DEFAULT_PAGE_SIZE, filtered
+    //or not, the Link header with rel="next" points to the next page, the same URL with its cursor. GET /tasks/stream
+    //sends every task in one response.
     @GetMapping()
-    public List<TaskDTO> getAllTasks(){
-        return taskService.getAllTasks();
+    public ResponseEntity<List<TaskDTO>> getAllTasks(@RequestParam(required = false) String cursor, TaskFilterDTO filter,
+                                                     Sort sort, NativeWebRequest webRequest){
+        String eTag = taskListETag(webRequest);
+        if (webRequest.checkNotModified(eTag)) {
+            return null; //304, the list is not even loaded.
+        }
+        TaskPageDTO page = findTaskPage(cursor, DEFAULT_PAGE_SIZE, filter, sort);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().eTag(eTag);
+        if (page.getNextCursor() != null) {
+            String next = ServletUriComponentsBuilder.fromCurrentRequest().replaceQueryParam("cursor", page.getNextCursor()).toUriString();
+            response.header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"");
+        }
+        return response.body(page.getTasks());
+    }
+
+    @GetMapping(params = "limit") //the page and the cursor of the next one in the body.
+    public ResponseEntity<TaskPageDTO> getTaskPage(@RequestParam(required = false) String cursor,
+                                                   @RequestParam @Min(1) @Max(1000) int limit, TaskFilterDTO filter,
+                                                   Sort sort, NativeWebRequest webRequest){
+        String eTag = taskListETag(webRequest);
+        if (webRequest.checkNotModified(eTag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(eTag).body(findTaskPage(cursor, limit, filter, sort));
+    }
+
+    private TaskPageDTO findTaskPage(String cursor, int limit, TaskFilterDTO filter, Sort sort){ //id order over all tasks seeks the primary key.
+        return filter.isEmpty() && sort.isUnsorted()
+                ? taskService.getTaskPage(cursor, limit)
+                : taskService.findTaskPage(filter, sort, cursor, limit);
+    }
+
+    @GetMapping("/search") //e.g. ?q=dish wash, every word has to match the start of a word in the name or description.
+    public List<TaskDTO> searchTasks(@RequestParam @NotBlank String q,
+                                     @RequestParam(defaultValue = "20") @Min(1) @Max(100) int limit){
+        return taskService.searchTasks(q, limit);
+    }
+
+    //counts for dashboards, computed by the database instead of shipping every task to the client. The per day counts
+    //cover ?from=MM-dd-yyyy&to=MM-dd-yyyy, by default the 30 days before and after today.
+    @GetMapping("/stats")
+    public TaskStatsDTO getTaskStats(@RequestParam(required = false) @DateTimeFormat(pattern = "MM-dd-yyyy") LocalDate from,
+                                     @RequestParam(required = false) @DateTimeFormat(pattern = "MM-dd-yyyy") LocalDate to){
+        return taskService.getTaskStats(TaskStatsWindow.of(from, to, LocalDate.now()));
+    }
+
+    @GetMapping("/sync") //offline clients send back the token of their last sync and only get what changed after it.
+    public TaskSyncDTO syncTasks(@RequestParam(required = false) String since,
+                                 @RequestParam(defaultValue = "500") @Min(1) @Max(1000) int limit){
+        return taskService.syncTasks(since, limit);
+    }
+
+    @GetMapping(path = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE) //replaces polling GET /tasks, EventSource sends Last-Event-ID on reconnect.
+    public SseEmitter streamChanges(@RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId){
+        return taskChangeFeed.subscribe(lastEventId);
+    }
+
+    @GetMapping("/stream")
+    public ResponseEntity<StreamingResponseBody> streamAllTasks(){
+        StreamingResponseBody body = outputStream -> { //each task is written as soon as its row is read so the list is never held in memory.
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                generator.writeStartArray();
+                taskService.streamAllTasks(taskDTO -> {
+                    try {
+                        generator.writeObject(taskDTO);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                generator.writeEndArray();
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+
+    @ExceptionHandler(ObjectOptimisticLockingFailureException.class) //another request updated the task between our read and our UPDATE.
+    @ResponseStatus(HttpStatus.PRECONDITION_FAILED)
+    public void handleConcurrentUpdate(){
+    }
+
+    private ResponseEntity<TaskDTO> withTaskETag(TaskDTO taskDTO, NativeWebRequest webRequest){
+        if (taskDTO.getVersion() == null) {
+            return ResponseEntity.ok(taskDTO);
+        }
+        return ResponseEntity.ok()
+                .eTag(taskDTO.getId() + "-" + taskDTO.getVersion() + formatSuffix(webRequest)) //strong ETag, a new version means a different representation.
+                .body(taskDTO);
+    }
+
+    private String taskListETag(NativeWebRequest webRequest){
+        //every committed create, update and delete raises the change version. Weak because gzip changes the bytes,
+        //Tomcat does not compress responses with a strong ETag.
+        return "W/\"" + taskService.getChangeVersion() + formatSuffix(webRequest) + "\"";
+    }
+
+    //the ETags of the CBOR and Smile representations end in +cbor or +smile, JSON keeps the plain ETag it always had. The
+    //format is picked from Accept like the message converters pick it, so a 304 is never answered for another format.
+    private String formatSuffix(NativeWebRequest webRequest){
+        try {
+            for (MediaType requested : contentNegotiationManager.resolveMediaTypes(webRequest)) { //most specific and highest quality first.
+                for (MediaType format : TASK_FORMATS) {
+                    if (requested.isCompatibleWith(format) && requested.getQualityValue() > 0) {
+                        return format.equals(MediaType.APPLICATION_JSON) ? "" : "+" + format.getSubtype().replace("x-jackson-", "");
+                    }
+                }
+            }
+        } catch (HttpMediaTypeNotAcceptableException e) {
+            //an Accept header that cannot be parsed is rejected when the body is written.
+        }
+        return "";
+    }
+
+    private static Long expectedVersion(Long id, String ifMatch){
+        if (ifMatch == null || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String prefix = "\"" + id + "-";
+        String eTag = ifMatch.trim();
+        if (!eTag.startsWith(prefix) || !eTag.endsWith("\"")) { //weak or foreign ETags never match for If-Match.
+            throw new TaskVersionMismatchException("If-Match " + ifMatch + " does not match task " + id);
+        }
+        String version = eTag.substring(prefix.length(), eTag.length() - 1);
+        int formatSuffix = version.indexOf('+'); //the version is the same in every format.
+        try {
+            return Long.parseLong(formatSuffix < 0 ? version : version.substring(0, formatSuffix));
+        } catch (NumberFormatException e) {
+            throw new TaskVersionMismatchException("If-Match " + ifMatch + " does not match task " + id);
+        }
     }
 }
@@ -0,0 +1,18 @@
+package com.example.todolist.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotNull;
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class TaskBatchPatchDTO {
+
+    @NotNull
+    private Long id;
+
+    @NotNull
+    @Valid
+    private TaskPatchDTO patch;
+}
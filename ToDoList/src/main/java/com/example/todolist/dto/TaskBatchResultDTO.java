@@ -0,0 +1,15 @@
+package com.example.todolist.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL) //id and error are left out of the JSON when they don't apply to the item.
+public class TaskBatchResultDTO {
+    private int index; //position of the item in the request array.
+    private Long id;
+    private int status; //HTTP status the item would have gotten as a single request.
+    private String error;
+}
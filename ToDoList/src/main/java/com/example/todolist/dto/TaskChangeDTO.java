@@ -0,0 +1,15 @@
+package com.example.todolist.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL) //deletes and resets carry no task.
+public class TaskChangeDTO {
+    private long sequence; //increases by one per change, also sent as the SSE id for Last-Event-ID.
+    private TaskChangeType type;
+    private Long taskId;
+    private TaskDTO task;
+}
@@ -0,0 +1,8 @@
+package com.example.todolist.dto;
+
+public enum TaskChangeType {
+    CREATED,
+    UPDATED,
+    DELETED,
+    RESET //the requested Last-Event-ID is no longer buffered, the client has to reload GET /tasks.
+}
@@ -1,18 +1,25 @@
 package com.example.todolist.dto;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.validation.constraints.Future;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 
 import java.time.LocalDateTime;
 
 @Data
-@Builder
+@Builder(toBuilder = true) //TaskWriteBehindBuffer copies tasks with a changed completed flag.
+@AllArgsConstructor //used by the JPQL constructor expressions in TaskRepository.
 public class TaskDTO {
 
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY) //sent to the client but never read from a request body.
+    private Long id;
+
     @NotBlank
     private String taskName;
 
@@ -25,4 +32,10 @@ public class TaskDTO {
 
     @NotNull
     private Boolean completed;
+
+    @JsonIgnore //sent to the client as the ETag header instead of in the body.
+    private Long version;
+
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private LocalDateTime updatedAt;
 }
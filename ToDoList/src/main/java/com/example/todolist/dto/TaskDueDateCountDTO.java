@@ -0,0 +1,16 @@
+package com.example.todolist.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDate;
+
+@Data
+@AllArgsConstructor //used by the GROUP BY constructor expression in TaskRepository.
+public class TaskDueDateCountDTO {
+    @JsonFormat(pattern = "MM-dd-yyyy") //same date pattern as the dueDate of a task.
+    private LocalDate date; //null for the tasks without a due date, those are only part of the totals.
+    private long open;
+    private long completed;
+}
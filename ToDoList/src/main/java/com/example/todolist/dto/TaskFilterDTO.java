@@ -0,0 +1,29 @@
+package com.example.todolist.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor //bound from the query parameters of GET /tasks through the setters.
+@AllArgsConstructor
+public class TaskFilterDTO {
+    private Boolean completed;
+
+    @DateTimeFormat(pattern = "MM-dd-yyyy HH:mm") //same pattern as the dueDate in the JSON body.
+    private LocalDateTime dueBefore;
+
+    @DateTimeFormat(pattern = "MM-dd-yyyy HH:mm")
+    private LocalDateTime dueAfter;
+
+    private String namePrefix;
+
+    public boolean isEmpty(){
+        return completed == null && dueBefore == null && dueAfter == null && namePrefix == null;
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.todolist.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class TaskPageDTO {
+    private List<TaskDTO> tasks;
+    private String nextCursor; //opaque token for the next page, null when this is the last page.
+}
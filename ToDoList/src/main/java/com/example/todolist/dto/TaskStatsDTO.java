@@ -0,0 +1,25 @@
+package com.example.todolist.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@Builder
+public class TaskStatsDTO {
+    private long total; //total, completed, open and overdue count every task, not only the window.
+    private long completed;
+    private long open;
+    private long overdue; //open tasks whose due date has passed.
+
+    @JsonFormat(pattern = "MM-dd-yyyy")
+    private LocalDate from;
+
+    @JsonFormat(pattern = "MM-dd-yyyy")
+    private LocalDate to;
+
+    private List<TaskDueDateCountDTO> dueDates; //one entry per day from from to to that has tasks due, in date order.
+}
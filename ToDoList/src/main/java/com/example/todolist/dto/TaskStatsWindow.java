@@ -0,0 +1,33 @@
+package com.example.todolist.dto;
+
+import com.example.todolist.exception.InvalidStatsWindowException;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+//the due days GET /tasks/stats counts one by one, from and to included. Also the key of the stats cache.
+public record TaskStatsWindow(LocalDate from, LocalDate to) {
+    public static final int DEFAULT_DAYS = 30; //before and after today when neither end is given.
+    public static final int MAX_DAYS = 366; //the response has at most one row per day, so it stays small whatever the history.
+
+    public static TaskStatsWindow of(LocalDate from, LocalDate to, LocalDate today){
+        LocalDate start = from != null ? from : to != null ? to.minusDays(2 * DEFAULT_DAYS) : today.minusDays(DEFAULT_DAYS);
+        LocalDate end = to != null ? to : from != null ? from.plusDays(2 * DEFAULT_DAYS) : today.plusDays(DEFAULT_DAYS);
+        if (end.isBefore(start)) {
+            throw new InvalidStatsWindowException("from " + start + " is after to " + end);
+        }
+        if (ChronoUnit.DAYS.between(start, end) >= MAX_DAYS) {
+            throw new InvalidStatsWindowException("The stats window can cover at most " + MAX_DAYS + " days");
+        }
+        return new TaskStatsWindow(start, end);
+    }
+
+    public LocalDateTime start(){
+        return from.atStartOfDay();
+    }
+
+    public LocalDateTime end(){ //exclusive, the start of the day after to.
+        return to.plusDays(1).atStartOfDay();
+    }
+}
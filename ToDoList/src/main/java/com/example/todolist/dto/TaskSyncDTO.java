@@ -0,0 +1,15 @@
+package com.example.todolist.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class TaskSyncDTO {
+    private List<TaskDTO> changed; //created or updated since the token, in change order.
+    private List<Long> deleted; //ids of tasks deleted since the token.
+    private String token; //opaque, sent back as since on the next sync.
+    private boolean hasMore; //there were more changes than limit, sync again right away with the new token.
+}
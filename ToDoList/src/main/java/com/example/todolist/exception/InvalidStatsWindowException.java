@@ -0,0 +1,11 @@
+package com.example.todolist.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class InvalidStatsWindowException extends RuntimeException {
+    public InvalidStatsWindowException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.todolist.json;
+
+import com.example.todolist.dto.TaskDTO;
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import org.springframework.boot.jackson.JsonComponent;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+//Writes TaskDTO without the reflective bean serializer. The output is the same: id, taskName, taskDescription, dueDate
+//in the @JsonFormat pattern, completed and updatedAt as ISO_LOCAL_DATE_TIME, version is left out. Field names are
+//encoded once and dates are written digit by digit into a small local buffer instead of going through a formatter. The
+//buffer is not kept per thread, with virtual threads every request would allocate its own ThreadLocal copy anyway.
+//The names come from TaskDTO's @JsonProperty and the date patterns from its @JsonFormat, a pattern other than the ones
+//written by hand here goes through a formatter. A field added to TaskDTO fails TaskDTOSerializerTest until it is written.
+@JsonComponent //registered with every ObjectMapper Spring Boot builds, the list, single task and stream endpoints use it.
+public class TaskDTOSerializer extends StdSerializer<TaskDTO> {
+    private static final String DUE_DATE_PATTERN = "MM-dd-yyyy HH:mm"; //the pattern writeDueDate writes by hand.
+
+    private static final SerializableString ID = propertyName("id");
+    private static final SerializableString TASK_NAME = propertyName("taskName");
+    private static final SerializableString TASK_DESCRIPTION = propertyName("taskDescription");
+    private static final SerializableString DUE_DATE = propertyName("dueDate");
+    private static final SerializableString COMPLETED = propertyName("completed");
+    private static final SerializableString UPDATED_AT = propertyName("updatedAt");
+
+    private static final DateTimeFormatter DUE_DATE_FORMATTER = formatter("dueDate", DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+    private static final boolean DUE_DATE_BY_HAND = DUE_DATE_PATTERN.equals(pattern("dueDate"));
+    private static final DateTimeFormatter UPDATED_AT_FORMATTER = formatter("updatedAt", DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+    private static final boolean UPDATED_AT_BY_HAND = pattern("updatedAt") == null;
+
+    private static final int DUE_DATE_LENGTH = 16; //MM-dd-yyyy HH:mm
+    private static final int MAX_UPDATED_AT_LENGTH = 29; //yyyy-MM-ddTHH:mm:ss.SSSSSSSSS
+
+    public TaskDTOSerializer(){
+        super(TaskDTO.class);
+    }
+
+    @Override
+    public void serialize(TaskDTO task, JsonGenerator generator, SerializerProvider provider) throws IOException {
+        generator.writeStartObject(task);
+        generator.writeFieldName(ID);
+        if (task.getId() == null) {
+            generator.writeNull();
+        } else {
+            generator.writeNumber(task.getId().longValue());
+        }
+        generator.writeFieldName(TASK_NAME);
+        generator.writeString(task.getTaskName()); //writes null for a null string.
+        generator.writeFieldName(TASK_DESCRIPTION);
+        generator.writeString(task.getTaskDescription());
+        generator.writeFieldName(DUE_DATE);
+        writeDueDate(task.getDueDate(), generator);
+        generator.writeFieldName(COMPLETED);
+        if (task.getCompleted() == null) {
+            generator.writeNull();
+        } else {
+            generator.writeBoolean(task.getCompleted());
+        }
+        generator.writeFieldName(UPDATED_AT);
+        if (UPDATED_AT_BY_HAND && provider.isEnabled(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)) { //off in Spring Boot, kept for plain mappers.
+            provider.defaultSerializeValue(task.getUpdatedAt(), generator);
+        } else {
+            writeUpdatedAt(task.getUpdatedAt(), generator);
+        }
+        generator.writeEndObject();
+    }
+
+    private static void writeDueDate(LocalDateTime dueDate, JsonGenerator generator) throws IOException {
+        if (dueDate == null) {
+            generator.writeNull();
+        } else if (!DUE_DATE_BY_HAND || !hasFourDigitYear(dueDate)) {
+            generator.writeString(DUE_DATE_FORMATTER.format(dueDate));
+        } else {
+            char[] buffer = new char[DUE_DATE_LENGTH]; //a TLAB bump, JsonGenerator copies it into its own buffer.
+            writeTwoDigits(buffer, 0, dueDate.getMonthValue());
+            buffer[2] = '-';
+            writeTwoDigits(buffer, 3, dueDate.getDayOfMonth());
+            buffer[5] = '-';
+            writeFourDigits(buffer, 6, dueDate.getYear());
+            buffer[10] = ' ';
+            writeTwoDigits(buffer, 11, dueDate.getHour());
+            buffer[13] = ':';
+            writeTwoDigits(buffer, 14, dueDate.getMinute());
+            generator.writeString(buffer, 0, DUE_DATE_LENGTH);
+        }
+    }
+
+    private static void writeUpdatedAt(LocalDateTime updatedAt, JsonGenerator generator) throws IOException {
+        if (updatedAt == null) {
+            generator.writeNull();
+        } else if (!UPDATED_AT_BY_HAND || !hasFourDigitYear(updatedAt)) {
+            generator.writeString(UPDATED_AT_FORMATTER.format(updatedAt));
+        } else {
+            char[] buffer = new char[MAX_UPDATED_AT_LENGTH];
+            writeFourDigits(buffer, 0, updatedAt.getYear());
+            buffer[4] = '-';
+            writeTwoDigits(buffer, 5, updatedAt.getMonthValue());
+            buffer[7] = '-';
+            writeTwoDigits(buffer, 8, updatedAt.getDayOfMonth());
+            buffer[10] = 'T';
+            writeTwoDigits(buffer, 11, updatedAt.getHour());
+            buffer[13] = ':';
+            writeTwoDigits(buffer, 14, updatedAt.getMinute());
+            buffer[16] = ':';
+            writeTwoDigits(buffer, 17, updatedAt.getSecond());
+            int length = 19;
+            int nano = updatedAt.getNano();
+            if (nano > 0) { //like ISO_LOCAL_DATE_TIME: as many fraction digits as needed, no trailing zeros.
+                buffer[length++] = '.';
+                for (int divisor = 100_000_000; nano > 0; divisor /= 10) {
+                    buffer[length++] = (char) ('0' + nano / divisor);
+                    nano %= divisor;
+                }
+            }
+            generator.writeString(buffer, 0, length);
+        }
+    }
+
+    private static SerializableString propertyName(String field){
+        JsonProperty property = annotation(field, JsonProperty.class);
+        return new SerializedString(property != null && !property.value().isEmpty() ? property.value() : field);
+    }
+
+    private static String pattern(String field){ //null without a @JsonFormat pattern, the default ISO format then.
+        JsonFormat format = annotation(field, JsonFormat.class);
+        return format != null && !format.pattern().isEmpty() ? format.pattern() : null;
+    }
+
+    private static DateTimeFormatter formatter(String field, DateTimeFormatter defaultFormatter){
+        String pattern = pattern(field);
+        return pattern != null ? DateTimeFormatter.ofPattern(pattern) : defaultFormatter;
+    }
+
+    private static <A extends Annotation> A annotation(String field, Class<A> annotationType){
+        try {
+            return TaskDTO.class.getDeclaredField(field).getAnnotation(annotationType);
+        } catch (NoSuchFieldException e) { //renamed in TaskDTO, the serializer has to follow.
+            throw new IllegalStateException("TaskDTO has no field " + field + ", update TaskDTOSerializer", e);
+        }
+    }
+
+    private static boolean hasFourDigitYear(LocalDateTime dateTime){ //other years are signed or padded differently by the formatters.
+        return dateTime.getYear() >= 0 && dateTime.getYear() <= 9999;
+    }
+
+    private static void writeTwoDigits(char[] buffer, int offset, int value){
+        buffer[offset] = (char) ('0' + value / 10);
+        buffer[offset + 1] = (char) ('0' + value % 10);
+    }
+
+    private static void writeFourDigits(char[] buffer, int offset, int value){
+        writeTwoDigits(buffer, offset, value / 100);
+        writeTwoDigits(buffer, offset + 2, value % 100);
+    }
+}
@@ -9,15 +9,27 @@ import java.util.List;
 
 @Mapper(componentModel = "spring") //defines the mapper interface the parenthesis generates the mapper as a spring context bean.
 public interface TaskMapper {
+    @Mapping(target = "id", ignore = true) //ids are always generated by the database.
+    @Mapping(target = "version", ignore = true) //versions are managed by Hibernate.
+    @Mapping(target = "changeSeq", ignore = true) //change sequence numbers are assigned by the services.
+    @Mapping(target = "updatedAt", ignore = true)
     Task toEntity(TaskDTO dto);
 
     TaskDTO toDTO(Task task);
 
     @BeanMapping(nullValuePropertyMappingStrategy = NullValuePropertyMappingStrategy.IGNORE)//this is PATCH/UPDATE
+    @Mapping(target = "id", ignore = true)
+    @Mapping(target = "version", ignore = true)
+    @Mapping(target = "changeSeq", ignore = true)
+    @Mapping(target = "updatedAt", ignore = true)
     void editTaskFromDTO(TaskDTO dto, @MappingTarget Task task);//The annotation makes it so only the attributes in
     // dto given by the client are modifies and the ones which are not given will be null which is then ignored
 
     @BeanMapping(nullValuePropertyMappingStrategy = NullValuePropertyMappingStrategy.IGNORE)
+    @Mapping(target = "id", ignore = true)
+    @Mapping(target = "version", ignore = true)
+    @Mapping(target = "changeSeq", ignore = true)
+    @Mapping(target = "updatedAt", ignore = true)
     void patchTaskFromDTO(TaskPatchDTO dto, @MappingTarget Task task);
 
     List<TaskDTO> toDTOList(Iterable<Task> taskList);
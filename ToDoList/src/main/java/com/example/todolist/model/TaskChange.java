@@ -0,0 +1,45 @@
+package com.example.todolist.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+//One row per write transaction, inserted when it takes its change sequence number: the auto-increment key is the number
+//it stamps on the tasks and tombstones it writes. The row is inserted in flight by a transaction of its own, under
+//TaskChangeLock, and the write transaction clears the flag as its first statement, so the row is done once the write
+//commits and the flag stays locked by the write until then. GET /tasks/sync only serves changes up to the safe number,
+//the one below the lowest number still in flight: every number below it committed or rolled back, whatever the clocks
+//of the instances say. A write that rolls back deletes its row, one whose instance died is found by TaskChangePruner
+//because its flag is no longer locked. Rows below the safe number are pruned. The sharded profile has this table on
+//every shard.
+@Entity
+@Table(name = "task_changes", indexes = {
+        @Index(name = "idx_task_changes_in_flight", columnList = "in_flight, change_seq") //the lowest number in flight.
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class TaskChange {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY) //inserted at persist, an AUTO_INCREMENT is not locked until the commit.
+    @Column(name = "change_seq")
+    private long changeSeq;
+
+    @Column(name = "taken_at", nullable = false)
+    private LocalDateTime takenAt; //clock of the instance that took the number, only to tell how long a write took.
+
+    @Column(name = "in_flight", nullable = false)
+    private boolean inFlight; //false for the rows of the writes that committed, an added column is false for the old rows.
+}
@@ -0,0 +1,26 @@
+package com.example.todolist.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+//Single row, created on startup, that a writer locks while it takes a change sequence number in a transaction of its
+//own. The lock is held for the INSERT of the task_changes row and that short commit, not until the write itself commits,
+//so numbers become visible in the order they were taken while writers still run side by side. The sharded profile has
+//one per shard.
+@Entity
+@Table(name = "task_change_lock")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class TaskChangeLock {
+    public static final int ID = 1;
+
+    @Id
+    private int id;
+}
@@ -0,0 +1,30 @@
+package com.example.todolist.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "task_tombstones", indexes = {
+        @Index(name = "idx_task_tombstones_change_seq", columnList = "change_seq, task_id") //deletes since a sync token.
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TaskTombstone {
+    //the row of this task id is no tombstone, its changeSeq is the highest number whose tombstones were pruned.
+    public static final long PRUNED_TASK_ID = 0;
+
+    @Id
+    @Column(name = "task_id")
+    private long taskId; //ids come from a sequence and are never reused, one row per deleted task is enough.
+
+    @Column(name = "change_seq", nullable = false)
+    private long changeSeq;
+
+    @Column(name = "deleted_at", nullable = false)
+    private LocalDateTime deletedAt;
+}
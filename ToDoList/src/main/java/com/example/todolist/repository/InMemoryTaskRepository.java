@@ -0,0 +1,359 @@
+package com.example.todolist.repository;
+
+import com.example.todolist.dto.TaskDTO;
+import com.example.todolist.dto.TaskDueDateCountDTO;
+import com.example.todolist.dto.TaskFilterDTO;
+import com.example.todolist.model.Task;
+import com.example.todolist.model.TaskTombstone;
+import com.example.todolist.repository.TaskStore.TaskRecord;
+import com.example.todolist.repository.TaskStore.TombstoneRecord;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Repository;
+
+import java.text.Collator;
+import java.text.Normalizer;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+//TaskRepository of the memory profile, every query is answered from TaskStore instead of the database. Tasks loaded in
+//a transaction are tracked like in a persistence context, their changes are written on flush and on commit. Filters and
+//stats, range scans on an index in the database, scan the tasks here but only copy the matches, sync seeks to its position
+//in the change index of TaskStore. Task names are matched and sorted like MySQL's utf8mb4_0900_ai_ci.
+@Repository
+@Profile("memory")
+public class InMemoryTaskRepository implements TaskRepository, TaskChangeStream {
+    private static final Comparator<Boolean> COMPLETED_ORDER = Comparator.nullsFirst(Comparator.naturalOrder());
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+    private static final Comparator<String> NAME_ORDER = nameOrder();
+
+    private final TaskStore taskStore;
+
+    public InMemoryTaskRepository(TaskStore taskStore){
+        this.taskStore = taskStore;
+    }
+
+    @Override
+    public <S extends Task> S save(S task){
+        return taskStore.inTransaction(transaction -> {
+            Task saved = taskStore.save(transaction, task);
+            @SuppressWarnings("unchecked") //merge returns the tracked instance, it is a Task like the argument.
+            S result = (S) saved;
+            return result;
+        });
+    }
+
+    @Override
+    public <S extends Task> Iterable<S> saveAll(Iterable<S> tasks){
+        return taskStore.inTransaction(transaction -> {
+            List<S> saved = new ArrayList<>();
+            for (S task : tasks) {
+                @SuppressWarnings("unchecked")
+                S result = (S) taskStore.save(transaction, task);
+                saved.add(result);
+            }
+            return saved;
+        });
+    }
+
+    @Override
+    public Optional<Task> findById(Long id){
+        return taskStore.inTransaction(transaction ->
+                Optional.ofNullable(taskStore.find(transaction, id)).map(record -> taskStore.manage(transaction, record)));
+    }
+
+    @Override
+    public boolean existsById(Long id){
+        return taskStore.inTransaction(transaction -> taskStore.find(transaction, id) != null);
+    }
+
+    @Override
+    public Iterable<Task> findAll(){
+        return taskStore.inTransaction(transaction -> manage(transaction, taskStore.records(transaction)));
+    }
+
+    @Override
+    public Iterable<Task> findAllById(Iterable<Long> ids){
+        return taskStore.inTransaction(transaction -> {
+            List<Task> tasks = new ArrayList<>();
+            for (Long id : distinct(ids)) {
+                TaskRecord record = taskStore.find(transaction, id);
+                if (record != null) {
+                    tasks.add(taskStore.manage(transaction, record));
+                }
+            }
+            return tasks;
+        });
+    }
+
+    @Override
+    public long count(){
+        return taskStore.inTransaction(taskStore::count);
+    }
+
+    @Override
+    public void deleteById(Long id){
+        taskStore.inTransaction(transaction -> taskStore.delete(transaction, id));
+    }
+
+    @Override
+    public void delete(Task task){
+        deleteById(task.getId());
+    }
+
+    @Override
+    public void deleteAllById(Iterable<? extends Long> ids){
+        taskStore.inTransaction(transaction -> {
+            ids.forEach(id -> taskStore.delete(transaction, id));
+            return null;
+        });
+    }
+
+    @Override
+    public void deleteAll(Iterable<? extends Task> tasks){
+        taskStore.inTransaction(transaction -> {
+            tasks.forEach(task -> taskStore.delete(transaction, task.getId()));
+            return null;
+        });
+    }
+
+    @Override
+    public void deleteAll(){
+        taskStore.inTransaction(transaction -> {
+            taskStore.records(transaction).forEach(record -> taskStore.delete(transaction, record.id()));
+            return null;
+        });
+    }
+
+    @Override
+    public List<TaskDTO> findAllAsDTO(){
+        return taskStore.inTransaction(transaction -> toDTOs(taskStore.records(transaction)));
+    }
+
+    @Override
+    public List<TaskDTO> findPageAsDTO(long id, Limit limit){
+        return taskStore.inTransaction(transaction -> toDTOs(taskStore.recordsAfter(transaction, id, max(limit))));
+    }
+
+    @Override
+    public List<TaskDTO> findAllAsDTOByIdIn(Collection<Long> ids){
+        return taskStore.inTransaction(transaction -> {
+            List<TaskDTO> tasks = new ArrayList<>(ids.size());
+            for (Long id : distinct(ids)) {
+                TaskRecord record = taskStore.find(transaction, id);
+                if (record != null) {
+                    tasks.add(record.toDTO());
+                }
+            }
+            return tasks;
+        });
+    }
+
+    @Override
+    public Stream<TaskDTO> streamAllAsDTO(){
+        return findAllAsDTO().stream(); //the records are already in memory, the DTOs are made as the list is copied.
+    }
+
+    @Override
+    public List<TaskDueDateCountDTO> countByDueDate(LocalDateTime from, LocalDateTime to){
+        return taskStore.inTransaction(transaction -> {
+            TreeMap<LocalDate, long[]> counts = new TreeMap<>(); //open and completed per day, like the GROUP BY.
+            for (TaskRecord record : taskStore.records(transaction, record -> record.completed() != null && record.dueDate() != null
+                    && !record.dueDate().isBefore(from) && record.dueDate().isBefore(to))) {
+                counts.computeIfAbsent(record.dueDate().toLocalDate(), date -> new long[2])[record.completed() ? 1 : 0]++;
+            }
+            List<TaskDueDateCountDTO> result = new ArrayList<>(counts.size());
+            for (Map.Entry<LocalDate, long[]> count : counts.entrySet()) {
+                result.add(new TaskDueDateCountDTO(count.getKey(), count.getValue()[0], count.getValue()[1]));
+            }
+            return result;
+        });
+    }
+
+    @Override
+    public long countCompleted(){
+        return taskStore.inTransaction(transaction -> taskStore.count(transaction, record -> Boolean.TRUE.equals(record.completed())));
+    }
+
+    @Override
+    public long countOverdue(LocalDateTime now){
+        return taskStore.inTransaction(transaction -> taskStore.count(transaction,
+                record -> Boolean.FALSE.equals(record.completed()) && record.dueDate() != null && record.dueDate().isBefore(now)));
+    }
+
+    @Override
+    public List<Task> findChangedSince(long changeSeq, long id, long upTo, Limit limit){
+        return taskStore.inTransaction(transaction -> manage(transaction, taskStore.changedSince(transaction, changeSeq, id, upTo, max(limit))));
+    }
+
+    @Override
+    public List<TaskTombstone> findTombstonesSince(long changeSeq, long id, long upTo, Limit limit){
+        return taskStore.inTransaction(transaction -> taskStore.tombstonesSince(transaction, changeSeq, id, upTo, max(limit)).stream()
+                .map(TombstoneRecord::toTombstone)
+                .toList());
+    }
+
+    @Override
+    public long prunedTombstonesUpTo(){
+        return taskStore.prunedTombstonesUpTo();
+    }
+
+    @Override
+    public void flush(){
+        taskStore.inTransaction(transaction -> {
+            taskStore.flush(transaction);
+            return null;
+        });
+    }
+
+    @Override
+    public List<Long> findExistingIds(Collection<Long> ids){
+        return taskStore.inTransaction(transaction -> distinct(ids).stream()
+                .filter(id -> taskStore.find(transaction, id) != null)
+                .toList());
+    }
+
+    @Override
+    public int updateCompleted(Collection<Long> ids, boolean completed, LocalDateTime updatedAt){
+        return taskStore.inTransaction(transaction -> {
+            taskStore.flush(transaction);
+            long changeSeq = taskStore.nextChangeSeq(transaction);
+            int updated = 0;
+            for (Long id : distinct(ids)) {
+                TaskRecord record = taskStore.find(transaction, id);
+                if (record != null) { //like the bulk UPDATE, the version is incremented without a check.
+                    taskStore.put(transaction, new TaskRecord(record.id(), record.taskName(), record.taskDescription(),
+                            record.dueDate(), completed, record.version() + 1, changeSeq, updatedAt));
+                    updated++;
+                }
+            }
+            taskStore.clear(transaction);
+            return updated;
+        });
+    }
+
+    @Override
+    public List<TaskDTO> findTasks(TaskFilterDTO filter, Sort sort, TaskDTO after, Limit limit){
+        String namePrefix = filter.getNamePrefix() == null ? null : fold(filter.getNamePrefix());
+        Predicate<TaskRecord> matches = record -> (filter.getCompleted() == null || filter.getCompleted().equals(record.completed()))
+                && (filter.getDueAfter() == null || (record.dueDate() != null && !record.dueDate().isBefore(filter.getDueAfter())))
+                && (filter.getDueBefore() == null || (record.dueDate() != null && record.dueDate().isBefore(filter.getDueBefore())))
+                && (namePrefix == null || (record.taskName() != null && fold(record.taskName()).startsWith(namePrefix)));
+        Comparator<TaskRecord> order = comparator(sort);
+        TaskRecord position = after == null ? null : TaskRecord.sortKey(after);
+        Predicate<TaskRecord> afterPosition = position == null ? matches : matches.and(record -> order.compare(record, position) > 0);
+        return taskStore.inTransaction(transaction -> taskStore.records(transaction, afterPosition).stream()
+                .sorted(order)
+                .limit(max(limit))
+                .map(TaskRecord::toDTO)
+                .toList());
+    }
+
+    @Override
+    public List<Long> recordChanges(Collection<Task> writtenTasks, Collection<Long> deletedTaskIds){
+        return taskStore.inTransaction(transaction -> {
+            List<Long> writtenTaskIds = new ArrayList<>(writtenTasks.size());
+            for (Task task : writtenTasks) {
+                writtenTaskIds.add(taskStore.save(transaction, task).getId()); //new tasks are inserted, managed ones stay as they are.
+            }
+            taskStore.flush(transaction); //nothing is written before the commit, so unlike the database the order is free.
+            long changeSeq = taskStore.nextChangeSeq(transaction);
+            return taskStore.saveChanges(transaction, writtenTaskIds, distinct(deletedTaskIds), changeSeq);
+        });
+    }
+
+    @Override
+    public TaskChangeStream changeStream(int stream){ //the store is one change stream.
+        return this;
+    }
+
+    @Override
+    public long safeChangeSeq(){ //numbers are taken in commit order under the writer lock, every committed one is safe.
+        return taskStore.inTransaction(taskStore::lastChangeSeq);
+    }
+
+    @Override
+    public long changeVersion(){
+        return taskStore.inTransaction(taskStore::lastChangeSeq);
+    }
+
+    @Override
+    public void pruneChanges(){ //the last number is part of the store's state, there are no change rows.
+    }
+
+    @Override
+    public void pruneTombstones(LocalDateTime deletedBefore){
+        taskStore.inTransaction(transaction -> {
+            taskStore.pruneTombstones(transaction, deletedBefore);
+            return null;
+        });
+    }
+
+    @Override
+    public void createChangeLock(){ //numbers are taken under the writer lock of the store, there is no row to create.
+    }
+
+    private List<Task> manage(TaskStore.Transaction transaction, List<TaskRecord> records){
+        List<Task> tasks = new ArrayList<>(records.size());
+        for (TaskRecord record : records) {
+            tasks.add(taskStore.manage(transaction, record));
+        }
+        return tasks;
+    }
+
+    private static List<TaskDTO> toDTOs(List<TaskRecord> records){
+        return records.stream().map(TaskRecord::toDTO).toList();
+    }
+
+    private static <T> Collection<T> distinct(Iterable<T> values){ //like IN, a repeated id matches once.
+        LinkedHashSet<T> distinct = new LinkedHashSet<>();
+        values.forEach(distinct::add);
+        return distinct;
+    }
+
+    private static int max(Limit limit){
+        return limit.isLimited() ? limit.max() : Integer.MAX_VALUE;
+    }
+
+    //same order as the ORDER BY of TaskQueryRepositoryImpl.findTasks, nulls first like MySQL and H2.
+    private static Comparator<TaskRecord> comparator(Sort sort){
+        Comparator<TaskRecord> comparator = (a, b) -> 0;
+        for (Sort.Order order : sort) {
+            Comparator<TaskRecord> property = switch (order.getProperty()) {
+                case "id" -> Comparator.comparingLong(TaskRecord::id);
+                case "taskName" -> Comparator.comparing(TaskRecord::taskName, Comparator.nullsFirst(NAME_ORDER));
+                case "dueDate" -> Comparator.comparing(TaskRecord::dueDate, Comparator.nullsFirst(Comparator.naturalOrder()));
+                case "completed" -> Comparator.comparing(TaskRecord::completed, COMPLETED_ORDER);
+                default -> throw new InvalidDataAccessApiUsageException("Cannot sort tasks by " + order.getProperty());
+            };
+            comparator = comparator.thenComparing(order.isAscending() ? property : property.reversed());
+        }
+        return comparator.thenComparingLong(TaskRecord::id); //ties are always broken by id so the order is stable.
+    }
+
+    //case and accents are ignored like by utf8mb4_0900_ai_ci, "Über" starts with "ub". A LIKE on that collation compares
+    //character by character, so a prefix is matched on the folded names instead of with the Collator.
+    private static String fold(String value){
+        return COMBINING_MARKS.matcher(Normalizer.normalize(value, Normalizer.Form.NFD)).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    private static Comparator<String> nameOrder(){ //the order of utf8mb4_0900_ai_ci, like todolist.shards.name-collation=primary.
+        Collator collator = Collator.getInstance(Locale.ROOT);
+        collator.setStrength(Collator.PRIMARY);
+        return collator::compare;
+    }
+}
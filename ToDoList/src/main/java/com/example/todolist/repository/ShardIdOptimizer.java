@@ -0,0 +1,75 @@
+package com.example.todolist.repository;
+
+import org.hibernate.id.IntegralDataTypeHolder;
+import org.hibernate.id.enhanced.AccessCallback;
+import org.hibernate.id.enhanced.Optimizer;
+
+import java.io.Serializable;
+import java.util.concurrent.locks.ReentrantLock;
+
+//pooled-lo optimizer of the task ids in the sharded profile. Every shard counts its own tasks_seq up from 1 and adds the
+//first id of its range, so ids are unique across shards and the id alone tells which shard a task lives on.
+//Written out instead of extending PooledLoOptimizer, whose generate is synchronized around the sequence call: a virtual
+//thread fetching the next block over JDBC would pin its carrier. The lock here parks it instead. Optimizer is implemented
+//directly, the constructor of AbstractOptimizer is package-private.
+public class ShardIdOptimizer implements Optimizer {
+    private final int incrementSize;
+    private final ReentrantLock lock = new ReentrantLock();
+    private IntegralDataTypeHolder lastSourceValue; //guarded by lock, like the block below.
+    private long nextId;
+    private long upperLimit;
+    private volatile long offset;
+    private volatile long range = Long.MAX_VALUE;
+
+    public ShardIdOptimizer(Class<?> returnClass, int incrementSize){ //created by Hibernate from hibernate.id.optimizer.pooled.preferred.
+        if (incrementSize < 1) {
+            throw new IllegalArgumentException("increment size cannot be less than 1");
+        }
+        this.incrementSize = incrementSize; //ids are always returned as Long, the type of Task.id.
+    }
+
+    void useRange(long offset, long range){ //set once the shard's EntityManagerFactory is built, before the first insert.
+        this.offset = offset;
+        this.range = range;
+    }
+
+    @Override
+    public Serializable generate(AccessCallback callback){
+        long localId;
+        lock.lock();
+        try {
+            if (lastSourceValue == null || nextId >= upperLimit) { //the sequence value is the low end of the next block.
+                lastSourceValue = callback.getNextValue();
+                nextId = Math.max(lastSourceValue.makeValue().longValue(), 1);
+                upperLimit = lastSourceValue.makeValue().longValue() + getIncrementSize();
+            }
+            localId = nextId++;
+        } finally {
+            lock.unlock();
+        }
+        if (localId > range) { //the next id would belong to the next shard.
+            throw new IllegalStateException("Shard with ids from " + (offset + 1) + " has no ids left");
+        }
+        return offset + localId;
+    }
+
+    @Override
+    public IntegralDataTypeHolder getLastSourceValue(){
+        lock.lock();
+        try {
+            return lastSourceValue;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int getIncrementSize(){
+        return incrementSize;
+    }
+
+    @Override
+    public boolean applyIncrementSizeToSourceValues(){ //the sequence steps by the block size, like pooled-lo.
+        return true;
+    }
+}
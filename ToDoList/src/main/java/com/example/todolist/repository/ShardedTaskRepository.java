@@ -0,0 +1,437 @@
+package com.example.todolist.repository;
+
+import com.example.todolist.dto.TaskDTO;
+import com.example.todolist.dto.TaskDueDateCountDTO;
+import com.example.todolist.dto.TaskFilterDTO;
+import com.example.todolist.model.Task;
+import com.example.todolist.model.TaskTombstone;
+import com.example.todolist.repository.TaskShards.Shard;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.text.Collator;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+//TaskRepository of the sharded profile. Calls for one id go to the shard that owns it, ids are grouped by shard, new
+//tasks are spread round robin. Lists, counts and filters are sent to every shard at the same time and merged here, in
+//the same order the single database returns them. Keyset pages are in id order like there, but since the shards fill
+//up side by side that is no longer the order the tasks were created in. Every call runs in a transaction of ShardedTransactionManager,
+//joining the caller's one, so the tasks it loads stay managed and are written on commit.
+@Repository
+@Profile("sharded")
+public class ShardedTaskRepository implements TaskRepository {
+    private static final Comparator<Boolean> COMPLETED_ORDER = Comparator.nullsFirst(Comparator.naturalOrder());
+
+    private final TaskShards taskShards;
+    private final Comparator<String> nameOrder; //the order of the task_name column on the shards.
+    private final TransactionTemplate writeTemplate;
+    private final TransactionTemplate readTemplate;
+
+    public ShardedTaskRepository(TaskShards taskShards, ShardedTransactionManager transactionManager,
+                                 @Value("${todolist.shards.name-collation:primary}") String nameCollation){
+        this.taskShards = taskShards;
+        this.nameOrder = nameOrder(nameCollation);
+        this.writeTemplate = new TransactionTemplate(transactionManager);
+        this.readTemplate = new TransactionTemplate(transactionManager);
+        this.readTemplate.setReadOnly(true);
+    }
+
+    @Override
+    public <S extends Task> S save(S task){
+        return write(() -> taskShards.join(shardFor(task)).save(task));
+    }
+
+    @Override
+    public <S extends Task> Iterable<S> saveAll(Iterable<S> tasks){
+        return write(() -> {
+            List<S> saved = new ArrayList<>();
+            for (S task : tasks) { //in order on this thread, the inserts of a shard still go out as one JDBC batch on commit.
+                saved.add(taskShards.join(shardFor(task)).save(task));
+            }
+            return saved;
+        });
+    }
+
+    @Override
+    public Optional<Task> findById(Long id){
+        Shard shard = taskShards.shardOf(id);
+        return shard == null ? Optional.empty() : read(() -> taskShards.join(shard).findById(id));
+    }
+
+    @Override
+    public boolean existsById(Long id){
+        Shard shard = taskShards.shardOf(id);
+        return shard != null && read(() -> taskShards.join(shard).existsById(id));
+    }
+
+    @Override
+    public Iterable<Task> findAll(){
+        return read(() -> concat(taskShards.scatter(taskShards.shards(), shard -> toList(shard.repository().findAll()))));
+    }
+
+    @Override
+    public Iterable<Task> findAllById(Iterable<Long> ids){
+        Map<Shard, List<Long>> byShard = taskShards.byShard(ids);
+        return read(() -> concat(taskShards.scatter(byShard.keySet(), shard -> toList(shard.repository().findAllById(byShard.get(shard))))));
+    }
+
+    @Override
+    public long count(){
+        return read(() -> sum(taskShards.scatter(taskShards.shards(), shard -> shard.repository().count())));
+    }
+
+    @Override
+    public void deleteById(Long id){
+        Shard shard = taskShards.shardOf(id);
+        if (shard != null) { //like the JPA repository, a missing task is ignored.
+            write(() -> {
+                taskShards.join(shard).deleteById(id);
+                return null;
+            });
+        }
+    }
+
+    @Override
+    public void delete(Task task){
+        deleteById(task.getId());
+    }
+
+    @Override
+    public void deleteAllById(Iterable<? extends Long> ids){
+        Map<Shard, List<Long>> byShard = taskShards.byShard(ids);
+        write(() -> taskShards.scatter(byShard.keySet(), shard -> {
+            shard.repository().deleteAllById(byShard.get(shard));
+            return null;
+        }));
+    }
+
+    @Override
+    public void deleteAll(Iterable<? extends Task> tasks){
+        List<Long> ids = new ArrayList<>();
+        tasks.forEach(task -> ids.add(task.getId()));
+        deleteAllById(ids);
+    }
+
+    @Override
+    public void deleteAll(){
+        write(() -> taskShards.scatter(taskShards.shards(), shard -> {
+            shard.repository().deleteAll();
+            return null;
+        }));
+    }
+
+    @Override
+    public List<TaskDTO> findAllAsDTO(){ //every shard sorts by id and the shards own consecutive id ranges, appending keeps the order.
+        return read(() -> concat(taskShards.scatter(taskShards.shards(), shard -> shard.repository().findAllAsDTO())));
+    }
+
+    @Override
+    public List<TaskDTO> findPageAsDTO(long id, Limit limit){
+        return read(() -> { //shard by shard from the cursor on, most pages are served by the first shard asked.
+            List<TaskDTO> page = new ArrayList<>();
+            for (Shard shard : taskShards.shardsAfter(id)) {
+                int remaining = max(limit) - page.size();
+                if (remaining <= 0) {
+                    break;
+                }
+                page.addAll(taskShards.join(shard).findPageAsDTO(id, Limit.of(remaining)));
+            }
+            return page;
+        });
+    }
+
+    @Override
+    public List<TaskDTO> findAllAsDTOByIdIn(Collection<Long> ids){
+        Map<Shard, List<Long>> byShard = taskShards.byShard(ids);
+        return read(() -> concat(taskShards.scatter(byShard.keySet(), shard -> shard.repository().findAllAsDTOByIdIn(byShard.get(shard)))));
+    }
+
+    @Override
+    public Stream<TaskDTO> streamAllAsDTO(){
+        if (taskShards.currentTransaction() == null) { //the shard streams are read lazily, like a JPA stream they need a surrounding transaction.
+            throw new InvalidDataAccessApiUsageException("Streaming the sharded tasks needs a surrounding transaction");
+        }
+        return taskShards.shards().stream() //one shard after the other, in id order.
+                .flatMap(shard -> taskShards.join(shard).streamAllAsDTO());
+    }
+
+    @Override
+    public List<TaskDueDateCountDTO> countByDueDate(LocalDateTime from, LocalDateTime to){
+        List<List<TaskDueDateCountDTO>> counts = read(() -> taskShards.scatter(taskShards.shards(), shard -> shard.repository().countByDueDate(from, to)));
+        TreeMap<LocalDate, long[]> merged = new TreeMap<>(); //open and completed per day, summed over the shards.
+        for (List<TaskDueDateCountDTO> shardCounts : counts) {
+            for (TaskDueDateCountDTO count : shardCounts) {
+                long[] sum = merged.computeIfAbsent(count.getDate(), date -> new long[2]);
+                sum[0] += count.getOpen();
+                sum[1] += count.getCompleted();
+            }
+        }
+        List<TaskDueDateCountDTO> result = new ArrayList<>(merged.size());
+        for (Map.Entry<LocalDate, long[]> count : merged.entrySet()) {
+            result.add(new TaskDueDateCountDTO(count.getKey(), count.getValue()[0], count.getValue()[1]));
+        }
+        return result;
+    }
+
+    @Override
+    public long countCompleted(){
+        return read(() -> sum(taskShards.scatter(taskShards.shards(), shard -> shard.repository().countCompleted())));
+    }
+
+    @Override
+    public long countOverdue(LocalDateTime now){
+        return read(() -> sum(taskShards.scatter(taskShards.shards(), shard -> shard.repository().countOverdue(now))));
+    }
+
+    @Override
+    public int changeStreamCount(){ //every shard numbers its own changes.
+        return taskShards.shards().size();
+    }
+
+    @Override
+    public int changeStreamOf(long taskId){
+        Shard shard = taskShards.shardOf(taskId);
+        return shard == null ? 0 : shard.index();
+    }
+
+    @Override
+    public int partitionOf(long taskId){
+        return changeStreamOf(taskId);
+    }
+
+    @Override
+    public TaskChangeStream changeStream(int stream){ //the stream of a shard is the only one of its repository.
+        Shard shard = taskShards.shards().get(stream);
+        return new TaskChangeStream() {
+            @Override
+            public long safeChangeSeq(){
+                return read(() -> taskShards.join(shard).changeStream(0).safeChangeSeq());
+            }
+
+            @Override
+            public List<Task> findChangedSince(long changeSeq, long id, long upTo, Limit limit){
+                return read(() -> taskShards.join(shard).changeStream(0).findChangedSince(changeSeq, id, upTo, limit));
+            }
+
+            @Override
+            public List<TaskTombstone> findTombstonesSince(long changeSeq, long id, long upTo, Limit limit){
+                return read(() -> taskShards.join(shard).changeStream(0).findTombstonesSince(changeSeq, id, upTo, limit));
+            }
+
+            @Override
+            public long prunedTombstonesUpTo(){
+                return read(() -> taskShards.join(shard).changeStream(0).prunedTombstonesUpTo());
+            }
+        };
+    }
+
+    @Override
+    public void flush(){
+        write(() -> {
+            taskShards.joinedRepositories().forEach(TaskRepository::flush); //shards this transaction has not used have nothing to send.
+            return null;
+        });
+    }
+
+    @Override
+    public List<Long> findExistingIds(Collection<Long> ids){
+        Map<Shard, List<Long>> byShard = taskShards.byShard(ids);
+        return read(() -> concat(taskShards.scatter(byShard.keySet(), shard -> shard.repository().findExistingIds(byShard.get(shard)))));
+    }
+
+    @Override
+    public int updateCompleted(Collection<Long> ids, boolean completed, LocalDateTime updatedAt){
+        Map<Shard, List<Long>> byShard = taskShards.byShard(ids);
+        return write(() -> {
+            int updated = 0;
+            for (Shard shard : taskShards.shards()) { //in shard order like recordChanges.
+                if (byShard.containsKey(shard)) {
+                    updated += taskShards.join(shard).updateCompleted(byShard.get(shard), completed, updatedAt);
+                }
+            }
+            return updated;
+        });
+    }
+
+    @Override
+    public List<TaskDTO> findTasks(TaskFilterDTO filter, Sort sort, TaskDTO after, Limit limit){ //every shard returns its first limit tasks after the given one, the merge keeps the first limit of all.
+        List<List<TaskDTO>> runs = read(() -> taskShards.scatter(taskShards.shards(), shard -> shard.repository().findTasks(filter, sort, after, limit)));
+        return merge(runs, comparator(sort), max(limit));
+    }
+
+    //k-way merge of the sorted runs of the shards. A run is never reordered, only the heads of the runs are compared.
+    private static List<TaskDTO> merge(List<List<TaskDTO>> runs, Comparator<TaskDTO> order, int limit){
+        PriorityQueue<Run> heads = new PriorityQueue<>(runs.size(), (a, b) -> order.compare(a.head(), b.head()));
+        int size = 0;
+        for (List<TaskDTO> run : runs) {
+            size += run.size();
+            if (!run.isEmpty()) {
+                heads.add(new Run(run.iterator()));
+            }
+        }
+        List<TaskDTO> tasks = new ArrayList<>(Math.min(size, limit));
+        while (!heads.isEmpty() && tasks.size() < limit) {
+            Run run = heads.poll();
+            tasks.add(run.head());
+            if (run.advance()) {
+                heads.add(run);
+            }
+        }
+        return tasks;
+    }
+
+    @Override
+    public List<Long> recordChanges(Collection<Task> writtenTasks, Collection<Long> deletedTaskIds){
+        Map<Shard, List<Task>> written = new LinkedHashMap<>();
+        Shard insertShard = null; //all new tasks of a call go to one shard, a batch chunk of creates commits at once.
+        for (Task task : writtenTasks) { //new tasks are placed here, before their shard persists them.
+            Shard shard = task.getId() == 0 ? null : taskShards.shardOf(task.getId());
+            if (shard == null) {
+                shard = insertShard != null ? insertShard : (insertShard = taskShards.nextShardForInsert());
+            }
+            written.computeIfAbsent(shard, key -> new ArrayList<>()).add(task);
+        }
+        Map<Shard, List<Long>> deleted = taskShards.byShard(deletedTaskIds);
+        return write(() -> {
+            List<Long> deletedIds = new ArrayList<>();
+            //in shard order, every shard takes a change sequence number of its own.
+            for (Shard shard : taskShards.shards()) {
+                if (written.containsKey(shard) || deleted.containsKey(shard)) {
+                    deletedIds.addAll(taskShards.join(shard).recordChanges(
+                            written.getOrDefault(shard, List.of()), deleted.getOrDefault(shard, List.of())));
+                }
+            }
+            return deletedIds;
+        });
+    }
+
+    @Override
+    public long changeVersion(){ //the version of every shard only grows, so their sum grows with every change on any shard.
+        return read(() -> sum(taskShards.scatter(taskShards.shards(), shard -> shard.repository().changeVersion())));
+    }
+
+    @Override
+    public void pruneChanges(){
+        write(() -> taskShards.scatter(taskShards.shards(), shard -> {
+            shard.repository().pruneChanges();
+            return null;
+        }));
+    }
+
+    @Override
+    public void pruneTombstones(LocalDateTime deletedBefore){
+        write(() -> taskShards.scatter(taskShards.shards(), shard -> {
+            shard.repository().pruneTombstones(deletedBefore);
+            return null;
+        }));
+    }
+
+    @Override
+    public void createChangeLock(){
+        write(() -> taskShards.scatter(taskShards.shards(), shard -> {
+            shard.repository().createChangeLock();
+            return null;
+        }));
+    }
+
+    private Shard shardFor(Task task){
+        Shard shard = task.getId() == 0 ? null : taskShards.shardOf(task.getId());
+        return shard != null ? shard : taskShards.nextShardForInsert();
+    }
+
+    private <T> T write(Supplier<T> action){
+        return writeTemplate.execute(status -> action.get());
+    }
+
+    private <T> T read(Supplier<T> action){
+        return readTemplate.execute(status -> action.get());
+    }
+
+    private static <T> List<T> toList(Iterable<T> values){
+        List<T> list = new ArrayList<>();
+        values.forEach(list::add);
+        return list;
+    }
+
+    private static <T> List<T> concat(List<? extends List<T>> lists){
+        return lists.stream().flatMap(List::stream).toList();
+    }
+
+    private static long sum(List<Long> values){
+        return values.stream().mapToLong(Long::longValue).sum();
+    }
+
+    private static int max(Limit limit){
+        return limit.isLimited() ? limit.max() : Integer.MAX_VALUE;
+    }
+
+    //same order as the ORDER BY of TaskQueryRepositoryImpl.findTasks, nulls first like MySQL and H2.
+    //primary, secondary or tertiary: a Collator of that strength, primary is the case- and accent-insensitive order of
+    //MySQL's utf8mb4_0900_ai_ci. binary: the order of the code points, like a _bin collation or H2 by default.
+    private static Comparator<String> nameOrder(String collation){
+        if (collation.equals("binary")) {
+            return Comparator.naturalOrder();
+        }
+        Collator collator = Collator.getInstance(Locale.ROOT);
+        collator.setStrength(switch (collation) {
+            case "primary" -> Collator.PRIMARY;
+            case "secondary" -> Collator.SECONDARY;
+            case "tertiary" -> Collator.TERTIARY;
+            default -> throw new IllegalArgumentException("Unknown todolist.shards.name-collation " + collation);
+        });
+        return collator::compare;
+    }
+
+    private Comparator<TaskDTO> comparator(Sort sort){
+        Comparator<TaskDTO> comparator = (a, b) -> 0;
+        for (Sort.Order order : sort) {
+            Comparator<TaskDTO> property = switch (order.getProperty()) {
+                case "id" -> Comparator.comparing(TaskDTO::getId);
+                case "taskName" -> Comparator.comparing(TaskDTO::getTaskName, Comparator.nullsFirst(nameOrder));
+                case "dueDate" -> Comparator.comparing(TaskDTO::getDueDate, Comparator.nullsFirst(Comparator.naturalOrder()));
+                case "completed" -> Comparator.comparing(TaskDTO::getCompleted, COMPLETED_ORDER);
+                default -> throw new InvalidDataAccessApiUsageException("Cannot sort tasks by " + order.getProperty());
+            };
+            comparator = comparator.thenComparing(order.isAscending() ? property : property.reversed());
+        }
+        return comparator.thenComparing(TaskDTO::getId); //ties are always broken by id so the order is stable.
+    }
+
+    private static final class Run {
+        private final Iterator<TaskDTO> tasks;
+        private TaskDTO head;
+
+        private Run(Iterator<TaskDTO> tasks){
+            this.tasks = tasks;
+            this.head = tasks.next();
+        }
+
+        private TaskDTO head(){
+            return head;
+        }
+
+        private boolean advance(){
+            head = tasks.hasNext() ? tasks.next() : null;
+            return head != null;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.todolist.repository;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.SmartTransactionObject;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+//@Transactional and TransactionTemplate of the sharded profile. Binds a TaskShards.ShardTransaction to the thread, the
+//shards a method touches join it and are committed together. Synchronizations such as @TransactionalEventListener run
+//once for the whole transaction, after the last shard committed.
+@Component("transactionManager")
+@Profile("sharded")
+public class ShardedTransactionManager extends AbstractPlatformTransactionManager {
+    private final TaskShards taskShards;
+
+    public ShardedTransactionManager(TaskShards taskShards){
+        this.taskShards = taskShards;
+    }
+
+    @Override
+    protected Object doGetTransaction(){
+        return new ShardTransactionObject(taskShards.currentTransaction());
+    }
+
+    @Override
+    protected boolean isExistingTransaction(Object transaction){
+        return ((ShardTransactionObject) transaction).transaction != null;
+    }
+
+    @Override
+    protected void doBegin(Object transaction, TransactionDefinition definition){
+        ShardTransactionObject transactionObject = (ShardTransactionObject) transaction;
+        transactionObject.transaction = taskShards.begin(definition);
+        TransactionSynchronizationManager.bindResource(taskShards, transactionObject.transaction);
+    }
+
+    @Override
+    protected void doCommit(DefaultTransactionStatus status){
+        taskShards.commit(((ShardTransactionObject) status.getTransaction()).transaction);
+    }
+
+    @Override
+    protected void doRollback(DefaultTransactionStatus status){
+        taskShards.rollback(((ShardTransactionObject) status.getTransaction()).transaction);
+    }
+
+    @Override
+    protected void doSetRollbackOnly(DefaultTransactionStatus status){
+        ((ShardTransactionObject) status.getTransaction()).transaction.setRollbackOnly(); //the outer commit then rolls back.
+    }
+
+    @Override
+    protected void doCleanupAfterCompletion(Object transaction){
+        TransactionSynchronizationManager.unbindResource(taskShards);
+        taskShards.end(((ShardTransactionObject) transaction).transaction);
+    }
+
+    private static final class ShardTransactionObject implements SmartTransactionObject {
+        private TaskShards.ShardTransaction transaction;
+
+        private ShardTransactionObject(TaskShards.ShardTransaction transaction){
+            this.transaction = transaction;
+        }
+
+        @Override
+        public boolean isRollbackOnly(){
+            return transaction.isRollbackOnly();
+        }
+
+        @Override
+        public void flush(){
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.todolist.repository;
+
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+//creates the row of TaskChangeLock once every bean is ready and before the web server takes requests, so writers only
+//ever lock an existing row and two first writes cannot both insert it.
+@Component
+public class TaskChangeLockInitializer implements SmartInitializingSingleton {
+    private final TaskRepository taskRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    public TaskChangeLockInitializer(TaskRepository taskRepository, TransactionTemplate transactionTemplate){
+        this.taskRepository = taskRepository;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated(){
+        try {
+            transactionTemplate.executeWithoutResult(status -> taskRepository.createChangeLock());
+        } catch (DataIntegrityViolationException e) {
+            //another instance started at the same time and inserted it first.
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.todolist.repository;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+//deletes the task_changes rows below the safe change sequence number every prune-interval, so the table holds little
+//more than the writes still in flight, and the rows in flight that no writer holds any more. Tombstones are kept for
+//tombstone-retention, a sync token from before the pruned ones is answered with 410. Every instance prunes, the DELETE
+//of a second one finds nothing.
+@Component
+public class TaskChangePruner {
+    private static final Logger log = LoggerFactory.getLogger(TaskChangePruner.class);
+
+    private final TaskRepository taskRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration interval;
+    private final Duration tombstoneRetention;
+    private ScheduledExecutorService scheduler;
+
+    public TaskChangePruner(TaskRepository taskRepository, TransactionTemplate transactionTemplate,
+                            @Value("${todolist.sync.prune-interval:1m}") Duration interval,
+                            @Value("${todolist.sync.tombstone-retention:30d}") Duration tombstoneRetention){
+        this.taskRepository = taskRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.interval = interval;
+        this.tombstoneRetention = tombstoneRetention;
+    }
+
+    @PostConstruct
+    public void start(){
+        scheduler = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("task-change-pruner").daemon().factory());
+        scheduler.scheduleWithFixedDelay(this::pruneQuietly, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop(){
+        scheduler.shutdownNow();
+    }
+
+    public void prune(){
+        transactionTemplate.executeWithoutResult(status -> {
+            taskRepository.pruneChanges();
+            taskRepository.pruneTombstones(LocalDateTime.now().minus(tombstoneRetention));
+        });
+    }
+
+    private void pruneQuietly(){
+        try {
+            prune();
+        } catch (RuntimeException e) {
+            log.warn("Pruning task_changes and task_tombstones failed", e); //the rows stay until the next run.
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.todolist.repository;
+
+import com.example.todolist.model.Task;
+import com.example.todolist.model.TaskTombstone;
+import org.springframework.data.domain.Limit;
+
+import java.util.List;
+
+//the changes of one change stream, see TaskRepository.changeStream. Its change sequence numbers can be compared with each
+//other, never with the numbers of another stream.
+public interface TaskChangeStream {
+    //every change up to this number has committed or rolled back, GET /tasks/sync serves nothing above it.
+    long safeChangeSeq();
+
+    //keyset on (changeSeq, id) so rows that share a sequence number (0 for rows written before the column existed) are paged
+    //exactly. Nothing above upTo, the safe number, is returned: a lower number may still commit.
+    List<Task> findChangedSince(long changeSeq, long id, long upTo, Limit limit);
+
+    List<TaskTombstone> findTombstonesSince(long changeSeq, long id, long upTo, Limit limit);
+
+    //the tombstones up to this number were pruned, -1 if none were. A token before it may have missed deletes.
+    long prunedTombstonesUpTo();
+}
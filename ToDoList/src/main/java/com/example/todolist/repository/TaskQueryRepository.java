@@ -0,0 +1,39 @@
+package com.example.todolist.repository;
+
+import com.example.todolist.dto.TaskDTO;
+import com.example.todolist.dto.TaskFilterDTO;
+import com.example.todolist.model.Task;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface TaskQueryRepository {
+    //the first limit tasks after the given one in the order of the sort, ties broken by id, from the start when after is
+    //null. after only needs the id and the sorted properties, NULL is lower than every value like in MySQL and H2.
+    List<TaskDTO> findTasks(TaskFilterDTO filter, Sort sort, TaskDTO after, Limit limit);
+
+    //takes the next change sequence number and sets it on the written tasks, then persists the new ones and flushes the
+    //managed ones so their INSERT or UPDATE carries it. Deletes the tasks of deletedTaskIds that exist, saves a tombstone
+    //for each and returns their ids. Syncs wait for the number until the transaction ends, see TaskChange.
+    List<Long> recordChanges(Collection<Task> writtenTasks, Collection<Long> deletedTaskIds);
+
+    //one bulk UPDATE for tasks that only change completed, it takes its own change sequence number like recordChanges.
+    int updateCompleted(Collection<Long> ids, boolean completed, LocalDateTime updatedAt);
+
+    TaskChangeStream changeStream(int stream); //the changes of one stream, see TaskRepository.changeStreamCount.
+
+    long changeVersion(); //grows with every committed change, the ETag of the task lists.
+
+    //deletes the change rows below the safe number, they are no longer needed to find it, and the rows still in flight
+    //whose writer is gone.
+    void pruneChanges();
+
+    //deletes the tombstones of the oldest change sequence numbers up to the first one with a tombstone deleted at or after
+    //deletedBefore, whole numbers at a time, and records the highest one, see TaskChangeStream.prunedTombstonesUpTo.
+    void pruneTombstones(LocalDateTime deletedBefore);
+
+    void createChangeLock(); //inserts the TaskChangeLock row if it is missing, once at startup before requests are served.
+}
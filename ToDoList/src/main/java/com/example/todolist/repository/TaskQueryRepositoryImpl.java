@@ -0,0 +1,351 @@
+package com.example.todolist.repository;
+
+import com.example.todolist.dto.TaskDTO;
+import com.example.todolist.dto.TaskFilterDTO;
+import com.example.todolist.model.Task;
+import com.example.todolist.model.TaskChange;
+import com.example.todolist.model.TaskChangeLock;
+import com.example.todolist.model.TaskTombstone;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Order;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+
+//picked up by Spring Data as the implementation of the TaskQueryRepository fragment because of the Impl suffix. A database
+//is one change stream, this is also its TaskChangeStream.
+class TaskQueryRepositoryImpl implements TaskQueryRepository, TaskChangeStream {
+
+    private final EntityManager entityManager;
+
+    TaskQueryRepositoryImpl(EntityManager entityManager){
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public List<TaskDTO> findTasks(TaskFilterDTO filter, Sort sort, TaskDTO after, Limit limit){
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<TaskDTO> query = cb.createQuery(TaskDTO.class);
+        Root<Task> task = query.from(Task.class);
+        //only the conditions that were asked for end up in the WHERE clause so the indexes on
+        //(completed, due_date) and (task_name) can be used for range scans.
+        List<Predicate> predicates = new ArrayList<>();
+        if (filter.getCompleted() != null) {
+            predicates.add(cb.equal(task.get("completed"), filter.getCompleted()));
+        }
+        if (filter.getDueAfter() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(task.get("dueDate"), filter.getDueAfter()));
+        }
+        if (filter.getDueBefore() != null) {
+            predicates.add(cb.lessThan(task.get("dueDate"), filter.getDueBefore()));
+        }
+        if (filter.getNamePrefix() != null) {
+            predicates.add(cb.like(task.get("taskName"), escapeLike(filter.getNamePrefix()) + "%", '\\'));
+        }
+        if (after != null) {
+            predicates.add(after(cb, task, sort, after));
+        }
+        query.select(cb.construct(TaskDTO.class, task.get("id"), task.get("taskName"), task.get("taskDescription"),
+                        task.get("dueDate"), task.get("completed"), task.get("version"), task.get("updatedAt"))) //same projection as TaskRepository.TASK_DTO.
+                .where(predicates.toArray(Predicate[]::new));
+        List<Order> orders = new ArrayList<>();
+        for (Sort.Order order : sort) {
+            orders.add(order.isAscending() ? cb.asc(task.get(order.getProperty())) : cb.desc(task.get(order.getProperty())));
+        }
+        orders.add(cb.asc(task.get("id"))); //ties are always broken by id so the order is stable.
+        query.orderBy(orders);
+        return limited(entityManager.createQuery(query), limit);
+    }
+
+    //keyset on the sorted properties and id: (k1 after v1) or (k1 = v1 and k2 after v2) or ... or (k1 = v1 and ... and
+    //id > after.id). A first ascending key is also bounded on its own so its index can be range scanned.
+    private static Predicate after(CriteriaBuilder cb, Root<Task> task, Sort sort, TaskDTO after){
+        List<Predicate> disjuncts = new ArrayList<>();
+        List<Predicate> equal = new ArrayList<>();
+        Predicate leadingBound = null;
+        for (Sort.Order order : sort) {
+            Keyset keyset = switch (order.getProperty()) {
+                case "id" -> keyset(cb, task.get("id"), after.getId(), order.isAscending());
+                case "taskName" -> keyset(cb, task.get("taskName"), after.getTaskName(), order.isAscending());
+                case "dueDate" -> keyset(cb, task.get("dueDate"), after.getDueDate(), order.isAscending());
+                case "completed" -> keyset(cb, task.get("completed"), after.getCompleted(), order.isAscending());
+                default -> throw new InvalidDataAccessApiUsageException("Cannot sort tasks by " + order.getProperty());
+            };
+            if (equal.isEmpty()) {
+                leadingBound = keyset.bound();
+            }
+            if (keyset.after() != null) { //nothing comes after NULL in descending order.
+                disjuncts.add(and(cb, equal, keyset.after()));
+            }
+            equal.add(keyset.equal());
+        }
+        disjuncts.add(and(cb, equal, cb.greaterThan(task.get("id"), after.getId())));
+        Predicate keyset = cb.or(disjuncts.toArray(Predicate[]::new));
+        return leadingBound != null ? cb.and(leadingBound, keyset) : keyset;
+    }
+
+    private static <T extends Comparable<? super T>> Keyset keyset(CriteriaBuilder cb, Path<T> key, T value, boolean ascending){
+        if (value == null) {
+            return new Keyset(ascending ? cb.isNotNull(key) : null, cb.isNull(key), null);
+        }
+        return ascending
+                ? new Keyset(cb.greaterThan(key, value), cb.equal(key, value), cb.greaterThanOrEqualTo(key, value))
+                : new Keyset(cb.or(cb.lessThan(key, value), cb.isNull(key)), cb.equal(key, value), null);
+    }
+
+    private static Predicate and(CriteriaBuilder cb, List<Predicate> equal, Predicate after){
+        List<Predicate> conjuncts = new ArrayList<>(equal);
+        conjuncts.add(after);
+        return cb.and(conjuncts.toArray(Predicate[]::new));
+    }
+
+    private record Keyset(Predicate after, Predicate equal, Predicate bound) {
+    }
+
+    @Override
+    public List<Long> recordChanges(Collection<Task> writtenTasks, Collection<Long> deletedTaskIds){
+        long changeSeq = nextChangeSeq();
+        for (Task task : writtenTasks) {
+            task.setChangeSeq(changeSeq);
+            if (task.getId() == 0) { //persisted only now, Hibernate takes the state for the INSERT at persist.
+                entityManager.persist(task);
+            }
+        }
+        entityManager.flush();
+        return deleteTasks(deletedTaskIds, changeSeq);
+    }
+
+    @Override
+    public int updateCompleted(Collection<Long> ids, boolean completed, LocalDateTime updatedAt){
+        long changeSeq = nextChangeSeq();
+        //bulk updates skip @Version and @UpdateTimestamp, both are set here.
+        int updated = entityManager.createQuery("update Task t set t.completed = :completed, t.version = t.version + 1, "
+                        + "t.updatedAt = :updatedAt, t.changeSeq = :changeSeq where t.id in :ids")
+                .setParameter("completed", completed)
+                .setParameter("updatedAt", updatedAt)
+                .setParameter("changeSeq", changeSeq)
+                .setParameter("ids", ids)
+                .executeUpdate();
+        entityManager.clear(); //the UPDATE bypasses the persistence context.
+        return updated;
+    }
+
+    //the number is taken in a transaction of its own so syncs see it in flight before anything carries it. The write
+    //transaction then marks it done as its first statement and keeps the row locked until it ends, a number that
+    //TaskChangePruner took for abandoned in between is gone and the next one is taken.
+    private long nextChangeSeq(){
+        while (true) {
+            long changeSeq = takeChangeSeq();
+            int marked = entityManager.createQuery("update TaskChange c set c.inFlight = false where c.changeSeq = :changeSeq and c.inFlight = true")
+                    .setParameter("changeSeq", changeSeq)
+                    .executeUpdate();
+            if (marked == 1) {
+                if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                        @Override
+                        public void afterCompletion(int status){ //otherwise syncs wait for the pruner to find the row.
+                            if (status != STATUS_COMMITTED) {
+                                inOwnTransaction(changes -> changes.createQuery("delete from TaskChange c where c.changeSeq = :changeSeq and c.inFlight = true")
+                                        .setParameter("changeSeq", changeSeq)
+                                        .executeUpdate());
+                            }
+                        }
+                    });
+                }
+                return changeSeq;
+            }
+        }
+    }
+
+    private long takeChangeSeq(){
+        return inOwnTransaction(changes -> {
+            //held until the short commit below, numbers become visible in the order they were taken.
+            if (changes.find(TaskChangeLock.class, TaskChangeLock.ID, LockModeType.PESSIMISTIC_WRITE) == null) {
+                throw new IllegalStateException("The task_change_lock row is missing, it is created by TaskChangeLockInitializer");
+            }
+            TaskChange change = new TaskChange(0, LocalDateTime.now(), true);
+            changes.persist(change); //IDENTITY, the INSERT runs right away and the key is read back.
+            return change.getChangeSeq();
+        });
+    }
+
+    //a resource-local transaction on a connection of its own, like the one Hibernate takes ids from a table in.
+    private <T> T inOwnTransaction(Function<EntityManager, T> work){
+        EntityManager own = entityManager.getEntityManagerFactory().createEntityManager();
+        try {
+            own.getTransaction().begin();
+            T result = work.apply(own);
+            own.getTransaction().commit();
+            return result;
+        } finally {
+            if (own.getTransaction().isActive()) {
+                own.getTransaction().rollback();
+            }
+            own.close();
+        }
+    }
+
+    private List<Long> deleteTasks(Collection<Long> taskIds, long changeSeq){
+        List<Long> deletedIds;
+        if (taskIds.isEmpty()) {
+            return List.of();
+        } else if (taskIds.size() == 1) { //the DELETE tells whether the task existed, no SELECT needed.
+            Long taskId = taskIds.iterator().next();
+            int deleted = entityManager.createQuery("delete from Task t where t.id = :id")
+                    .setParameter("id", taskId)
+                    .executeUpdate();
+            deletedIds = deleted == 0 ? List.of() : List.of(taskId);
+        } else {
+            deletedIds = entityManager.createQuery("select t.id from Task t where t.id in :ids", Long.class)
+                    .setParameter("ids", taskIds)
+                    .setLockMode(LockModeType.PESSIMISTIC_WRITE) //a concurrent delete of the same task waits, then no longer finds it.
+                    .getResultList();
+            if (!deletedIds.isEmpty()) {
+                entityManager.createQuery("delete from Task t where t.id in :ids")
+                        .setParameter("ids", deletedIds)
+                        .executeUpdate();
+            }
+        }
+        if (!deletedIds.isEmpty()) {
+            entityManager.clear(); //like @Modifying(clearAutomatically = true), everything is flushed and a deleted task is not found any more.
+        }
+        LocalDateTime now = LocalDateTime.now();
+        for (Long taskId : deletedIds) {
+            entityManager.persist(new TaskTombstone(taskId, changeSeq, now)); //inserted as one JDBC batch on flush.
+        }
+        return deletedIds;
+    }
+
+    @Override
+    public TaskChangeStream changeStream(int stream){
+        return this;
+    }
+
+    @Override
+    public long safeChangeSeq(){
+        //numbers become visible in order, so every number below the lowest one in flight is already done or gone.
+        Long inFlight = entityManager.createQuery("select min(c.changeSeq) from TaskChange c where c.inFlight = true", Long.class)
+                .getSingleResult();
+        if (inFlight != null) {
+            return inFlight - 1;
+        }
+        Long last = entityManager.createQuery("select max(c.changeSeq) from TaskChange c", Long.class)
+                .getSingleResult();
+        return last == null ? 0 : last; //0 is the number of the rows written before there were change rows.
+    }
+
+    @Override
+    public List<Task> findChangedSince(long changeSeq, long id, long upTo, Limit limit){
+        return limited(entityManager.createQuery("select t from Task t where (t.changeSeq > :changeSeq or (t.changeSeq = :changeSeq and t.id > :id)) "
+                        + "and t.changeSeq <= :upTo order by t.changeSeq, t.id", Task.class)
+                .setParameter("changeSeq", changeSeq)
+                .setParameter("id", id)
+                .setParameter("upTo", upTo), limit);
+    }
+
+    @Override
+    public List<TaskTombstone> findTombstonesSince(long changeSeq, long id, long upTo, Limit limit){
+        return limited(entityManager.createQuery("select t from TaskTombstone t where (t.changeSeq > :changeSeq or (t.changeSeq = :changeSeq and t.taskId > :id)) "
+                        + "and t.changeSeq <= :upTo and t.taskId <> :pruned order by t.changeSeq, t.taskId", TaskTombstone.class)
+                .setParameter("changeSeq", changeSeq)
+                .setParameter("id", id)
+                .setParameter("upTo", upTo)
+                .setParameter("pruned", TaskTombstone.PRUNED_TASK_ID), limit);
+    }
+
+    @Override
+    public long prunedTombstonesUpTo(){
+        List<Long> prunedUpTo = entityManager.createQuery("select t.changeSeq from TaskTombstone t where t.taskId = :pruned", Long.class)
+                .setParameter("pruned", TaskTombstone.PRUNED_TASK_ID)
+                .getResultList();
+        return prunedUpTo.isEmpty() ? -1 : prunedUpTo.getFirst();
+    }
+
+    @Override
+    public long changeVersion(){
+        //a commit marks a row above the safe number done and the safe number only moves past numbers that are done or
+        //gone, so the sum grows with every commit. Taking a number or rolling back leaves it as it is.
+        long safeChangeSeq = safeChangeSeq();
+        long done = entityManager.createQuery("select count(c) from TaskChange c where c.changeSeq > :safe and c.inFlight = false", Long.class)
+                .setParameter("safe", safeChangeSeq)
+                .getSingleResult();
+        return safeChangeSeq + done;
+    }
+
+    @Override
+    public void pruneChanges(){
+        //a row in flight that no write transaction holds locked belongs to a writer that died or rolled back and could not
+        //delete it, its number carries nothing. The rows of running writes are skipped, never waited for.
+        List<Long> abandoned = ((List<?>) entityManager.createNativeQuery("select change_seq from task_changes where in_flight = true for update skip locked")
+                .getResultList()).stream()
+                .map(changeSeq -> ((Number) changeSeq).longValue())
+                .toList();
+        if (!abandoned.isEmpty()) {
+            entityManager.createQuery("delete from TaskChange c where c.changeSeq in :abandoned")
+                    .setParameter("abandoned", abandoned)
+                    .executeUpdate();
+        }
+        entityManager.createQuery("delete from TaskChange c where c.changeSeq < :safe") //the row of the safe number itself stays, it is the last one done.
+                .setParameter("safe", safeChangeSeq())
+                .executeUpdate();
+    }
+
+    @Override
+    public void pruneTombstones(LocalDateTime deletedBefore){
+        //deletedAt only picks the numbers, a sync token is compared with the numbers themselves. Nothing above the safe
+        //number, a write below it may still commit.
+        Long kept = entityManager.createQuery("select min(t.changeSeq) from TaskTombstone t where t.deletedAt >= :deletedBefore and t.taskId <> :pruned", Long.class)
+                .setParameter("deletedBefore", deletedBefore)
+                .setParameter("pruned", TaskTombstone.PRUNED_TASK_ID)
+                .getSingleResult();
+        long upTo = kept == null ? safeChangeSeq() : Math.min(kept - 1, safeChangeSeq());
+        Long prunedUpTo = entityManager.createQuery("select max(t.changeSeq) from TaskTombstone t where t.changeSeq <= :upTo and t.taskId <> :pruned", Long.class)
+                .setParameter("upTo", upTo)
+                .setParameter("pruned", TaskTombstone.PRUNED_TASK_ID)
+                .getSingleResult();
+        if (prunedUpTo == null) {
+            return;
+        }
+        entityManager.createQuery("delete from TaskTombstone t where t.changeSeq <= :prunedUpTo and t.taskId <> :pruned")
+                .setParameter("prunedUpTo", prunedUpTo)
+                .setParameter("pruned", TaskTombstone.PRUNED_TASK_ID)
+                .executeUpdate();
+        TaskTombstone pruned = entityManager.find(TaskTombstone.class, TaskTombstone.PRUNED_TASK_ID, LockModeType.PESSIMISTIC_WRITE);
+        if (pruned == null) { //the first prune, a second instance doing the same fails on the primary key and retries next time.
+            entityManager.persist(new TaskTombstone(TaskTombstone.PRUNED_TASK_ID, prunedUpTo, LocalDateTime.now()));
+        } else if (pruned.getChangeSeq() < prunedUpTo) {
+            pruned.setChangeSeq(prunedUpTo);
+            pruned.setDeletedAt(LocalDateTime.now());
+        }
+    }
+
+    @Override
+    public void createChangeLock(){
+        if (entityManager.find(TaskChangeLock.class, TaskChangeLock.ID) == null) {
+            entityManager.persist(new TaskChangeLock(TaskChangeLock.ID));
+        }
+    }
+
+    private static <T> List<T> limited(TypedQuery<T> query, Limit limit){ //what Spring Data does with a Limit parameter.
+        return (limit.isLimited() ? query.setMaxResults(limit.max()) : query).getResultList();
+    }
+
+    private static String escapeLike(String value){
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
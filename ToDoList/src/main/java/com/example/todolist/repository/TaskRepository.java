@@ -1,9 +1,70 @@
 package com.example.todolist.repository;
 
 
+import com.example.todolist.dto.TaskDTO;
+import com.example.todolist.dto.TaskDueDateCountDTO;
 import com.example.todolist.model.Task;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
 
-public interface TaskRepository extends CrudRepository<Task,Long> {
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
 
+public interface TaskRepository extends CrudRepository<Task,Long>, TaskQueryRepository {
+    //read-only lists select straight into TaskDTO, Hibernate creates no entities, snapshots or dirty checks for them.
+    String TASK_DTO = "new com.example.todolist.dto.TaskDTO(t.id, t.taskName, t.taskDescription, t.dueDate, t.completed, t.version, t.updatedAt)";
+
+    @Query("select " + TASK_DTO + " from Task t order by t.id")
+    List<TaskDTO> findAllAsDTO();
+
+    @Query("select " + TASK_DTO + " from Task t where t.id > :id order by t.id")
+    List<TaskDTO> findPageAsDTO(long id, Limit limit); //keyset pagination, the primary key index is used to seek to the cursor.
+
+    @Query("select " + TASK_DTO + " from Task t where t.id in :ids")
+    List<TaskDTO> findAllAsDTOByIdIn(Collection<Long> ids);
+
+    //one row per due day of the window. The IN on completed makes it two range reads of idx_tasks_completed_due_date,
+    //one per value, instead of a scan of the whole index; tasks without a completed value are left out of the days.
+    @Query("select new com.example.todolist.dto.TaskDueDateCountDTO(cast(t.dueDate as LocalDate), "
+            + "sum(case when t.completed = true then 0 else 1 end), sum(case when t.completed = true then 1 else 0 end)) "
+            + "from Task t where t.completed in (false, true) and t.dueDate >= :from and t.dueDate < :to "
+            + "group by cast(t.dueDate as LocalDate) order by cast(t.dueDate as LocalDate)")
+    List<TaskDueDateCountDTO> countByDueDate(LocalDateTime from, LocalDateTime to);
+
+    @Query("select count(t) from Task t where t.completed = true")
+    long countCompleted(); //range read of idx_tasks_completed_due_date, the open tasks are the rest of count().
+
+    @Query("select count(t) from Task t where t.completed = false and t.dueDate < :now")
+    long countOverdue(LocalDateTime now); //range seek on idx_tasks_completed_due_date.
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500")) //rows are fetched from the driver in chunks instead of all at once.
+    @Query("select " + TASK_DTO + " from Task t order by t.id")
+    Stream<TaskDTO> streamAllAsDTO(); //DTOs are not managed so the persistence context does not grow while streaming.
+
+    //the changes are numbered in this many independent streams, a sync token holds a position in each. One here, one per
+    //shard in the sharded profile, where every shard has its own task_changes table.
+    default int changeStreamCount(){
+        return 1;
+    }
+
+    default int changeStreamOf(long taskId){
+        return 0;
+    }
+
+    //a transaction is only atomic within one partition: one here, one per shard in the sharded profile, where the shards
+    //commit one after the other. Batch chunks never span two partitions so a failed chunk has written nothing.
+    default int partitionOf(long taskId){
+        return 0;
+    }
+
+    void flush(); //implemented by the JPA base repository, sends pending changes so the new @Version is known.
+
+    @Query("select t.id from Task t where t.id in :ids")
+    List<Long> findExistingIds(Collection<Long> ids);
 }
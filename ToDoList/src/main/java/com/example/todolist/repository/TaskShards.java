@@ -0,0 +1,333 @@
+package com.example.todolist.repository;
+
+import com.example.todolist.model.Task;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.RollbackException;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.JpaProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.env.Environment;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.dao.support.DataAccessUtils;
+import org.springframework.dao.support.PersistenceExceptionTranslationInterceptor;
+import org.springframework.data.jpa.repository.support.JpaRepositoryFactory;
+import org.springframework.data.repository.core.support.RepositoryComposition.RepositoryFragments;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.orm.jpa.JpaDialect;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.HeuristicCompletionException;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionSystemException;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+//Databases of the sharded profile, one pool, EntityManagerFactory and TaskRepository per URL in todolist.shards.urls.
+//Shard i owns the task ids from i * id-range + 1 to (i + 1) * id-range (see ShardIdOptimizer) and numbers the changes of
+//its tasks in its own task_changes table. A ShardTransaction begins the JPA transaction of a shard when the shard is first used and commits all
+//of them at the end, best effort: when a commit fails the shards after it are rolled back, the ones before stay committed.
+@Component
+@Profile("sharded")
+@EnableConfigurationProperties({DataSourceProperties.class, JpaProperties.class, HibernateProperties.class})
+public class TaskShards {
+    private static final Logger log = LoggerFactory.getLogger(TaskShards.class);
+
+    private final List<Shard> shards = new ArrayList<>();
+    private final long idRange;
+    private final AtomicInteger nextInsertShard = new AtomicInteger();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor(); //scatter-gather, the threads only wait for the shards.
+
+    public TaskShards(@Value("${todolist.shards.urls}") List<String> urls,
+                      @Value("${todolist.shards.id-range:1000000000000}") long idRange,
+                      DataSourceProperties dataSourceProperties, JpaProperties jpaProperties,
+                      HibernateProperties hibernateProperties, Environment environment){
+        this.idRange = idRange;
+        Map<String, Object> jpaPropertyMap = hibernateProperties.determineHibernateProperties(jpaProperties.getProperties(),
+                new HibernateSettings().ddlAuto(() -> "none")); //naming strategies and ddl-auto like the single database.
+        jpaPropertyMap.put(AvailableSettings.PREFERRED_POOLED_OPTIMIZER, ShardIdOptimizer.class.getName());
+        Binder binder = Binder.get(environment);
+        try {
+            for (String url : urls) {
+                HikariDataSource dataSource = DataSourceBuilder.create()
+                        .type(HikariDataSource.class)
+                        .url(url)
+                        .username(dataSourceProperties.determineUsername())
+                        .password(dataSourceProperties.determinePassword())
+                        .build();
+                binder.bind("spring.datasource.hikari", Bindable.ofInstance(dataSource)); //every shard gets the pool settings of the single database.
+                dataSource.setPoolName("shard-" + shards.size());
+                shards.add(createShard(shards.size(), dataSource, jpaPropertyMap));
+            }
+        } catch (RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    private Shard createShard(int index, HikariDataSource dataSource, Map<String, Object> jpaPropertyMap){
+        LocalContainerEntityManagerFactoryBean factoryBean = new LocalContainerEntityManagerFactoryBean();
+        factoryBean.setDataSource(dataSource);
+        factoryBean.setPackagesToScan(Task.class.getPackageName());
+        factoryBean.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        factoryBean.setJpaPropertyMap(jpaPropertyMap);
+        factoryBean.setPersistenceUnitName("shard-" + index);
+        factoryBean.afterPropertiesSet();
+        EntityManagerFactory entityManagerFactory = factoryBean.getObject();
+        SequenceStyleGenerator generator = (SequenceStyleGenerator) entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getMappingMetamodel().getEntityDescriptor(Task.class).getGenerator();
+        ((ShardIdOptimizer) generator.getOptimizer()).useRange(index * idRange, idRange);
+
+        JpaDialect jpaDialect = factoryBean.getJpaDialect();
+        EntityManager entityManager = SharedEntityManagerCreator.createSharedEntityManager(entityManagerFactory);
+        JpaRepositoryFactory repositoryFactory = new JpaRepositoryFactory(entityManager);
+        repositoryFactory.addRepositoryProxyPostProcessor((proxyFactory, repositoryInformation) ->
+                proxyFactory.addAdvice(new PersistenceExceptionTranslationInterceptor(jpaDialect))); //DataAccessExceptions like a repository bean.
+        TaskRepository repository = repositoryFactory.getRepository(TaskRepository.class,
+                RepositoryFragments.just(new TaskQueryRepositoryImpl(entityManager)));
+        return new Shard(index, dataSource, factoryBean, entityManagerFactory, jpaDialect, repository);
+    }
+
+    @PreDestroy //after TaskWriteBehindBuffer flushed, it depends on the repository and is destroyed first.
+    public void close(){
+        executor.close();
+        for (Shard shard : shards) {
+            shard.factoryBean().destroy();
+            shard.dataSource().close();
+        }
+    }
+
+    List<Shard> shards(){
+        return shards;
+    }
+
+    Shard shardOf(long id){ //null for an id no shard hands out, like an id that was never inserted.
+        long index = (id - 1) / idRange;
+        return id < 1 || index >= shards.size() ? null : shards.get((int) index);
+    }
+
+    List<Shard> shardsAfter(long id){ //the shards that may hold ids above id, in id order.
+        return shards.stream().filter(shard -> (shard.index() + 1) * idRange > id).toList();
+    }
+
+    //round robin, every shard gets the same share of the new tasks. Ids grow per shard only, a task created later can
+    //have a lower id than an earlier one on the next shard.
+    Shard nextShardForInsert(){
+        return shards.get(Math.floorMod(nextInsertShard.getAndIncrement(), shards.size()));
+    }
+
+    //groups ids by the shard that owns them, ids of no shard are dropped.
+    Map<Shard, List<Long>> byShard(Iterable<? extends Long> ids){
+        Map<Shard, List<Long>> byShard = new LinkedHashMap<>();
+        for (Long id : ids) {
+            Shard shard = shardOf(id);
+            if (shard != null) {
+                byShard.computeIfAbsent(shard, key -> new ArrayList<>()).add(id);
+            }
+        }
+        return byShard;
+    }
+
+    ShardTransaction begin(TransactionDefinition definition){
+        return new ShardTransaction(definition);
+    }
+
+    ShardTransaction currentTransaction(){ //bound to the thread by ShardedTransactionManager.
+        return (ShardTransaction) TransactionSynchronizationManager.getResource(this);
+    }
+
+    //the repository of the shard, its JPA transaction is begun the first time the current transaction uses the shard.
+    TaskRepository join(Shard shard){
+        join(requireTransaction(), shard);
+        return shard.repository();
+    }
+
+    //runs the query on every shard at the same time and returns the results in shard order. The shards are joined on this
+    //thread, each worker borrows the EntityManager of its shard while this thread waits, so the query runs in the
+    //transaction of the caller and loaded tasks are managed like on a single database.
+    <T> List<T> scatter(Collection<Shard> targets, Function<Shard, T> query){
+        ShardTransaction transaction = requireTransaction();
+        for (Shard shard : targets) {
+            join(transaction, shard);
+        }
+        if (targets.size() == 1) {
+            return List.of(query.apply(targets.iterator().next()));
+        }
+        List<CompletableFuture<T>> futures = new ArrayList<>(targets.size());
+        for (Shard shard : targets) {
+            EntityManager entityManager = transaction.joined.get(shard).entityManager();
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                EntityManagerHolder holder = new EntityManagerHolder(entityManager);
+                holder.setSynchronizedWithTransaction(true);
+                TransactionSynchronizationManager.bindResource(shard.entityManagerFactory(), holder);
+                try {
+                    return query.apply(shard);
+                } finally {
+                    TransactionSynchronizationManager.unbindResource(shard.entityManagerFactory());
+                }
+            }, executor));
+        }
+        try {
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join(); //waits for every shard, also when one failed.
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+        return futures.stream().map(CompletableFuture::join).toList();
+    }
+
+    List<TaskRepository> joinedRepositories(){
+        return requireTransaction().joined.keySet().stream().map(Shard::repository).toList();
+    }
+
+    //one shard after the other. Every shard numbers its changes in its own task_changes table, no shard waits for the
+    //commits of the others.
+    void commit(ShardTransaction transaction){
+        boolean committed = false;
+        for (Shard shard : new ArrayList<>(transaction.joined.keySet()).reversed()) {
+            try {
+                commit(shard, transaction.joined.remove(shard));
+                committed = true;
+            } catch (RuntimeException e) {
+                rollback(transaction);
+                if (committed) {
+                    throw new HeuristicCompletionException(HeuristicCompletionException.STATE_MIXED, e);
+                }
+                throw e;
+            }
+        }
+    }
+
+    void rollback(ShardTransaction transaction){
+        for (Shard shard : new ArrayList<>(transaction.joined.keySet()).reversed()) {
+            JoinedShard joinedShard = transaction.joined.remove(shard);
+            try {
+                if (joinedShard.entityManager().getTransaction().isActive()) {
+                    joinedShard.entityManager().getTransaction().rollback();
+                }
+            } catch (RuntimeException e) {
+                log.warn("Could not roll back shard {}", shard.index(), e); //the other shards are still rolled back.
+            } finally {
+                close(shard, joinedShard);
+            }
+        }
+    }
+
+    void end(ShardTransaction transaction){ //after a commit or rollback that failed half way.
+        rollback(transaction);
+    }
+
+    private ShardTransaction requireTransaction(){
+        ShardTransaction transaction = currentTransaction();
+        if (transaction == null) { //ShardedTaskRepository always runs in one, this is a call from outside of it.
+            throw new InvalidDataAccessApiUsageException("No transaction for the task shards");
+        }
+        return transaction;
+    }
+
+    private void join(ShardTransaction transaction, Shard shard){
+        if (transaction.joined.containsKey(shard)) {
+            return;
+        }
+        EntityManager entityManager = shard.entityManagerFactory().createEntityManager();
+        try {
+            Object transactionData = shard.jpaDialect().beginTransaction(entityManager, transaction.definition); //read-only, isolation and timeout.
+            EntityManagerHolder holder = new EntityManagerHolder(entityManager);
+            holder.setSynchronizedWithTransaction(true);
+            TransactionSynchronizationManager.bindResource(shard.entityManagerFactory(), holder);
+            transaction.joined.put(shard, new JoinedShard(entityManager, transactionData));
+        } catch (Exception e) {
+            EntityManagerFactoryUtils.closeEntityManager(entityManager);
+            throw new CannotCreateTransactionException("Could not open a transaction on shard " + shard.index(), e);
+        }
+    }
+
+    private void commit(Shard shard, JoinedShard joinedShard){
+        try {
+            if (transactionRollbackOnly(joinedShard)) {
+                joinedShard.entityManager().getTransaction().rollback();
+                throw new TransactionSystemException("Transaction on shard " + shard.index() + " was marked rollback-only");
+            }
+            joinedShard.entityManager().getTransaction().commit();
+        } catch (RollbackException e) { //same translation as JpaTransactionManager.
+            if (e.getCause() instanceof RuntimeException cause) {
+                RuntimeException translated = shard.jpaDialect().translateExceptionIfPossible(cause);
+                if (translated != null) {
+                    throw translated;
+                }
+            }
+            throw new TransactionSystemException("Could not commit transaction on shard " + shard.index(), e);
+        } catch (RuntimeException e) {
+            throw DataAccessUtils.translateIfNecessary(e, shard.jpaDialect());
+        } finally {
+            close(shard, joinedShard);
+        }
+    }
+
+    private static boolean transactionRollbackOnly(JoinedShard joinedShard){ //e.g. after a failed flush on that shard.
+        return joinedShard.entityManager().getTransaction().getRollbackOnly();
+    }
+
+    private void close(Shard shard, JoinedShard joinedShard){
+        shard.jpaDialect().cleanupTransaction(joinedShard.transactionData());
+        TransactionSynchronizationManager.unbindResourceIfPossible(shard.entityManagerFactory());
+        EntityManagerFactoryUtils.closeEntityManager(joinedShard.entityManager());
+    }
+
+    record Shard(int index, HikariDataSource dataSource, LocalContainerEntityManagerFactoryBean factoryBean,
+                 EntityManagerFactory entityManagerFactory, JpaDialect jpaDialect, TaskRepository repository) {
+    }
+
+    private record JoinedShard(EntityManager entityManager, Object transactionData) {
+    }
+
+    //the shards a transaction used so far. Not thread-safe, a transaction belongs to one thread.
+    static final class ShardTransaction {
+        private final TransactionDefinition definition;
+        private final Map<Shard, JoinedShard> joined = new LinkedHashMap<>(); //in the order the shards were first used.
+        private boolean rollbackOnly; //shared by every method that joined the transaction.
+
+        private ShardTransaction(TransactionDefinition definition){
+            this.definition = definition;
+        }
+
+        void setRollbackOnly(){
+            rollbackOnly = true;
+        }
+
+        boolean isRollbackOnly(){
+            return rollbackOnly;
+        }
+    }
+}
@@ -0,0 +1,799 @@
+package com.example.todolist.repository;
+
+import com.example.todolist.dto.TaskDTO;
+import com.example.todolist.model.Task;
+import com.example.todolist.model.TaskTombstone;
+import com.example.todolist.repository.TaskWriteAheadLog.Entry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.unit.DataSize;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+//Primary store of the memory profile, the tasks live in memory in sorted primitive long id arrays. A transaction stages
+//its writes and on commit they are appended to TaskWriteAheadLog as one entry before they become visible. On start the
+//snapshot is loaded and the log written after it is replayed. A snapshot every snapshot-interval (and whenever a log file
+//fills up) writes the whole state to one file and lets the older log files be deleted, which keeps recovery short.
+@Component
+@Profile("memory")
+public class TaskStore {
+    private static final Logger log = LoggerFactory.getLogger(TaskStore.class);
+    private static final String SNAPSHOT_FILE = "tasks.snapshot";
+    private static final int SNAPSHOT_MAGIC = 0x54534e50;
+    private static final int SNAPSHOT_FORMAT = 1;
+    private static final Comparator<TaskRecord> CHANGE_ORDER = Comparator.comparingLong(TaskRecord::changeSeq).thenComparingLong(TaskRecord::id);
+
+    private final Path directory;
+    private final long logCapacity;
+    private final Duration snapshotInterval;
+    private final boolean fsync;
+
+    //held by a transaction from its first write until it ends, writers take change sequence numbers in commit order and
+    //every committed number is safe to sync, there is no lag as with task_changes. Readers never take it.
+    private final ReentrantLock writerLock = new ReentrantLock();
+    private final ReentrantReadWriteLock tableLock = new ReentrantReadWriteLock(); //only held while the table is read or a commit is applied.
+    //one snapshot at a time. Not a monitor, it is held while the snapshot file is written and forced and a virtual thread
+    //would pin its carrier, like the lock of TaskWriteAheadLog.
+    private final ReentrantLock snapshotLock = new ReentrantLock();
+
+    //guarded by tableLock. Ids are handed out in increasing order and writers commit one at a time, so new tasks are appended.
+    private long[] ids = new long[1024];
+    private TaskRecord[] records = new TaskRecord[1024]; //null for deleted tasks until the next compaction of the arrays.
+    private int size;
+    private int liveCount;
+    private final NavigableSet<TaskRecord> changeIndex = new TreeSet<>(CHANGE_ORDER); //the live records by (changeSeq, id), for GET /tasks/sync.
+    private final List<TombstoneRecord> tombstones = new ArrayList<>(); //in (changeSeq, taskId) order.
+    private long lastChangeSeq;
+
+    private long lastTaskId; //guarded by writerLock, like a sequence an id is never handed out twice even if its transaction rolls back.
+    private boolean changedSinceSnapshot; //guarded by writerLock.
+    private volatile boolean failed; //an append failed, see commit.
+    private TaskWriteAheadLog wal;
+    private ScheduledExecutorService scheduler;
+
+    public TaskStore(@Value("${todolist.store.directory:data}") String directory,
+                     @Value("${todolist.store.log-capacity:64MB}") DataSize logCapacity,
+                     @Value("${todolist.store.snapshot-interval:5m}") Duration snapshotInterval,
+                     @Value("${todolist.store.fsync:true}") boolean fsync){
+        this.directory = Path.of(directory);
+        this.logCapacity = logCapacity.toBytes();
+        this.snapshotInterval = snapshotInterval;
+        this.fsync = fsync;
+    }
+
+    @PostConstruct
+    public void open() throws IOException {
+        Files.createDirectories(directory);
+        long firstGeneration = loadSnapshot();
+        wal = TaskWriteAheadLog.open(directory, firstGeneration, logCapacity, fsync, entry -> {
+            apply(entry);
+            lastTaskId = Math.max(lastTaskId, entry.lastTaskId());
+            changedSinceSnapshot = true;
+        });
+        log.info("Task store in {} opened with {} tasks", directory.toAbsolutePath(), liveCount);
+        scheduler = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("task-store-snapshot").daemon().factory());
+        scheduler.scheduleWithFixedDelay(this::snapshotQuietly, snapshotInterval.toMillis(), snapshotInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy //after TaskWriteBehindBuffer flushed, it depends on the repository and is destroyed first.
+    public void close() throws IOException, InterruptedException {
+        scheduler.shutdown();
+        scheduler.awaitTermination(1, TimeUnit.MINUTES);
+        snapshot(); //the next start only loads the snapshot.
+        wal.close();
+    }
+
+    //writes the committed state to the snapshot file and deletes the log files it replaces.
+    public void snapshot() throws IOException {
+        snapshotLock.lock();
+        try {
+            List<TaskRecord> tasks;
+            List<TombstoneRecord> tombstoneCopy;
+            long changeSeq;
+            long taskId;
+            long nextGeneration;
+            writerLock.lock(); //nothing commits between the copy and the switch to a new log file.
+            try {
+                if (!changedSinceSnapshot) {
+                    return;
+                }
+                tableLock.readLock().lock();
+                try {
+                    tasks = committedRecords();
+                    tombstoneCopy = new ArrayList<>(tombstones);
+                    changeSeq = lastChangeSeq;
+                } finally {
+                    tableLock.readLock().unlock();
+                }
+                taskId = lastTaskId;
+                nextGeneration = wal.roll();
+                changedSinceSnapshot = false;
+            } finally {
+                writerLock.unlock();
+            }
+            try {
+                writeSnapshot(nextGeneration, changeSeq, taskId, tasks, tombstoneCopy); //commits go on meanwhile, into the new log file.
+            } catch (IOException | RuntimeException e) {
+                writerLock.lock();
+                try {
+                    changedSinceSnapshot = true; //the old snapshot and all log files are still there, retried next time.
+                } finally {
+                    writerLock.unlock();
+                }
+                throw e;
+            }
+            wal.deleteBefore(nextGeneration);
+        } finally {
+            snapshotLock.unlock();
+        }
+    }
+
+    Transaction begin(boolean readOnly){
+        return new Transaction(readOnly);
+    }
+
+    Transaction currentTransaction(){ //bound to the thread by TaskStoreTransactionManager.
+        return (Transaction) TransactionSynchronizationManager.getResource(this);
+    }
+
+    //joins the current transaction, without one the call commits on its own like a method of a JPA repository.
+    <T> T inTransaction(Function<Transaction, T> work){
+        Transaction current = currentTransaction();
+        if (current != null) {
+            return work.apply(current);
+        }
+        Transaction transaction = begin(false);
+        try {
+            T result = work.apply(transaction);
+            commit(transaction);
+            return result;
+        } finally {
+            end(transaction);
+        }
+    }
+
+    void commit(Transaction transaction){
+        if (transaction.readOnly) {
+            return; //like FlushMode.MANUAL in a read-only JPA transaction, changes of loaded tasks are ignored.
+        }
+        flush(transaction);
+        if (!transaction.hasChanges()) {
+            return;
+        }
+        Entry entry = new Entry(transaction.lastChangeSeq >= 0 ? transaction.lastChangeSeq : committedChangeSeq(),
+                lastTaskId, transaction.writes, transaction.tombstones);
+        boolean rolled;
+        try {
+            rolled = wal.append(entry);
+        } catch (IOException | RuntimeException e) {
+            //the entry may be in the log even though it is not applied and would come back on a restart. Later transactions
+            //could build on the state without it, so the store only serves reads from now on. The snapshot written on close
+            //contains no failed entry and replaces the log it is in.
+            failed = true;
+            log.error("Appending to the task log failed, the task store refuses writes until it is restarted", e);
+            throw new DataAccessResourceFailureException("Appending to the task log failed", e);
+        }
+        apply(entry);
+        changedSinceSnapshot = true;
+        if (rolled) {
+            scheduler.execute(this::snapshotQuietly); //the full log file is only deleted by a snapshot.
+        }
+        //like InnoDB the changes are visible once they are in the log, the commit only returns once they are on disk. The
+        //next writer appends while this one waits for the msync, and shares the next one with every writer behind it.
+        end(transaction);
+        try {
+            wal.sync();
+        } catch (IOException | RuntimeException e) {
+            //the entry is in the log and applied but maybe not on disk, later commits would be forced behind it.
+            failed = true;
+            log.error("Forcing the task log failed, the task store refuses writes until it is restarted", e);
+            throw new DataAccessResourceFailureException("Forcing the task log failed", e);
+        }
+    }
+
+    void end(Transaction transaction){
+        if (transaction.writer) {
+            transaction.writer = false;
+            writerLock.unlock();
+        }
+    }
+
+    //writes the changes of loaded tasks, like a Hibernate flush. The version of the task is checked and incremented.
+    void flush(Transaction transaction){
+        if (transaction.readOnly) {
+            return;
+        }
+        for (ManagedTask managedTask : transaction.managed.values()) {
+            Task task = managedTask.task;
+            if (!managedTask.base.differsFrom(task)) {
+                continue;
+            }
+            lockForWrite(transaction);
+            TaskRecord current = find(transaction, task.getId());
+            if (current == null || current.version() != task.getVersion()) { //updated or deleted since it was loaded.
+                throw new ObjectOptimisticLockingFailureException(Task.class, task.getId());
+            }
+            TaskRecord updated = TaskRecord.of(task, task.getVersion() + 1, LocalDateTime.now());
+            transaction.writes.put(updated.id(), updated);
+            task.setVersion(updated.version());
+            task.setUpdatedAt(updated.updatedAt());
+            managedTask.base = updated;
+        }
+    }
+
+    void clear(Transaction transaction){ //like clearAutomatically of @Modifying, loaded tasks are no longer tracked.
+        transaction.managed.clear();
+    }
+
+    Task save(Transaction transaction, Task task){
+        if (task.getId() == 0) { //new, like JPA with a primitive id.
+            lockForWrite(transaction);
+            LocalDateTime now = LocalDateTime.now();
+            task.setId(++lastTaskId);
+            task.setVersion(0);
+            task.setUpdatedAt(now);
+            TaskRecord inserted = TaskRecord.of(task, 0, now);
+            transaction.writes.put(inserted.id(), inserted);
+            transaction.managed.put(inserted.id(), new ManagedTask(task, inserted));
+            return task;
+        }
+        ManagedTask managedTask = transaction.managed.get(task.getId());
+        if (managedTask != null && managedTask.task == task) {
+            return task;
+        }
+        TaskRecord current = find(transaction, task.getId());
+        if (current == null) {
+            throw new ObjectOptimisticLockingFailureException(Task.class, task.getId());
+        }
+        Task managed = manage(transaction, current); //like merge, the detached state is copied onto the loaded task.
+        managed.setTaskName(task.getTaskName());
+        managed.setTaskDescription(task.getTaskDescription());
+        managed.setDueDate(task.getDueDate());
+        managed.setCompleted(task.getCompleted());
+        managed.setChangeSeq(task.getChangeSeq());
+        managed.setVersion(task.getVersion()); //checked on flush.
+        return managed;
+    }
+
+    Task manage(Transaction transaction, TaskRecord record){
+        ManagedTask managedTask = transaction.managed.get(record.id());
+        if (managedTask == null) { //one instance per id in a transaction, like a persistence context.
+            managedTask = new ManagedTask(record.toTask(), record);
+            transaction.managed.put(record.id(), managedTask);
+        }
+        return managedTask.task;
+    }
+
+    void put(Transaction transaction, TaskRecord record){
+        lockForWrite(transaction);
+        transaction.writes.put(record.id(), record);
+    }
+
+    boolean delete(Transaction transaction, long id){
+        lockForWrite(transaction);
+        if (find(transaction, id) == null) {
+            return false;
+        }
+        transaction.writes.put(id, null);
+        transaction.managed.remove(id);
+        return true;
+    }
+
+    TaskRecord find(Transaction transaction, long id){
+        if (transaction.writes.containsKey(id)) {
+            return transaction.writes.get(id);
+        }
+        tableLock.readLock().lock();
+        try {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            return index >= 0 ? records[index] : null;
+        } finally {
+            tableLock.readLock().unlock();
+        }
+    }
+
+    List<TaskRecord> records(Transaction transaction){ //in id order.
+        return records(transaction, record -> true);
+    }
+
+    //the visible records that match, in id order. Only the matches are copied.
+    List<TaskRecord> records(Transaction transaction, Predicate<TaskRecord> matches){
+        List<TaskRecord> visible = new ArrayList<>();
+        forEachVisible(transaction, matches, visible::add);
+        if (!transaction.writes.isEmpty()) { //the staged ones were added last.
+            visible.sort(Comparator.comparingLong(TaskRecord::id));
+        }
+        return visible;
+    }
+
+    long count(Transaction transaction, Predicate<TaskRecord> matches){
+        long[] count = new long[1];
+        forEachVisible(transaction, matches, record -> count[0]++);
+        return count[0];
+    }
+
+    long count(Transaction transaction){ //the live count corrected by the staged writes, no scan.
+        tableLock.readLock().lock();
+        try {
+            long count = liveCount;
+            for (Map.Entry<Long, TaskRecord> write : transaction.writes.entrySet()) {
+                int index = Arrays.binarySearch(ids, 0, size, write.getKey());
+                boolean committed = index >= 0 && records[index] != null;
+                if (committed && write.getValue() == null) {
+                    count--;
+                } else if (!committed && write.getValue() != null) {
+                    count++;
+                }
+            }
+            return count;
+        } finally {
+            tableLock.readLock().unlock();
+        }
+    }
+
+    List<TaskRecord> recordsAfter(Transaction transaction, long afterId, int limit){ //keyset page in id order.
+        if (!transaction.writes.isEmpty()) {
+            return records(transaction).stream().filter(record -> record.id() > afterId).limit(limit).toList();
+        }
+        tableLock.readLock().lock();
+        try {
+            int index = Arrays.binarySearch(ids, 0, size, afterId);
+            List<TaskRecord> page = new ArrayList<>(Math.min(limit, liveCount));
+            for (int i = index >= 0 ? index + 1 : -index - 1; i < size && page.size() < limit; i++) { //seeks to the cursor.
+                if (records[i] != null) {
+                    page.add(records[i]);
+                }
+            }
+            return page;
+        } finally {
+            tableLock.readLock().unlock();
+        }
+    }
+
+    //seeks to (changeSeq, afterId) in the change index and copies at most limit records from there.
+    List<TaskRecord> changedSince(Transaction transaction, long changeSeq, long afterId, long upTo, int limit){
+        TaskRecord after = TaskRecord.changeKey(changeSeq, afterId);
+        List<TaskRecord> changed = new ArrayList<>(Math.min(limit, 1024));
+        tableLock.readLock().lock();
+        try {
+            for (TaskRecord record : changeIndex.tailSet(after, false)) {
+                if (record.changeSeq() > upTo || changed.size() == limit) {
+                    break;
+                }
+                if (!transaction.writes.containsKey(record.id())) { //a staged write replaces it.
+                    changed.add(record);
+                }
+            }
+        } finally {
+            tableLock.readLock().unlock();
+        }
+        if (transaction.writes.isEmpty()) {
+            return changed;
+        }
+        for (TaskRecord record : transaction.writes.values()) {
+            if (record != null && CHANGE_ORDER.compare(record, after) > 0 && record.changeSeq() <= upTo) {
+                changed.add(record);
+            }
+        }
+        changed.sort(CHANGE_ORDER);
+        return changed.size() > limit ? changed.subList(0, limit) : changed;
+    }
+
+    List<TombstoneRecord> tombstonesSince(Transaction transaction, long changeSeq, long afterTaskId, long upTo, int limit){
+        List<TombstoneRecord> result = new ArrayList<>();
+        tableLock.readLock().lock();
+        try {
+            int low = 0;
+            int high = tombstones.size();
+            while (low < high) { //first tombstone after (changeSeq, afterTaskId).
+                int middle = (low + high) >>> 1;
+                TombstoneRecord tombstone = tombstones.get(middle);
+                if (tombstone.changeSeq() < changeSeq || (tombstone.changeSeq() == changeSeq && tombstone.taskId() <= afterTaskId)) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            for (int i = low; i < tombstones.size() && result.size() < limit && tombstones.get(i).changeSeq() <= upTo; i++) {
+                if (tombstones.get(i).taskId() != TaskTombstone.PRUNED_TASK_ID) {
+                    result.add(tombstones.get(i));
+                }
+            }
+        } finally {
+            tableLock.readLock().unlock();
+        }
+        for (TombstoneRecord tombstone : transaction.tombstones) { //staged ones come after every committed one.
+            if (result.size() < limit && (tombstone.changeSeq() > changeSeq || (tombstone.changeSeq() == changeSeq && tombstone.taskId() > afterTaskId))
+                    && tombstone.changeSeq() <= upTo) {
+                result.add(tombstone);
+            }
+        }
+        return result;
+    }
+
+    long prunedTombstonesUpTo(){ //the record of TaskTombstone.PRUNED_TASK_ID is the first one once tombstones were pruned.
+        tableLock.readLock().lock();
+        try {
+            return !tombstones.isEmpty() && tombstones.getFirst().taskId() == TaskTombstone.PRUNED_TASK_ID ? tombstones.getFirst().changeSeq() : -1;
+        } finally {
+            tableLock.readLock().unlock();
+        }
+    }
+
+    //replaces the tombstones of the oldest change sequence numbers, up to the first one with a tombstone deleted at or
+    //after deletedBefore, by a record of TaskTombstone.PRUNED_TASK_ID holding the highest of them. Pruning is not logged,
+    //a restart before the next snapshot brings the tombstones back.
+    void pruneTombstones(Transaction transaction, LocalDateTime deletedBefore){
+        lockForWrite(transaction); //no commit appends tombstones meanwhile.
+        tableLock.writeLock().lock();
+        try {
+            int first = prunedTombstonesUpTo() >= 0 ? 1 : 0;
+            int kept = first;
+            while (kept < tombstones.size() && tombstones.get(kept).deletedAt().isBefore(deletedBefore)) {
+                kept++;
+            }
+            while (kept > first && kept < tombstones.size() && tombstones.get(kept - 1).changeSeq() == tombstones.get(kept).changeSeq()) {
+                kept--; //the tombstones of a number are pruned together.
+            }
+            if (kept == first) {
+                return;
+            }
+            long prunedUpTo = tombstones.get(kept - 1).changeSeq();
+            tombstones.subList(0, kept).clear();
+            tombstones.addFirst(new TombstoneRecord(TaskTombstone.PRUNED_TASK_ID, prunedUpTo, LocalDateTime.now()));
+            changedSinceSnapshot = true;
+        } finally {
+            tableLock.writeLock().unlock();
+        }
+    }
+
+    //sets changeSeq on the staged tasks and leaves the version alone, deletes the tasks of deletedTaskIds that exist and
+    //returns their ids.
+    List<Long> saveChanges(Transaction transaction, Collection<Long> writtenTaskIds, Collection<Long> deletedTaskIds, long changeSeq){
+        lockForWrite(transaction);
+        for (Long id : writtenTaskIds) {
+            TaskRecord record = find(transaction, id);
+            if (record == null) {
+                continue;
+            }
+            TaskRecord stamped = new TaskRecord(record.id(), record.taskName(), record.taskDescription(), record.dueDate(),
+                    record.completed(), record.version(), changeSeq, record.updatedAt());
+            transaction.writes.put(id, stamped);
+            ManagedTask managedTask = transaction.managed.get(id);
+            if (managedTask != null) {
+                managedTask.task.setChangeSeq(changeSeq);
+                managedTask.base = stamped;
+            }
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> deletedIds = new ArrayList<>(deletedTaskIds.size());
+        for (Long taskId : deletedTaskIds) {
+            if (delete(transaction, taskId)) {
+                transaction.tombstones.add(new TombstoneRecord(taskId, changeSeq, now));
+                deletedIds.add(taskId);
+            }
+        }
+        return deletedIds;
+    }
+
+    long nextChangeSeq(Transaction transaction){
+        lockForWrite(transaction);
+        transaction.lastChangeSeq = lastChangeSeq(transaction) + 1;
+        return transaction.lastChangeSeq;
+    }
+
+    long lastChangeSeq(Transaction transaction){
+        return transaction.lastChangeSeq >= 0 ? transaction.lastChangeSeq : committedChangeSeq();
+    }
+
+    private long committedChangeSeq(){
+        tableLock.readLock().lock();
+        try {
+            return lastChangeSeq;
+        } finally {
+            tableLock.readLock().unlock();
+        }
+    }
+
+    private void lockForWrite(Transaction transaction){
+        if (transaction.readOnly) {
+            throw new InvalidDataAccessApiUsageException("Tasks cannot be written in a read-only transaction");
+        }
+        if (failed) {
+            throw new DataAccessResourceFailureException("The task store refuses writes since appending to its log failed");
+        }
+        if (!transaction.writer) {
+            writerLock.lock();
+            transaction.writer = true;
+        }
+    }
+
+    private void apply(Entry entry){
+        tableLock.writeLock().lock();
+        try {
+            entry.writes().forEach((id, record) -> {
+                if (record == null) {
+                    remove(id);
+                } else {
+                    put(record);
+                }
+            });
+            tombstones.addAll(entry.tombstones());
+            lastChangeSeq = entry.lastChangeSeq();
+        } finally {
+            tableLock.writeLock().unlock();
+        }
+    }
+
+    private void put(TaskRecord record){
+        int index = Arrays.binarySearch(ids, 0, size, record.id());
+        if (index >= 0 && records[index] != null) {
+            changeIndex.remove(records[index]); //first, a record with the same (changeSeq, id) would not be replaced by add.
+        }
+        changeIndex.add(record);
+        if (index >= 0) {
+            if (records[index] == null) {
+                liveCount++;
+            }
+            records[index] = record;
+            return;
+        }
+        int insertAt = -index - 1; //size for every new task, ids only go up.
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size * 2);
+            records = Arrays.copyOf(records, size * 2);
+        }
+        System.arraycopy(ids, insertAt, ids, insertAt + 1, size - insertAt);
+        System.arraycopy(records, insertAt, records, insertAt + 1, size - insertAt);
+        ids[insertAt] = record.id();
+        records[insertAt] = record;
+        size++;
+        liveCount++;
+    }
+
+    private void remove(long id){
+        int index = Arrays.binarySearch(ids, 0, size, id);
+        if (index < 0 || records[index] == null) {
+            return;
+        }
+        changeIndex.remove(records[index]);
+        records[index] = null;
+        liveCount--;
+        if (size - liveCount > Math.max(1024, liveCount)) { //squeezes the deleted slots out once they outnumber the tasks.
+            int live = 0;
+            for (int i = 0; i < size; i++) {
+                if (records[i] != null) {
+                    ids[live] = ids[i];
+                    records[live++] = records[i];
+                }
+            }
+            Arrays.fill(records, live, size, null);
+            size = live;
+        }
+    }
+
+    //runs action for the visible records that match, the committed ones in id order under the read lock, then the staged
+    //ones. Neither may call back into the store.
+    private void forEachVisible(Transaction transaction, Predicate<TaskRecord> matches, Consumer<TaskRecord> action){
+        boolean staged = !transaction.writes.isEmpty();
+        tableLock.readLock().lock();
+        try {
+            for (int i = 0; i < size; i++) {
+                TaskRecord record = records[i];
+                if (record != null && !(staged && transaction.writes.containsKey(record.id())) && matches.test(record)) {
+                    action.accept(record);
+                }
+            }
+        } finally {
+            tableLock.readLock().unlock();
+        }
+        for (TaskRecord record : transaction.writes.values()) {
+            if (record != null && matches.test(record)) {
+                action.accept(record);
+            }
+        }
+    }
+
+    private List<TaskRecord> committedRecords(){ //caller holds the read lock.
+        List<TaskRecord> committed = new ArrayList<>(liveCount);
+        for (int i = 0; i < size; i++) {
+            if (records[i] != null) {
+                committed.add(records[i]);
+            }
+        }
+        return committed;
+    }
+
+    private void snapshotQuietly(){
+        try {
+            snapshot();
+        } catch (IOException | RuntimeException e) {
+            log.warn("Writing the task snapshot failed", e);
+        }
+    }
+
+    //written to a temporary file and renamed, a crash leaves either the old or the new snapshot. The CRC at the end
+    //catches a snapshot that was not completely on disk.
+    private void writeSnapshot(long nextGeneration, long changeSeq, long taskId, List<TaskRecord> tasks,
+                               List<TombstoneRecord> tombstoneCopy) throws IOException {
+        Path temporary = directory.resolve(SNAPSHOT_FILE + ".tmp");
+        try (FileOutputStream file = new FileOutputStream(temporary.toFile())) {
+            CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(file, 64 * 1024), new CRC32());
+            DataOutputStream out = new DataOutputStream(checked);
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(SNAPSHOT_FORMAT);
+            out.writeLong(nextGeneration);
+            out.writeLong(changeSeq);
+            out.writeLong(taskId);
+            out.writeInt(tasks.size());
+            for (TaskRecord task : tasks) {
+                TaskWriteAheadLog.writeTask(out, task);
+            }
+            out.writeInt(tombstoneCopy.size());
+            for (TombstoneRecord tombstone : tombstoneCopy) {
+                TaskWriteAheadLog.writeTombstone(out, tombstone);
+            }
+            out.writeLong(checked.getChecksum().getValue());
+            out.flush();
+            file.getFD().sync();
+        }
+        Files.move(temporary, directory.resolve(SNAPSHOT_FILE), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        try (FileChannel directoryChannel = FileChannel.open(directory)) {
+            directoryChannel.force(true); //makes the rename itself durable.
+        } catch (IOException e) {
+            log.debug("Could not sync {}", directory, e); //not supported on every platform.
+        }
+    }
+
+    //returns the first log generation that is not in the snapshot, 0 without a snapshot.
+    private long loadSnapshot() throws IOException {
+        Path file = directory.resolve(SNAPSHOT_FILE);
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        try (CheckedInputStream checked = new CheckedInputStream(new BufferedInputStream(Files.newInputStream(file), 64 * 1024), new CRC32())) {
+            DataInputStream in = new DataInputStream(checked);
+            if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_FORMAT) {
+                throw new IllegalStateException(file + " is not a task snapshot");
+            }
+            long nextGeneration = in.readLong();
+            long changeSeq = in.readLong();
+            long taskId = in.readLong();
+            Map<Long, TaskRecord> tasks = new LinkedHashMap<>();
+            for (int i = in.readInt(); i > 0; i--) {
+                TaskRecord task = TaskWriteAheadLog.readTask(in);
+                tasks.put(task.id(), task);
+            }
+            List<TombstoneRecord> tombstoneList = new ArrayList<>();
+            for (int i = in.readInt(); i > 0; i--) {
+                tombstoneList.add(TaskWriteAheadLog.readTombstone(in));
+            }
+            long checksum = checked.getChecksum().getValue();
+            if (in.readLong() != checksum) {
+                throw new IllegalStateException(file + " is corrupt"); //never replaced by a partial file, so the disk lost data.
+            }
+            apply(new Entry(changeSeq, taskId, tasks, tombstoneList));
+            lastTaskId = taskId;
+            return nextGeneration;
+        }
+    }
+
+    //a task as it is committed or staged, immutable so readers can hold on to it without a lock.
+    record TaskRecord(long id, String taskName, String taskDescription, LocalDateTime dueDate, Boolean completed,
+                      long version, long changeSeq, LocalDateTime updatedAt) {
+
+        static TaskRecord changeKey(long changeSeq, long id){ //only compared with CHANGE_ORDER.
+            return new TaskRecord(id, null, null, null, null, 0, changeSeq, null);
+        }
+
+        static TaskRecord sortKey(TaskDTO task){ //only compared with the order of InMemoryTaskRepository.findTasks.
+            return new TaskRecord(task.getId(), task.getTaskName(), null, task.getDueDate(), task.getCompleted(), 0, 0, null);
+        }
+
+        static TaskRecord of(Task task, long version, LocalDateTime updatedAt){
+            return new TaskRecord(task.getId(), task.getTaskName(), task.getTaskDescription(), task.getDueDate(),
+                    task.getCompleted(), version, task.getChangeSeq(), updatedAt);
+        }
+
+        Task toTask(){
+            return new Task(id, taskName, taskDescription, dueDate, completed, version, changeSeq, updatedAt);
+        }
+
+        TaskDTO toDTO(){
+            return new TaskDTO(id, taskName, taskDescription, dueDate, completed, version, updatedAt);
+        }
+
+        private boolean differsFrom(Task task){ //the columns a service can change, id, version and updatedAt are managed.
+            return !Objects.equals(taskName, task.getTaskName())
+                    || !Objects.equals(taskDescription, task.getTaskDescription())
+                    || !Objects.equals(dueDate, task.getDueDate())
+                    || !Objects.equals(completed, task.getCompleted())
+                    || changeSeq != task.getChangeSeq();
+        }
+    }
+
+    record TombstoneRecord(long taskId, long changeSeq, LocalDateTime deletedAt) {
+        TaskTombstone toTombstone(){
+            return new TaskTombstone(taskId, changeSeq, deletedAt);
+        }
+    }
+
+    //the writes of one transaction, visible to it alone until the commit. Not thread-safe, a transaction belongs to one thread.
+    static final class Transaction {
+        private final boolean readOnly;
+        private boolean writer; //holds writerLock.
+        private final Map<Long, TaskRecord> writes = new LinkedHashMap<>(); //a null record is a delete.
+        private final List<TombstoneRecord> tombstones = new ArrayList<>();
+        private long lastChangeSeq = -1; //-1 until the transaction takes a change sequence number.
+        private final Map<Long, ManagedTask> managed = new HashMap<>();
+        private boolean rollbackOnly; //shared by every method that joined the transaction.
+
+        private Transaction(boolean readOnly){
+            this.readOnly = readOnly;
+        }
+
+        void setRollbackOnly(){
+            rollbackOnly = true;
+        }
+
+        boolean isRollbackOnly(){
+            return rollbackOnly;
+        }
+
+        private boolean hasChanges(){
+            return !writes.isEmpty() || !tombstones.isEmpty() || lastChangeSeq >= 0;
+        }
+    }
+
+    private static final class ManagedTask {
+        private final Task task;
+        private TaskRecord base; //the state the task was loaded or last flushed with.
+
+        private ManagedTask(Task task, TaskRecord base){
+            this.task = task;
+            this.base = base;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.todolist.repository;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.SmartTransactionObject;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+//@Transactional and TransactionTemplate of the memory profile. Binds a TaskStore.Transaction to the thread, the commit
+//appends its writes to the task log, a rollback just drops them. TaskService and the other services run unchanged.
+@Component("transactionManager")
+@Profile("memory")
+public class TaskStoreTransactionManager extends AbstractPlatformTransactionManager {
+    private final TaskStore taskStore;
+
+    public TaskStoreTransactionManager(TaskStore taskStore){
+        this.taskStore = taskStore;
+    }
+
+    @Override
+    protected Object doGetTransaction(){
+        return new StoreTransactionObject(taskStore.currentTransaction());
+    }
+
+    @Override
+    protected boolean isExistingTransaction(Object transaction){
+        return ((StoreTransactionObject) transaction).transaction != null;
+    }
+
+    @Override
+    protected void doBegin(Object transaction, TransactionDefinition definition){
+        StoreTransactionObject transactionObject = (StoreTransactionObject) transaction;
+        transactionObject.transaction = taskStore.begin(definition.isReadOnly());
+        TransactionSynchronizationManager.bindResource(taskStore, transactionObject.transaction);
+    }
+
+    @Override
+    protected Object doSuspend(Object transaction){ //REQUIRES_NEW, the outer transaction keeps its staged writes.
+        ((StoreTransactionObject) transaction).transaction = null;
+        return TransactionSynchronizationManager.unbindResource(taskStore);
+    }
+
+    @Override
+    protected void doResume(Object transaction, Object suspendedResources){
+        TransactionSynchronizationManager.bindResource(taskStore, suspendedResources);
+    }
+
+    @Override
+    protected void doCommit(DefaultTransactionStatus status){
+        taskStore.commit(((StoreTransactionObject) status.getTransaction()).transaction);
+    }
+
+    @Override
+    protected void doRollback(DefaultTransactionStatus status){
+        //nothing was written, the staged changes are dropped with the transaction.
+    }
+
+    @Override
+    protected void doSetRollbackOnly(DefaultTransactionStatus status){
+        ((StoreTransactionObject) status.getTransaction()).transaction.setRollbackOnly(); //the outer commit then rolls back.
+    }
+
+    @Override
+    protected void doCleanupAfterCompletion(Object transaction){
+        TransactionSynchronizationManager.unbindResource(taskStore);
+        taskStore.end(((StoreTransactionObject) transaction).transaction);
+    }
+
+    private static final class StoreTransactionObject implements SmartTransactionObject {
+        private TaskStore.Transaction transaction;
+
+        private StoreTransactionObject(TaskStore.Transaction transaction){
+            this.transaction = transaction;
+        }
+
+        @Override
+        public boolean isRollbackOnly(){
+            return transaction.isRollbackOnly();
+        }
+
+        @Override
+        public void flush(){
+        }
+    }
+}
@@ -0,0 +1,379 @@
+package com.example.todolist.repository;
+
+import com.example.todolist.repository.TaskStore.TaskRecord;
+import com.example.todolist.repository.TaskStore.TombstoneRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+//Append-only log of the committed transactions of TaskStore, one entry per transaction, in memory-mapped files of a fixed
+//capacity. Each file is a generation, a full file rolls over to the next one. An entry is the payload length, the CRC32 of
+//the payload and the payload. The length is written last, so an entry torn by a crash has no length or a wrong CRC and
+//replay stops in front of it. A snapshot names the first generation it does not contain, older files are deleted.
+//Appending only copies the entry into the mapped file, sync forces it to disk: commits that append while a force runs
+//are forced together by the next one (group commit), so concurrent writers share the msync instead of taking turns.
+final class TaskWriteAheadLog implements Closeable {
+    private static final Logger log = LoggerFactory.getLogger(TaskWriteAheadLog.class);
+    private static final Pattern FILE_NAME = Pattern.compile("tasks-(\\d+)\\.log");
+    private static final int HEADER_SIZE = 2 * Integer.BYTES; //length and CRC.
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+
+    //the changes of one transaction, a null record deletes the task.
+    record Entry(long lastChangeSeq, long lastTaskId, Map<Long, TaskRecord> writes, List<TombstoneRecord> tombstones) {
+    }
+
+    private final Path directory;
+    private final long capacity;
+    private final boolean fsync;
+    private final EntryBuffer entryBuffer = new EntryBuffer(); //reused, entries are appended one at a time.
+    //guards the fields below, it is not held during the msync of sync. Not a monitor, a virtual thread would pin its carrier
+    //while it waits for one of the file operations.
+    private final ReentrantLock lock = new ReentrantLock();
+    private long generation;
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int syncedPosition; //everything in front of it is on disk, the generations before this one were forced on roll over.
+    private final ReentrantLock syncLock = new ReentrantLock(); //one msync at a time, the commits that wait for it form the next group.
+
+    private TaskWriteAheadLog(Path directory, long capacity, boolean fsync){
+        this.directory = directory;
+        this.capacity = capacity;
+        this.fsync = fsync;
+    }
+
+    //replays the generations from firstGeneration on and opens the log for appending after the last intact entry.
+    static TaskWriteAheadLog open(Path directory, long firstGeneration, long capacity, boolean fsync, Consumer<Entry> replay) throws IOException {
+        TaskWriteAheadLog wal = new TaskWriteAheadLog(directory, capacity, fsync);
+        long lastGeneration = -1;
+        int end = -1; //append position in the last generation, -1 when it has to be left alone.
+        for (long generation : generations(directory)) {
+            if (generation < firstGeneration) {
+                Files.delete(wal.file(generation)); //already in the snapshot, left over when the process died before deleting it.
+                continue;
+            }
+            lastGeneration = generation;
+            end = replay(wal.file(generation), replay);
+        }
+        if (end >= 0) {
+            wal.map(lastGeneration, Files.size(wal.file(lastGeneration)), end);
+        } else {
+            wal.map(Math.max(firstGeneration, lastGeneration + 1), capacity, 0); //a torn tail is never written over.
+        }
+        return wal;
+    }
+
+    //returns true when the entry did not fit and the log rolled over to a new file. The entry is only durable after sync.
+    boolean append(Entry entry) throws IOException {
+        lock.lock();
+        try {
+            return appendLocked(entry);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //forces every entry appended so far to disk. A caller whose entry was forced by the msync of another one finds nothing
+    //left to force.
+    void sync() throws IOException {
+        if (!fsync) {
+            return;
+        }
+        syncLock.lock();
+        try {
+            MappedByteBuffer pages;
+            int from;
+            int to;
+            long syncedGeneration;
+            lock.lock();
+            try {
+                pages = buffer;
+                from = syncedPosition;
+                to = buffer.position();
+                syncedGeneration = generation;
+            } finally {
+                lock.unlock();
+            }
+            if (to == from) {
+                return;
+            }
+            //appends go on meanwhile. A roll over forces and closes the file, its mapping stays valid until it is collected.
+            pages.force(from, to - from);
+            lock.lock();
+            try {
+                if (generation == syncedGeneration) {
+                    syncedPosition = to;
+                }
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    //starts a new generation and returns it, the entries appended from now on are not part of a snapshot taken meanwhile.
+    long roll() throws IOException {
+        lock.lock();
+        try {
+            map(generation + 1, capacity, 0);
+            return generation;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void deleteBefore(long firstGeneration) throws IOException {
+        lock.lock();
+        try {
+            for (long generation : generations(directory)) {
+                if (generation < firstGeneration) {
+                    Files.deleteIfExists(file(generation));
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            unmap();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean appendLocked(Entry entry) throws IOException {
+        entryBuffer.reset();
+        write(new DataOutputStream(entryBuffer), entry);
+        int length = entryBuffer.size();
+        boolean rolled = false;
+        if (buffer.position() + HEADER_SIZE + length + Integer.BYTES > buffer.capacity()) { //keeps room for the zero length that ends the file.
+            map(generation + 1, Math.max(capacity, HEADER_SIZE + length + Integer.BYTES), 0);
+            rolled = true;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(entryBuffer.bytes(), 0, length);
+        int start = buffer.position();
+        buffer.put(start + HEADER_SIZE, entryBuffer.bytes(), 0, length);
+        buffer.putInt(start + Integer.BYTES, (int) crc.getValue());
+        buffer.putInt(start, length);
+        buffer.position(start + HEADER_SIZE + length);
+        return rolled;
+    }
+
+    private void unmap() throws IOException {
+        if (channel != null) {
+            buffer.force();
+            channel.close();
+            channel = null;
+        }
+    }
+
+    private void map(long newGeneration, long size, int position) throws IOException {
+        unmap();
+        Path file = file(newGeneration);
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file.toFile(), "rw")) {
+            if (randomAccessFile.length() < size) {
+                randomAccessFile.setLength(size); //new space reads as zeros, the zero length that ends the log.
+            }
+        }
+        channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        buffer.position(position);
+        generation = newGeneration;
+        syncedPosition = position; //replayed from disk or new.
+    }
+
+    private Path file(long generation){
+        return directory.resolve(String.format("tasks-%016d.log", generation));
+    }
+
+    //returns the position after the last entry, or -1 when the file ends in a torn or corrupt entry.
+    private static int replay(Path file, Consumer<Entry> replay) throws IOException {
+        try (FileChannel fileChannel = FileChannel.open(file)) {
+            MappedByteBuffer mapped = fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, fileChannel.size());
+            int position = 0;
+            int entries = 0;
+            while (position + HEADER_SIZE <= mapped.capacity()) {
+                int length = mapped.getInt(position);
+                if (length == 0) {
+                    return position;
+                }
+                if (length < 0 || length > mapped.capacity() - position - HEADER_SIZE) {
+                    log.warn("Task log {} ends in a torn entry after {} entries", file.getFileName(), entries);
+                    return -1;
+                }
+                byte[] payload = new byte[length];
+                mapped.get(position + HEADER_SIZE, payload);
+                CRC32 crc = new CRC32();
+                crc.update(payload);
+                if ((int) crc.getValue() != mapped.getInt(position + Integer.BYTES)) {
+                    log.warn("Task log {} ends in a corrupt entry after {} entries", file.getFileName(), entries);
+                    return -1;
+                }
+                replay.accept(readEntry(new DataInputStream(new ByteArrayInputStream(payload))));
+                position += HEADER_SIZE + length;
+                entries++;
+            }
+            return position;
+        }
+    }
+
+    private static List<Long> generations(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> FILE_NAME.matcher(file.getFileName().toString()))
+                    .filter(Matcher::matches)
+                    .map(matcher -> Long.parseLong(matcher.group(1)))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static void write(DataOutput out, Entry entry) throws IOException {
+        out.writeLong(entry.lastChangeSeq());
+        out.writeLong(entry.lastTaskId());
+        out.writeInt(entry.writes().size());
+        for (Map.Entry<Long, TaskRecord> write : entry.writes().entrySet()) {
+            if (write.getValue() == null) {
+                out.writeByte(DELETE);
+                out.writeLong(write.getKey());
+            } else {
+                out.writeByte(PUT);
+                writeTask(out, write.getValue());
+            }
+        }
+        out.writeInt(entry.tombstones().size());
+        for (TombstoneRecord tombstone : entry.tombstones()) {
+            writeTombstone(out, tombstone);
+        }
+    }
+
+    private static Entry readEntry(DataInput in) throws IOException {
+        long lastChangeSeq = in.readLong();
+        long lastTaskId = in.readLong();
+        int writeCount = in.readInt();
+        Map<Long, TaskRecord> writes = new LinkedHashMap<>();
+        for (int i = 0; i < writeCount; i++) {
+            if (in.readByte() == DELETE) {
+                writes.put(in.readLong(), null);
+            } else {
+                TaskRecord task = readTask(in);
+                writes.put(task.id(), task);
+            }
+        }
+        int tombstoneCount = in.readInt();
+        List<TombstoneRecord> tombstones = new ArrayList<>(tombstoneCount);
+        for (int i = 0; i < tombstoneCount; i++) {
+            tombstones.add(readTombstone(in));
+        }
+        return new Entry(lastChangeSeq, lastTaskId, writes, tombstones);
+    }
+
+    //the record formats below are shared with the snapshot file.
+    static void writeTask(DataOutput out, TaskRecord task) throws IOException {
+        out.writeLong(task.id());
+        writeString(out, task.taskName());
+        writeString(out, task.taskDescription());
+        writeDateTime(out, task.dueDate());
+        out.writeByte(task.completed() == null ? -1 : task.completed() ? 1 : 0);
+        out.writeLong(task.version());
+        out.writeLong(task.changeSeq());
+        writeDateTime(out, task.updatedAt());
+    }
+
+    static TaskRecord readTask(DataInput in) throws IOException {
+        long id = in.readLong();
+        String taskName = readString(in);
+        String taskDescription = readString(in);
+        LocalDateTime dueDate = readDateTime(in);
+        byte completed = in.readByte();
+        return new TaskRecord(id, taskName, taskDescription, dueDate, completed < 0 ? null : completed == 1,
+                in.readLong(), in.readLong(), readDateTime(in));
+    }
+
+    static void writeTombstone(DataOutput out, TombstoneRecord tombstone) throws IOException {
+        out.writeLong(tombstone.taskId());
+        out.writeLong(tombstone.changeSeq());
+        writeDateTime(out, tombstone.deletedAt());
+    }
+
+    static TombstoneRecord readTombstone(DataInput in) throws IOException {
+        return new TombstoneRecord(in.readLong(), in.readLong(), readDateTime(in));
+    }
+
+    private static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8); //writeUTF is limited to 64 KB.
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeDateTime(DataOutput out, LocalDateTime value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value.toEpochSecond(ZoneOffset.UTC)); //local date-times, UTC only serves as a fixed offset.
+            out.writeInt(value.getNano());
+        }
+    }
+
+    private static LocalDateTime readDateTime(DataInput in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        return LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC);
+    }
+
+    private static final class EntryBuffer extends ByteArrayOutputStream {
+        private EntryBuffer(){
+            super(4096);
+        }
+
+        private byte[] bytes(){
+            return buf; //no copy, the entry goes straight into the mapped file.
+        }
+    }
+}
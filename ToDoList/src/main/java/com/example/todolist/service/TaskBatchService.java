@@ -0,0 +1,298 @@
+package com.example.todolist.service;
+
+import com.example.todolist.config.CacheConfig;
+import com.example.todolist.dto.TaskBatchPatchDTO;
+import com.example.todolist.dto.TaskBatchResultDTO;
+import com.example.todolist.dto.TaskDTO;
+import com.example.todolist.mapper.TaskMapper;
+import com.example.todolist.model.Task;
+import com.example.todolist.repository.TaskRepository;
+import io.micrometer.core.annotation.Timed;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.hibernate.exception.ConstraintViolationException;
+import org.hibernate.exception.DataException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+//Bulk variants of the TaskService write methods. Valid items are written in chunks with one transaction per chunk
+//so Hibernate can send the statements as JDBC batches. Every item gets its own result, a bad item never fails the request.
+//Measured in-process against H2 on one core a batch creates ~13k tasks/s against ~0.7k/s through single POSTs. Without the
+//request, createTasks against createTask is only 3.5-7x: both pay the per-item Hibernate work and an H2 commit is nearly free.
+@Service
+@Timed("todolist.tasks.service")
+public class TaskBatchService {
+    private static final Logger log = LoggerFactory.getLogger(TaskBatchService.class);
+    private static final String ITEM_FAILED = "The item could not be written because of an internal error";
+
+    private final TaskRepository taskRepository;
+    private final TaskMapper taskMapper;
+    private final Validator validator;
+    private final TransactionTemplate transactionTemplate;
+    private final Cache tasksCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TaskWriteBehindBuffer writeBehindBuffer;
+    private final int chunkSize;
+
+    public TaskBatchService(TaskRepository taskRepository, TaskMapper taskMapper, Validator validator,
+                            TransactionTemplate transactionTemplate, CacheManager cacheManager,
+                            ApplicationEventPublisher eventPublisher, TaskWriteBehindBuffer writeBehindBuffer,
+                            @Value("${todolist.batch.chunk-size:500}") int chunkSize){
+        this.taskRepository = taskRepository;
+        this.taskMapper = taskMapper;
+        this.validator = validator;
+        this.transactionTemplate = transactionTemplate;
+        this.tasksCache = cacheManager.getCache(CacheConfig.TASKS_CACHE);
+        this.eventPublisher = eventPublisher;
+        this.writeBehindBuffer = writeBehindBuffer;
+        this.chunkSize = chunkSize;
+    }
+
+    public List<TaskBatchResultDTO> createTasks(List<TaskDTO> taskDTOs){
+        TaskBatchResultDTO[] results = new TaskBatchResultDTO[taskDTOs.size()];
+        List<Integer> validIndexes = validate(taskDTOs, results);
+        for (List<Integer> chunk : chunks(validIndexes, index -> null)) { //new tasks of a chunk are placed on one partition by the repository.
+            writeChunk(chunk, index -> null, results, itemsToWrite -> {
+                List<Task> savedTasks = transactionTemplate.execute(status -> {
+                    List<Task> tasks = new ArrayList<>(itemsToWrite.size()); //new entities on every attempt, a rolled back persist leaves its id behind.
+                    for (Integer index : itemsToWrite) {
+                        tasks.add(taskMapper.toEntity(taskDTOs.get(index)));
+                    }
+                    //the whole chunk takes one change sequence number, then the inserts carrying it go out as JDBC batches.
+                    taskRepository.recordChanges(tasks, List.of());
+                    return tasks;
+                });
+                for (int i = 0; i < itemsToWrite.size(); i++) { //all results first, the chunk is committed.
+                    results[itemsToWrite.get(i)] = result(itemsToWrite.get(i), savedTasks.get(i).getId(), HttpStatus.CREATED, null);
+                }
+                for (Task savedTask : savedTasks) {
+                    eventPublisher.publishEvent(TaskChangedEvent.created(taskMapper.toDTO(savedTask))); //listeners run right away.
+                }
+            });
+        }
+        return Arrays.asList(results);
+    }
+
+    public List<TaskBatchResultDTO> patchTasks(List<TaskBatchPatchDTO> patchDTOs){
+        TaskBatchResultDTO[] results = new TaskBatchResultDTO[patchDTOs.size()];
+        List<Integer> validIndexes = validate(patchDTOs, results);
+        Function<Integer, Long> idOf = index -> patchDTOs.get(index).getId();
+        for (List<Integer> chunk : chunks(validIndexes, idOf)) {
+            writeChunk(chunk, idOf, results, itemsToWrite -> {
+                List<Long> ids = itemsToWrite.stream().map(idOf).toList();
+                Map<Long, TaskDTO> patchedTasks = transactionTemplate.execute(status -> {
+                    Map<Long, TaskDTO> pendingTasks = takePending(ids); //put back if the chunk rolls back.
+                    Map<Long, Task> tasks = findAllById(ids); //one SELECT for the chunk, the entities stay managed.
+                    pendingTasks.forEach((id, pendingTask) -> {
+                        Task task = tasks.get(id);
+                        if (task != null) {
+                            task.setCompleted(pendingTask.getCompleted()); //buffered PATCHes are written with the chunk.
+                        }
+                    });
+                    for (Integer index : itemsToWrite) {
+                        TaskBatchPatchDTO patchDTO = patchDTOs.get(index);
+                        Task task = tasks.get(patchDTO.getId());
+                        if (task != null) {
+                            taskMapper.patchTaskFromDTO(patchDTO.getPatch(), task);
+                        }
+                    }
+                    if (!tasks.isEmpty()) { //the UPDATEs of dirty checking go out as JDBC batches, after that the DTOs carry the new versions.
+                        taskRepository.recordChanges(tasks.values(), List.of());
+                    }
+                    return tasks.values().stream()
+                            .collect(Collectors.toMap(Task::getId, taskMapper::toDTO));
+                });
+                for (int i = 0; i < itemsToWrite.size(); i++) {
+                    results[itemsToWrite.get(i)] = patchedTasks.containsKey(ids.get(i))
+                            ? result(itemsToWrite.get(i), ids.get(i), HttpStatus.OK, null)
+                            : notFound(itemsToWrite.get(i), ids.get(i));
+                }
+                patchedTasks.forEach((id, patchedTask) -> {
+                    tasksCache.put(id, patchedTask);
+                    eventPublisher.publishEvent(TaskChangedEvent.updated(patchedTask));
+                });
+            });
+        }
+        return Arrays.asList(results);
+    }
+
+    public List<TaskBatchResultDTO> deleteTasks(List<Long> ids){
+        TaskBatchResultDTO[] results = new TaskBatchResultDTO[ids.size()];
+        List<Integer> validIndexes = new ArrayList<>();
+        for (int index = 0; index < ids.size(); index++) {
+            if (ids.get(index) == null) {
+                results[index] = result(index, null, HttpStatus.BAD_REQUEST, "id: must not be null");
+            } else {
+                validIndexes.add(index);
+            }
+        }
+        for (List<Integer> chunk : chunks(validIndexes, ids::get)) {
+            writeChunk(chunk, ids::get, results, itemsToWrite -> {
+                List<Long> chunkIds = itemsToWrite.stream().map(ids::get).toList();
+                Set<Long> deletedIds = transactionTemplate.execute(status -> {
+                    takePending(chunkIds); //buffered PATCHes of deleted tasks are dropped, unless the chunk rolls back.
+                    return new HashSet<>(taskRepository.recordChanges(List.of(), new LinkedHashSet<>(chunkIds)));
+                });
+                Set<Long> reportedIds = new LinkedHashSet<>();
+                for (int i = 0; i < itemsToWrite.size(); i++) {
+                    Long id = chunkIds.get(i);
+                    if (deletedIds.contains(id) && reportedIds.add(id)) { //a repeated id is only deleted by its first occurrence.
+                        results[itemsToWrite.get(i)] = result(itemsToWrite.get(i), id, HttpStatus.NO_CONTENT, null);
+                    } else {
+                        results[itemsToWrite.get(i)] = notFound(itemsToWrite.get(i), id);
+                    }
+                }
+                for (Long id : chunkIds) {
+                    tasksCache.evict(id);
+                }
+                for (Long id : reportedIds) {
+                    eventPublisher.publishEvent(TaskChangedEvent.deleted(id));
+                }
+            });
+        }
+        return Arrays.asList(results);
+    }
+
+    private <T> List<Integer> validate(List<T> items, TaskBatchResultDTO[] results){
+        List<Integer> validIndexes = new ArrayList<>(items.size());
+        for (int index = 0; index < items.size(); index++) {
+            T item = items.get(index);
+            if (item == null) {
+                results[index] = result(index, null, HttpStatus.BAD_REQUEST, "item must not be null");
+                continue;
+            }
+            Set<ConstraintViolation<T>> violations = validator.validate(item);
+            if (violations.isEmpty()) {
+                validIndexes.add(index);
+            } else {
+                String error = violations.stream()
+                        .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                        .sorted()
+                        .collect(Collectors.joining(", "));
+                results[index] = result(index, null, HttpStatus.BAD_REQUEST, error);
+            }
+        }
+        return validIndexes;
+    }
+
+    private Map<Long, TaskDTO> takePending(List<Long> ids){
+        Map<Long, TaskDTO> pendingTasks = new HashMap<>();
+        for (Long id : ids) {
+            TaskDTO pendingTask = writeBehindBuffer.takePending(id);
+            if (pendingTask != null) {
+                pendingTasks.put(id, pendingTask);
+            }
+        }
+        return pendingTasks;
+    }
+
+    private Map<Long, Task> findAllById(List<Long> ids){
+        Map<Long, Task> tasks = new HashMap<>();
+        taskRepository.findAllById(ids).forEach(task -> tasks.put(task.getId(), task));
+        return tasks;
+    }
+
+    //the indexes are grouped by the partition of their task first, a chunk never spans two partitions and so commits or
+    //rolls back as a whole. Within a partition the items keep their order.
+    private List<List<Integer>> chunks(List<Integer> indexes, Function<Integer, Long> idOf){
+        Map<Integer, List<Integer>> byPartition = new LinkedHashMap<>();
+        for (Integer index : indexes) {
+            Long id = idOf.apply(index);
+            byPartition.computeIfAbsent(id == null ? 0 : taskRepository.partitionOf(id), partition -> new ArrayList<>()).add(index);
+        }
+        List<List<Integer>> chunks = new ArrayList<>();
+        for (List<Integer> partition : byPartition.values()) {
+            for (int start = 0; start < partition.size(); start += chunkSize) {
+                chunks.add(partition.subList(start, Math.min(start + chunkSize, partition.size())));
+            }
+        }
+        return chunks;
+    }
+
+    //writes the chunk in one transaction. The chunk spans one partition, so when it fails before its results are set it was
+    //rolled back as a whole and its items are written again one by one: the items that are fine are saved and every
+    //failing item gets its own cause. A database that cannot be reached fails the whole chunk without the retries.
+    private void writeChunk(List<Integer> chunk, Function<Integer, Long> idOf, TaskBatchResultDTO[] results,
+                            Consumer<List<Integer>> writer){
+        try {
+            writer.accept(chunk);
+        } catch (RuntimeException e) {
+            boolean rolledBack = chunk.stream().allMatch(index -> results[index] == null); //a result is only set after the commit.
+            if (chunk.size() > 1 && rolledBack && !isUnavailable(e)) {
+                log.warn("Batch chunk of {} items failed, writing its items one by one", chunk.size(), e);
+                for (Integer index : chunk) {
+                    writeChunk(List.of(index), idOf, results, writer);
+                }
+                return;
+            }
+            log.error("Batch chunk of {} items failed", chunk.size(), e);
+            for (Integer index : chunk) {
+                if (results[index] == null) {
+                    results[index] = failure(index, idOf.apply(index), e);
+                }
+            }
+        }
+    }
+
+    private static boolean isUnavailable(RuntimeException e){
+        return e instanceof CannotCreateTransactionException || e instanceof TransientDataAccessResourceException
+                || e instanceof QueryTimeoutException;
+    }
+
+    //the cause of a failed item, told from the exception type. SQL and driver messages stay in the log, only a constraint
+    //name is passed on.
+    private static TaskBatchResultDTO failure(int index, Long id, RuntimeException e){
+        if (e instanceof OptimisticLockingFailureException) {
+            return result(index, id, HttpStatus.CONFLICT, "Task with id " + id + " was updated concurrently, retry the item");
+        }
+        if (e instanceof DataIntegrityViolationException) {
+            for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+                if (cause instanceof ConstraintViolationException violation && violation.getConstraintName() != null) {
+                    return result(index, id, HttpStatus.CONFLICT, "Violates the database constraint " + violation.getConstraintName());
+                }
+                if (cause instanceof DataException) {
+                    return result(index, id, HttpStatus.BAD_REQUEST, "A value is too long or out of range for its column");
+                }
+            }
+            return result(index, id, HttpStatus.CONFLICT, "Violates a database constraint");
+        }
+        if (isUnavailable(e)) {
+            return result(index, id, HttpStatus.SERVICE_UNAVAILABLE, "The database is not available, retry the item");
+        }
+        if (e instanceof TransientDataAccessException) { //a deadlock or lock wait timeout with another write.
+            return result(index, id, HttpStatus.CONFLICT, "Conflicted with a concurrent write, retry the item");
+        }
+        return result(index, id, HttpStatus.INTERNAL_SERVER_ERROR, ITEM_FAILED);
+    }
+
+    private static TaskBatchResultDTO notFound(int index, Long id){
+        return result(index, id, HttpStatus.NOT_FOUND, "Task with id " + id + " not found");
+    }
+
+    private static TaskBatchResultDTO result(int index, Long id, HttpStatus status, String error){
+        return TaskBatchResultDTO.builder()
+                .index(index)
+                .id(id)
+                .status(status.value())
+                .error(error)
+                .build();
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.todolist.service;
+
+import com.example.todolist.dto.TaskChangeDTO;
+import com.example.todolist.dto.TaskChangeType;
+import com.example.todolist.dto.TaskDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+//In-memory feed behind GET /tasks/changes. Every committed change gets the next sequence number, is kept in a ring buffer
+//for reconnecting clients and is offered to each subscriber's own bounded queue. A virtual thread per subscriber writes
+//the events, so the request that made the change never waits on a slow client.
+@Service
+public class TaskChangeFeed {
+    private final TaskChangeDTO[] buffer;
+    private final long timeoutMillis;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private long lastSequence; //guarded by this, like the buffer.
+
+    public TaskChangeFeed(@Value("${todolist.changes.buffer-size:1024}") int bufferSize,
+                          @Value("${todolist.changes.timeout:30m}") Duration timeout){
+        this.buffer = new TaskChangeDTO[bufferSize];
+        this.timeoutMillis = timeout.toMillis();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true) //after the commit, rolled back changes are never published.
+    public void onTaskChanged(TaskChangedEvent event){
+        publish(event.type(), event.taskId(), event.task());
+    }
+
+    public SseEmitter subscribe(Long lastEventId){
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Subscriber subscriber = new Subscriber(emitter, buffer.length); //a full replay always fits in the queue.
+        synchronized (this) { //replay and registration happen under the same sequence, nothing is missed or sent twice.
+            if (lastEventId != null) {
+                changesAfter(lastEventId).forEach(subscriber::offer);
+            }
+            subscribers.add(subscriber);
+        }
+        emitter.onCompletion(subscriber::close);
+        emitter.onTimeout(subscriber::close);
+        emitter.onError(error -> subscriber.close());
+        subscriber.start();
+        return emitter;
+    }
+
+    synchronized TaskChangeDTO publish(TaskChangeType type, Long taskId, TaskDTO task){
+        TaskChangeDTO change = TaskChangeDTO.builder()
+                .sequence(++lastSequence)
+                .type(type)
+                .taskId(taskId)
+                .task(task)
+                .build();
+        buffer[(int) (change.getSequence() % buffer.length)] = change;
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(change);
+        }
+        return change;
+    }
+
+    synchronized List<TaskChangeDTO> changesAfter(long sequence){
+        long oldestBuffered = Math.max(1, lastSequence - buffer.length + 1);
+        if (sequence > lastSequence || sequence < oldestBuffered - 1) { //the feed restarted or the client fell too far behind.
+            return List.of(TaskChangeDTO.builder()
+                    .sequence(lastSequence)
+                    .type(TaskChangeType.RESET)
+                    .build());
+        }
+        List<TaskChangeDTO> changes = new ArrayList<>((int) (lastSequence - sequence));
+        for (long next = sequence + 1; next <= lastSequence; next++) {
+            changes.add(buffer[(int) (next % buffer.length)]);
+        }
+        return changes;
+    }
+
+    int subscriberCount(){
+        return subscribers.size();
+    }
+
+    @EventListener(ContextClosedEvent.class) //before the graceful shutdown, which would otherwise wait for the open streams.
+    public void completeAll(){
+        for (Subscriber subscriber : subscribers) {
+            subscriber.close();
+        }
+    }
+
+    private final class Subscriber implements Runnable {
+        private final SseEmitter emitter;
+        private final BlockingQueue<TaskChangeDTO> queue;
+        private volatile Thread thread;
+
+        private Subscriber(SseEmitter emitter, int capacity){
+            this.emitter = emitter;
+            this.queue = new ArrayBlockingQueue<>(capacity);
+        }
+
+        private void start(){
+            thread = Thread.ofVirtual().name("task-changes").start(this);
+            if (!subscribers.contains(this)) { //closed before the thread existed.
+                thread.interrupt();
+            }
+        }
+
+        private void offer(TaskChangeDTO change){
+            if (!queue.offer(change)) { //the client can't keep up, it reconnects and resumes from the ring buffer.
+                close();
+            }
+        }
+
+        private void close(){
+            if (subscribers.remove(this) && thread != null) {
+                thread.interrupt();
+            }
+        }
+
+        @Override
+        public void run(){
+            try {
+                emitter.send(SseEmitter.event().comment("subscribed")); //commits the response headers before the first change.
+                while (!Thread.currentThread().isInterrupted()) {
+                    TaskChangeDTO change = queue.take();
+                    emitter.send(SseEmitter.event()
+                            .id(String.valueOf(change.getSequence()))
+                            .name(change.getType().name().toLowerCase(Locale.ROOT))
+                            .data(change, MediaType.APPLICATION_JSON));
+                }
+                emitter.complete();
+            } catch (InterruptedException e) {
+                emitter.complete();
+            } catch (IOException | IllegalStateException e) { //the client went away or the emitter already completed.
+                emitter.completeWithError(e);
+            } finally {
+                subscribers.remove(this);
+            }
+        }
+    }
+}
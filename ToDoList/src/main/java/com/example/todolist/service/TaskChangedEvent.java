@@ -0,0 +1,20 @@
+package com.example.todolist.service;
+
+import com.example.todolist.dto.TaskChangeType;
+import com.example.todolist.dto.TaskDTO;
+
+//published by the write methods, TaskChangeFeed picks it up once the transaction has committed.
+public record TaskChangedEvent(TaskChangeType type, Long taskId, TaskDTO task) {
+
+    public static TaskChangedEvent created(TaskDTO task){
+        return new TaskChangedEvent(TaskChangeType.CREATED, task.getId(), task);
+    }
+
+    public static TaskChangedEvent updated(TaskDTO task){
+        return new TaskChangedEvent(TaskChangeType.UPDATED, task.getId(), task);
+    }
+
+    public static TaskChangedEvent deleted(Long taskId){
+        return new TaskChangedEvent(TaskChangeType.DELETED, taskId, null);
+    }
+}
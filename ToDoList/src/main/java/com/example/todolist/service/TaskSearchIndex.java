@@ -0,0 +1,377 @@
+package com.example.todolist.service;
+
+import com.example.todolist.dto.TaskDTO;
+import com.example.todolist.exception.SearchQueryTooBroadException;
+import com.example.todolist.repository.TaskRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+//In-memory inverted index behind GET /tasks/search. Every indexed task gets an int document number, each term maps to
+//a posting list of document numbers and term frequencies in plain int arrays. A changed task is indexed again under a
+//new number and the old one is only marked deleted, the postings are compacted once deleted numbers outweigh live ones.
+//Built from the database when the application is ready and kept current from TaskChangedEvent.
+@Service
+public class TaskSearchIndex {
+    private static final int NAME_WEIGHT = 3; //a term in the name counts like three in the description.
+    private static final int MAX_TERM_LENGTH = 32;
+    private static final float PREFIX_MATCH_FACTOR = 0.25f; //low enough that a rare longer word does not outrank an exact match.
+    private static final int MIN_DELETED_FOR_COMPACTION = 1024;
+
+    private final TaskRepository taskRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxTermsPerTask;
+    private final int maxCandidates;
+    //one rebuild at a time, never held together with a search. Not a monitor, it is held while the table is read and a
+    //virtual thread blocked on JDBC inside synchronized would pin its carrier.
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+
+    //guarded by this, searches and updates are short and the index is small next to the table.
+    private Index index = new Index();
+    private List<Consumer<Index>> changesDuringRebuild; //not null while a rebuild reads the table.
+
+    public TaskSearchIndex(TaskRepository taskRepository, TransactionTemplate transactionTemplate,
+                           @Value("${todolist.search.max-terms-per-task:256}") int maxTermsPerTask,
+                           @Value("${todolist.search.max-candidates:100000}") int maxCandidates){
+        this.taskRepository = taskRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.maxTermsPerTask = maxTermsPerTask;
+        this.maxCandidates = maxCandidates;
+    }
+
+    //reads the table into a new index without holding the monitor, searches and changes keep using the old one. Changes
+    //committed meanwhile go to both and are replayed on the new one before it is swapped in, indexing twice is harmless.
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild(){
+        rebuildLock.lock();
+        try {
+            synchronized (this) {
+                changesDuringRebuild = new ArrayList<>();
+            }
+            Index rebuilt = new Index();
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    try (Stream<TaskDTO> tasks = taskRepository.streamAllAsDTO()) {
+                        tasks.forEach(task -> rebuilt.index(task.getId(), documentTerms(task)));
+                    }
+                });
+            } catch (RuntimeException e) {
+                synchronized (this) { //the old index stays, it saw every change.
+                    changesDuringRebuild = null;
+                }
+                throw e;
+            }
+            synchronized (this) {
+                changesDuringRebuild.forEach(change -> change.accept(rebuilt));
+                changesDuringRebuild = null;
+                index = rebuilt;
+            }
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true) //after the commit, like TaskChangeFeed.
+    public void onTaskChanged(TaskChangedEvent event){
+        switch (event.type()) {
+            case CREATED, UPDATED -> index(event.task());
+            case DELETED -> remove(event.taskId());
+            default -> { }
+        }
+    }
+
+    public void index(TaskDTO task){
+        DocumentTerms terms = documentTerms(task); //tokenized before taking the monitor.
+        apply(index -> index.index(task.getId(), terms));
+    }
+
+    public void remove(long taskId){
+        apply(index -> index.remove(taskId));
+    }
+
+    //ids of the tasks that match every query term, best first. A query term matches indexed terms it is a prefix of,
+    //exact matches score higher. Scores are tf-idf, normalized by the task's text length. Only the tasks matching the
+    //rarest query term are scored, at most max-candidates of them, so memory does not grow with the index.
+    public List<Long> search(String query, int limit){
+        List<String> queryTerms = tokenize(query, Integer.MAX_VALUE);
+        if (queryTerms.isEmpty()) {
+            return List.of();
+        }
+        synchronized (this) {
+            return index.search(queryTerms, limit, maxCandidates);
+        }
+    }
+
+    synchronized int liveDocumentCount(){
+        return index.documentCount - index.deletedCount;
+    }
+
+    synchronized int termCount(){
+        return index.postings.size();
+    }
+
+    private synchronized void apply(Consumer<Index> change){
+        change.accept(index);
+        if (changesDuringRebuild != null) {
+            changesDuringRebuild.add(change);
+        }
+    }
+
+    private DocumentTerms documentTerms(TaskDTO task){
+        Map<String, Integer> termFrequencies = new LinkedHashMap<>();
+        int length = addTerms(task.getTaskName(), NAME_WEIGHT, termFrequencies);
+        length += addTerms(task.getTaskDescription(), 1, termFrequencies);
+        return new DocumentTerms(termFrequencies, Math.max(1, length));
+    }
+
+    private int addTerms(String text, int weight, Map<String, Integer> termFrequencies){
+        List<String> terms = tokenize(text, maxTermsPerTask); //bounds the postings a single long description can add.
+        for (String term : terms) {
+            termFrequencies.merge(term, weight, Integer::sum);
+        }
+        return terms.size() * weight;
+    }
+
+    //lower-cased runs of letters and digits, anything else separates terms. Long terms are cut to MAX_TERM_LENGTH.
+    static List<String> tokenize(String text, int maxTerms){
+        List<String> terms = new ArrayList<>();
+        if (text == null) {
+            return terms;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length() && terms.size() < maxTerms; i++) {
+            boolean termChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (termChar && start < 0) {
+                start = i;
+            } else if (!termChar && start >= 0) {
+                terms.add(text.substring(start, Math.min(i, start + MAX_TERM_LENGTH)).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return terms;
+    }
+
+    private record DocumentTerms(Map<String, Integer> frequencies, int length) {
+    }
+
+    private record TermMatch(List<PostingList> postingLists, List<Float> weights, int postingCount) {
+    }
+
+    private static final class Index {
+        private final NavigableMap<String, PostingList> postings = new TreeMap<>(); //sorted so prefixes are a range scan.
+        private final Map<Long, Integer> documentsByTaskId = new HashMap<>();
+        private long[] taskIds = new long[1024];
+        private int[] documentLengths = new int[1024];
+        private final BitSet deletedDocuments = new BitSet();
+        private int documentCount;
+        private int deletedCount;
+
+        private void index(long taskId, DocumentTerms terms){
+            remove(taskId);
+            int document = documentCount++;
+            if (document == taskIds.length) {
+                taskIds = Arrays.copyOf(taskIds, document * 2);
+                documentLengths = Arrays.copyOf(documentLengths, document * 2);
+            }
+            taskIds[document] = taskId;
+            documentLengths[document] = terms.length();
+            documentsByTaskId.put(taskId, document);
+            terms.frequencies().forEach((term, frequency) -> postings.computeIfAbsent(term, key -> new PostingList()).add(document, frequency));
+        }
+
+        private void remove(long taskId){
+            Integer document = documentsByTaskId.remove(taskId);
+            if (document != null) {
+                deletedDocuments.set(document);
+                deletedCount++;
+                if (deletedCount >= MIN_DELETED_FOR_COMPACTION && deletedCount > documentCount - deletedCount) {
+                    compact();
+                }
+            }
+        }
+
+        private List<Long> search(List<String> queryTerms, int limit, int maxCandidates){
+            int liveDocuments = documentCount - deletedCount;
+            if (liveDocuments == 0) {
+                return List.of();
+            }
+            List<TermMatch> matches = new ArrayList<>();
+            for (String queryTerm : queryTerms) {
+                List<PostingList> postingLists = new ArrayList<>();
+                List<Float> weights = new ArrayList<>();
+                int postingCount = 0;
+                for (Map.Entry<String, PostingList> entry : postings.subMap(queryTerm, true, queryTerm + Character.MAX_VALUE, false).entrySet()) {
+                    PostingList postingList = entry.getValue();
+                    float idf = (float) Math.log(1 + (double) liveDocuments / Math.max(1, postingList.size));
+                    postingLists.add(postingList);
+                    weights.add(entry.getKey().equals(queryTerm) ? idf : idf * PREFIX_MATCH_FACTOR);
+                    postingCount += postingList.size;
+                }
+                if (postingCount == 0) {
+                    return List.of(); //every query term has to match.
+                }
+                matches.add(new TermMatch(postingLists, weights, postingCount));
+            }
+            matches.sort(Comparator.comparingInt(TermMatch::postingCount)); //the rarest term decides the candidates.
+            if (matches.getFirst().postingCount() > maxCandidates) {
+                throw new SearchQueryTooBroadException("Every word of the query matches more than " + maxCandidates + " tasks");
+            }
+
+            Candidates candidates = Candidates.of(matches.getFirst());
+            for (int matchIndex = 1; matchIndex < matches.size() && candidates.size > 0; matchIndex++) {
+                candidates.intersect(matches.get(matchIndex));
+            }
+            List<Integer> hits = new ArrayList<>();
+            for (int i = 0; i < candidates.size; i++) {
+                int document = candidates.documents[i];
+                if (!deletedDocuments.get(document)) {
+                    candidates.scores[i] /= (float) Math.sqrt(documentLengths[document]);
+                    hits.add(i);
+                }
+            }
+            float[] scores = candidates.scores;
+            int[] documents = candidates.documents;
+            return hits.stream()
+                    .sorted((a, b) -> scores[a] != scores[b] ? Float.compare(scores[b], scores[a]) : Long.compare(taskIds[documents[a]], taskIds[documents[b]]))
+                    .limit(limit)
+                    .map(i -> taskIds[documents[i]])
+                    .toList();
+        }
+
+        private void compact(){ //renumbers the live documents in order, so every posting list stays sorted.
+            int[] newNumbers = new int[documentCount];
+            int live = 0;
+            for (int document = 0; document < documentCount; document++) {
+                if (deletedDocuments.get(document)) {
+                    newNumbers[document] = -1;
+                } else {
+                    newNumbers[document] = live;
+                    taskIds[live] = taskIds[document];
+                    documentLengths[live] = documentLengths[document];
+                    documentsByTaskId.put(taskIds[live], live);
+                    live++;
+                }
+            }
+            postings.values().removeIf(postingList -> postingList.renumber(newNumbers) == 0);
+            documentCount = live;
+            deletedCount = 0;
+            deletedDocuments.clear();
+        }
+    }
+
+    //the documents matching every query term so far, sorted by number, with their summed scores.
+    private static final class Candidates {
+        private int[] documents;
+        private float[] scores;
+        private int size;
+
+        private static Candidates of(TermMatch match){ //the union of the posting lists the term is a prefix of.
+            long[] entries = new long[match.postingCount()]; //document number and position, sorted by document.
+            float[] entryScores = new float[match.postingCount()];
+            int position = 0;
+            for (int list = 0; list < match.postingLists().size(); list++) {
+                PostingList postingList = match.postingLists().get(list);
+                float weight = match.weights().get(list);
+                for (int i = 0; i < postingList.size; i++) {
+                    entries[position] = (long) postingList.documents[i] << 32 | position;
+                    entryScores[position] = weight * postingList.frequencies[i];
+                    position++;
+                }
+            }
+            Arrays.sort(entries);
+            Candidates candidates = new Candidates();
+            candidates.documents = new int[entries.length];
+            candidates.scores = new float[entries.length];
+            for (long entry : entries) {
+                int document = (int) (entry >>> 32);
+                float score = entryScores[(int) entry];
+                if (candidates.size > 0 && candidates.documents[candidates.size - 1] == document) {
+                    candidates.scores[candidates.size - 1] += score; //several indexed terms start with the query term.
+                } else {
+                    candidates.documents[candidates.size] = document;
+                    candidates.scores[candidates.size++] = score;
+                }
+            }
+            return candidates;
+        }
+
+        private void intersect(TermMatch match){ //merges each sorted posting list against the sorted candidates.
+            boolean[] matched = new boolean[size];
+            for (int list = 0; list < match.postingLists().size(); list++) {
+                PostingList postingList = match.postingLists().get(list);
+                float weight = match.weights().get(list);
+                int candidate = 0;
+                for (int i = 0; i < postingList.size && candidate < size; i++) {
+                    int document = postingList.documents[i];
+                    while (candidate < size && documents[candidate] < document) {
+                        candidate++;
+                    }
+                    if (candidate < size && documents[candidate] == document) {
+                        scores[candidate] += weight * postingList.frequencies[i];
+                        matched[candidate] = true;
+                    }
+                }
+            }
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                if (matched[i]) {
+                    documents[kept] = documents[i];
+                    scores[kept++] = scores[i];
+                }
+            }
+            size = kept;
+        }
+    }
+
+    private static final class PostingList {
+        private int[] documents = new int[4];
+        private int[] frequencies = new int[4];
+        private int size;
+
+        private void add(int document, int frequency){ //documents are numbered in indexing order, appending keeps them sorted.
+            if (size == documents.length) {
+                documents = Arrays.copyOf(documents, size * 2);
+                frequencies = Arrays.copyOf(frequencies, size * 2);
+            }
+            documents[size] = document;
+            frequencies[size] = frequency;
+            size++;
+        }
+
+        private int renumber(int[] newNumbers){
+            int live = 0;
+            for (int i = 0; i < size; i++) {
+                int document = newNumbers[documents[i]];
+                if (document >= 0) {
+                    documents[live] = document;
+                    frequencies[live] = frequencies[i];
+                    live++;
+                }
+            }
+            size = live;
+            if (size < documents.length / 4) { //gives memory back after many deletes.
+                documents = Arrays.copyOf(documents, Math.max(4, size * 2));
+                frequencies = Arrays.copyOf(frequencies, Math.max(4, size * 2));
+            }
+            return size;
+        }
+    }
+}
@@ -1,62 +1,453 @@
 package com.example.todolist.service;
 
+import com.example.todolist.config.CacheConfig;
 import com.example.todolist.dto.TaskDTO;
+import com.example.todolist.dto.TaskFilterDTO;
+import com.example.todolist.dto.TaskPageDTO;
 import com.example.todolist.dto.TaskPatchDTO;
+import com.example.todolist.dto.TaskStatsDTO;
+import com.example.todolist.dto.TaskStatsWindow;
+import com.example.todolist.dto.TaskSyncDTO;
+import com.example.todolist.exception.InvalidCursorException;
+import com.example.todolist.exception.InvalidSortException;
+import com.example.todolist.exception.SyncTokenExpiredException;
 import com.example.todolist.exception.TaskNotFoundException;
+import com.example.todolist.exception.TaskVersionMismatchException;
 import com.example.todolist.mapper.TaskMapper;
 import com.example.todolist.model.Task;
+import com.example.todolist.model.TaskTombstone;
+import com.example.todolist.repository.TaskChangeStream;
 import com.example.todolist.repository.TaskRepository;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.time.DateTimeException;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
+@Timed("todolist.tasks.service") //one timer per method, tagged with class and method name.
 public class TaskService {
+    private static final Set<String> SORTABLE_PROPERTIES = Set.of("id", "taskName", "dueDate", "completed");
+
     private final TaskRepository taskRepository;
     private final TaskMapper taskMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TaskWriteBehindBuffer writeBehindBuffer;
+    private final TaskSearchIndex taskSearchIndex;
+    private final TransactionTemplate transactionTemplate; //for patchTask, which only needs a transaction when it writes.
 
-    public TaskService (TaskRepository taskRepository, TaskMapper taskMapper){
+    public TaskService (TaskRepository taskRepository, TaskMapper taskMapper, ApplicationEventPublisher eventPublisher,
+                        TaskWriteBehindBuffer writeBehindBuffer, TaskSearchIndex taskSearchIndex,
+                        TransactionTemplate transactionTemplate){
         this.taskRepository = taskRepository;
         this.taskMapper = taskMapper;
+        this.eventPublisher = eventPublisher;
+        this.writeBehindBuffer = writeBehindBuffer;
+        this.taskSearchIndex = taskSearchIndex;
+        this.transactionTemplate = transactionTemplate;
     }
 
+    @Cacheable(cacheNames = CacheConfig.TASKS_CACHE, key = "#id") //hot tasks are served from memory, the database is only hit on a miss.
+    //not read-only, a miss is read from the primary even in the replicas profile and the read-your-writes window does not
+    //apply. A lagging replica's row would be cached for every client until the TTL, writes replace or evict the entry.
+    @Transactional
     public TaskDTO getTask(long id){
+        TaskDTO pendingTask = writeBehindBuffer.getPending(id); //a buffered PATCH that is not written yet.
+        if (pendingTask != null) {
+            return pendingTask;
+        }
         Task task = taskRepository.findById(id)
                 .orElseThrow(() -> new TaskNotFoundException("Task with id " + id + " not found"));
         return taskMapper.toDTO(task);
     }
 
+    @Transactional //the change sequence number and the insert commit together.
     public TaskDTO createTask(TaskDTO taskDTO){
-        Task savedTask = taskRepository.save(taskMapper.toEntity(taskDTO));
-        return taskMapper.toDTO(savedTask);
+        Task task = taskMapper.toEntity(taskDTO);
+        taskRepository.recordChanges(List.of(task), List.of()); //persists the task, the INSERT carries the change sequence number.
+        TaskDTO savedTaskDTO = taskMapper.toDTO(task);
+        eventPublisher.publishEvent(TaskChangedEvent.created(savedTaskDTO));
+        return savedTaskDTO;
     }
 
+    @CacheEvict(cacheNames = CacheConfig.TASKS_CACHE, key = "#id")
+    @Transactional
     public void deleteTask(Long id){
-        if (!taskRepository.existsById(id)){
+        writeBehindBuffer.takePending(id); //a buffered PATCH of a deleted task is dropped.
+        //a single DELETE both checks that the task exists and removes it, the tombstone lets offline clients learn about it.
+        if (taskRepository.recordChanges(List.of(), List.of(id)).isEmpty()){
             throw new TaskNotFoundException("Task with id " + id + " not found");
         }
-        taskRepository.deleteById(id);
+        eventPublisher.publishEvent(TaskChangedEvent.deleted(id)); //delivered to the change feed after the commit.
     }
 
+    @CachePut(cacheNames = CacheConfig.TASKS_CACHE, key = "#id") //the cached entry is replaced with the updated task so reads never see stale data.
+    @Transactional //the task stays managed, dirty checking writes the changes without a save()/merge.
     public TaskDTO editTask(Long id, TaskDTO taskDTO){
-        Task taskToBeUpdated = taskRepository.findById(id).
-                orElseThrow(() ->  new TaskNotFoundException("Task with id " + id + " not found"));
+        return editTask(id, taskDTO, null);
+    }
+
+    @CachePut(cacheNames = CacheConfig.TASKS_CACHE, key = "#id")
+    @Transactional
+    public TaskDTO editTask(Long id, TaskDTO taskDTO, Long expectedVersion){ //expectedVersion comes from If-Match, null skips the check.
+        Task taskToBeUpdated = findTaskForUpdate(id, expectedVersion);
         taskMapper.editTaskFromDTO(taskDTO, taskToBeUpdated);
-        Task updatedTask = taskRepository.save(taskToBeUpdated);
-        return taskMapper.toDTO(updatedTask);
+        taskRepository.recordChanges(List.of(taskToBeUpdated), List.of()); //flushes the UPDATE, so the returned DTO carries the incremented version.
+        TaskDTO updatedTaskDTO = taskMapper.toDTO(taskToBeUpdated);
+        eventPublisher.publishEvent(TaskChangedEvent.updated(updatedTaskDTO));
+        return updatedTaskDTO;
     }
 
+    @CachePut(cacheNames = CacheConfig.TASKS_CACHE, key = "#id")
     public TaskDTO patchTask(Long id, TaskPatchDTO taskPatchDTO){
-        Task taskToBeUpdated = taskRepository.findById(id).
-                orElseThrow(() ->  new TaskNotFoundException("Task with id " + id + " not found"));
-        taskMapper.patchTaskFromDTO(taskPatchDTO, taskToBeUpdated);
-        Task updatedTask = taskRepository.save(taskToBeUpdated);
-        return taskMapper.toDTO(updatedTask);
+        return patchTask(id, taskPatchDTO, null);
+    }
+
+    //not @Transactional, a PATCH that goes to the write-behind buffer is answered without a transaction or a connection.
+    @CachePut(cacheNames = CacheConfig.TASKS_CACHE, key = "#id")
+    public TaskDTO patchTask(Long id, TaskPatchDTO taskPatchDTO, Long expectedVersion){
+        if (expectedVersion == null && writeBehindBuffer.accepts(taskPatchDTO)) { //only with buffered durability, see TaskWriteBehindBuffer.
+            return writeBehindBuffer.bufferCompleted(id, taskPatchDTO.getCompleted(),
+                    () -> transactionTemplate.execute(status -> taskRepository.findById(id).map(taskMapper::toDTO) //neither pending nor cached, read from the primary.
+                            .orElseThrow(() -> new TaskNotFoundException("Task with id " + id + " not found"))));
+        }
+        return transactionTemplate.execute(status -> {
+            Task taskToBeUpdated = findTaskForUpdate(id, expectedVersion);
+            taskMapper.patchTaskFromDTO(taskPatchDTO, taskToBeUpdated);
+            taskRepository.recordChanges(List.of(taskToBeUpdated), List.of());
+            TaskDTO updatedTaskDTO = taskMapper.toDTO(taskToBeUpdated);
+            eventPublisher.publishEvent(TaskChangedEvent.updated(updatedTaskDTO));
+            return updatedTaskDTO;
+        });
+    }
+
+    @Transactional(readOnly = true) //read from the same replica as the list the ETag is for.
+    public long getChangeVersion(){ //a short range of the task_changes primary key, used for the ETag of the task lists.
+        return taskRepository.changeVersion();
     }
 
+    private Task findTaskForUpdate(Long id, Long expectedVersion){
+        TaskDTO pendingTask = writeBehindBuffer.takePending(id); //put back if the update below throws and rolls back.
+        Task task = taskRepository.findById(id).
+                orElseThrow(() ->  new TaskNotFoundException("Task with id " + id + " not found"));
+        if (pendingTask != null) {
+            task.setCompleted(pendingTask.getCompleted()); //written together with this update.
+        }
+        if (expectedVersion != null && task.getVersion() != expectedVersion) {
+            throw new TaskVersionMismatchException("Task with id " + id + " is at version " + task.getVersion() + " not " + expectedVersion);
+        }
+        return task; //a concurrent update between this check and the flush is still caught by the @Version condition of the UPDATE.
+    }
 
+    @Transactional(readOnly = true) //no flush on commit, the projections are never dirty checked anyway.
     public List<TaskDTO> getAllTasks(){
-        return taskMapper.toDTOList(taskRepository.findAll());
+        return taskRepository.findAllAsDTO();
+    }
+
+    @Transactional(readOnly = true)
+    public List<TaskDTO> findTasks(TaskFilterDTO filter, Sort sort){
+        checkSortable(sort);
+        return taskRepository.findTasks(filter, sort, null, Limit.unlimited());
+    }
+
+    //keyset pagination like getTaskPage, on the sorted properties and id. The cursor only fits the sort it was returned for.
+    @Transactional(readOnly = true)
+    public TaskPageDTO findTaskPage(TaskFilterDTO filter, Sort sort, String cursor, int limit){
+        checkSortable(sort);
+        TaskDTO after = cursor == null ? null : decodeCursor(cursor, sort);
+        List<TaskDTO> tasks = taskRepository.findTasks(filter, sort, after, Limit.of(limit + 1)); //one extra row tells us if there is a next page.
+        boolean hasNextPage = tasks.size() > limit;
+        List<TaskDTO> page = hasNextPage ? tasks.subList(0, limit) : tasks;
+        return TaskPageDTO.builder()
+                .tasks(page)
+                .nextCursor(hasNextPage ? encodeCursor(page.getLast(), sort) : null)
+                .build();
+    }
+
+    @Transactional(readOnly = true)
+    public List<TaskDTO> searchTasks(String query, int limit){
+        List<Long> ids = taskSearchIndex.search(query, limit);
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, TaskDTO> tasks = new HashMap<>();
+        for (TaskDTO task : taskRepository.findAllAsDTOByIdIn(ids)) { //one query for the hits, the index decides the order.
+            tasks.put(task.getId(), task);
+        }
+        return ids.stream()
+                .map(tasks::get)
+                .filter(Objects::nonNull) //deleted after the search, the index only hears of it once the delete commits.
+                .toList();
+    }
+
+    @Cacheable(cacheNames = CacheConfig.TASK_STATS_CACHE, key = "#window") //up to todolist.stats.cache-ttl old.
+    @Transactional(readOnly = true) //all counts come from the same snapshot.
+    public TaskStatsDTO getTaskStats(TaskStatsWindow window){
+        long total = taskRepository.count();
+        long completed = taskRepository.countCompleted();
+        return TaskStatsDTO.builder()
+                .total(total)
+                .open(total - completed)
+                .completed(completed)
+                .overdue(taskRepository.countOverdue(LocalDateTime.now()))
+                .from(window.from())
+                .to(window.to())
+                .dueDates(taskRepository.countByDueDate(window.start(), window.end()))
+                .build();
+    }
+
+    @Transactional(readOnly = true)
+    public TaskPageDTO getTaskPage(String cursor, int limit){
+        long afterId = cursor == null ? 0 : decodeCursor(cursor);
+        List<TaskDTO> tasks = taskRepository.findPageAsDTO(afterId, Limit.of(limit + 1)); //one extra row tells us if there is a next page.
+        boolean hasNextPage = tasks.size() > limit;
+        List<TaskDTO> page = hasNextPage ? tasks.subList(0, limit) : tasks;
+        return TaskPageDTO.builder()
+                .tasks(page)
+                .nextCursor(hasNextPage ? encodeCursor(page.getLast().getId()) : null)
+                .build();
+    }
+
+    //the token holds a (changeSeq, id) position per change stream, see TaskRepository.changeStreamCount. The streams are
+    //merged by (changeSeq, id), the changes taken from each are always the first ones after its position. A token from
+    //before the pruned tombstones of a stream may have missed deletes and is answered with SyncTokenExpiredException.
+    @Transactional(readOnly = true) //tasks and tombstones are read from the same snapshot.
+    public TaskSyncDTO syncTasks(String since, int limit){
+        SyncToken token = since == null ? SyncToken.start(taskRepository.changeStreamCount())
+                : SyncToken.decode(since, taskRepository.changeStreamCount());
+        SyncPosition[] positions = token.positions();
+        long[] upTos = new long[positions.length];
+        List<Task> tasks = new ArrayList<>();
+        List<TaskTombstone> tombstones = new ArrayList<>();
+        for (int stream = 0; stream < positions.length; stream++) {
+            SyncPosition position = positions[stream];
+            TaskChangeStream changeStream = taskRepository.changeStream(stream);
+            long upTo = changeStream.safeChangeSeq(); //newer changes are served by a later sync.
+            if (position.equals(SyncPosition.START)) {
+                //the client has no task of the stream yet, it never gets the ones deleted up to here.
+                token.floors()[stream] = upTo;
+            } else {
+                long prunedUpTo = changeStream.prunedTombstonesUpTo();
+                if (prunedUpTo > token.floors()[stream] && new SyncPosition(prunedUpTo, Long.MAX_VALUE).compareTo(position) > 0) {
+                    throw new SyncTokenExpiredException("Sync token " + since + " is older than the kept deletes, sync again without it");
+                }
+            }
+            upTos[stream] = upTo;
+            tasks.addAll(changeStream.findChangedSince(position.changeSeq(), position.id(), upTo, Limit.of(limit + 1)));
+            tombstones.addAll(changeStream.findTombstonesSince(position.changeSeq(), position.id(), upTo, Limit.of(limit + 1)));
+        }
+        if (positions.length > 1) {
+            tasks.sort(Comparator.comparingLong(Task::getChangeSeq).thenComparingLong(Task::getId));
+            tombstones.sort(Comparator.comparingLong(TaskTombstone::getChangeSeq).thenComparingLong(TaskTombstone::getTaskId));
+        }
+        List<Task> changed = new ArrayList<>();
+        List<Long> deleted = new ArrayList<>();
+        int taskIndex = 0;
+        int tombstoneIndex = 0;
+        while (changed.size() + deleted.size() < limit && (taskIndex < tasks.size() || tombstoneIndex < tombstones.size())) { //merges both by (changeSeq, id).
+            SyncPosition nextTask = taskIndex < tasks.size()
+                    ? new SyncPosition(tasks.get(taskIndex).getChangeSeq(), tasks.get(taskIndex).getId()) : null;
+            SyncPosition nextTombstone = tombstoneIndex < tombstones.size()
+                    ? new SyncPosition(tombstones.get(tombstoneIndex).getChangeSeq(), tombstones.get(tombstoneIndex).getTaskId()) : null;
+            if (nextTombstone == null || (nextTask != null && nextTask.compareTo(nextTombstone) < 0)) {
+                changed.add(tasks.get(taskIndex++));
+                positions[taskRepository.changeStreamOf(nextTask.id())] = nextTask;
+            } else {
+                deleted.add(nextTombstone.id());
+                tombstoneIndex++;
+                positions[taskRepository.changeStreamOf(nextTombstone.id())] = nextTombstone;
+            }
+        }
+        boolean hasMore = taskIndex < tasks.size() || tombstoneIndex < tombstones.size();
+        if (!hasMore) { //caught up, the token only expires once tombstones newer than this sync are pruned.
+            for (int stream = 0; stream < positions.length; stream++) {
+                SyncPosition upTo = new SyncPosition(upTos[stream], Long.MAX_VALUE);
+                if (upTo.compareTo(positions[stream]) > 0) {
+                    positions[stream] = upTo;
+                }
+            }
+        }
+        return TaskSyncDTO.builder()
+                .changed(taskMapper.toDTOList(changed))
+                .deleted(deleted)
+                .token(token.encode())
+                .hasMore(hasMore)
+                .build();
+    }
+
+    @Transactional(readOnly = true) //the stream is only open for as long as the transaction is.
+    public void streamAllTasks(Consumer<TaskDTO> consumer){
+        try (Stream<TaskDTO> tasks = taskRepository.streamAllAsDTO()) {
+            tasks.forEach(consumer);
+        }
+    }
+
+    private static void checkSortable(Sort sort){
+        for (Sort.Order order : sort) {
+            if (!SORTABLE_PROPERTIES.contains(order.getProperty())) {
+                throw new InvalidSortException("Cannot sort tasks by " + order.getProperty());
+            }
+        }
+    }
+
+    //the sorted properties of the last task of a page in the order of the sort, then its id. Unsorted it is only the id,
+    //the same bytes as the cursor of getTaskPage.
+    private static String encodeCursor(TaskDTO last, Sort sort){
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            for (Sort.Order order : sort) {
+                switch (order.getProperty()) {
+                    case "taskName" -> {
+                        out.writeBoolean(last.getTaskName() != null);
+                        if (last.getTaskName() != null) {
+                            out.writeUTF(last.getTaskName());
+                        }
+                    }
+                    case "dueDate" -> {
+                        out.writeBoolean(last.getDueDate() != null);
+                        if (last.getDueDate() != null) {
+                            out.writeLong(last.getDueDate().toEpochSecond(ZoneOffset.UTC));
+                            out.writeInt(last.getDueDate().getNano());
+                        }
+                    }
+                    case "completed" -> out.writeByte(last.getCompleted() == null ? 0 : last.getCompleted() ? 2 : 1);
+                    default -> { //id, it is written last anyway.
+                    }
+                }
+            }
+            out.writeLong(last.getId());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.toByteArray());
+    }
+
+    private static TaskDTO decodeCursor(String cursor, Sort sort){
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(Base64.getUrlDecoder().decode(cursor)));
+            TaskDTO.TaskDTOBuilder after = TaskDTO.builder();
+            for (Sort.Order order : sort) {
+                switch (order.getProperty()) {
+                    case "taskName" -> after.taskName(in.readBoolean() ? in.readUTF() : null);
+                    case "dueDate" -> after.dueDate(in.readBoolean() ? LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC) : null);
+                    case "completed" -> after.completed(switch (in.readByte()) {
+                        case 0 -> null;
+                        case 1 -> false;
+                        case 2 -> true;
+                        default -> throw new InvalidCursorException("Invalid cursor " + cursor);
+                    });
+                    default -> {
+                    }
+                }
+            }
+            after.id(in.readLong());
+            if (in.available() > 0) {
+                throw new InvalidCursorException("Invalid cursor " + cursor);
+            }
+            return after.build();
+        } catch (IllegalArgumentException | IOException | DateTimeException e) { //not Base64, too short or made for another sort.
+            throw new InvalidCursorException("Invalid cursor " + cursor);
+        }
+    }
+
+    private static String encodeCursor(long lastId){
+        byte[] bytes = ByteBuffer.allocate(Long.BYTES).putLong(lastId).array();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    private static long decodeCursor(String cursor){
+        try {
+            byte[] bytes = Base64.getUrlDecoder().decode(cursor);
+            if (bytes.length != Long.BYTES) {
+                throw new InvalidCursorException("Invalid cursor " + cursor);
+            }
+            return ByteBuffer.wrap(bytes).getLong();
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException("Invalid cursor " + cursor);
+        }
+    }
+
+    private record SyncPosition(long changeSeq, long id) implements Comparable<SyncPosition> {
+        private static final SyncPosition START = new SyncPosition(-1, 0); //before every row, a full sync.
+
+        @Override
+        public int compareTo(SyncPosition other){
+            return changeSeq != other.changeSeq ? Long.compare(changeSeq, other.changeSeq) : Long.compare(id, other.id);
+        }
+    }
+
+    //floors hold the safe number of each stream when its full sync started, tombstones pruned up to it do not expire the
+    //token. A token of fewer streams starts the missing ones from the beginning, e.g. for a shard added since.
+    private record SyncToken(SyncPosition[] positions, long[] floors) {
+        private static final byte VERSION = 1; //an odd length, the tokens made before the floors were 16 bytes per stream.
+        private static final int BYTES = 3 * Long.BYTES;
+        private static final int UNVERSIONED_BYTES = 2 * Long.BYTES;
+
+        private static SyncToken start(int streams){
+            SyncPosition[] positions = new SyncPosition[streams];
+            Arrays.fill(positions, SyncPosition.START);
+            long[] floors = new long[streams];
+            Arrays.fill(floors, -1); //below every pruned number.
+            return new SyncToken(positions, floors);
+        }
+
+        private String encode(){
+            ByteBuffer buffer = ByteBuffer.allocate(1 + positions.length * BYTES).put(VERSION);
+            for (int stream = 0; stream < positions.length; stream++) {
+                buffer.putLong(positions[stream].changeSeq()).putLong(positions[stream].id()).putLong(floors[stream]);
+            }
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+        }
+
+        private static SyncToken decode(String token, int streams){
+            try {
+                byte[] bytes = Base64.getUrlDecoder().decode(token);
+                boolean versioned = bytes.length % UNVERSIONED_BYTES != 0;
+                int offset = versioned ? 1 : 0;
+                int streamBytes = versioned ? BYTES : UNVERSIONED_BYTES;
+                if (bytes.length <= offset || (versioned && bytes[0] != VERSION) || (bytes.length - offset) % streamBytes != 0
+                        || (bytes.length - offset) / streamBytes > streams) {
+                    throw new InvalidCursorException("Invalid sync token " + token);
+                }
+                SyncToken result = start(streams);
+                ByteBuffer buffer = ByteBuffer.wrap(bytes, offset, bytes.length - offset);
+                for (int stream = 0; buffer.hasRemaining(); stream++) {
+                    result.positions[stream] = new SyncPosition(buffer.getLong(), buffer.getLong());
+                    if (versioned) {
+                        result.floors[stream] = buffer.getLong();
+                    }
+                }
+                return result;
+            } catch (IllegalArgumentException e) {
+                throw new InvalidCursorException("Invalid sync token " + token);
+            }
+        }
     }
 }
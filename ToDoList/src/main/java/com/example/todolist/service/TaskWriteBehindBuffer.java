@@ -0,0 +1,193 @@
+package com.example.todolist.service;
+
+import com.example.todolist.config.CacheConfig;
+import com.example.todolist.dto.TaskDTO;
+import com.example.todolist.dto.TaskPatchDTO;
+import com.example.todolist.repository.TaskRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+//Write-behind for PATCHes that only toggle completed. With BUFFERED durability they are answered from memory and
+//coalesced per task, once per window the latest value of every task is written with one UPDATE per completed value.
+//Changes of the last window are lost if the process dies, SYNC (the default) writes every PATCH in its own transaction.
+@Service
+public class TaskWriteBehindBuffer {
+    private static final Logger log = LoggerFactory.getLogger(TaskWriteBehindBuffer.class);
+
+    public enum Durability { SYNC, BUFFERED }
+
+    private final TaskRepository taskRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Cache tasksCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Durability durability;
+    private final Duration window;
+    private final Map<Long, TaskDTO> pending = new ConcurrentHashMap<>();
+    private final ReentrantLock flushLock = new ReentrantLock(); //held while a window is written, see takePending.
+    private ScheduledExecutorService scheduler;
+
+    public TaskWriteBehindBuffer(TaskRepository taskRepository, TransactionTemplate transactionTemplate,
+                                 CacheManager cacheManager, ApplicationEventPublisher eventPublisher,
+                                 @Value("${todolist.tasks.patch-durability:sync}") Durability durability,
+                                 @Value("${todolist.tasks.write-behind-window:200ms}") Duration window){
+        this.taskRepository = taskRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.tasksCache = cacheManager.getCache(CacheConfig.TASKS_CACHE);
+        this.eventPublisher = eventPublisher;
+        this.durability = durability;
+        this.window = window;
+    }
+
+    @PostConstruct
+    public void start(){
+        if (durability == Durability.BUFFERED) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("task-write-behind").daemon().factory());
+            scheduler.scheduleWithFixedDelay(this::flush, window.toMillis(), window.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public boolean accepts(TaskPatchDTO taskPatchDTO){
+        return durability == Durability.BUFFERED
+                && taskPatchDTO.getCompleted() != null
+                && taskPatchDTO.getTaskName() == null
+                && taskPatchDTO.getTaskDescription() == null
+                && taskPatchDTO.getDueDate() == null;
+    }
+
+    //currentTask is only called when the task is neither pending nor cached, it throws if the task does not exist.
+    public TaskDTO bufferCompleted(long id, boolean completed, Supplier<TaskDTO> currentTask){
+        TaskDTO base = pending.get(id);
+        if (base == null) {
+            base = tasksCache.get(id, TaskDTO.class);
+        }
+        if (base == null) {
+            base = currentTask.get();
+        }
+        TaskDTO buffered = base.toBuilder()
+                .completed(completed)
+                .version(null) //the version is only known after the flush, until then no ETag is sent.
+                .build();
+        pending.put(id, buffered); //a later PATCH of the same task in the window replaces this one.
+        return buffered;
+    }
+
+    public TaskDTO getPending(long id){
+        return pending.get(id);
+    }
+
+    //called by synchronous writes in their transaction before they load the task. Waits for a window that is being written
+    //so the database already has it, otherwise hands over the pending value so the write includes it. An empty map is no
+    //reason to skip the lock, a window that was just drained can still be uncommitted. The PATCH was already answered, if
+    //the write rolls back the value goes back to the buffer unless a newer PATCH replaced it, like in flush.
+    public TaskDTO takePending(long id){
+        if (durability == Durability.SYNC) { //nothing is ever buffered or flushed.
+            return null;
+        }
+        TaskDTO taken;
+        flushLock.lock();
+        try {
+            taken = pending.remove(id);
+        } finally {
+            flushLock.unlock();
+        }
+        if (taken != null && TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status){
+                    if (status != STATUS_COMMITTED) {
+                        pending.putIfAbsent(id, taken);
+                    }
+                }
+            });
+        }
+        return taken;
+    }
+
+    public void flush(){
+        flushLock.lock();
+        try {
+            Map<Long, TaskDTO> batch = drain();
+            if (batch.isEmpty()) {
+                return;
+            }
+            LocalDateTime updatedAt = LocalDateTime.now();
+            Collection<Long> writtenIds;
+            try {
+                writtenIds = transactionTemplate.execute(status -> write(batch, updatedAt));
+            } catch (RuntimeException e) {
+                batch.forEach(pending::putIfAbsent); //retried with the next window unless a newer PATCH replaced it.
+                log.warn("Writing {} buffered task patches failed, retrying in {}", batch.size(), window, e);
+                return;
+            }
+            for (Long id : writtenIds) { //tasks deleted since their PATCH was answered are neither written nor announced.
+                tasksCache.evict(id); //the next read loads the new version.
+                eventPublisher.publishEvent(TaskChangedEvent.updated(batch.get(id).toBuilder().updatedAt(updatedAt).build()));
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    int pendingCount(){
+        return pending.size();
+    }
+
+    @PreDestroy //runs after the web server stopped taking requests and before the DataSource is closed.
+    public void stop() throws InterruptedException {
+        if (scheduler != null) {
+            scheduler.shutdown();
+            scheduler.awaitTermination(window.toMillis() + 5000, TimeUnit.MILLISECONDS);
+        }
+        flush();
+    }
+
+    private Map<Long, TaskDTO> drain(){
+        Map<Long, TaskDTO> batch = new HashMap<>();
+        for (Map.Entry<Long, TaskDTO> entry : pending.entrySet()) {
+            if (pending.remove(entry.getKey(), entry.getValue())) { //a PATCH racing with the drain stays for the next window.
+                batch.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return batch;
+    }
+
+    private List<Long> write(Map<Long, TaskDTO> batch, LocalDateTime updatedAt){ //returns the ids the UPDATEs matched.
+        Map<Boolean, List<Long>> idsByCompleted = batch.values().stream()
+                .collect(Collectors.partitioningBy(TaskDTO::getCompleted, Collectors.mapping(TaskDTO::getId, Collectors.toList())));
+        List<Long> writtenIds = new ArrayList<>(batch.size());
+        idsByCompleted.forEach((completed, ids) -> {
+            if (!ids.isEmpty()) {
+                //each UPDATE takes one change sequence number for its tasks, delta sync pages ties by id.
+                int updated = taskRepository.updateCompleted(ids, completed, updatedAt);
+                //the rows left are locked by the UPDATE, only a task deleted before it can be missing.
+                writtenIds.addAll(updated == ids.size() ? ids : taskRepository.findExistingIds(ids));
+            }
+        });
+        return writtenIds;
+    }
+}
@@ -0,0 +1,205 @@
+package com.example.todolist.integration;
+
+import com.example.todolist.dto.TaskDTO;
+import com.example.todolist.dto.TaskPatchDTO;
+import com.example.todolist.reactive.ReactiveTaskService;
+import com.example.todolist.reactive.ReactiveToDoListApplication;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.LongStream;
+
+//ReactiveToDoListApplication on an embedded H2 database through r2dbc-h2, the tables come from reactive-schema.sql.
+@SpringBootTest(classes = ReactiveToDoListApplication.class, properties = {
+        "spring.main.web-application-type=reactive",
+        "spring.r2dbc.url=r2dbc:h2:mem:///reactivedb;DB_CLOSE_DELAY=-1",
+        "spring.r2dbc.username=sa",
+        "spring.r2dbc.password=",
+        "spring.sql.init.mode=always",
+        "spring.sql.init.schema-locations=classpath:reactive-schema.sql"})
+@AutoConfigureWebTestClient
+@ActiveProfiles("reactive")
+public class ReactiveTaskApiIntegrationTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private ReactiveTaskService taskService;
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    @AfterEach
+    public void tearDown() {
+        databaseClient.sql("delete from tasks").then().block();
+        databaseClient.sql("delete from task_tombstones").then().block();
+    }
+
+    @Test
+    public void givenValidTask_whenCreateTask_thenCreatedAndReadableWithETag() {
+        Map<?, ?> created = webTestClient.post().uri("/tasks") //id and updatedAt are read-only, TaskDTO would not read them back.
+                .bodyValue(createSampleTaskDTO("Do The Dishes"))
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(Map.class)
+                .returnResult().getResponseBody();
+        long id = ((Number) created.get("id")).longValue();
+        Assertions.assertEquals("Do The Dishes", created.get("taskName"));
+        Assertions.assertNotNull(created.get("updatedAt"));
+
+        webTestClient.get().uri("/tasks/{id}", id)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"" + id + "-0\"")
+                .expectBody().jsonPath("$.taskName").isEqualTo("Do The Dishes");
+        webTestClient.get().uri("/tasks/{id}", id)
+                .header(HttpHeaders.IF_NONE_MATCH, "\"" + id + "-0\"")
+                .exchange()
+                .expectStatus().isNotModified();
+    }
+
+    @Test
+    public void givenInvalidTask_whenCreateTask_thenRespondWith400() {
+        webTestClient.post().uri("/tasks")
+                .bodyValue(createSampleTaskDTO(" "))
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    public void givenIfMatch_whenEditAndPatchTask_thenVersionIsChecked() {
+        TaskDTO task = taskService.createTask(createSampleTaskDTO("Do The Dishes")).block();
+
+        webTestClient.put().uri("/tasks/{id}", task.getId())
+                .header(HttpHeaders.IF_MATCH, "\"" + task.getId() + "-5\"")
+                .bodyValue(createSampleTaskDTO("Wipe the floor"))
+                .exchange()
+                .expectStatus().isEqualTo(412);
+        webTestClient.put().uri("/tasks/{id}", task.getId())
+                .header(HttpHeaders.IF_MATCH, "\"" + task.getId() + "-0\"")
+                .bodyValue(createSampleTaskDTO("Wipe the floor"))
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"" + task.getId() + "-1\"")
+                .expectBody().jsonPath("$.taskName").isEqualTo("Wipe the floor");
+        webTestClient.patch().uri("/tasks/{id}", task.getId())
+                .bodyValue(TaskPatchDTO.builder().completed(true).build())
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"" + task.getId() + "-2\"")
+                .expectBody()
+                .jsonPath("$.taskName").isEqualTo("Wipe the floor")
+                .jsonPath("$.completed").isEqualTo(true);
+        webTestClient.patch().uri("/tasks/{id}", 999_999)
+                .bodyValue(TaskPatchDTO.builder().completed(true).build())
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    public void givenTask_whenDeleteTask_thenGoneAndTombstoneWritten() {
+        TaskDTO task = taskService.createTask(createSampleTaskDTO("Do The Dishes")).block();
+        long changeSeqBefore = taskService.getChangeVersion().block();
+
+        webTestClient.delete().uri("/tasks/{id}", task.getId()).exchange().expectStatus().isNoContent();
+        webTestClient.get().uri("/tasks/{id}", task.getId()).exchange().expectStatus().isNotFound();
+        webTestClient.delete().uri("/tasks/{id}", task.getId()).exchange().expectStatus().isNotFound();
+
+        Long tombstoneChangeSeq = databaseClient.sql("select change_seq from task_tombstones where task_id = :id")
+                .bind("id", task.getId())
+                .map(row -> row.get(0, Long.class))
+                .one()
+                .block();
+        Assertions.assertEquals(changeSeqBefore + 1, tombstoneChangeSeq);
+    }
+
+    @Test
+    public void givenTask_whenPatchTask_thenRowStampedWithNextChangeSeq() {
+        TaskDTO task = taskService.createTask(createSampleTaskDTO("Do The Dishes")).block();
+        long changeSeqBefore = taskService.getChangeVersion().block();
+
+        TaskDTO patched = taskService.patchTask(task.getId(), TaskPatchDTO.builder().completed(true).build(), task.getVersion()).block();
+
+        Long rowChangeSeq = databaseClient.sql("select change_seq from tasks where id = :id")
+                .bind("id", task.getId())
+                .map(row -> row.get(0, Long.class))
+                .one()
+                .block();
+        Assertions.assertEquals(changeSeqBefore + 1, rowChangeSeq); //taken before the row was updated and written with it.
+        Assertions.assertEquals(changeSeqBefore + 1, taskService.getChangeVersion().block());
+        Assertions.assertEquals(task.getVersion() + 1, patched.getVersion());
+    }
+
+    @Test
+    public void givenMoreTasksThanOneIdBlock_whenStreamAllTasks_thenAllStreamedInIdOrder() {
+        for (int i = 0; i < 60; i++) {
+            taskService.createTask(createSampleTaskDTO("Task " + i)).block();
+        }
+
+        List<Long> ids = webTestClient.get().uri("/tasks/stream")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(Map.class)
+                .getResponseBody()
+                .map(task -> ((Number) task.get("id")).longValue())
+                .collectList()
+                .block();
+        Assertions.assertEquals(60, ids.size());
+        Assertions.assertEquals(LongStream.range(0, 60).map(i -> ids.getFirst() + i).boxed().toList(), ids);
+
+        String eTag = webTestClient.get().uri("/tasks")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.length()").isEqualTo(60)
+                .returnResult().getResponseHeaders().getETag();
+        webTestClient.get().uri("/tasks")
+                .header(HttpHeaders.IF_NONE_MATCH, eTag)
+                .exchange()
+                .expectStatus().isNotModified();
+    }
+
+    @Test
+    public void givenOpenCompletedAndOverdueTasks_whenGetTaskStats_thenCountedPerDueDay() {
+        taskService.createTask(createSampleTaskDTO("Do The Dishes")).block();
+        TaskDTO completed = taskService.createTask(createSampleTaskDTO("Wipe the floor")).block();
+        taskService.patchTask(completed.getId(), TaskPatchDTO.builder().completed(true).build(), null).block();
+        TaskDTO overdue = createSampleTaskDTO("Fold the laundry");
+        overdue.setDueDate(LocalDateTime.now().minusDays(1)); //the service does not validate, the controller would reject it.
+        taskService.createTask(overdue).block();
+
+        webTestClient.get().uri("/tasks/stats")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.total").isEqualTo(3)
+                .jsonPath("$.open").isEqualTo(2)
+                .jsonPath("$.completed").isEqualTo(1)
+                .jsonPath("$.overdue").isEqualTo(1)
+                .jsonPath("$.dueDates.length()").isEqualTo(2)
+                .jsonPath("$.dueDates[1].open").isEqualTo(1)
+                .jsonPath("$.dueDates[1].completed").isEqualTo(1);
+    }
+
+    private TaskDTO createSampleTaskDTO(String taskName){
+        return TaskDTO.builder()
+                .taskName(taskName)
+                .taskDescription("Description")
+                .dueDate(LocalDateTime.now().plusDays(1))
+                .completed(false)
+                .build();
+    }
+}
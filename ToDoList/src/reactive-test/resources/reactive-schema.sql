@@ -0,0 +1,10 @@
+-- the tables Hibernate creates for the JPA model on H2,
+-- ReactiveToDoListApplication never creates them itself.
+create sequence if not exists tasks_seq start with 1 increment by 50;
+create table if not exists tasks (id bigint not null, task_name varchar(255), task_description varchar(255), due_date timestamp(6), completed boolean, version bigint default 0 not null, change_seq bigint default 0 not null, updated_at timestamp(6), primary key (id));
+create table if not exists task_changes (change_seq bigint generated by default as identity, taken_at timestamp(6) not null, in_flight boolean not null, primary key (change_seq));
+create index if not exists idx_task_changes_in_flight on task_changes (in_flight, change_seq);
+create table if not exists task_change_lock (id integer not null, primary key (id));
+-- the row TaskChangeLockInitializer of ToDoListApplication inserts.
+merge into task_change_lock (id) key (id) values (1);
+create table if not exists task_tombstones (task_id bigint not null, change_seq bigint not null, deleted_at timestamp(6) not null, primary key (task_id));
@@ -0,0 +1,118 @@
+package com.example.todolist.reactive;
+
+import com.example.todolist.dto.TaskDTO;
+import com.example.todolist.dto.TaskPatchDTO;
+import com.example.todolist.dto.TaskStatsDTO;
+import com.example.todolist.dto.TaskStatsWindow;
+import com.example.todolist.exception.TaskVersionMismatchException;
+import jakarta.validation.Valid;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.util.Optional;
+
+//the /tasks endpoints of TaskController for ReactiveToDoListApplication, with the same status codes, ETags and If-Match
+//handling. The batch, paged, search, sync and change feed endpoints are only served by ToDoListApplication.
+//A Flux is written as the client reads it, Netty only requests more rows when the socket can take them.
+@RestController
+@RequestMapping("/tasks")
+@Profile("reactive")
+public class ReactiveTaskController {
+
+    private final ReactiveTaskService taskService;
+
+    public ReactiveTaskController(ReactiveTaskService taskService){
+        this.taskService = taskService;
+    }
+
+    @GetMapping("/{id}")
+    public Mono<ResponseEntity<TaskDTO>> getTask(@PathVariable long id){
+        return taskService.getTask(id).map(ReactiveTaskController::withTaskETag); //a matching If-None-Match is answered with 304.
+    }
+
+    @PostMapping
+    @ResponseStatus(HttpStatus.CREATED)
+    public Mono<TaskDTO> createTask(@Valid @RequestBody TaskDTO taskDTO){
+        return taskService.createTask(taskDTO);
+    }
+
+    @DeleteMapping("/{id}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public Mono<Void> deleteTask(@PathVariable long id){
+        return taskService.deleteTask(id);
+    }
+
+    @PutMapping("/{id}")
+    public Mono<ResponseEntity<TaskDTO>> editTask(@PathVariable long id, @Valid @RequestBody TaskDTO taskDTO,
+                                                  @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch){
+        return Mono.fromCallable(() -> expectedVersion(id, ifMatch))
+                .flatMap(expectedVersion -> taskService.editTask(id, taskDTO, expectedVersion.orElse(null)))
+                .map(ReactiveTaskController::withTaskETag);
+    }
+
+    @PatchMapping("/{id}")
+    public Mono<ResponseEntity<TaskDTO>> patchTask(@PathVariable long id, @RequestBody TaskPatchDTO patchDTO,
+                                                   @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch){
+        return Mono.fromCallable(() -> expectedVersion(id, ifMatch))
+                .flatMap(expectedVersion -> taskService.patchTask(id, patchDTO, expectedVersion.orElse(null)))
+                .map(ReactiveTaskController::withTaskETag);
+    }
+
+    @GetMapping
+    public Mono<ResponseEntity<Flux<TaskDTO>>> getAllTasks(){
+        //the list is only subscribed to after the ETag, a matching If-None-Match is answered with 304 without reading it.
+        return taskService.getChangeVersion()
+                .map(changeVersion -> ResponseEntity.ok()
+                        .eTag("W/\"" + changeVersion + "\"")
+                        .body(taskService.getAllTasks()));
+    }
+
+    @GetMapping("/stats")
+    public Mono<TaskStatsDTO> getTaskStats(@RequestParam(required = false) @DateTimeFormat(pattern = "MM-dd-yyyy") LocalDate from,
+                                           @RequestParam(required = false) @DateTimeFormat(pattern = "MM-dd-yyyy") LocalDate to){
+        return taskService.getTaskStats(TaskStatsWindow.of(from, to, LocalDate.now())); //throws before subscribing, answered with 400.
+    }
+
+    @GetMapping(path = "/stream", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Flux<TaskDTO> streamAllTasks(){ //a JSON array like TaskController, or one task per line with Accept: application/x-ndjson.
+        return taskService.getAllTasks();
+    }
+
+    @ExceptionHandler(OptimisticLockingFailureException.class) //another request updated the task between our read and our UPDATE.
+    @ResponseStatus(HttpStatus.PRECONDITION_FAILED)
+    public void handleConcurrentUpdate(){
+    }
+
+    private static ResponseEntity<TaskDTO> withTaskETag(TaskDTO taskDTO){
+        return ResponseEntity.ok()
+                .eTag(taskDTO.getId() + "-" + taskDTO.getVersion()) //strong ETag, a new version means a different representation.
+                .body(taskDTO);
+    }
+
+    private static Optional<Long> expectedVersion(long id, String ifMatch){ //same rules as TaskController.
+        if (ifMatch == null || ifMatch.trim().equals("*")) {
+            return Optional.empty();
+        }
+        String prefix = "\"" + id + "-";
+        String eTag = ifMatch.trim();
+        if (!eTag.startsWith(prefix) || !eTag.endsWith("\"")) { //weak or foreign ETags never match for If-Match.
+            throw new TaskVersionMismatchException("If-Match " + ifMatch + " does not match task " + id);
+        }
+        String version = eTag.substring(prefix.length(), eTag.length() - 1);
+        int formatSuffix = version.indexOf('+'); //an ETag of TaskController's CBOR or Smile representation.
+        try {
+            return Optional.of(Long.parseLong(formatSuffix < 0 ? version : version.substring(0, formatSuffix)));
+        } catch (NumberFormatException e) {
+            throw new TaskVersionMismatchException("If-Match " + ifMatch + " does not match task " + id);
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package com.example.todolist.reactive;
+
+import com.example.todolist.dto.TaskDueDateCountDTO;
+import com.example.todolist.model.Task;
+import com.example.todolist.model.TaskChangeLock;
+import io.r2dbc.spi.Parameters;
+import io.r2dbc.spi.Readable;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.r2dbc.dialect.DialectResolver;
+import org.springframework.data.relational.core.dialect.IdGeneration;
+import org.springframework.data.relational.core.sql.SqlIdentifier;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.ReactiveTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.reactive.TransactionSynchronization;
+import org.springframework.transaction.reactive.TransactionSynchronizationManager;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+//R2DBC access to the tables of the JPA model. Task is mapped for Hibernate, so the rows are read and written by hand.
+//Versions, change sequence numbers and tombstones are kept the way TaskService keeps them, ids are taken from tasks_seq
+//in blocks like Hibernate's pooled-lo optimizer does. The database is created by ToDoListApplication, whose TaskChangePruner
+//also prunes the task_changes rows written here.
+@Repository
+@Profile("reactive")
+public class ReactiveTaskRepository {
+    private static final int ID_BLOCK_SIZE = 50; //allocationSize of Task.id.
+    private static final String TASK_COLUMNS = "id, task_name, task_description, due_date, completed, version, change_seq, updated_at";
+
+    private final DatabaseClient databaseClient;
+    private final TransactionalOperator newTransaction;
+    private final String nextIdBlockQuery; //null when the database has no sequences, Hibernate then keeps tasks_seq as a table.
+    private final int fetchSize;
+    private final AtomicReference<IdBlock> idBlock = new AtomicReference<>(new IdBlock(new AtomicLong(1), 0));
+
+    public ReactiveTaskRepository(DatabaseClient databaseClient, ReactiveTransactionManager transactionManager,
+                                  @Value("${todolist.reactive.fetch-size:500}") int fetchSize){
+        this.databaseClient = databaseClient;
+        this.newTransaction = TransactionalOperator.create(transactionManager,
+                new DefaultTransactionDefinition(TransactionDefinition.PROPAGATION_REQUIRES_NEW)); //never waits for the commit of a task.
+        IdGeneration idGeneration = DialectResolver.getDialect(databaseClient.getConnectionFactory()).getIdGeneration();
+        this.nextIdBlockQuery = idGeneration.sequencesSupported() ? idGeneration.createSequenceQuery(SqlIdentifier.unquoted("tasks_seq")) : null;
+        this.fetchSize = fetchSize;
+    }
+
+    Mono<Task> findById(long id){
+        return databaseClient.sql("select " + TASK_COLUMNS + " from tasks where id = :id")
+                .bind("id", id)
+                .map(ReactiveTaskRepository::toTask)
+                .one();
+    }
+
+    Flux<Task> findAll(){ //in id order like TaskRepository.findAllAsDTO, rows are fetched as the subscriber requests them.
+        return databaseClient.sql("select " + TASK_COLUMNS + " from tasks order by id")
+                .filter(statement -> statement.fetchSize(fetchSize))
+                .map(ReactiveTaskRepository::toTask)
+                .all();
+    }
+
+    Mono<Task> insert(Task task){
+        return nextId().flatMap(id -> {
+            task.setId(id);
+            task.setVersion(0);
+            task.setUpdatedAt(LocalDateTime.now()); //set on insert like @UpdateTimestamp.
+            return databaseClient.sql("insert into tasks (" + TASK_COLUMNS + ") values "
+                            + "(:id, :taskName, :taskDescription, :dueDate, :completed, :version, :changeSeq, :updatedAt)")
+                    .bind("id", task.getId())
+                    .bind("taskName", nullable(task.getTaskName(), String.class))
+                    .bind("taskDescription", nullable(task.getTaskDescription(), String.class))
+                    .bind("dueDate", nullable(task.getDueDate(), LocalDateTime.class))
+                    .bind("completed", nullable(task.getCompleted(), Boolean.class))
+                    .bind("version", task.getVersion())
+                    .bind("changeSeq", task.getChangeSeq())
+                    .bind("updatedAt", task.getUpdatedAt())
+                    .then()
+                    .thenReturn(task);
+        });
+    }
+
+    //the @Version check of Hibernate, when another request updated the task since it was read no row matches.
+    Mono<Task> update(Task task){
+        LocalDateTime updatedAt = LocalDateTime.now();
+        return databaseClient.sql("update tasks set task_name = :taskName, task_description = :taskDescription, due_date = :dueDate, "
+                        + "completed = :completed, version = :version + 1, change_seq = :changeSeq, updated_at = :updatedAt "
+                        + "where id = :id and version = :version")
+                .bind("taskName", nullable(task.getTaskName(), String.class))
+                .bind("taskDescription", nullable(task.getTaskDescription(), String.class))
+                .bind("dueDate", nullable(task.getDueDate(), LocalDateTime.class))
+                .bind("completed", nullable(task.getCompleted(), Boolean.class))
+                .bind("version", task.getVersion())
+                .bind("changeSeq", task.getChangeSeq())
+                .bind("updatedAt", updatedAt)
+                .bind("id", task.getId())
+                .fetch()
+                .rowsUpdated()
+                .flatMap(updated -> {
+                    if (updated == 0) {
+                        return Mono.error(new OptimisticLockingFailureException("Task with id " + task.getId() + " was updated concurrently"));
+                    }
+                    task.setVersion(task.getVersion() + 1);
+                    task.setUpdatedAt(updatedAt);
+                    return Mono.just(task);
+                });
+    }
+
+    Mono<Long> deleteById(long id){ //the number of deleted rows, 0 means the task did not exist.
+        return databaseClient.sql("delete from tasks where id = :id")
+                .bind("id", id)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    //the GROUP BY of TaskRepository.countByDueDate. count() instead of sum(), it is a BIGINT on every database.
+    Flux<TaskDueDateCountDTO> countByDueDate(LocalDateTime from, LocalDateTime to){
+        return databaseClient.sql("select cast(due_date as date) as due_day, count(case when completed = true then null else 1 end) as open_tasks, "
+                        + "count(case when completed = true then 1 end) as completed_tasks "
+                        + "from tasks where completed in (false, true) and due_date >= :from and due_date < :to "
+                        + "group by cast(due_date as date) order by cast(due_date as date)")
+                .bind("from", from)
+                .bind("to", to)
+                .map(row -> new TaskDueDateCountDTO(row.get("due_day", LocalDate.class),
+                        row.get("open_tasks", Long.class), row.get("completed_tasks", Long.class)))
+                .all();
+    }
+
+    Mono<Long> count(){
+        return databaseClient.sql("select count(*) from tasks")
+                .map(row -> row.get(0, Long.class))
+                .one();
+    }
+
+    Mono<Long> countCompleted(){
+        return databaseClient.sql("select count(*) from tasks where completed = true")
+                .map(row -> row.get(0, Long.class))
+                .one();
+    }
+
+    Mono<Long> countOverdue(LocalDateTime now){
+        return databaseClient.sql("select count(*) from tasks where completed = false and due_date < :now")
+                .bind("now", now)
+                .map(row -> row.get(0, Long.class))
+                .one();
+    }
+
+    //the change version of TaskQueryRepository.changeVersion: the safe number plus the rows done above it.
+    Mono<Long> changeVersion(){
+        return databaseClient.sql("select coalesce(min(change_seq) - 1, (select coalesce(max(change_seq), 0) from task_changes)) "
+                        + "from task_changes where in_flight = true")
+                .map(row -> row.get(0, Long.class))
+                .one()
+                .flatMap(safeChangeSeq -> databaseClient.sql("select count(*) from task_changes where change_seq > :safe and in_flight = false")
+                        .bind("safe", safeChangeSeq)
+                        .map(row -> row.get(0, Long.class))
+                        .one()
+                        .map(done -> safeChangeSeq + done));
+    }
+
+    //taken like TaskQueryRepository.recordChanges takes it: inserted in flight by a transaction of its own under the
+    //task_change_lock row, then marked done in the current transaction, which keeps the row locked until it ends. A row
+    //the pruner took for abandoned in between is gone and the next number is taken.
+    Mono<Long> nextChangeSeq(){
+        return takeChangeSeq()
+                .flatMap(changeSeq -> databaseClient.sql("update task_changes set in_flight = false where change_seq = :changeSeq and in_flight = true")
+                        .bind("changeSeq", changeSeq)
+                        .fetch()
+                        .rowsUpdated()
+                        .filter(marked -> marked == 1)
+                        .flatMap(marked -> TransactionSynchronizationManager.forCurrentTransaction())
+                        .doOnNext(synchronizations -> synchronizations.registerSynchronization(new TransactionSynchronization() {
+                            @Override
+                            public Mono<Void> afterCompletion(int status){ //otherwise syncs wait for the pruner to find the row.
+                                return status == STATUS_COMMITTED ? Mono.empty() : newTransaction.transactional(
+                                        databaseClient.sql("delete from task_changes where change_seq = :changeSeq and in_flight = true")
+                                                .bind("changeSeq", changeSeq)
+                                                .then());
+                            }
+                        }))
+                        .map(synchronizations -> changeSeq))
+                .repeatWhenEmpty(Function.identity());
+    }
+
+    private Mono<Long> takeChangeSeq(){ //held until the short commit, numbers become visible in the order they were taken.
+        return newTransaction.transactional(databaseClient.sql("select id from task_change_lock where id = " + TaskChangeLock.ID + " for update")
+                .map(row -> row.get(0, Integer.class))
+                .one()
+                .switchIfEmpty(Mono.error(() -> new IllegalStateException("The task_change_lock row is missing, it is created by ToDoListApplication")))
+                .then(Mono.defer(() -> databaseClient.sql("insert into task_changes (taken_at, in_flight) values (:takenAt, true)")
+                        .bind("takenAt", LocalDateTime.now())
+                        .filter(statement -> statement.returnGeneratedValues("change_seq"))
+                        .map(row -> row.get(0, Long.class))
+                        .one())));
+    }
+
+    Mono<Void> saveTombstone(long taskId, long changeSeq){ //lets offline clients of GET /tasks/sync learn about the delete.
+        return databaseClient.sql("insert into task_tombstones (task_id, change_seq, deleted_at) values (:taskId, :changeSeq, :deletedAt)")
+                .bind("taskId", taskId)
+                .bind("changeSeq", changeSeq)
+                .bind("deletedAt", LocalDateTime.now())
+                .then();
+    }
+
+    private Mono<Long> nextId(){
+        return Mono.defer(() -> {
+            IdBlock block = idBlock.get();
+            long id = block.next().getAndIncrement();
+            if (id <= block.last()) {
+                return Mono.just(id);
+            }
+            //racing requests may each take a block, the ids of the ones that are not kept are skipped like after a restart.
+            return nextIdBlock().map(first -> {
+                idBlock.set(new IdBlock(new AtomicLong(first + 1), first + ID_BLOCK_SIZE - 1));
+                return first;
+            });
+        });
+    }
+
+    private Mono<Long> nextIdBlock(){ //first id of a block, pooled-lo: the sequence value is the lowest id of its block.
+        Mono<Long> first = nextIdBlockQuery != null
+                ? databaseClient.sql(nextIdBlockQuery).map(row -> row.get(0, Long.class)).one()
+                : databaseClient.sql("select next_val from tasks_seq for update")
+                        .map(row -> row.get(0, Long.class))
+                        .one()
+                        .flatMap(value -> databaseClient.sql("update tasks_seq set next_val = :next where next_val = :value")
+                                .bind("next", value + ID_BLOCK_SIZE)
+                                .bind("value", value)
+                                .then()
+                                .thenReturn(value));
+        return newTransaction.transactional(first);
+    }
+
+    private static Object nullable(Object value, Class<?> type){ //R2DBC needs the type of a NULL parameter.
+        return value != null ? value : Parameters.in(type);
+    }
+
+    private static Task toTask(Readable row){
+        return Task.builder()
+                .id(row.get("id", Long.class))
+                .taskName(row.get("task_name", String.class))
+                .taskDescription(row.get("task_description", String.class))
+                .dueDate(row.get("due_date", LocalDateTime.class))
+                .completed(row.get("completed", Boolean.class))
+                .version(row.get("version", Long.class))
+                .changeSeq(row.get("change_seq", Long.class))
+                .updatedAt(row.get("updated_at", LocalDateTime.class))
+                .build();
+    }
+
+    private record IdBlock(AtomicLong next, long last) {
+    }
+}
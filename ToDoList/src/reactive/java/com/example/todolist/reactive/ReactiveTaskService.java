@@ -0,0 +1,110 @@
+package com.example.todolist.reactive;
+
+import com.example.todolist.dto.TaskDTO;
+import com.example.todolist.dto.TaskPatchDTO;
+import com.example.todolist.dto.TaskStatsDTO;
+import com.example.todolist.dto.TaskStatsWindow;
+import com.example.todolist.exception.TaskNotFoundException;
+import com.example.todolist.exception.TaskVersionMismatchException;
+import com.example.todolist.mapper.TaskMapper;
+import com.example.todolist.model.Task;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.function.Consumer;
+
+//TaskService of ReactiveToDoListApplication, same rules: every write takes a change sequence number first in its transaction,
+//If-Match versions are checked before the update and deletes leave a tombstone. @Transactional runs on the R2DBC
+//transaction manager for Mono and Flux. There is no cache, write-behind buffer, search index or change feed here, and the
+//ones of ToDoListApplication do not see the writes made here, so the two are not run against one database at the same time.
+@Service
+@Profile("reactive")
+public class ReactiveTaskService {
+    private final ReactiveTaskRepository taskRepository;
+    private final TaskMapper taskMapper;
+
+    public ReactiveTaskService(ReactiveTaskRepository taskRepository, TaskMapper taskMapper){
+        this.taskRepository = taskRepository;
+        this.taskMapper = taskMapper;
+    }
+
+    public Mono<TaskDTO> getTask(long id){
+        return findTask(id).map(taskMapper::toDTO);
+    }
+
+    public Flux<TaskDTO> getAllTasks(){ //streamed, each row is mapped and written as the client reads.
+        return taskRepository.findAll().map(taskMapper::toDTO);
+    }
+
+    @Transactional //the change sequence number and the insert commit together.
+    public Mono<TaskDTO> createTask(TaskDTO taskDTO){
+        Task task = taskMapper.toEntity(taskDTO);
+        return taskRepository.nextChangeSeq()
+                .flatMap(changeSeq -> {
+                    task.setChangeSeq(changeSeq); //written with the INSERT.
+                    return taskRepository.insert(task);
+                })
+                .map(taskMapper::toDTO);
+    }
+
+    @Transactional
+    public Mono<Void> deleteTask(long id){
+        return taskRepository.nextChangeSeq()
+                .flatMap(changeSeq -> taskRepository.deleteById(id)
+                        .flatMap(deleted -> deleted == 0 //rolls back the task_changes row too.
+                                ? Mono.error(new TaskNotFoundException("Task with id " + id + " not found"))
+                                : taskRepository.saveTombstone(id, changeSeq)));
+    }
+
+    @Transactional
+    public Mono<TaskDTO> editTask(long id, TaskDTO taskDTO, Long expectedVersion){ //expectedVersion comes from If-Match, null skips the check.
+        return updateTask(id, expectedVersion, task -> taskMapper.editTaskFromDTO(taskDTO, task));
+    }
+
+    @Transactional
+    public Mono<TaskDTO> patchTask(long id, TaskPatchDTO taskPatchDTO, Long expectedVersion){
+        return updateTask(id, expectedVersion, task -> taskMapper.patchTaskFromDTO(taskPatchDTO, task));
+    }
+
+    public Mono<TaskStatsDTO> getTaskStats(TaskStatsWindow window){ //the same counts as TaskService.getTaskStats.
+        return Mono.zip(taskRepository.count(), taskRepository.countCompleted(), taskRepository.countOverdue(LocalDateTime.now()),
+                        taskRepository.countByDueDate(window.start(), window.end()).collectList())
+                .map(counts -> TaskStatsDTO.builder()
+                        .total(counts.getT1())
+                        .open(counts.getT1() - counts.getT2())
+                        .completed(counts.getT2())
+                        .overdue(counts.getT3())
+                        .from(window.from())
+                        .to(window.to())
+                        .dueDates(counts.getT4())
+                        .build());
+    }
+
+    public Mono<Long> getChangeVersion(){ //grows with every commit, used for the ETag of the task list.
+        return taskRepository.changeVersion();
+    }
+
+    private Mono<TaskDTO> updateTask(long id, Long expectedVersion, Consumer<Task> changes){
+        return findTask(id)
+                .flatMap(task -> {
+                    if (expectedVersion != null && task.getVersion() != expectedVersion) {
+                        return Mono.error(new TaskVersionMismatchException("Task with id " + id + " is at version " + task.getVersion() + " not " + expectedVersion));
+                    }
+                    changes.accept(task);
+                    return taskRepository.nextChangeSeq().flatMap(changeSeq -> {
+                        task.setChangeSeq(changeSeq); //written with the UPDATE.
+                        return taskRepository.update(task); //a concurrent update after the check is still caught by the version condition.
+                    });
+                })
+                .map(taskMapper::toDTO);
+    }
+
+    private Mono<Task> findTask(long id){
+        return taskRepository.findById(id)
+                .switchIfEmpty(Mono.error(() -> new TaskNotFoundException("Task with id " + id + " not found")));
+    }
+}
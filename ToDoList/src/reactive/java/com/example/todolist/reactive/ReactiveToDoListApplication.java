@@ -0,0 +1,24 @@
+package com.example.todolist.reactive;
+
+import com.example.todolist.json.TaskDTOSerializer;
+import com.example.todolist.mapper.TaskMapper;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.annotation.Profile;
+
+//Reactive variant of the task API, the /tasks endpoints on WebFlux (Netty) and R2DBC instead of a thread per request.
+//It reads and writes the tables of ToDoListApplication and reuses TaskMapper, the validation of TaskDTO and
+//TaskDTOSerializer. Started from this class, which switches to the reactive profile itself.
+@SpringBootApplication(scanBasePackageClasses = {ReactiveToDoListApplication.class, TaskMapper.class, TaskDTOSerializer.class})
+@Profile("reactive") //found by the component scan of ToDoListApplication and skipped there.
+public class ReactiveToDoListApplication {
+
+	public static void main(String[] args) {
+		new SpringApplicationBuilder(ReactiveToDoListApplication.class)
+				.profiles("reactive")
+				.web(WebApplicationType.REACTIVE) //Spring MVC is on the classpath too and would win otherwise.
+				.run(args);
+	}
+
+}
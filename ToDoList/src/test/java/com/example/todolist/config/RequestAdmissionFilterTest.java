@@ -0,0 +1,77 @@
+package com.example.todolist.config;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+class RequestAdmissionFilterTest {
+
+    @Test
+    public void givenAllPermitsTaken_whenRequestWaitsQueueTimeout_thenServiceUnavailable() throws Exception {
+        RequestAdmissionFilter filter = new RequestAdmissionFilter(1, Duration.ofMillis(50));
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread first = Thread.ofVirtual().start(() -> {
+            try {
+                filter.doFilter(new MockHttpServletRequest("GET", "/tasks"), new MockHttpServletResponse(), (request, response) -> {
+                    running.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        Assertions.assertTrue(running.await(5, TimeUnit.SECONDS));
+
+        MockHttpServletResponse rejected = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/tasks"), rejected, (request, response) -> Assertions.fail("admitted past the limit"));
+        Assertions.assertEquals(503, rejected.getStatus());
+        Assertions.assertEquals("1", rejected.getHeader(HttpHeaders.RETRY_AFTER));
+
+        release.countDown();
+        first.join();
+        MockHttpServletResponse admitted = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/tasks"), admitted, (request, response) -> {});
+        Assertions.assertEquals(200, admitted.getStatus()); //the permit was given back.
+    }
+
+    @Test
+    public void givenAsyncRequest_whenHandlerReturns_thenPermitIsHeldUntilAsyncCompletes() throws Exception {
+        RequestAdmissionFilter filter = new RequestAdmissionFilter(1, Duration.ofMillis(50));
+        MockHttpServletRequest streaming = new MockHttpServletRequest("GET", "/tasks/stream");
+        streaming.setAsyncSupported(true);
+        filter.doFilter(streaming, new MockHttpServletResponse(), (request, response) -> request.startAsync());
+
+        MockHttpServletResponse rejected = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/tasks"), rejected, (request, response) -> Assertions.fail("admitted past the limit"));
+        Assertions.assertEquals(503, rejected.getStatus()); //still streaming.
+
+        ((MockAsyncContext) streaming.getAsyncContext()).complete();
+        MockHttpServletResponse admitted = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/tasks"), admitted, (request, response) -> {});
+        Assertions.assertEquals(200, admitted.getStatus());
+    }
+
+    @Test
+    public void givenAllPermitsTaken_whenChangeFeedIsOpened_thenItIsNotQueued() throws Exception {
+        RequestAdmissionFilter filter = new RequestAdmissionFilter(1, Duration.ofMillis(50));
+        MockHttpServletRequest streaming = new MockHttpServletRequest("GET", "/tasks/stream");
+        streaming.setAsyncSupported(true);
+        filter.doFilter(streaming, new MockHttpServletResponse(), (request, response) -> request.startAsync());
+
+        boolean[] admitted = new boolean[1];
+        filter.doFilter(new MockHttpServletRequest("GET", "/tasks/changes"), new MockHttpServletResponse(), (request, response) -> admitted[0] = true);
+        Assertions.assertTrue(admitted[0]);
+    }
+}
@@ -1,32 +1,56 @@
 package com.example.todolist.controller;
 
+import com.example.todolist.dto.TaskBatchResultDTO;
 import com.example.todolist.dto.TaskDTO;
+import com.example.todolist.dto.TaskDueDateCountDTO;
+import com.example.todolist.dto.TaskFilterDTO;
+import com.example.todolist.dto.TaskPageDTO;
 import com.example.todolist.dto.TaskPatchDTO;
+import com.example.todolist.dto.TaskStatsDTO;
+import com.example.todolist.dto.TaskStatsWindow;
 import com.example.todolist.exception.TaskNotFoundException;
+import com.example.todolist.exception.TaskVersionMismatchException;
+import com.example.todolist.json.TaskDTOSerializer;
+import com.example.todolist.model.Task;
+import com.example.todolist.service.TaskBatchService;
+import com.example.todolist.service.TaskChangeFeed;
 import com.example.todolist.service.TaskService;
 import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hamcrest.Matchers;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
 import org.junit.jupiter.params.provider.EmptySource;
 import org.junit.jupiter.params.provider.NullSource;
 import org.junit.jupiter.params.provider.ValueSource;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
+import java.util.function.Consumer;
 
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(TaskController.class)
@@ -41,10 +65,22 @@ class TaskControllerTest {
     @MockBean
     private TaskService taskService;
 
+    @MockBean
+    private TaskBatchService taskBatchService;
+
+    @MockBean
+    private TaskChangeFeed taskChangeFeed;
+
+    @SpyBean
+    private TaskDTOSerializer taskDTOSerializer;
+
     private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("MM-dd-yyyy HH:mm");
-    private static final LocalDateTime LOCAL_DATE_TIME = LocalDateTime.parse("07-19-2026 23:30", FORMATTER);
+    //dueDate is @Future, a fixed date would fail the tests once it has passed. Whole minutes like the JSON format.
+    private static final LocalDateTime LOCAL_DATE_TIME = LocalDateTime.now().plusDays(30).truncatedTo(ChronoUnit.MINUTES);
     private static final Long VALID_ID = 1L;
     private static final Long INVALID_ID = 5L;
+    private static final MediaType SMILE = MediaType.parseMediaType("application/x-jackson-smile");
+    private static final ObjectMapper CBOR_MAPPER = Jackson2ObjectMapperBuilder.cbor().build();
 
     @Test
     public void givenValidId_whenGetTask_thenReturnTaskDTO() throws Exception {
@@ -383,6 +419,88 @@ class TaskControllerTest {
         verify(taskService, never()).patchTask(anyLong(), any(TaskPatchDTO.class));
     }
 
+    @Test
+    public void givenVersionedTask_whenGetTask_thenReturnETag() throws Exception {
+        TaskDTO taskDTO = createSampleTaskDTO();
+        taskDTO.setId(VALID_ID);
+        taskDTO.setVersion(2L);
+        when(taskService.getTask(VALID_ID)).thenReturn(taskDTO);
+        mockMvc.perform(get("/tasks/{id}", VALID_ID))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1-2\""));
+    }
+
+    @Test
+    public void givenMatchingIfNoneMatch_whenGetTask_thenRespondWith304() throws Exception {
+        TaskDTO taskDTO = createSampleTaskDTO();
+        taskDTO.setId(VALID_ID);
+        taskDTO.setVersion(2L);
+        when(taskService.getTask(VALID_ID)).thenReturn(taskDTO);
+        MvcResult result = mockMvc.perform(get("/tasks/{id}", VALID_ID)
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"1-2\""))
+                .andExpect(status().isNotModified())
+                .andReturn();
+        Assertions.assertEquals(0, result.getResponse().getContentLength());
+    }
+
+    @Test
+    public void givenMatchingIfNoneMatch_whenGetAllTasks_thenRespondWith304WithoutLoadingTasks() throws Exception {
+        when(taskService.getChangeVersion()).thenReturn(7L);
+        mockMvc.perform(get("/tasks")
+                        .header(HttpHeaders.IF_NONE_MATCH, "W/\"7\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "W/\"7\""));
+        verify(taskService, never()).getTaskPage(any(), anyInt());
+    }
+
+    @Test
+    public void givenIfMatch_whenPatchTask_thenPassExpectedVersion() throws Exception {
+        TaskPatchDTO taskPatchDTO = createSampleTaskPatchDTO();
+        TaskDTO taskDTO = createSampleTaskDTO();
+        taskDTO.setId(VALID_ID);
+        taskDTO.setVersion(3L);
+        when(taskService.patchTask(VALID_ID, taskPatchDTO, 2L)).thenReturn(taskDTO);
+        mockMvc.perform(patch("/tasks/{id}", VALID_ID)
+                        .header(HttpHeaders.IF_MATCH, "\"1-2\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(taskPatchDTO)))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1-3\""));
+        verify(taskService).patchTask(VALID_ID, taskPatchDTO, 2L);
+    }
+
+    @Test
+    public void givenStaleIfMatch_whenPatchTask_thenRespondWith412() throws Exception {
+        TaskPatchDTO taskPatchDTO = createSampleTaskPatchDTO();
+        when(taskService.patchTask(VALID_ID, taskPatchDTO, 2L)).thenThrow(new TaskVersionMismatchException("Task with id 1 is at version 3 not 2"));
+        mockMvc.perform(patch("/tasks/{id}", VALID_ID)
+                        .header(HttpHeaders.IF_MATCH, "\"1-2\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(taskPatchDTO)))
+                .andExpect(status().isPreconditionFailed());
+    }
+
+    @Test
+    public void givenIfMatchOfOtherTask_whenPatchTask_thenRespondWith412() throws Exception {
+        TaskPatchDTO taskPatchDTO = createSampleTaskPatchDTO();
+        mockMvc.perform(patch("/tasks/{id}", VALID_ID)
+                        .header(HttpHeaders.IF_MATCH, "\"2-2\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(taskPatchDTO)))
+                .andExpect(status().isPreconditionFailed());
+        verify(taskService, never()).patchTask(anyLong(), any(TaskPatchDTO.class), anyLong());
+    }
+
+    @Test
+    public void givenConcurrentUpdate_whenPatchTask_thenRespondWith412() throws Exception {
+        TaskPatchDTO taskPatchDTO = createSampleTaskPatchDTO();
+        when(taskService.patchTask(VALID_ID, taskPatchDTO)).thenThrow(new ObjectOptimisticLockingFailureException(Task.class, VALID_ID));
+        mockMvc.perform(patch("/tasks/{id}", VALID_ID)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(taskPatchDTO)))
+                .andExpect(status().isPreconditionFailed());
+    }
+
 
     @Test
     public void givenTasksExist_whenGetAllTasks_thenReturnTaskDTOList() throws Exception {
@@ -390,7 +508,7 @@ class TaskControllerTest {
                 TaskDTO.builder().taskName("Task 1").taskDescription("Desc 1").build(),
                 TaskDTO.builder().taskName("Task 2").taskDescription("Desc 2").build()
         );
-        when(taskService.getAllTasks()).thenReturn(taskDTOList);
+        when(taskService.getTaskPage(null, 500)).thenReturn(TaskPageDTO.builder().tasks(taskDTOList).build());
         MvcResult result = mockMvc.perform(get("/tasks")
                         .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
@@ -407,10 +525,24 @@ class TaskControllerTest {
         Assertions.assertEquals(2, responseList.size());
     }
 
+    @Test
+    public void givenMoreTasksThanPageSize_whenGetAllTasks_thenLinkToNextPage() throws Exception {
+        TaskPageDTO taskPageDTO = TaskPageDTO.builder()
+                .tasks(List.of(createSampleTaskDTO()))
+                .nextCursor("AAAAAAAAAfQ")
+                .build();
+        when(taskService.getTaskPage(null, 500)).thenReturn(taskPageDTO);
+        mockMvc.perform(get("/tasks"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].taskName").value("Do The Dishes"))
+                .andExpect(header().string(HttpHeaders.LINK, "<http://localhost/tasks?cursor=AAAAAAAAAfQ>; rel=\"next\""));
+        verify(taskService, never()).getAllTasks();
+    }
+
     @Test
     public void givenNoTasks_whenGetAllTasks_thenReturnTaskDTOList() throws Exception {
         List<TaskDTO> taskDTOList = List.of();
-        when(taskService.getAllTasks()).thenReturn(taskDTOList);
+        when(taskService.getTaskPage(null, 500)).thenReturn(TaskPageDTO.builder().tasks(taskDTOList).build());
         MvcResult result = mockMvc.perform(get("/tasks")
                         .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
@@ -424,6 +556,343 @@ class TaskControllerTest {
         Assertions.assertEquals(0, responseList.size());
     }
 
+    @Test
+    public void givenFilterParams_whenGetAllTasks_thenFindFilteredTasks() throws Exception {
+        TaskFilterDTO filter = TaskFilterDTO.builder()
+                .completed(false)
+                .dueBefore(LOCAL_DATE_TIME)
+                .namePrefix("Do")
+                .build();
+        Sort sort = Sort.by(Sort.Direction.DESC, "dueDate");
+        TaskPageDTO taskPageDTO = TaskPageDTO.builder()
+                .tasks(List.of(createSampleTaskDTO()))
+                .nextCursor("AAAAAAAAAAE")
+                .build();
+        when(taskService.findTaskPage(filter, sort, null, 500)).thenReturn(taskPageDTO);
+        mockMvc.perform(get("/tasks") //in the query string, the next link is built from it.
+                        .queryParam("completed", "false")
+                        .queryParam("dueBefore", LOCAL_DATE_TIME.format(FORMATTER))
+                        .queryParam("namePrefix", "Do")
+                        .queryParam("sort", "dueDate,desc"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].taskName").value("Do The Dishes"))
+                .andExpect(header().string(HttpHeaders.LINK, Matchers.containsString("sort=dueDate,desc")))
+                .andExpect(header().string(HttpHeaders.LINK, Matchers.endsWith("cursor=AAAAAAAAAAE>; rel=\"next\"")));
+        verify(taskService).findTaskPage(filter, sort, null, 500);
+        verify(taskService, never()).getTaskPage(any(), anyInt());
+    }
+
+    @Test
+    public void givenLastPageOfFilteredTasks_whenGetAllTasks_thenNoLinkHeader() throws Exception {
+        TaskFilterDTO filter = TaskFilterDTO.builder().completed(true).build();
+        TaskPageDTO taskPageDTO = TaskPageDTO.builder()
+                .tasks(List.of(createSampleTaskDTO()))
+                .build();
+        when(taskService.findTaskPage(filter, Sort.unsorted(), "AAAAAAAAAAE", 500)).thenReturn(taskPageDTO);
+        mockMvc.perform(get("/tasks").param("completed", "true").param("cursor", "AAAAAAAAAAE"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].taskName").value("Do The Dishes"))
+                .andExpect(header().doesNotExist(HttpHeaders.LINK));
+    }
+
+    @Test
+    public void givenWrongDateFormatFilter_whenGetAllTasks_thenRespondWith400() throws Exception {
+        mockMvc.perform(get("/tasks").param("dueAfter", "2026-07-19"))
+                .andExpect(status().isBadRequest());
+        verify(taskService, never()).findTaskPage(any(), any(), any(), anyInt());
+    }
+
+    @Test
+    public void givenLimit_whenGetTaskPage_thenReturnTaskPageDTO() throws Exception {
+        TaskPageDTO taskPageDTO = TaskPageDTO.builder()
+                .tasks(List.of(createSampleTaskDTO()))
+                .nextCursor("AAAAAAAAAAE")
+                .build();
+        when(taskService.getTaskPage("AAAAAAAAAAA", 1)).thenReturn(taskPageDTO);
+        mockMvc.perform(get("/tasks")
+                        .param("cursor", "AAAAAAAAAAA")
+                        .param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.tasks[0].taskName").value("Do The Dishes"))
+                .andExpect(jsonPath("$.nextCursor").value("AAAAAAAAAAE"));
+        verify(taskService).getTaskPage("AAAAAAAAAAA", 1);
+    }
+
+    @Test
+    public void givenCursorWithoutLimit_whenGetAllTasks_thenReturnPageOfDefaultSize() throws Exception {
+        TaskPageDTO taskPageDTO = TaskPageDTO.builder()
+                .tasks(List.of(createSampleTaskDTO()))
+                .build();
+        when(taskService.getTaskPage("AAAAAAAAAAA", 500)).thenReturn(taskPageDTO);
+        mockMvc.perform(get("/tasks").param("cursor", "AAAAAAAAAAA"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].taskName").value("Do The Dishes")); //the shape of the response that returned the cursor.
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"0", "1001", "abc"})
+    public void givenInvalidLimit_whenGetTaskPage_thenRespondWith400(String limit) throws Exception {
+        mockMvc.perform(get("/tasks").param("limit", limit))
+                .andExpect(status().isBadRequest());
+        verify(taskService, never()).getTaskPage(any(), anyInt());
+    }
+
+    @Test
+    public void givenFilterAndSort_whenGetTaskPage_thenFindTaskPage() throws Exception {
+        TaskFilterDTO filter = TaskFilterDTO.builder().completed(true).build();
+        Sort sort = Sort.by(Sort.Direction.DESC, "dueDate");
+        TaskPageDTO taskPageDTO = TaskPageDTO.builder()
+                .tasks(List.of(createSampleTaskDTO()))
+                .nextCursor("AAAAAAAAAAE")
+                .build();
+        when(taskService.findTaskPage(filter, sort, "AAAAAAAAAAA", 2)).thenReturn(taskPageDTO);
+        mockMvc.perform(get("/tasks")
+                        .param("limit", "2")
+                        .param("cursor", "AAAAAAAAAAA")
+                        .param("completed", "true")
+                        .param("sort", "dueDate,desc"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.tasks[0].taskName").value("Do The Dishes"))
+                .andExpect(jsonPath("$.nextCursor").value("AAAAAAAAAAE"));
+        verify(taskService, never()).getTaskPage(any(), anyInt());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void givenTasksExist_whenStreamAllTasks_thenWriteJsonArray() throws Exception {
+        doAnswer(invocation -> {
+            Consumer<TaskDTO> consumer = invocation.getArgument(0);
+            consumer.accept(TaskDTO.builder().id(1L).taskName("Task 1").taskDescription("Desc 1").build());
+            consumer.accept(TaskDTO.builder().id(2L).taskName("Task 2").taskDescription("Desc 2").build());
+            return null;
+        }).when(taskService).streamAllTasks(any(Consumer.class));
+        MvcResult result = mockMvc.perform(get("/tasks/stream"))
+                .andExpect(request().asyncStarted()) //the body is written on another thread
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].id").value(1))
+                .andExpect(jsonPath("$[1].taskName").value("Task 2"));
+    }
+
+    @Test
+    public void givenTaskList_whenCreateTasks_thenReturnResultPerItem() throws Exception {
+        List<TaskDTO> taskDTOList = List.of(createSampleTaskDTO(), TaskDTO.builder().taskName("").build());
+        when(taskBatchService.createTasks(taskDTOList)).thenReturn(List.of(
+                TaskBatchResultDTO.builder().index(0).id(VALID_ID).status(201).build(),
+                TaskBatchResultDTO.builder().index(1).status(400).error("taskName: must not be blank").build()));
+        mockMvc.perform(post("/tasks/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(taskDTOList)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(VALID_ID))
+                .andExpect(jsonPath("$[0].status").value(201))
+                .andExpect(jsonPath("$[0].error").doesNotExist())
+                .andExpect(jsonPath("$[1].status").value(400));
+        verify(taskBatchService).createTasks(taskDTOList);
+    }
+
+    @Test
+    public void givenIdList_whenDeleteTasks_thenReturnResultPerItem() throws Exception {
+        when(taskBatchService.deleteTasks(List.of(VALID_ID, INVALID_ID))).thenReturn(List.of(
+                TaskBatchResultDTO.builder().index(0).id(VALID_ID).status(204).build(),
+                TaskBatchResultDTO.builder().index(1).id(INVALID_ID).status(404).build()));
+        mockMvc.perform(delete("/tasks/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[1, 5]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[1].status").value(404));
+        verify(taskBatchService).deleteTasks(List.of(VALID_ID, INVALID_ID));
+    }
+
+    @Test
+    public void givenMalformedJson_whenPatchTasks_thenRespondWith400() throws Exception {
+        mockMvc.perform(patch("/tasks/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"id\": 1}"))
+                .andExpect(status().isBadRequest());
+        verify(taskBatchService, never()).patchTasks(any());
+    }
+
+    @Test
+    public void givenCborAccept_whenGetAllTasks_thenReturnCbor() throws Exception {
+        List<TaskDTO> taskDTOList = List.of(createSampleTaskDTO());
+        when(taskService.getTaskPage(null, 500)).thenReturn(TaskPageDTO.builder().tasks(taskDTOList).build());
+        MvcResult result = mockMvc.perform(get("/tasks")
+                        .accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andReturn();
+        List<TaskDTO> responseList = CBOR_MAPPER.readValue(result.getResponse().getContentAsByteArray(), new TypeReference<>() {});
+        Assertions.assertEquals(taskDTOList, responseList);
+    }
+
+    @Test
+    public void givenCborBody_whenCreateTask_thenReturnCbor() throws Exception {
+        TaskDTO taskDTO = createSampleTaskDTO();
+        taskDTO.setDueDate(LocalDateTime.now().plusDays(1).withSecond(0).withNano(0)); //minute precision like the wire format.
+        when(taskService.createTask(taskDTO)).thenReturn(taskDTO);
+        MvcResult result = mockMvc.perform(post("/tasks")
+                        .contentType(MediaType.APPLICATION_CBOR)
+                        .accept(MediaType.APPLICATION_CBOR)
+                        .content(CBOR_MAPPER.writeValueAsBytes(taskDTO)))
+                .andExpect(status().isCreated())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andReturn();
+        Assertions.assertEquals(taskDTO, CBOR_MAPPER.readValue(result.getResponse().getContentAsByteArray(), TaskDTO.class));
+        verify(taskService).createTask(taskDTO);
+    }
+
+    @Test
+    public void givenInvalidCborBody_whenCreateTask_thenRespondWith400() throws Exception {
+        TaskDTO taskDTO = TaskDTO.builder()
+                .taskName("")
+                .taskDescription("Description")
+                .dueDate(LocalDateTime.now().plusDays(1))
+                .completed(false)
+                .build();
+        mockMvc.perform(post("/tasks")
+                        .contentType(MediaType.APPLICATION_CBOR)
+                        .content(CBOR_MAPPER.writeValueAsBytes(taskDTO)))
+                .andExpect(status().isBadRequest());
+        verify(taskService, never()).createTask(any(TaskDTO.class));
+    }
+
+    @Test
+    public void givenCborAccept_whenGetTask_thenWriteUpdatedAtAsIsoStringWithTaskDTOSerializer() throws Exception {
+        TaskDTO taskDTO = createSampleTaskDTO();
+        taskDTO.setUpdatedAt(LocalDateTime.parse("2026-07-19T23:30:05.25"));
+        when(taskService.getTask(VALID_ID)).thenReturn(taskDTO);
+        MvcResult result = mockMvc.perform(get("/tasks/{id}", VALID_ID)
+                        .accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isOk())
+                .andReturn();
+        JsonNode task = CBOR_MAPPER.readTree(result.getResponse().getContentAsByteArray());
+        Assertions.assertTrue(task.get("updatedAt").isTextual());
+        Assertions.assertEquals("2026-07-19T23:30:05.25", task.get("updatedAt").asText());
+        verify(taskDTOSerializer).serialize(eq(taskDTO), any(), any());
+    }
+
+    @Test
+    public void givenSmileAccept_whenGetTask_thenReturnSmile() throws Exception {
+        TaskDTO taskDTO = createSampleTaskDTO();
+        when(taskService.getTask(VALID_ID)).thenReturn(taskDTO);
+        MvcResult result = mockMvc.perform(get("/tasks/{id}", VALID_ID)
+                        .accept(SMILE))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(SMILE))
+                .andReturn();
+        ObjectMapper smileMapper = Jackson2ObjectMapperBuilder.smile().build();
+        Assertions.assertEquals(taskDTO, smileMapper.readValue(result.getResponse().getContentAsByteArray(), TaskDTO.class));
+    }
+
+    @Test
+    public void givenNoAccept_whenGetTask_thenReturnJson() throws Exception {
+        when(taskService.getTask(VALID_ID)).thenReturn(createSampleTaskDTO());
+        mockMvc.perform(get("/tasks/{id}", VALID_ID))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON));
+    }
+
+    @Test
+    public void givenCborAccept_whenGetAllTasks_thenVaryByAcceptAndTagTheETagWithTheFormat() throws Exception {
+        when(taskService.getChangeVersion()).thenReturn(7L);
+        when(taskService.getTaskPage(null, 500)).thenReturn(TaskPageDTO.builder().tasks(List.of(createSampleTaskDTO())).build());
+        mockMvc.perform(get("/tasks")
+                        .accept(MediaType.APPLICATION_CBOR)
+                        .header(HttpHeaders.IF_NONE_MATCH, "W/\"7\"")) //the ETag of the JSON list.
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "W/\"7+cbor\""))
+                .andExpect(header().stringValues(HttpHeaders.VARY, Matchers.hasItem(HttpHeaders.ACCEPT)));
+        mockMvc.perform(get("/tasks")
+                        .accept(MediaType.APPLICATION_CBOR)
+                        .header(HttpHeaders.IF_NONE_MATCH, "W/\"7+cbor\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().stringValues(HttpHeaders.VARY, Matchers.hasItem(HttpHeaders.ACCEPT)));
+    }
+
+    @Test
+    public void givenSmileAccept_whenGetTask_thenReturnSmileETag() throws Exception {
+        TaskDTO taskDTO = createSampleTaskDTO();
+        taskDTO.setId(VALID_ID);
+        taskDTO.setVersion(2L);
+        when(taskService.getTask(VALID_ID)).thenReturn(taskDTO);
+        mockMvc.perform(get("/tasks/{id}", VALID_ID)
+                        .accept(SMILE)
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"1-2\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1-2+smile\""));
+    }
+
+    @Test
+    public void givenSmileETagIfMatch_whenPatchTask_thenPassExpectedVersion() throws Exception {
+        TaskPatchDTO taskPatchDTO = createSampleTaskPatchDTO();
+        TaskDTO taskDTO = createSampleTaskDTO();
+        taskDTO.setId(VALID_ID);
+        taskDTO.setVersion(3L);
+        when(taskService.patchTask(VALID_ID, taskPatchDTO, 2L)).thenReturn(taskDTO);
+        mockMvc.perform(patch("/tasks/{id}", VALID_ID)
+                        .header(HttpHeaders.IF_MATCH, "\"1-2+smile\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(taskPatchDTO)))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1-3\""));
+        verify(taskService).patchTask(VALID_ID, taskPatchDTO, 2L);
+    }
+
+    @Test
+    public void givenQuery_whenSearchTasks_thenReturnMatchingTasks() throws Exception {
+        when(taskService.searchTasks("dish", 20)).thenReturn(List.of(createSampleTaskDTO()));
+        mockMvc.perform(get("/tasks/search").param("q", "dish"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].taskName").value("Do The Dishes"));
+        verify(taskService).searchTasks("dish", 20);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "  "})
+    public void givenBlankQuery_whenSearchTasks_thenRespondWith400(String query) throws Exception {
+        mockMvc.perform(get("/tasks/search").param("q", query))
+                .andExpect(status().isBadRequest());
+        verify(taskService, never()).searchTasks(anyString(), anyInt());
+    }
+
+    @Test
+    public void givenTasks_whenGetTaskStats_thenReturnCounts() throws Exception {
+        LocalDate today = LocalDate.now();
+        when(taskService.getTaskStats(new TaskStatsWindow(today.minusDays(TaskStatsWindow.DEFAULT_DAYS), today.plusDays(TaskStatsWindow.DEFAULT_DAYS))))
+                .thenReturn(TaskStatsDTO.builder()
+                        .total(3).open(2).completed(1).overdue(1)
+                        .dueDates(List.of(new TaskDueDateCountDTO(LocalDate.of(2026, 7, 19), 2, 1)))
+                        .build());
+        mockMvc.perform(get("/tasks/stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total").value(3))
+                .andExpect(jsonPath("$.overdue").value(1))
+                .andExpect(jsonPath("$.dueDates[0].date").value("07-19-2026"))
+                .andExpect(jsonPath("$.dueDates[0].open").value(2));
+    }
+
+    @Test
+    public void givenFromAndTo_whenGetTaskStats_thenCountThatWindow() throws Exception {
+        TaskStatsWindow window = new TaskStatsWindow(LocalDate.of(2026, 7, 1), LocalDate.of(2026, 7, 31));
+        when(taskService.getTaskStats(window)).thenReturn(TaskStatsDTO.builder().from(window.from()).to(window.to()).dueDates(List.of()).build());
+        mockMvc.perform(get("/tasks/stats").param("from", "07-01-2026").param("to", "07-31-2026"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.from").value("07-01-2026"))
+                .andExpect(jsonPath("$.to").value("07-31-2026"));
+    }
+
+    @ParameterizedTest
+    @CsvSource({"07-31-2026, 07-01-2026", "01-01-2026, 01-02-2027"})
+    public void givenReversedOrTooLongWindow_whenGetTaskStats_thenBadRequest(String from, String to) throws Exception {
+        mockMvc.perform(get("/tasks/stats").param("from", from).param("to", to))
+                .andExpect(status().isBadRequest());
+        verify(taskService, never()).getTaskStats(any());
+    }
+
     private TaskDTO createSampleTaskDTO() {
         return TaskDTO.builder()
                 .taskName("Do The Dishes")
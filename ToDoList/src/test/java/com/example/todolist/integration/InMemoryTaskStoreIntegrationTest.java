@@ -0,0 +1,102 @@
+package com.example.todolist.integration;
+
+import com.example.todolist.dto.TaskDTO;
+import com.example.todolist.dto.TaskPatchDTO;
+import com.example.todolist.dto.TaskSyncDTO;
+import com.example.todolist.exception.TaskVersionMismatchException;
+import com.example.todolist.repository.InMemoryTaskRepository;
+import com.example.todolist.repository.TaskRepository;
+import com.example.todolist.service.TaskService;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.util.List;
+
+//TaskService unchanged on top of the memory profile, no DataSource and no JPA.
+@SpringBootTest
+@ActiveProfiles("memory")
+public class InMemoryTaskStoreIntegrationTest {
+
+    @DynamicPropertySource
+    static void storeDirectory(DynamicPropertyRegistry registry) throws IOException {
+        String directory = Files.createTempDirectory("todolist-store").toString();
+        registry.add("todolist.store.directory", () -> directory);
+    }
+
+    @Autowired
+    private TaskService taskService;
+
+    @Autowired
+    private TaskRepository taskRepository;
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    @AfterEach
+    public void tearDown() {
+        taskRepository.deleteAll();
+    }
+
+    @Test
+    public void givenMemoryProfile_whenContextLoads_thenTasksLiveInTheStore() {
+        Assertions.assertInstanceOf(InMemoryTaskRepository.class, taskRepository);
+        Assertions.assertEquals(0, applicationContext.getBeanNamesForType(EntityManagerFactory.class).length);
+    }
+
+    @Test
+    public void givenTask_whenCreatePatchEditAndDelete_thenBehaveLikeWithTheDatabase() {
+        TaskDTO task = taskService.createTask(createSampleTaskDTO("Do The Dishes"));
+        Assertions.assertEquals(0, task.getVersion());
+        Assertions.assertNotNull(task.getUpdatedAt());
+
+        TaskDTO patched = taskService.patchTask(task.getId(), TaskPatchDTO.builder().completed(true).build());
+        Assertions.assertEquals(1, patched.getVersion());
+        Assertions.assertTrue(taskService.getTask(task.getId()).getCompleted());
+
+        Assertions.assertThrows(TaskVersionMismatchException.class,
+                () -> taskService.editTask(task.getId(), createSampleTaskDTO("Wipe the floor"), 0L));
+        TaskDTO edited = taskService.editTask(task.getId(), createSampleTaskDTO("Wipe the floor"), 1L);
+        Assertions.assertEquals(2, edited.getVersion());
+        Assertions.assertEquals("Wipe the floor", taskRepository.findById(task.getId()).orElseThrow().getTaskName());
+        Assertions.assertEquals(List.of(edited.getId()), taskService.searchTasks("floor", 10).stream().map(TaskDTO::getId).toList());
+
+        taskService.deleteTask(task.getId());
+        Assertions.assertTrue(taskRepository.findById(task.getId()).isEmpty());
+    }
+
+    @Test
+    public void givenChanges_whenSyncTasks_thenReturnThemInChangeOrder() {
+        TaskSyncDTO start = taskService.syncTasks(null, 100);
+        TaskDTO first = taskService.createTask(createSampleTaskDTO("Do The Dishes"));
+        TaskDTO second = taskService.createTask(createSampleTaskDTO("Wipe the floor"));
+        taskService.patchTask(first.getId(), TaskPatchDTO.builder().completed(true).build());
+        taskService.deleteTask(second.getId());
+
+        TaskSyncDTO sync = taskService.syncTasks(start.getToken(), 100);
+        Assertions.assertEquals(List.of(first.getId()), sync.getChanged().stream().map(TaskDTO::getId).toList());
+        Assertions.assertTrue(sync.getChanged().getFirst().getCompleted());
+        Assertions.assertEquals(List.of(second.getId()), sync.getDeleted());
+        Assertions.assertTrue(taskService.syncTasks(sync.getToken(), 100).getChanged().isEmpty());
+        Assertions.assertEquals(1, taskService.getTaskPage(null, 10).getTasks().size());
+    }
+
+    private TaskDTO createSampleTaskDTO(String taskName){
+        return TaskDTO.builder()
+                .taskName(taskName)
+                .taskDescription("Description")
+                .dueDate(LocalDateTime.now().plusDays(1))
+                .completed(false)
+                .build();
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.todolist.integration;
+
+import com.example.todolist.model.Task;
+import com.example.todolist.repository.TaskRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDateTime;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureObservability //metrics export is switched off in tests unless this is present.
+@ActiveProfiles("test")
+public class MetricsIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TaskRepository taskRepository;
+
+    @AfterEach
+    public void tearDown() {
+        taskRepository.deleteAll();
+    }
+
+    @Test
+    public void givenServedRequests_whenScrapePrometheus_thenExposeHotPathMetrics() throws Exception {
+        Task task = taskRepository.save(Task.builder()
+                .taskName("Do The Dishes")
+                .taskDescription("Description")
+                .dueDate(LocalDateTime.now().plusDays(1))
+                .completed(false)
+                .build());
+        mockMvc.perform(get("/tasks/{id}", task.getId()))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/tasks/{id}", task.getId()))
+                .andExpect(status().isOk());
+        String scrape = mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        Assertions.assertTrue(scrape.contains("http_server_requests_seconds_bucket{") && scrape.contains("uri=\"/tasks/{id}\""), "endpoint histogram");
+        Assertions.assertTrue(scrape.contains("spring_data_repository_invocations_seconds{") && scrape.contains("quantile=\"0.999\""), "repository timers");
+        Assertions.assertTrue(scrape.contains("todolist_tasks_service_seconds_count{") && scrape.contains("method=\"getTask\""), "service timers");
+        Assertions.assertTrue(scrape.contains("hikaricp_connections_active"), "connection pool gauges");
+        Assertions.assertTrue(scrape.contains("hibernate_query_executions_total") || scrape.contains("hibernate_statements_total"), "hibernate statistics");
+        Assertions.assertTrue(scrape.contains("hibernate_flushes_total"), "hibernate flushes");
+        Assertions.assertTrue(scrape.contains("cache_gets_total{cache=\"tasks\"") && scrape.contains("result=\"hit\""), "cache metrics");
+    }
+
+    @Test
+    public void whenDeleteCachesEndpoint_thenNotExposed() throws Exception {
+        mockMvc.perform(delete("/actuator/caches"))
+                .andExpect(status().isNotFound());
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.todolist.integration;
+
+import com.example.todolist.dto.TaskDTO;
+import com.example.todolist.dto.TaskPatchDTO;
+import com.example.todolist.repository.TaskRepository;
+import com.example.todolist.service.TaskService;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.sql.DataSource;
+import java.time.LocalDateTime;
+import java.util.List;
+
+//the production profile on H2 in MySQL mode, H2 ignores the Connector/J settings. Connections come out of the pool
+//with auto-commit off, so every write must still be committed by its transaction.
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:productiondb;MODE=MySQL;DATABASE_TO_LOWER=TRUE;IGNORE_UNKNOWN_SETTINGS=TRUE;DB_CLOSE_DELAY=-1")
+@ActiveProfiles({"test", "production"})
+public class ProductionDataSourceIntegrationTest {
+
+    @Autowired
+    private TaskService taskService;
+
+    @Autowired
+    private TaskRepository taskRepository;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @AfterEach
+    public void tearDown() {
+        taskRepository.deleteAll();
+    }
+
+    @Test
+    public void givenProductionProfile_whenContextLoads_thenPoolIsFixedSizeWithoutAutoCommit() {
+        HikariDataSource hikariDataSource = Assertions.assertInstanceOf(HikariDataSource.class, dataSource);
+        Assertions.assertEquals(20, hikariDataSource.getMaximumPoolSize());
+        Assertions.assertEquals(20, hikariDataSource.getMinimumIdle());
+        Assertions.assertFalse(hikariDataSource.isAutoCommit());
+        Assertions.assertEquals("true", hikariDataSource.getDataSourceProperties().getProperty("rewriteBatchedStatements"));
+    }
+
+    @Test
+    public void givenAutoCommitOff_whenCreateAndPatchTasks_thenChangesAreCommitted() {
+        TaskDTO first = taskService.createTask(createSampleTaskDTO("Do The Dishes"));
+        TaskDTO second = taskService.createTask(createSampleTaskDTO("Wipe the floor"));
+        taskService.patchTask(first.getId(), TaskPatchDTO.builder().completed(true).build());
+
+        //a plain JDBC read on another pooled connection only sees committed rows.
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        Assertions.assertEquals(2, jdbcTemplate.queryForObject("select count(*) from tasks", Long.class));
+        Assertions.assertEquals(true, jdbcTemplate.queryForObject("select completed from tasks where id = ?", Boolean.class, first.getId()));
+        //padded to an IN list of 4 parameters, the repeated last id matches once.
+        Assertions.assertEquals(2, taskRepository.findAllAsDTOByIdIn(List.of(first.getId(), second.getId(), -1L)).size());
+    }
+
+    private TaskDTO createSampleTaskDTO(String taskName){
+        return TaskDTO.builder()
+                .taskName(taskName)
+                .taskDescription("Description")
+                .dueDate(LocalDateTime.now().plusDays(1))
+                .completed(false)
+                .build();
+    }
+}
@@ -0,0 +1,184 @@
+package com.example.todolist.integration;
+
+import com.example.todolist.config.CacheConfig;
+import com.example.todolist.dto.TaskDTO;
+import com.example.todolist.repository.TaskRepository;
+import com.example.todolist.service.TaskService;
+import com.jayway.jsonpath.JsonPath;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+//three embedded H2 databases, one primary and two replicas. Nothing replicates by itself, replicate() copies the primary
+//over a replica, until then the replica lags behind.
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:primarydb;DB_CLOSE_DELAY=-1",
+        "todolist.replicas.urls=" + ReadReplicaIntegrationTest.REPLICA_0 + "," + ReadReplicaIntegrationTest.REPLICA_1})
+@AutoConfigureMockMvc
+@ActiveProfiles({"test", "replicas"})
+public class ReadReplicaIntegrationTest {
+    static final String REPLICA_0 = "jdbc:h2:mem:replicadb0;DB_CLOSE_DELAY=-1";
+    static final String REPLICA_1 = "jdbc:h2:mem:replicadb1;DB_CLOSE_DELAY=-1";
+
+    @Autowired
+    private TaskService taskService;
+
+    @Autowired
+    private TaskRepository taskRepository;
+
+    @Autowired
+    private HikariDataSource primaryDataSource;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @BeforeEach
+    public void setUp() {
+        replicate(REPLICA_0);
+        replicate(REPLICA_1);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        taskRepository.deleteAll(); //a read-write transaction, it runs on the primary.
+    }
+
+    @Test
+    public void givenWrite_whenReadOnlyTransaction_thenReadFromReplicasOnceReplicated() {
+        taskService.createTask(createSampleTaskDTO("Do The Dishes"));
+        Assertions.assertEquals(1, new JdbcTemplate(primaryDataSource).queryForObject("select count(*) from tasks", Long.class));
+        Assertions.assertTrue(taskService.getAllTasks().isEmpty());
+        Assertions.assertTrue(taskService.getAllTasks().isEmpty());
+
+        replicate(REPLICA_0);
+        replicate(REPLICA_1);
+        Assertions.assertEquals(1, taskService.getAllTasks().size());
+    }
+
+    @Test
+    public void givenReplicasInDifferentStates_whenReadOnlyTransactions_thenBothReplicasAreRead() {
+        taskService.createTask(createSampleTaskDTO("Do The Dishes"));
+        replicate(REPLICA_0); //REPLICA_1 is still empty.
+
+        Set<Integer> sizes = new HashSet<>();
+        for (int i = 0; i < 4; i++) {
+            sizes.add(taskService.getAllTasks().size());
+        }
+        Assertions.assertEquals(Set.of(0, 1), sizes);
+    }
+
+    @Test
+    public void givenClientThatWrote_whenGetAllTasks_thenOnlyThatClientReadsFromThePrimary() throws Exception {
+        TaskDTO task = taskService.createTask(createSampleTaskDTO("Do The Dishes"));
+        replicate(REPLICA_0);
+        replicate(REPLICA_1);
+
+        mockMvc.perform(delete("/tasks/{id}", task.getId()).header("X-Client-Id", "writer"))
+                .andExpect(status().is2xxSuccessful());
+
+        mockMvc.perform(get("/tasks").header("X-Client-Id", "writer"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(0));
+        mockMvc.perform(get("/tasks").header("X-Client-Id", "reader")) //the replicas have not caught up with the delete yet.
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1));
+    }
+
+    @Test
+    public void givenClientWithoutHeader_whenGetAllTasksAfterWrite_thenReadFromReplica() throws Exception {
+        TaskDTO task = taskService.createTask(createSampleTaskDTO("Do The Dishes"));
+        replicate(REPLICA_0);
+        replicate(REPLICA_1);
+
+        mockMvc.perform(delete("/tasks/{id}", task.getId())).andExpect(status().is2xxSuccessful());
+        mockMvc.perform(get("/tasks")) //no read-your-writes without X-Client-Id, the address may be shared.
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1));
+    }
+
+    @Test
+    public void givenLaggingReplicas_whenGetTaskMiss_thenReadAndCacheThePrimary() throws Exception {
+        TaskDTO task = taskService.createTask(createSampleTaskDTO("Do The Dishes")); //not replicated yet.
+        cacheManager.getCache(CacheConfig.TASKS_CACHE).clear();
+        mockMvc.perform(get("/tasks/{id}", task.getId()).header("X-Client-Id", "reader"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.taskName").value("Do The Dishes"));
+        Assertions.assertEquals("Do The Dishes", cacheManager.getCache(CacheConfig.TASKS_CACHE)
+                .get(task.getId(), TaskDTO.class).getTaskName()); //the primary's row, never the lagging replica's.
+    }
+
+    @Test
+    public void givenWriteByAnotherClient_whenGetTaskRightAfter_thenSeeTheWrite() throws Exception {
+        TaskDTO task = taskService.createTask(createSampleTaskDTO("Do The Dishes"));
+        replicate(REPLICA_0);
+        replicate(REPLICA_1);
+        mockMvc.perform(patch("/tasks/{id}", task.getId()).header("X-Client-Id", "writer")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"taskName\":\"Wipe the floor\"}"))
+                .andExpect(status().isOk()); //the replicas still have the old name.
+
+        mockMvc.perform(get("/tasks/{id}", task.getId()).header("X-Client-Id", "reader")) //the entry the PATCH put.
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.taskName").value("Wipe the floor"));
+        cacheManager.getCache(CacheConfig.TASKS_CACHE).clear();
+        mockMvc.perform(get("/tasks/{id}", task.getId())) //a miss, read from the primary, not routed by client.
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.taskName").value("Wipe the floor"));
+    }
+
+    @Test
+    public void givenReplicasInDifferentStates_whenGetAllTasks_thenETagAndListComeFromTheSameReplica() throws Exception {
+        taskService.createTask(createSampleTaskDTO("Do The Dishes"));
+        replicate(REPLICA_0); //REPLICA_1 is still empty and at an older change sequence number.
+
+        Map<String, Integer> sizesByETag = new HashMap<>();
+        for (int i = 0; i < 4; i++) {
+            MvcResult result = mockMvc.perform(get("/tasks")).andExpect(status().isOk()).andReturn();
+            int size = JsonPath.read(result.getResponse().getContentAsString(), "$.length()");
+            Integer previous = sizesByETag.put(result.getResponse().getHeader("ETag"), size);
+            Assertions.assertTrue(previous == null || previous == size);
+        }
+        Assertions.assertEquals(Set.of(0, 1), new HashSet<>(sizesByETag.values()));
+    }
+
+    private void replicate(String replicaUrl) {
+        List<String> script = new JdbcTemplate(primaryDataSource).queryForList("SCRIPT", String.class);
+        JdbcTemplate replica = new JdbcTemplate(new DriverManagerDataSource(replicaUrl, "sa", ""));
+        replica.execute("DROP ALL OBJECTS");
+        script.forEach(replica::execute);
+    }
+
+    private TaskDTO createSampleTaskDTO(String taskName){
+        return TaskDTO.builder()
+                .taskName(taskName)
+                .taskDescription("Description")
+                .dueDate(LocalDateTime.now().plusDays(1))
+                .completed(false)
+                .build();
+    }
+}
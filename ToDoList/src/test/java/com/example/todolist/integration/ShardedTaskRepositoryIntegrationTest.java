@@ -0,0 +1,240 @@
+package com.example.todolist.integration;
+
+import com.example.todolist.dto.TaskBatchPatchDTO;
+import com.example.todolist.dto.TaskBatchResultDTO;
+import com.example.todolist.dto.TaskDTO;
+import com.example.todolist.dto.TaskFilterDTO;
+import com.example.todolist.dto.TaskPageDTO;
+import com.example.todolist.dto.TaskPatchDTO;
+import com.example.todolist.dto.TaskStatsWindow;
+import com.example.todolist.dto.TaskSyncDTO;
+import com.example.todolist.exception.TaskVersionMismatchException;
+import com.example.todolist.repository.ShardedTaskRepository;
+import com.example.todolist.repository.TaskRepository;
+import com.example.todolist.service.TaskBatchService;
+import com.example.todolist.service.TaskService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+//three embedded H2 databases as shards, each owns 1000 ids. TaskService and TaskBatchService run unchanged on top.
+@SpringBootTest(properties = {
+        "todolist.shards.urls=" + ShardedTaskRepositoryIntegrationTest.SHARD_0 + "," + ShardedTaskRepositoryIntegrationTest.SHARD_1
+                + "," + ShardedTaskRepositoryIntegrationTest.SHARD_2,
+        "todolist.shards.id-range=1000"})
+@ActiveProfiles({"test", "sharded"})
+public class ShardedTaskRepositoryIntegrationTest {
+    //case-insensitive like MySQL's default collation, todolist.shards.name-collation is primary.
+    static final String SHARD_0 = "jdbc:h2:mem:shard0;DB_CLOSE_DELAY=-1;IGNORECASE=TRUE";
+    static final String SHARD_1 = "jdbc:h2:mem:shard1;DB_CLOSE_DELAY=-1;IGNORECASE=TRUE";
+    static final String SHARD_2 = "jdbc:h2:mem:shard2;DB_CLOSE_DELAY=-1;IGNORECASE=TRUE";
+    private static final List<String> SHARDS = List.of(SHARD_0, SHARD_1, SHARD_2);
+
+    @Autowired
+    private TaskService taskService;
+
+    @Autowired
+    private TaskBatchService taskBatchService;
+
+    @Autowired
+    private TaskRepository taskRepository;
+
+    @AfterEach
+    public void tearDown() {
+        taskRepository.deleteAll();
+    }
+
+    @Test
+    public void givenNewTasks_whenCreateTasks_thenSpreadOverTheShardsByIdRange() {
+        Assertions.assertInstanceOf(ShardedTaskRepository.class, taskRepository);
+        List<TaskDTO> created = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            created.add(taskService.createTask(createSampleTaskDTO("Task " + i)));
+        }
+
+        for (int shard = 0; shard < SHARDS.size(); shard++) {
+            List<Long> ids = shard(shard).queryForList("select id from tasks", Long.class);
+            Assertions.assertEquals(2, ids.size());
+            for (long id : ids) {
+                Assertions.assertTrue(id > shard * 1000L && id <= (shard + 1) * 1000L);
+            }
+        }
+        Assertions.assertEquals(created.stream().map(TaskDTO::getId).sorted().toList(),
+                taskService.getAllTasks().stream().map(TaskDTO::getId).toList());
+    }
+
+    @Test
+    public void givenTasksOnEveryShard_whenFindTasks_thenMergedInSortOrder() {
+        for (String name : List.of("Dust", "Bake", "Fold", "Clean", "Ask", "Eat")) {
+            taskService.createTask(createSampleTaskDTO(name));
+        }
+
+        List<String> names = taskService.findTasks(new TaskFilterDTO(), Sort.by(Sort.Direction.DESC, "taskName")).stream()
+                .map(TaskDTO::getTaskName)
+                .toList();
+        Assertions.assertEquals(List.of("Fold", "Eat", "Dust", "Clean", "Bake", "Ask"), names);
+        Assertions.assertEquals(6, taskService.getTaskStats(TaskStatsWindow.of(null, null, LocalDate.now())).getTotal());
+    }
+
+    @Test
+    public void givenTasksOnEveryShard_whenFindTasksWithLimit_thenFirstTasksOfTheMergedOrder() {
+        for (String name : List.of("Dust", "Bake", "Fold", "Clean", "Ask", "Eat")) {
+            taskService.createTask(createSampleTaskDTO(name));
+        }
+
+        List<String> names = taskRepository.findTasks(new TaskFilterDTO(), Sort.by("taskName"), null, Limit.of(4)).stream()
+                .map(TaskDTO::getTaskName)
+                .toList();
+        Assertions.assertEquals(List.of("Ask", "Bake", "Clean", "Dust"), names);
+    }
+
+    @Test
+    public void givenMixedCaseNamesOnEveryShard_whenFindTasks_thenMergedInTheCollationOfTheShards() {
+        for (String name : List.of("banana", "Apple", "cherry", "Date", "apricot", "Blueberry")) {
+            taskService.createTask(createSampleTaskDTO(name));
+        }
+
+        List<String> names = taskService.findTasks(new TaskFilterDTO(), Sort.by("taskName")).stream()
+                .map(TaskDTO::getTaskName)
+                .toList();
+        //code point order would put every capital first: Apple, Blueberry, Date, apricot, banana, cherry.
+        Assertions.assertEquals(List.of("Apple", "apricot", "banana", "Blueberry", "cherry", "Date"), names);
+    }
+
+    @Test
+    public void givenTasksOnEveryShard_whenGetTaskPages_thenPagedInIdOrderNotCreationOrder() {
+        List<Long> created = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            created.add(taskService.createTask(createSampleTaskDTO("Task " + i)).getId());
+        }
+
+        List<TaskDTO> all = new ArrayList<>();
+        TaskPageDTO page = taskService.getTaskPage(null, 3);
+        all.addAll(page.getTasks());
+        while (page.getNextCursor() != null) {
+            page = taskService.getTaskPage(page.getNextCursor(), 3);
+            all.addAll(page.getTasks());
+        }
+        Assertions.assertEquals(taskService.getAllTasks(), all);
+        Assertions.assertTrue(all.stream().map(TaskDTO::getId).toList().equals(all.stream().map(TaskDTO::getId).sorted(Comparator.naturalOrder()).toList()));
+        //round robin fills the shards side by side, the fourth task is on the first shard and comes before the second one.
+        Assertions.assertNotEquals(created, all.stream().map(TaskDTO::getId).toList());
+    }
+
+    @Test
+    public void givenTaskOnSecondShard_whenPatchEditAndDelete_thenOnlyThatShardChanges() {
+        taskService.createTask(createSampleTaskDTO("Do The Dishes"));
+        TaskDTO task = taskService.createTask(createSampleTaskDTO("Wipe the floor"));
+        int shard = (int) ((task.getId() - 1) / 1000);
+
+        TaskDTO patched = taskService.patchTask(task.getId(), TaskPatchDTO.builder().completed(true).build());
+        Assertions.assertEquals(1, patched.getVersion());
+        Assertions.assertThrows(TaskVersionMismatchException.class,
+                () -> taskService.editTask(task.getId(), createSampleTaskDTO("Mop the floor"), 0L));
+        taskService.editTask(task.getId(), createSampleTaskDTO("Mop the floor"), 1L);
+        Assertions.assertEquals("Mop the floor",
+                shard(shard).queryForObject("select task_name from tasks where id = ?", String.class, task.getId()));
+
+        taskService.deleteTask(task.getId());
+        Assertions.assertTrue(taskRepository.findById(task.getId()).isEmpty());
+        Assertions.assertEquals(1, shard(shard).queryForObject("select count(*) from task_tombstones where task_id = ?", Long.class, task.getId()));
+    }
+
+    @Test
+    public void givenChangesOnSeveralShards_whenSyncTasks_thenReturnEveryChangeOnce() {
+        TaskSyncDTO start = taskService.syncTasks(null, 100);
+        TaskDTO first = taskService.createTask(createSampleTaskDTO("Do The Dishes"));
+        TaskDTO second = taskService.createTask(createSampleTaskDTO("Wipe the floor"));
+        TaskDTO third = taskService.createTask(createSampleTaskDTO("Fold the laundry"));
+        taskBatchService.patchTasks(List.of(
+                TaskBatchPatchDTO.builder().id(third.getId()).patch(TaskPatchDTO.builder().completed(true).build()).build(),
+                TaskBatchPatchDTO.builder().id(first.getId()).patch(TaskPatchDTO.builder().completed(true).build()).build()));
+        taskService.deleteTask(second.getId());
+
+        TaskSyncDTO sync = taskService.syncTasks(start.getToken(), 1);
+        List<Long> changed = new ArrayList<>(sync.getChanged().stream().map(TaskDTO::getId).toList());
+        while (sync.isHasMore()) {
+            sync = taskService.syncTasks(sync.getToken(), 1);
+            sync.getChanged().forEach(task -> changed.add(task.getId()));
+        }
+        //the shards number their changes independently, the token holds a position per shard.
+        Assertions.assertEquals(List.of(first.getId(), third.getId()), changed.stream().sorted().toList());
+        Assertions.assertEquals(List.of(second.getId()), taskService.syncTasks(start.getToken(), 100).getDeleted());
+        Assertions.assertTrue(taskService.syncTasks(sync.getToken(), 100).getChanged().isEmpty());
+    }
+
+    @Test
+    public void givenWriteOnOneShard_whenCommit_thenOnlyThatShardsChangeNumberAdvances() {
+        TaskDTO first = taskService.createTask(createSampleTaskDTO("Do The Dishes"));
+        TaskDTO second = taskService.createTask(createSampleTaskDTO("Wipe the floor"));
+        int shard = (int) ((second.getId() - 1) / 1000);
+        int otherShard = (int) ((first.getId() - 1) / 1000);
+        long before = lastChangeSeq(shard);
+        long otherBefore = lastChangeSeq(otherShard);
+        long eTagBefore = taskService.getChangeVersion();
+
+        taskService.patchTask(second.getId(), TaskPatchDTO.builder().completed(true).build());
+        Assertions.assertTrue(lastChangeSeq(shard) > before);
+        Assertions.assertEquals(otherBefore, lastChangeSeq(otherShard));
+        Assertions.assertEquals(lastChangeSeq(shard), shard(shard).queryForObject("select change_seq from tasks where id = ?", Long.class, second.getId()));
+        Assertions.assertTrue(taskService.getChangeVersion() > eTagBefore); //summed over the shards.
+    }
+
+    @Test
+    public void givenBatchPatchOverTwoShards_whenOneItemFails_thenOnlyTheItemsOfItsShardFail() {
+        TaskDTO first = taskService.createTask(createSampleTaskDTO("Do The Dishes"));
+        TaskDTO second = taskService.createTask(createSampleTaskDTO("Wipe the floor"));
+        taskService.createTask(createSampleTaskDTO("Fold the laundry"));
+        TaskDTO fourth = taskService.createTask(createSampleTaskDTO("Water the plants")); //round robin, on the shard of the first.
+        TaskPatchDTO complete = TaskPatchDTO.builder().completed(true).build();
+
+        List<TaskBatchResultDTO> results = taskBatchService.patchTasks(List.of(
+                TaskBatchPatchDTO.builder().id(first.getId()).patch(TaskPatchDTO.builder().taskName("x".repeat(300)).build()).build(),
+                TaskBatchPatchDTO.builder().id(second.getId()).patch(complete).build(),
+                TaskBatchPatchDTO.builder().id(fourth.getId()).patch(complete).build()));
+        //a chunk is kept on one shard, the failed one is written again item by item so only the bad item fails.
+        Assertions.assertEquals(List.of(400, 200, 200), results.stream().map(TaskBatchResultDTO::getStatus).toList());
+        Assertions.assertTrue(taskService.getTask(second.getId()).getCompleted());
+        Assertions.assertTrue(taskRepository.findById(fourth.getId()).orElseThrow().getCompleted());
+        Assertions.assertEquals("Do The Dishes", taskRepository.findById(first.getId()).orElseThrow().getTaskName());
+    }
+
+    @Test
+    public void givenBatchCreate_whenCreateTasks_thenTheChunkIsInsertedOnOneShard() {
+        List<Long> ids = taskBatchService.createTasks(List.of(createSampleTaskDTO("Do The Dishes"), createSampleTaskDTO("Wipe the floor"),
+                        createSampleTaskDTO("Fold the laundry"))).stream()
+                .map(TaskBatchResultDTO::getId)
+                .toList();
+        Assertions.assertEquals(1, ids.stream().map(id -> (id - 1) / 1000).distinct().count());
+    }
+
+    private long lastChangeSeq(int shard) {
+        return shard(shard).queryForObject("select coalesce(max(change_seq), 0) from task_changes", Long.class);
+    }
+
+    private JdbcTemplate shard(int index) {
+        return new JdbcTemplate(new DriverManagerDataSource(SHARDS.get(index), "sa", ""));
+    }
+
+    private TaskDTO createSampleTaskDTO(String taskName){
+        return TaskDTO.builder()
+                .taskName(taskName)
+                .taskDescription("Description")
+                .dueDate(LocalDateTime.now().plusDays(1))
+                .completed(false)
+                .build();
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.todolist.integration;
+
+import com.example.todolist.dto.TaskChangeDTO;
+import com.example.todolist.dto.TaskDTO;
+import com.example.todolist.repository.TaskRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+//runs on the real embedded Tomcat so the events are read from an open HTTP connection like an EventSource would.
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+public class TaskChangeFeedIntegrationTest {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private TaskRepository taskRepository;
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .build();
+
+    @AfterEach
+    public void tearDown() {
+        taskRepository.deleteAll();
+    }
+
+    @Test
+    public void givenSubscriber_whenTasksChange_thenStreamEventsAndResumeFromLastEventId() throws Exception {
+        long lastEventId;
+        try (Stream<String> lines = openChanges(null)) {
+            Iterator<String> events = lines.iterator();
+            long createdId = createTask("Do The Dishes");
+            Map<String, String> event = nextEvent(events);
+            Assertions.assertEquals("created", event.get("event"));
+            TaskChangeDTO change = objectMapper.readValue(event.get("data"), TaskChangeDTO.class);
+            Assertions.assertEquals(createdId, change.getTaskId());
+            Assertions.assertEquals("Do The Dishes", change.getTask().getTaskName());
+            lastEventId = Long.parseLong(event.get("id"));
+            Assertions.assertEquals(lastEventId, change.getSequence());
+        }
+
+        long missedId = createTask("Wipe The Floor"); //published while the client is disconnected.
+        Assertions.assertEquals(HttpStatus.NO_CONTENT,
+                restTemplate.exchange("/tasks/{id}", HttpMethod.DELETE, null, Void.class, missedId).getStatusCode());
+
+        try (Stream<String> lines = openChanges(lastEventId)) {
+            Iterator<String> events = lines.iterator();
+            Map<String, String> replayedCreate = nextEvent(events);
+            Assertions.assertEquals(String.valueOf(lastEventId + 1), replayedCreate.get("id"));
+            Assertions.assertEquals("created", replayedCreate.get("event"));
+            Map<String, String> replayedDelete = nextEvent(events);
+            Assertions.assertEquals(String.valueOf(lastEventId + 2), replayedDelete.get("id"));
+            Assertions.assertEquals("deleted", replayedDelete.get("event"));
+            Assertions.assertEquals(missedId, objectMapper.readValue(replayedDelete.get("data"), TaskChangeDTO.class).getTaskId());
+        }
+    }
+
+    private Stream<String> openChanges(Long lastEventId) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/tasks/changes"))
+                .header("Accept", MediaType.TEXT_EVENT_STREAM_VALUE);
+        if (lastEventId != null) {
+            request.header("Last-Event-ID", String.valueOf(lastEventId));
+        }
+        HttpResponse<Stream<String>> response = httpClient.send(request.build(), HttpResponse.BodyHandlers.ofLines());
+        Assertions.assertEquals(200, response.statusCode());
+        return response.body();
+    }
+
+    private long createTask(String taskName) throws Exception {
+        TaskDTO taskDTO = TaskDTO.builder()
+                .taskName(taskName)
+                .taskDescription("Description")
+                .dueDate(LocalDateTime.now().plusDays(1))
+                .completed(false)
+                .build();
+        ResponseEntity<String> response = restTemplate.postForEntity("/tasks", taskDTO, String.class);
+        Assertions.assertEquals(HttpStatus.CREATED, response.getStatusCode());
+        return objectMapper.readTree(response.getBody()).get("id").asLong(); //id is read-only, TaskDTO would drop it.
+    }
+
+    private static Map<String, String> nextEvent(Iterator<String> lines) throws Exception {
+        return CompletableFuture.supplyAsync(() -> { //fields of one SSE event, a blank line ends the event.
+            Map<String, String> fields = new HashMap<>();
+            while (lines.hasNext()) {
+                String line = lines.next();
+                if (line.isEmpty() && !fields.isEmpty()) {
+                    return fields;
+                }
+                int colon = line.indexOf(':');
+                if (colon > 0) {
+                    fields.put(line.substring(0, colon), line.substring(colon + 1));
+                }
+            }
+            return fields;
+        }).get(10, TimeUnit.SECONDS);
+    }
+}
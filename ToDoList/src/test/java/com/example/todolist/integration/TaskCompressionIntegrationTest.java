@@ -0,0 +1,124 @@
+package com.example.todolist.integration;
+
+import com.example.todolist.dto.TaskDTO;
+import com.example.todolist.repository.TaskRepository;
+import com.example.todolist.service.TaskBatchService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+//runs on the real embedded Tomcat, compression and the HTTP version are decided by the connector, not by MockMvc.
+//java.net.http.HttpClient neither asks for nor decodes gzip on its own, so the bodies below are the bytes on the wire.
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+public class TaskCompressionIntegrationTest {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private TaskBatchService taskBatchService;
+
+    @Autowired
+    private TaskRepository taskRepository;
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .build();
+
+    @BeforeEach
+    public void setUp() {
+        List<TaskDTO> taskDTOs = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            taskDTOs.add(TaskDTO.builder()
+                    .taskName("Task " + i)
+                    .taskDescription("Description of task " + i)
+                    .dueDate(LocalDateTime.now().plusDays(1))
+                    .completed(i % 2 == 0)
+                    .build());
+        }
+        taskBatchService.createTasks(taskDTOs);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        taskRepository.deleteAll();
+    }
+
+    @Test
+    public void givenLargeListing_whenAcceptGzip_thenTransferCompressedBody() throws Exception {
+        HttpResponse<byte[]> plain = httpClient.send(request("/tasks").build(), HttpResponse.BodyHandlers.ofByteArray());
+        HttpResponse<byte[]> compressed = httpClient.send(request("/tasks")
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                .build(), HttpResponse.BodyHandlers.ofByteArray());
+        Assertions.assertEquals(200, compressed.statusCode());
+        Assertions.assertTrue(plain.headers().firstValue(HttpHeaders.CONTENT_ENCODING).isEmpty());
+        Assertions.assertEquals("gzip", compressed.headers().firstValue(HttpHeaders.CONTENT_ENCODING).orElse(null));
+        Assertions.assertTrue(compressed.body().length * 5 < plain.body().length,
+                "expected at least 5x smaller but got " + compressed.body().length + " of " + plain.body().length + " bytes");
+        Assertions.assertArrayEquals(plain.body(), gunzip(compressed.body()));
+    }
+
+    @Test
+    public void givenStreamedListing_whenAcceptGzip_thenTransferCompressedBody() throws Exception {
+        HttpResponse<byte[]> plain = httpClient.send(request("/tasks/stream").build(), HttpResponse.BodyHandlers.ofByteArray());
+        HttpResponse<byte[]> compressed = httpClient.send(request("/tasks/stream")
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                .build(), HttpResponse.BodyHandlers.ofByteArray());
+        Assertions.assertEquals("gzip", compressed.headers().firstValue(HttpHeaders.CONTENT_ENCODING).orElse(null));
+        Assertions.assertTrue(compressed.body().length * 5 < plain.body().length);
+        Assertions.assertArrayEquals(plain.body(), gunzip(compressed.body()));
+    }
+
+    @Test
+    public void givenResponseBelowThreshold_whenAcceptGzip_thenTransferUncompressedBody() throws Exception {
+        long id = taskRepository.findAll().iterator().next().getId();
+        HttpResponse<byte[]> response = httpClient.send(request("/tasks/" + id)
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                .build(), HttpResponse.BodyHandlers.ofByteArray());
+        Assertions.assertEquals(200, response.statusCode());
+        Assertions.assertTrue(response.headers().firstValue(HttpHeaders.CONTENT_ENCODING).isEmpty());
+    }
+
+    @Test
+    public void givenHttp2Client_whenGetTasks_thenUpgradeToH2c() throws Exception {
+        HttpClient http2Client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2) //over http:// the client sends Upgrade: h2c with the first request.
+                .build();
+        HttpResponse<byte[]> response = http2Client.send(request("/tasks")
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                .build(), HttpResponse.BodyHandlers.ofByteArray());
+        Assertions.assertEquals(200, response.statusCode());
+        Assertions.assertEquals(HttpClient.Version.HTTP_2, response.version());
+        Assertions.assertEquals("gzip", response.headers().firstValue(HttpHeaders.CONTENT_ENCODING).orElse(null));
+    }
+
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON_VALUE);
+    }
+
+    private static byte[] gunzip(byte[] body) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            return in.readAllBytes();
+        }
+    }
+}
@@ -1,12 +1,19 @@
 package com.example.todolist.integration;
 
+import com.example.todolist.config.CacheConfig;
+import com.example.todolist.dto.TaskBatchPatchDTO;
 import com.example.todolist.dto.TaskDTO;
+import com.example.todolist.dto.TaskPageDTO;
 import com.example.todolist.dto.TaskPatchDTO;
+import com.example.todolist.dto.TaskSyncDTO;
 import com.example.todolist.exception.TaskNotFoundException;
 import com.example.todolist.model.Task;
 import com.example.todolist.repository.TaskRepository;
 import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
@@ -16,6 +23,8 @@ import org.junit.jupiter.params.provider.ValueSource;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
@@ -24,6 +33,8 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.StreamSupport;
 
@@ -47,8 +58,12 @@ public class TaskControllerIntegrationTest {
     @Autowired
     private TaskRepository taskRepository;
 
+    @Autowired
+    private CacheManager cacheManager;
+
     private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("MM-dd-yyyy HH:mm");
-    private static final LocalDateTime LOCAL_DATE_TIME = LocalDateTime.parse("07-19-2026 23:30", FORMATTER);
+    //dueDate is @Future, a fixed date would fail the tests once it has passed. Whole minutes like the JSON format.
+    private static final LocalDateTime LOCAL_DATE_TIME = LocalDateTime.now().plusDays(30).truncatedTo(ChronoUnit.MINUTES);
 
     @Test
     public void givenValidId_whenGetTask_thenReturnTaskDTO() throws Exception {
@@ -68,6 +83,80 @@ public class TaskControllerIntegrationTest {
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    public void givenTaskReadTwice_whenGetTask_thenSecondReadIsCacheHit() throws Exception {
+        Task task = createSampleTask();
+        taskRepository.save(task);
+        CacheStats before = nativeTasksCache().stats();
+        mockMvc.perform(get("/tasks/{id}", task.getId()))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/tasks/{id}", task.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.taskName").value(task.getTaskName()));
+        CacheStats after = nativeTasksCache().stats();
+        Assertions.assertEquals(1, after.missCount() - before.missCount());
+        Assertions.assertEquals(1, after.hitCount() - before.hitCount());
+    }
+
+    @Test
+    public void givenCachedTask_whenPatchTask_thenGetTaskReturnsPatchedTask() throws Exception {
+        Task task = createSampleTask();
+        taskRepository.save(task);
+        mockMvc.perform(get("/tasks/{id}", task.getId()))
+                .andExpect(status().isOk());
+        String requestBody = objectMapper.writeValueAsString(TaskPatchDTO.builder().completed(true).build());
+        mockMvc.perform(patch("/tasks/{id}", task.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(requestBody))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/tasks/{id}", task.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.completed").value(true));
+    }
+
+    @Test
+    public void givenTaskETag_whenConditionalRequests_thenRespondWith304AndRejectStaleIfMatch() throws Exception {
+        Task task = createSampleTask();
+        taskRepository.save(task);
+        String eTag = "\"" + task.getId() + "-0\"";
+        mockMvc.perform(get("/tasks/{id}", task.getId()))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", eTag));
+        mockMvc.perform(get("/tasks/{id}", task.getId())
+                        .header("If-None-Match", eTag))
+                .andExpect(status().isNotModified());
+        String listETag = mockMvc.perform(get("/tasks"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+        String requestBody = objectMapper.writeValueAsString(TaskPatchDTO.builder().completed(true).build());
+        mockMvc.perform(patch("/tasks/{id}", task.getId())
+                        .header("If-Match", eTag)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(requestBody))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"" + task.getId() + "-1\""));
+        mockMvc.perform(patch("/tasks/{id}", task.getId())
+                        .header("If-Match", eTag)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(requestBody))
+                .andExpect(status().isPreconditionFailed());
+        mockMvc.perform(get("/tasks")
+                        .header("If-None-Match", listETag))
+                .andExpect(status().isOk()); //the update changed the list ETag.
+    }
+
+    @Test
+    public void givenCachedTask_whenDeleteTask_thenGetTaskRespondsWith404() throws Exception {
+        Task task = createSampleTask();
+        taskRepository.save(task);
+        mockMvc.perform(get("/tasks/{id}", task.getId()))
+                .andExpect(status().isOk());
+        mockMvc.perform(delete("/tasks/{id}", task.getId()))
+                .andExpect(status().isNoContent());
+        mockMvc.perform(get("/tasks/{id}", task.getId()))
+                .andExpect(status().isNotFound());
+    }
+
     @Test
     public void givenWrongFormatId_whenGetTask_thenRespondWith404() throws Exception {
         mockMvc.perform(get("/tasks/{id}", "abc"))
@@ -305,6 +394,209 @@ public class TaskControllerIntegrationTest {
         Assertions.assertEquals(anotherTask.getCompleted(), resultList.get(1).getCompleted());
     }
 
+    @Test
+    public void givenFilterAndSort_whenGetAllTasks_thenReturnOnlyMatchingTasksInOrder() throws Exception {
+        taskRepository.save(Task.builder().taskName("Dishes").taskDescription("Description")
+                .dueDate(LOCAL_DATE_TIME).completed(false).build());
+        taskRepository.save(Task.builder().taskName("Dusting").taskDescription("Description")
+                .dueDate(LOCAL_DATE_TIME.plusDays(1)).completed(false).build());
+        taskRepository.save(Task.builder().taskName("Dinner").taskDescription("Description")
+                .dueDate(LOCAL_DATE_TIME).completed(true).build());
+        taskRepository.save(Task.builder().taskName("Laundry").taskDescription("Description")
+                .dueDate(LOCAL_DATE_TIME).completed(false).build());
+        taskRepository.save(Task.builder().taskName("D_late").taskDescription("Description")
+                .dueDate(LOCAL_DATE_TIME.plusDays(10)).completed(false).build());
+        MvcResult result = mockMvc.perform(get("/tasks")
+                        .param("completed", "false")
+                        .param("dueBefore", LOCAL_DATE_TIME.plusDays(2).format(FORMATTER))
+                        .param("namePrefix", "D")
+                        .param("sort", "dueDate,desc"))
+                .andExpect(status().isOk())
+                .andReturn();
+        List<TaskDTO> resultList = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>(){});
+        Assertions.assertEquals(List.of("Dusting", "Dishes"), resultList.stream().map(TaskDTO::getTaskName).toList());
+    }
+
+    @Test
+    public void givenUnknownSortProperty_whenGetAllTasks_thenRespondWith400() throws Exception {
+        mockMvc.perform(get("/tasks").param("sort", "taskDescription"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void givenMoreTasksThanLimit_whenGetTaskPages_thenReturnEveryTaskOnce() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            taskRepository.save(Task.builder()
+                    .taskName("Task " + i)
+                    .taskDescription("Description")
+                    .dueDate(LOCAL_DATE_TIME)
+                    .completed(false)
+                    .build());
+        }
+        List<String> taskNames = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            MvcResult result = mockMvc.perform(get("/tasks")
+                            .param("limit", "2")
+                            .param("cursor", cursor))
+                    .andExpect(status().isOk())
+                    .andReturn();
+            TaskPageDTO page = objectMapper.readValue(result.getResponse().getContentAsString(), TaskPageDTO.class);
+            page.getTasks().forEach(taskDTO -> taskNames.add(taskDTO.getTaskName()));
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != null);
+        Assertions.assertEquals(3, pages);
+        Assertions.assertEquals(List.of("Task 0", "Task 1", "Task 2", "Task 3", "Task 4"), taskNames);
+    }
+
+    @Test
+    public void givenFilterAndSort_whenGetTaskPages_thenReturnEveryMatchOnceInOrder() throws Exception {
+        String[][] tasks = { //name, days until due or null, completed.
+                {"B", "1", "false"}, {"A", null, "false"}, {"B", "1", "false"}, {"C", "2", "false"},
+                {"A", "1", "false"}, {"E", null, "false"}, {"D", "3", "true"}
+        };
+        List<Long> ids = new ArrayList<>();
+        for (String[] task : tasks) {
+            ids.add(taskRepository.save(Task.builder()
+                    .taskName(task[0])
+                    .taskDescription("Description")
+                    .dueDate(task[1] == null ? null : LOCAL_DATE_TIME.plusDays(Long.parseLong(task[1])))
+                    .completed(Boolean.parseBoolean(task[2]))
+                    .build()).getId());
+        }
+        List<Long> found = new ArrayList<>();
+        String cursor = null;
+        do {
+            MvcResult result = mockMvc.perform(get("/tasks")
+                            .param("limit", "2")
+                            .param("completed", "false")
+                            .param("sort", "dueDate,desc", "taskName")
+                            .param("cursor", cursor))
+                    .andExpect(status().isOk())
+                    .andReturn();
+            JsonNode page = objectMapper.readTree(result.getResponse().getContentAsString()); //the id is not read into a TaskDTO.
+            page.get("tasks").forEach(task -> found.add(task.get("id").asLong()));
+            cursor = page.get("nextCursor").isNull() ? null : page.get("nextCursor").asText();
+        } while (cursor != null);
+        //no due date is the lowest, ties on both keys are broken by id.
+        Assertions.assertEquals(List.of(ids.get(3), ids.get(4), ids.get(0), ids.get(2), ids.get(1), ids.get(5)), found);
+    }
+
+    @Test
+    public void givenMalformedCursor_whenGetTaskPage_thenRespondWith400() throws Exception {
+        mockMvc.perform(get("/tasks")
+                        .param("limit", "2")
+                        .param("cursor", "not a cursor!"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void givenTaskList_whenCreateTasks_thenSaveValidTasksAndReportInvalidOnes() throws Exception {
+        TaskDTO taskDTO = TaskDTO.builder()
+                .taskName("Do The Dishes")
+                .taskDescription("Description")
+                .dueDate(LocalDateTime.now().plusDays(1))
+                .completed(false)
+                .build();
+        List<TaskDTO> taskDTOList = List.of(
+                taskDTO,
+                TaskDTO.builder().taskName("").taskDescription("Description").completed(false).build(),
+                taskDTO);
+        mockMvc.perform(post("/tasks/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(taskDTOList)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status").value(201))
+                .andExpect(jsonPath("$[0].id").isNumber())
+                .andExpect(jsonPath("$[1].status").value(400))
+                .andExpect(jsonPath("$[2].status").value(201));
+        Assertions.assertEquals(2, taskRepository.count());
+    }
+
+    @Test
+    public void givenPatchList_whenPatchTasks_thenPatchExistingTasksAndReport404() throws Exception {
+        Task task = createSampleTask();
+        taskRepository.save(task);
+        String requestBody = objectMapper.writeValueAsString(List.of(
+                TaskBatchPatchDTO.builder().id(task.getId()).patch(TaskPatchDTO.builder().completed(true).build()).build(),
+                TaskBatchPatchDTO.builder().id(100L).patch(TaskPatchDTO.builder().completed(true).build()).build()));
+        mockMvc.perform(patch("/tasks/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(requestBody))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status").value(200))
+                .andExpect(jsonPath("$[1].status").value(404));
+        Task updatedTask = taskRepository.findById(task.getId())
+                .orElseThrow(() -> new TaskNotFoundException("Task with id " + task.getId() + " not found"));
+        Assertions.assertTrue(updatedTask.getCompleted());
+        Assertions.assertEquals(task.getTaskName(), updatedTask.getTaskName());
+    }
+
+    @Test
+    public void givenIdList_whenDeleteTasks_thenDeleteExistingTasksAndReport404() throws Exception {
+        Task task = createSampleTask();
+        taskRepository.save(task);
+        mockMvc.perform(delete("/tasks/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(task.getId(), 100L))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status").value(204))
+                .andExpect(jsonPath("$[1].status").value(404));
+        Assertions.assertEquals(0, taskRepository.count());
+    }
+
+    @Test
+    public void givenSyncToken_whenSyncTasks_thenReturnOnlyChangesAndDeletesSinceToken() throws Exception {
+        long firstId = createTaskThroughApi("Do The Dishes");
+        long secondId = createTaskThroughApi("Wipe The Floor");
+        TaskSyncDTO fullSync = sync(null);
+        Assertions.assertEquals(List.of(firstId, secondId), fullSync.getChanged().stream().map(TaskDTO::getId).toList());
+        Assertions.assertNotNull(fullSync.getChanged().getFirst().getUpdatedAt());
+
+        mockMvc.perform(patch("/tasks/{id}", firstId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(TaskPatchDTO.builder().completed(true).build())))
+                .andExpect(status().isOk());
+        mockMvc.perform(delete("/tasks/{id}", secondId))
+                .andExpect(status().isNoContent());
+        TaskSyncDTO deltaSync = sync(fullSync.getToken());
+        Assertions.assertEquals(List.of(firstId), deltaSync.getChanged().stream().map(TaskDTO::getId).toList());
+        Assertions.assertTrue(deltaSync.getChanged().getFirst().getCompleted());
+        Assertions.assertEquals(List.of(secondId), deltaSync.getDeleted());
+        Assertions.assertFalse(deltaSync.isHasMore());
+
+        TaskSyncDTO emptySync = sync(deltaSync.getToken());
+        Assertions.assertTrue(emptySync.getChanged().isEmpty());
+        Assertions.assertTrue(emptySync.getDeleted().isEmpty());
+        Assertions.assertEquals(deltaSync.getToken(), emptySync.getToken());
+    }
+
+    @Test
+    public void givenSyncTokenOlderThanPrunedDeletes_whenSyncTasks_thenRespondWith410() throws Exception {
+        long firstId = createTaskThroughApi("Do The Dishes");
+        long secondId = createTaskThroughApi("Wipe The Floor");
+        TaskSyncDTO fullSync = sync(null);
+        mockMvc.perform(delete("/tasks/{id}", secondId))
+                .andExpect(status().isNoContent());
+        taskRepository.pruneTombstones(LocalDateTime.now().minusDays(1)); //within the retention.
+        Assertions.assertEquals(List.of(secondId), sync(fullSync.getToken()).getDeleted());
+
+        taskRepository.pruneTombstones(LocalDateTime.now().plusDays(1)); //as if the retention had passed.
+        mockMvc.perform(get("/tasks/sync").param("since", fullSync.getToken()))
+                .andExpect(status().isGone());
+        TaskSyncDTO resync = sync(null);
+        Assertions.assertEquals(List.of(firstId), resync.getChanged().stream().map(TaskDTO::getId).toList());
+        Assertions.assertTrue(resync.getDeleted().isEmpty());
+    }
+
+    @Test
+    public void givenMalformedSyncToken_whenSyncTasks_thenRespondWith400() throws Exception {
+        mockMvc.perform(get("/tasks/sync").param("since", "not a token!"))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     public void givenNoTasksExists_whenGetAllTasks_thenReturnEmptyTaskDTOList() throws Exception{
         MvcResult result = mockMvc.perform(get("/tasks"))
@@ -320,6 +612,41 @@ public class TaskControllerIntegrationTest {
 
 
 
+    private long createTaskThroughApi(String taskName) throws Exception {
+        TaskDTO taskDTO = TaskDTO.builder()
+                .taskName(taskName)
+                .taskDescription("Description")
+                .dueDate(LocalDateTime.now().plusDays(1))
+                .completed(false)
+                .build();
+        MvcResult result = mockMvc.perform(post("/tasks")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(taskDTO)))
+                .andExpect(status().isCreated())
+                .andReturn();
+        return objectMapper.readTree(result.getResponse().getContentAsString()).get("id").asLong();
+    }
+
+    private TaskSyncDTO sync(String since) throws Exception {
+        MvcResult result = mockMvc.perform(since == null ? get("/tasks/sync") : get("/tasks/sync").param("since", since))
+                .andExpect(status().isOk())
+                .andReturn();
+        JsonNode body = objectMapper.readTree(result.getResponse().getContentAsString());
+        List<TaskDTO> changed = new ArrayList<>();
+        for (JsonNode task : body.get("changed")) { //id and updatedAt are read-only, so they are copied over by hand.
+            TaskDTO taskDTO = objectMapper.treeToValue(task, TaskDTO.class);
+            taskDTO.setId(task.get("id").asLong());
+            taskDTO.setUpdatedAt(LocalDateTime.parse(task.get("updatedAt").asText()));
+            changed.add(taskDTO);
+        }
+        return TaskSyncDTO.builder()
+                .changed(changed)
+                .deleted(objectMapper.convertValue(body.get("deleted"), new TypeReference<>(){}))
+                .token(body.get("token").asText())
+                .hasMore(body.get("hasMore").asBoolean())
+                .build();
+    }
+
     private TaskDTO createSampleTaskDTO() {
         return TaskDTO.builder()
                 .taskName("Do The Dishes")
@@ -329,6 +656,10 @@ public class TaskControllerIntegrationTest {
                 .build();
     }
 
+    private Cache<Object, Object> nativeTasksCache(){
+        return ((CaffeineCache) cacheManager.getCache(CacheConfig.TASKS_CACHE)).getNativeCache();
+    }
+
     private Task createSampleTask(){
         return Task.builder()
                 .taskName("Do The Dishes")
@@ -0,0 +1,135 @@
+package com.example.todolist.integration;
+
+import com.example.todolist.dto.TaskDTO;
+import com.example.todolist.dto.TaskDueDateCountDTO;
+import com.example.todolist.dto.TaskFilterDTO;
+import com.example.todolist.model.Task;
+import com.example.todolist.repository.TaskRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+public class TaskRepositoryIntegrationTest {
+
+    @Autowired
+    private TaskRepository taskRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    public void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    public void givenManyNewTasks_whenSaveAll_thenIdsComeFromPooledBlocksAndInsertsAreBatched() {
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            tasks.add(createSampleTask("Task " + i));
+        }
+        taskRepository.saveAll(tasks);
+        entityManager.flush();
+        Assertions.assertEquals(100, statistics.getEntityInsertCount());
+        //2 inserts batches of 50 plus at most 3 sequence calls instead of 100 inserts and 100 id lookups.
+        Assertions.assertTrue(statistics.getPrepareStatementCount() <= 5,
+                "expected batched inserts but got " + statistics.getPrepareStatementCount() + " statements");
+        for (int i = 1; i < tasks.size(); i++) {
+            Assertions.assertTrue(tasks.get(i).getId() > tasks.get(i - 1).getId());
+        }
+    }
+
+    @Test
+    public void givenNamePrefixWithLikeWildcards_whenFindTasks_thenMatchThemLiterally() {
+        taskRepository.save(createSampleTask("100% done"));
+        taskRepository.save(createSampleTask("1000 things"));
+        List<TaskDTO> tasks = taskRepository.findTasks(TaskFilterDTO.builder().namePrefix("100%").build(), Sort.unsorted(), null, Limit.unlimited());
+        Assertions.assertEquals(1, tasks.size());
+        Assertions.assertEquals("100% done", tasks.getFirst().getTaskName());
+    }
+
+    @Test
+    public void givenTasks_whenListAsDTO_thenProjectWithoutLoadingEntities() {
+        List<Task> saved = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            saved.add(taskRepository.save(createSampleTask("Task " + i)));
+        }
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+        List<TaskDTO> all = taskRepository.findAllAsDTO();
+        List<TaskDTO> page = taskRepository.findPageAsDTO(saved.getFirst().getId(), Limit.of(10));
+        List<TaskDTO> filtered = taskRepository.findTasks(TaskFilterDTO.builder().completed(false).build(), Sort.by("taskName"), null, Limit.unlimited());
+        Assertions.assertEquals(List.of("Task 0", "Task 1", "Task 2"), all.stream().map(TaskDTO::getTaskName).toList());
+        Assertions.assertEquals(List.of("Task 1", "Task 2"), page.stream().map(TaskDTO::getTaskName).toList());
+        Assertions.assertEquals(3, filtered.size());
+        Assertions.assertEquals(saved.getFirst().getId(), all.getFirst().getId());
+        Assertions.assertNotNull(all.getFirst().getVersion());
+        Assertions.assertEquals(0, statistics.getEntityLoadCount()); //rows went straight into DTOs.
+        Assertions.assertFalse(entityManager.contains(saved.getFirst()));
+    }
+
+    @Test
+    public void givenTasksOnSeveralDays_whenCountByDueDate_thenOneGroupedRowPerDayOfTheWindow() {
+        LocalDateTime yesterday = LocalDateTime.now().minusDays(1);
+        LocalDateTime tomorrow = LocalDateTime.now().plusDays(1);
+        taskRepository.save(createSampleTask("Long ago", yesterday.minusYears(1), true));
+        taskRepository.save(createSampleTask("Overdue", yesterday, false));
+        taskRepository.save(createSampleTask("Done late", yesterday.withHour(0), true));
+        taskRepository.save(createSampleTask("Open", tomorrow, false));
+        taskRepository.save(createSampleTask("Open too", tomorrow.withHour(23), false));
+        taskRepository.save(createSampleTask("Someday", null, false));
+        entityManager.flush();
+        statistics.clear();
+        List<TaskDueDateCountDTO> counts = taskRepository.countByDueDate(yesterday.toLocalDate().atStartOfDay(), tomorrow.toLocalDate().plusDays(1).atStartOfDay());
+        Assertions.assertEquals(List.of(
+                new TaskDueDateCountDTO(yesterday.toLocalDate(), 1, 1),
+                new TaskDueDateCountDTO(tomorrow.toLocalDate(), 2, 0)), counts);
+        Assertions.assertEquals(2, taskRepository.countCompleted());
+        Assertions.assertEquals(1, taskRepository.countOverdue(LocalDateTime.now()));
+        Assertions.assertEquals(3, statistics.getPrepareStatementCount());
+        Assertions.assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    private Task createSampleTask(String taskName, LocalDateTime dueDate, boolean completed){
+        return Task.builder()
+                .taskName(taskName)
+                .taskDescription("Description")
+                .dueDate(dueDate)
+                .completed(completed)
+                .build();
+    }
+
+    private Task createSampleTask(String taskName){
+        return Task.builder()
+                .taskName(taskName)
+                .taskDescription("Description")
+                .dueDate(LocalDateTime.now().plusDays(1))
+                .completed(false)
+                .build();
+    }
+}
@@ -0,0 +1,206 @@
+package com.example.todolist.integration;
+
+import com.example.todolist.config.CacheConfig;
+import com.example.todolist.dto.TaskDTO;
+import com.example.todolist.dto.TaskPatchDTO;
+import com.example.todolist.dto.TaskStatsDTO;
+import com.example.todolist.dto.TaskStatsWindow;
+import com.example.todolist.model.TaskChange;
+import com.example.todolist.repository.TaskRepository;
+import com.example.todolist.service.TaskService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+//not @Transactional, the service has to commit its own transactions for the statements to be sent.
+@SpringBootTest
+@ActiveProfiles("test")
+public class TaskServiceIntegrationTest {
+
+    @Autowired
+    private TaskService taskService;
+
+    @Autowired
+    private TaskRepository taskRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    public void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        taskRepository.deleteAll();
+    }
+
+    @Test
+    public void givenNewTask_whenCreateTask_thenOneInsertPlusChangeRow() {
+        statistics.clear();
+        TaskDTO task = taskService.createTask(createSampleTaskDTO());
+        //task_change_lock SELECT and task_changes INSERT handing out the change sequence number, the UPDATE marking it
+        //done and task INSERT carrying it. A sequence call is added once every 50 ids.
+        Assertions.assertTrue(statistics.getPrepareStatementCount() == 4 || statistics.getPrepareStatementCount() == 5);
+        Assertions.assertEquals(2, statistics.getEntityInsertCount());
+        Assertions.assertEquals(0, statistics.getEntityUpdateCount()); //no counter and no second write of the task.
+        Assertions.assertEquals(taskRepository.changeStream(0).safeChangeSeq(), taskRepository.findById(task.getId()).orElseThrow().getChangeSeq()); //synced once committed.
+    }
+
+    @Test
+    public void givenExistingTask_whenPatchTask_thenOneSelectAndOneUpdatePlusChangeRow() {
+        TaskDTO task = taskService.createTask(createSampleTaskDTO());
+        statistics.clear();
+        TaskDTO result = taskService.patchTask(task.getId(), TaskPatchDTO.builder().completed(true).build());
+        Assertions.assertTrue(result.getCompleted());
+        Assertions.assertEquals(1, result.getVersion());
+        //task SELECT, the three statements taking the change sequence number and task UPDATE carrying it.
+        Assertions.assertEquals(5, statistics.getPrepareStatementCount());
+        Assertions.assertEquals(2, statistics.getEntityLoadCount()); //the task and the task_change_lock row.
+        Assertions.assertEquals(1, statistics.getEntityUpdateCount());
+        Assertions.assertTrue(taskRepository.findById(task.getId()).orElseThrow().getCompleted());
+    }
+
+    @Test
+    public void givenExistingTask_whenEditTask_thenOneSelectAndOneUpdatePlusChangeRow() {
+        TaskDTO task = taskService.createTask(createSampleTaskDTO());
+        statistics.clear();
+        taskService.editTask(task.getId(), TaskDTO.builder()
+                .taskName("Wipe the floor")
+                .taskDescription("Updated Description")
+                .dueDate(task.getDueDate())
+                .completed(false)
+                .build());
+        Assertions.assertEquals(5, statistics.getPrepareStatementCount());
+        Assertions.assertEquals(1, statistics.getEntityUpdateCount());
+        Assertions.assertEquals("Wipe the floor", taskRepository.findById(task.getId()).orElseThrow().getTaskName());
+    }
+
+    @Test
+    public void givenExistingTask_whenDeleteTask_thenOneDeleteAndTombstonePlusChangeRow() {
+        TaskDTO task = taskService.createTask(createSampleTaskDTO());
+        statistics.clear();
+        taskService.deleteTask(task.getId());
+        //the three statements taking the change sequence number, task DELETE and tombstone INSERT.
+        Assertions.assertEquals(5, statistics.getPrepareStatementCount());
+        Assertions.assertEquals(2, statistics.getEntityInsertCount());
+        Assertions.assertEquals(0, statistics.getEntityUpdateCount());
+        Assertions.assertTrue(taskRepository.findById(task.getId()).isEmpty());
+    }
+
+    @Test
+    public void givenWriteInFlight_whenLaterWriteCommits_thenSyncWaitsForTheFirst() {
+        TaskDTO task = taskService.createTask(createSampleTaskDTO());
+        long before = safeChangeSeq();
+        long later = transactionTemplate.execute(status -> {
+            taskService.patchTask(task.getId(), TaskPatchDTO.builder().completed(true).build());
+            TaskDTO created = CompletableFuture.supplyAsync(() -> taskService.createTask(createSampleTaskDTO())).join();
+            Assertions.assertEquals(before, CompletableFuture.supplyAsync(this::safeChangeSeq).join()); //the patch is still in flight.
+            return changeSeqOf(created.getId());
+        });
+        Assertions.assertEquals(later, safeChangeSeq());
+    }
+
+    @Test
+    public void givenRolledBackWrite_whenNextWriteCommits_thenSyncMovesOn() {
+        TaskDTO task = taskService.createTask(createSampleTaskDTO());
+        transactionTemplate.executeWithoutResult(status -> {
+            taskService.patchTask(task.getId(), TaskPatchDTO.builder().completed(true).build());
+            status.setRollbackOnly();
+        });
+        TaskDTO created = taskService.createTask(createSampleTaskDTO());
+        Assertions.assertEquals(changeSeqOf(created.getId()), safeChangeSeq());
+    }
+
+    @Test
+    public void givenChangeRowOfDeadWriter_whenPruneChanges_thenSyncMovesOn() {
+        EntityManager deadWriter = entityManagerFactory.createEntityManager();
+        deadWriter.getTransaction().begin();
+        deadWriter.persist(new TaskChange(0, LocalDateTime.now(), true)); //taken, never marked done.
+        deadWriter.getTransaction().commit();
+        deadWriter.close();
+        TaskDTO created = taskService.createTask(createSampleTaskDTO());
+        long changeSeq = changeSeqOf(created.getId());
+        Assertions.assertTrue(safeChangeSeq() < changeSeq);
+        transactionTemplate.executeWithoutResult(status -> taskRepository.pruneChanges());
+        Assertions.assertEquals(changeSeq, safeChangeSeq());
+    }
+
+    @Test
+    public void givenCommittedChanges_whenSearchTasks_thenIndexFollowsThem() {
+        TaskDTO dishes = taskService.createTask(createSampleTaskDTO());
+        TaskDTO floor = taskService.createTask(TaskDTO.builder()
+                .taskName("Wipe the floor")
+                .taskDescription("Kitchen and dishwasher corner")
+                .dueDate(LocalDateTime.now().plusDays(1))
+                .completed(false)
+                .build());
+        Assertions.assertEquals(List.of(dishes.getId(), floor.getId()),
+                taskService.searchTasks("dish", 10).stream().map(TaskDTO::getId).toList()); //name hits rank first.
+        taskService.patchTask(dishes.getId(), TaskPatchDTO.builder().taskName("Load the washer").build());
+        Assertions.assertEquals(List.of(floor.getId()), taskService.searchTasks("dish", 10).stream().map(TaskDTO::getId).toList());
+        taskService.deleteTask(floor.getId());
+        Assertions.assertTrue(taskService.searchTasks("dish", 10).isEmpty());
+        Assertions.assertEquals("Load the washer", taskService.searchTasks("wash", 10).getFirst().getTaskName());
+    }
+
+    @Test
+    public void givenCachedStats_whenGetTaskStats_thenServeThemWithoutQueries() {
+        cacheManager.getCache(CacheConfig.TASK_STATS_CACHE).clear();
+        taskService.createTask(createSampleTaskDTO());
+        statistics.clear();
+        TaskStatsWindow window = TaskStatsWindow.of(null, null, LocalDate.now());
+        TaskStatsDTO stats = taskService.getTaskStats(window);
+        Assertions.assertEquals(1, stats.getTotal());
+        Assertions.assertEquals(1, stats.getOpen());
+        Assertions.assertEquals(LocalDate.now().plusDays(1), stats.getDueDates().getFirst().getDate());
+        Assertions.assertEquals(4, statistics.getPrepareStatementCount()); //the two totals, the overdue count and the GROUP BY.
+        statistics.clear();
+        taskService.createTask(createSampleTaskDTO());
+        long afterCreate = statistics.getPrepareStatementCount();
+        Assertions.assertSame(stats, taskService.getTaskStats(TaskStatsWindow.of(null, null, LocalDate.now()))); //stale until the TTL runs out.
+        Assertions.assertEquals(afterCreate, statistics.getPrepareStatementCount());
+        cacheManager.getCache(CacheConfig.TASK_STATS_CACHE).clear();
+    }
+
+    private long safeChangeSeq() {
+        return taskRepository.changeStream(0).safeChangeSeq();
+    }
+
+    private long changeSeqOf(long id) {
+        return taskRepository.findById(id).orElseThrow().getChangeSeq();
+    }
+
+    private TaskDTO createSampleTaskDTO(){
+        return TaskDTO.builder()
+                .taskName("Do The Dishes")
+                .taskDescription("Description")
+                .dueDate(LocalDateTime.now().plusDays(1))
+                .completed(false)
+                .build();
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.todolist.integration;
+
+import com.example.todolist.dto.TaskBatchPatchDTO;
+import com.example.todolist.dto.TaskBatchResultDTO;
+import com.example.todolist.dto.TaskDTO;
+import com.example.todolist.dto.TaskPatchDTO;
+import com.example.todolist.exception.TaskVersionMismatchException;
+import com.example.todolist.model.Task;
+import com.example.todolist.repository.TaskRepository;
+import com.example.todolist.service.TaskBatchService;
+import com.example.todolist.service.TaskService;
+import com.example.todolist.service.TaskWriteBehindBuffer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+//the window is long enough that only the explicit flush() writes, like the flush on shutdown.
+@SpringBootTest(properties = {"todolist.tasks.patch-durability=buffered", "todolist.tasks.write-behind-window=1h"})
+@ActiveProfiles("test")
+public class TaskWriteBehindIntegrationTest {
+
+    @Autowired
+    private TaskService taskService;
+
+    @Autowired
+    private TaskBatchService taskBatchService;
+
+    @Autowired
+    private TaskWriteBehindBuffer writeBehindBuffer;
+
+    @Autowired
+    private TaskRepository taskRepository;
+
+    @AfterEach
+    public void tearDown() {
+        writeBehindBuffer.flush();
+        taskRepository.deleteAll();
+    }
+
+    @Test
+    public void givenBufferedPatches_whenFlush_thenWriteLatestValueOnce() {
+        TaskDTO task = taskService.createTask(createSampleTaskDTO());
+        taskService.patchTask(task.getId(), TaskPatchDTO.builder().completed(true).build());
+        taskService.patchTask(task.getId(), TaskPatchDTO.builder().completed(false).build());
+        taskService.patchTask(task.getId(), TaskPatchDTO.builder().completed(true).build());
+        Assertions.assertTrue(taskService.getTask(task.getId()).getCompleted()); //reads see the pending state.
+        Task stored = taskRepository.findById(task.getId()).orElseThrow();
+        Assertions.assertFalse(stored.getCompleted());
+        long changeSeq = stored.getChangeSeq();
+
+        writeBehindBuffer.flush();
+
+        stored = taskRepository.findById(task.getId()).orElseThrow();
+        Assertions.assertTrue(stored.getCompleted());
+        Assertions.assertEquals(1, stored.getVersion()); //three PATCHes, one UPDATE.
+        Assertions.assertTrue(stored.getChangeSeq() > changeSeq);
+        Assertions.assertEquals(taskRepository.changeStream(0).safeChangeSeq(), stored.getChangeSeq()); //the UPDATE took the newest number.
+        Assertions.assertEquals(1, taskService.getTask(task.getId()).getVersion());
+    }
+
+    @Test
+    public void givenBufferedPatch_whenEditTask_thenWriteItWithTheEdit() {
+        TaskDTO task = taskService.createTask(createSampleTaskDTO());
+        taskService.patchTask(task.getId(), TaskPatchDTO.builder().completed(true).build());
+        taskService.patchTask(task.getId(), TaskPatchDTO.builder().taskName("Wipe the floor").build()); //not buffered.
+        Task stored = taskRepository.findById(task.getId()).orElseThrow();
+        Assertions.assertTrue(stored.getCompleted());
+        Assertions.assertEquals("Wipe the floor", stored.getTaskName());
+        Assertions.assertNull(writeBehindBuffer.getPending(task.getId()));
+    }
+
+    @Test
+    public void givenBufferedPatch_whenPatchWithWrongVersion_thenBufferedPatchIsKept() {
+        TaskDTO task = taskService.createTask(createSampleTaskDTO());
+        taskService.patchTask(task.getId(), TaskPatchDTO.builder().completed(true).build()); //answered, only buffered.
+        TaskPatchDTO rename = TaskPatchDTO.builder().taskName("Wipe the floor").build();
+        Assertions.assertThrows(TaskVersionMismatchException.class, () -> taskService.patchTask(task.getId(), rename, 7L));
+
+        Assertions.assertTrue(writeBehindBuffer.getPending(task.getId()).getCompleted()); //taken by the update, put back on rollback.
+        writeBehindBuffer.flush();
+        Task stored = taskRepository.findById(task.getId()).orElseThrow();
+        Assertions.assertTrue(stored.getCompleted());
+        Assertions.assertEquals("Do The Dishes", stored.getTaskName());
+    }
+
+    @Test
+    public void givenBufferedPatch_whenBatchPatchChunkFails_thenBufferedPatchIsKept() {
+        TaskDTO task = taskService.createTask(createSampleTaskDTO());
+        taskService.patchTask(task.getId(), TaskPatchDTO.builder().completed(true).build());
+        TaskPatchDTO tooLong = TaskPatchDTO.builder().taskDescription("x".repeat(300)).build(); //passes validation, the column is varchar(255).
+        List<TaskBatchResultDTO> results = taskBatchService.patchTasks(List.of(TaskBatchPatchDTO.builder().id(task.getId()).patch(tooLong).build()));
+
+        Assertions.assertEquals(400, results.getFirst().getStatus()); //too long for its column.
+        Assertions.assertTrue(writeBehindBuffer.getPending(task.getId()).getCompleted());
+    }
+
+    private TaskDTO createSampleTaskDTO(){
+        return TaskDTO.builder()
+                .taskName("Do The Dishes")
+                .taskDescription("Description")
+                .dueDate(LocalDateTime.now().plusDays(1))
+                .completed(false)
+                .build();
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.todolist.integration;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicReference;
+
+//runs on the real embedded Tomcat because MockMvc would handle the request on the test thread.
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles({"test", "virtual-threads"})
+public class VirtualThreadIntegrationTest {
+
+    private static final AtomicReference<Thread> REQUEST_THREAD = new AtomicReference<>();
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Test
+    public void givenVirtualThreadsProfile_whenGetAllTasks_thenRequestRunsOnVirtualThread() {
+        ResponseEntity<String> response = restTemplate.getForEntity("/tasks", String.class);
+        Assertions.assertEquals(HttpStatus.OK, response.getStatusCode());
+        Assertions.assertTrue(REQUEST_THREAD.get().isVirtual());
+    }
+
+    @TestConfiguration
+    static class RequestThreadRecorderConfig {
+        @Bean
+        OncePerRequestFilter requestThreadRecorder() {
+            return new OncePerRequestFilter() {
+                @Override
+                protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+                        throws ServletException, IOException {
+                    REQUEST_THREAD.set(Thread.currentThread());
+                    filterChain.doFilter(request, response);
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.todolist.json;
+
+import com.example.todolist.dto.TaskDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.time.LocalDateTime;
+import java.util.List;
+
+//the specialized serializer has to write exactly what the reflective one derives from the TaskDTO annotations.
+class TaskDTOSerializerTest {
+
+    private final ObjectMapper reflectiveMapper = Jackson2ObjectMapperBuilder.json()
+            .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS) //like the mapper Spring Boot builds.
+            .build();
+    private final ObjectMapper specializedMapper = Jackson2ObjectMapperBuilder.json()
+            .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .serializerByType(TaskDTO.class, new TaskDTOSerializer())
+            .build();
+
+    @Test
+    public void givenTasks_whenSerialize_thenWriteSameJsonAsReflectiveSerializer() throws Exception {
+        List<TaskDTO> tasks = List.of(
+                createTaskDTO(LocalDateTime.of(2026, 7, 19, 23, 30), LocalDateTime.of(2026, 7, 1, 8, 5, 9)),
+                createTaskDTO(LocalDateTime.of(2030, 1, 1, 0, 0), LocalDateTime.of(2026, 7, 1, 8, 5, 9, 120_000_000)),
+                createTaskDTO(LocalDateTime.of(999, 12, 31, 9, 9), LocalDateTime.of(2026, 7, 1, 8, 5, 0, 123_456_789)),
+                createTaskDTO(LocalDateTime.of(12026, 3, 4, 5, 6), LocalDateTime.of(-5, 1, 2, 3, 4, 5, 1)),
+                TaskDTO.builder().build());
+        for (TaskDTO task : tasks) {
+            Assertions.assertEquals(reflectiveMapper.writeValueAsString(task), specializedMapper.writeValueAsString(task));
+        }
+        Assertions.assertEquals(reflectiveMapper.writeValueAsString(tasks), specializedMapper.writeValueAsString(tasks));
+    }
+
+    //every field of TaskDTO is set through reflection, so a field that is added, renamed or reformatted in TaskDTO without
+    //updating the serializer makes the two outputs differ.
+    @Test
+    public void givenEveryTaskDTOFieldSet_whenSerialize_thenWriteSameJsonAsReflectiveSerializer() throws Exception {
+        TaskDTO task = TaskDTO.builder().build();
+        for (Field field : TaskDTO.class.getDeclaredFields()) {
+            if (Modifier.isStatic(field.getModifiers())) {
+                continue;
+            }
+            field.setAccessible(true);
+            field.set(task, sampleValue(field));
+        }
+        Assertions.assertEquals(reflectiveMapper.readTree(reflectiveMapper.writeValueAsString(task)),
+                reflectiveMapper.readTree(specializedMapper.writeValueAsString(task)));
+        Assertions.assertEquals(reflectiveMapper.writeValueAsString(task), specializedMapper.writeValueAsString(task));
+    }
+
+    @Test
+    public void givenDatesAsTimestamps_whenSerialize_thenWriteUpdatedAtAsArray() throws Exception {
+        ObjectMapper timestampMapper = Jackson2ObjectMapperBuilder.json()
+                .serializerByType(TaskDTO.class, new TaskDTOSerializer())
+                .build();
+        TaskDTO task = createTaskDTO(LocalDateTime.of(2026, 7, 19, 23, 30), LocalDateTime.of(2026, 7, 1, 8, 5, 9));
+        Assertions.assertEquals(Jackson2ObjectMapperBuilder.json().build().writeValueAsString(task), timestampMapper.writeValueAsString(task));
+    }
+
+    @Test
+    public void givenTaskWithSpecialCharacters_whenSerialize_thenEscapeThem() throws Exception {
+        TaskDTO task = createTaskDTO(null, null);
+        task.setTaskName("Say \"hi\"\n\\ 👋");
+        String json = specializedMapper.writeValueAsString(task);
+        Assertions.assertEquals(reflectiveMapper.writeValueAsString(task), json);
+        Assertions.assertEquals(task.getTaskName(), specializedMapper.readTree(json).get("taskName").asText());
+    }
+
+    private static Object sampleValue(Field field) {
+        Class<?> type = field.getType();
+        if (type == Long.class) {
+            return 7L;
+        } else if (type == String.class) {
+            return "Value of " + field.getName();
+        } else if (type == Boolean.class) {
+            return true;
+        } else if (type == LocalDateTime.class) {
+            return LocalDateTime.of(2026, 7, 19, 23, 30, 5, 250_000_000);
+        }
+        throw new AssertionError("No sample value for TaskDTO." + field.getName() + " of type " + type.getName() + ", add one here");
+    }
+
+    private static TaskDTO createTaskDTO(LocalDateTime dueDate, LocalDateTime updatedAt) {
+        return TaskDTO.builder()
+                .id(42L)
+                .taskName("Do The Dishes")
+                .taskDescription("Description")
+                .dueDate(dueDate)
+                .completed(true)
+                .version(3L)
+                .updatedAt(updatedAt)
+                .build();
+    }
+}
@@ -0,0 +1,308 @@
+package com.example.todolist.repository;
+
+import com.example.todolist.dto.TaskDTO;
+import com.example.todolist.dto.TaskFilterDTO;
+import com.example.todolist.model.Task;
+import com.example.todolist.model.TaskTombstone;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.mockito.Mockito.*;
+
+//reopening a store without closing it is a crash, nothing but the log and the snapshot survive.
+class TaskStoreTest {
+    @TempDir
+    Path directory;
+
+    private final List<TaskStore> stores = new ArrayList<>();
+    private TaskStore taskStore;
+    private InMemoryTaskRepository taskRepository;
+    private TransactionTemplate transactionTemplate;
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        for (TaskStore store : stores) {
+            store.close();
+        }
+    }
+
+    @Test
+    public void givenCommittedTransactions_whenCrashAndReopen_thenLogIsReplayed() throws IOException {
+        open(DataSize.ofMegabytes(1));
+        Task kept = createTask("Do The Dishes");
+        Task patched = createTask("Wipe the floor");
+        Task deleted = createTask("Take out the trash");
+        transactionTemplate.executeWithoutResult(status -> {
+            Task task = taskRepository.findById(patched.getId()).orElseThrow();
+            task.setCompleted(true);
+            taskRepository.recordChanges(List.of(task), List.of());
+        });
+        deleteTask(deleted.getId());
+        long changeVersion = taskRepository.changeVersion();
+
+        open(DataSize.ofMegabytes(1));
+        Assertions.assertEquals(List.of(kept.getId(), patched.getId()), taskRepository.findAllAsDTO().stream().map(TaskDTO::getId).toList());
+        Task recovered = taskRepository.findById(patched.getId()).orElseThrow();
+        Assertions.assertTrue(recovered.getCompleted());
+        Assertions.assertEquals(1, recovered.getVersion());
+        Assertions.assertEquals(changeVersion, taskRepository.changeVersion());
+        List<TaskTombstone> tombstones = taskRepository.findTombstonesSince(0, 0, Long.MAX_VALUE, Limit.unlimited());
+        Assertions.assertEquals(deleted.getId(), tombstones.getFirst().getTaskId());
+        Assertions.assertTrue(createTask("After the crash").getId() > deleted.getId()); //ids are never handed out twice.
+    }
+
+    @Test
+    public void givenTornLastEntry_whenReopen_thenOnlyThatTransactionIsLost() throws IOException {
+        open(DataSize.ofMegabytes(1));
+        Task first = createTask("Do The Dishes");
+        createTask("Wipe the floor"); //torn, its commit never returned, so its id may be handed out again.
+        corruptLastEntry(onlyLogFile());
+
+        open(DataSize.ofMegabytes(1));
+        Assertions.assertEquals(List.of(first.getId()), taskRepository.findAllAsDTO().stream().map(TaskDTO::getId).toList());
+        Task third = createTask("Take out the trash"); //appended to a new log file, never behind the torn entry.
+        Assertions.assertEquals(2, logFiles().size());
+
+        open(DataSize.ofMegabytes(1));
+        Assertions.assertEquals(List.of(first.getId(), third.getId()), taskRepository.findAllAsDTO().stream().map(TaskDTO::getId).toList());
+    }
+
+    @Test
+    public void givenRolledBackTransaction_whenReopen_thenItWasNeverLogged() throws IOException {
+        open(DataSize.ofMegabytes(1));
+        Task task = createTask("Do The Dishes");
+        Assertions.assertThrows(IllegalStateException.class, () -> transactionTemplate.executeWithoutResult(status -> {
+            taskRepository.recordChanges(List.of(), List.of(task.getId()));
+            createTask("Wipe the floor");
+            throw new IllegalStateException("rolled back");
+        }));
+        Assertions.assertEquals(1, taskRepository.count());
+
+        open(DataSize.ofMegabytes(1));
+        Assertions.assertEquals(List.of(task.getId()), taskRepository.findAllAsDTO().stream().map(TaskDTO::getId).toList());
+        Assertions.assertTrue(taskRepository.findTombstonesSince(0, 0, Long.MAX_VALUE, Limit.unlimited()).isEmpty());
+    }
+
+    @Test
+    public void givenSnapshot_whenCrashAndReopen_thenSnapshotAndNewerLogAreLoaded() throws IOException {
+        open(DataSize.ofMegabytes(1));
+        Task first = createTask("Do The Dishes");
+        deleteTask(createTask("Take out the trash").getId());
+        taskStore.snapshot();
+        Assertions.assertEquals(1, logFiles().size()); //the log the snapshot replaced is gone.
+        Task second = createTask("Wipe the floor");
+
+        open(DataSize.ofMegabytes(1));
+        Assertions.assertEquals(List.of(first.getId(), second.getId()), taskRepository.findAllAsDTO().stream().map(TaskDTO::getId).toList());
+        Assertions.assertEquals(1, taskRepository.findTombstonesSince(0, 0, Long.MAX_VALUE, Limit.unlimited()).size());
+    }
+
+    @Test
+    public void givenPrunedTombstones_whenSnapshotAndReopen_thenTheyStayPruned() throws IOException {
+        open(DataSize.ofMegabytes(1));
+        Task kept = createTask("Do The Dishes");
+        deleteTask(createTask("Take out the trash").getId());
+        taskRepository.pruneTombstones(LocalDateTime.now().minusDays(1)); //within the retention.
+        Assertions.assertEquals(-1, taskRepository.prunedTombstonesUpTo());
+        taskRepository.pruneTombstones(LocalDateTime.now().plusDays(1));
+        long prunedUpTo = taskRepository.safeChangeSeq();
+        Assertions.assertEquals(prunedUpTo, taskRepository.prunedTombstonesUpTo());
+        Assertions.assertTrue(taskRepository.findTombstonesSince(-1, 0, Long.MAX_VALUE, Limit.unlimited()).isEmpty());
+        taskStore.snapshot();
+
+        open(DataSize.ofMegabytes(1));
+        Assertions.assertEquals(prunedUpTo, taskRepository.prunedTombstonesUpTo());
+        Assertions.assertTrue(taskRepository.findTombstonesSince(-1, 0, Long.MAX_VALUE, Limit.unlimited()).isEmpty());
+        Assertions.assertEquals(List.of(kept.getId()), taskRepository.findAllAsDTO().stream().map(TaskDTO::getId).toList());
+    }
+
+    @Test
+    public void givenFullLogFile_whenCommit_thenRollOverAndSnapshotCompactsTheLog() throws Exception {
+        open(DataSize.ofKilobytes(4));
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            ids.add(createTask("Task " + i).getId());
+        }
+        for (int i = 0; i < 200 && logFiles().size() > 1; i++) {
+            Thread.sleep(10); //the snapshot after a roll over runs in the background.
+        }
+        Assertions.assertEquals(1, logFiles().size());
+        Assertions.assertTrue(Files.exists(directory.resolve("tasks.snapshot")));
+
+        open(DataSize.ofKilobytes(4));
+        Assertions.assertEquals(ids, taskRepository.findAllAsDTO().stream().map(TaskDTO::getId).toList());
+    }
+
+    @Test
+    public void givenFailedAppend_whenWrite_thenRefuseWritesButServeReads() throws IOException {
+        open(DataSize.ofMegabytes(1));
+        Task kept = createTask("Do The Dishes");
+        TaskWriteAheadLog wal = (TaskWriteAheadLog) ReflectionTestUtils.getField(taskStore, "wal");
+        TaskWriteAheadLog failingWal = spy(wal);
+        doAnswer(call -> {
+            call.callRealMethod(); //in the log, but the msync failed.
+            throw new IOException("msync failed");
+        }).when(failingWal).append(any());
+        ReflectionTestUtils.setField(taskStore, "wal", failingWal);
+
+        Assertions.assertThrows(DataAccessResourceFailureException.class, () -> createTask("Wipe the floor"));
+        Assertions.assertThrows(DataAccessResourceFailureException.class, () -> createTask("Take out the trash"));
+        Assertions.assertEquals(List.of(kept.getId()), taskRepository.findAllAsDTO().stream().map(TaskDTO::getId).toList());
+    }
+
+    @Test
+    public void givenConcurrentUpdate_whenCommit_thenOptimisticLockingFailureAndNothingIsWritten() throws IOException {
+        open(DataSize.ofMegabytes(1));
+        Task task = createTask("Do The Dishes");
+        Assertions.assertThrows(ObjectOptimisticLockingFailureException.class, () -> transactionTemplate.executeWithoutResult(status -> {
+            Task loaded = taskRepository.findById(task.getId()).orElseThrow();
+            Task stale = Task.builder().id(task.getId()).taskName("Stale").version(loaded.getVersion() + 1).build();
+            taskRepository.save(stale); //merged onto the loaded task with a version it never had.
+        }));
+        Assertions.assertEquals("Do The Dishes", taskRepository.findById(task.getId()).orElseThrow().getTaskName());
+        Assertions.assertEquals(0, taskRepository.findById(task.getId()).orElseThrow().getVersion());
+    }
+
+    @Test
+    public void givenConcurrentCommits_whenCrashAndReopen_thenEveryCommitIsThere() throws Exception {
+        open(DataSize.ofMegabytes(1));
+        List<Thread> writers = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            int writer = i;
+            writers.add(Thread.ofVirtual().start(() -> {
+                for (int j = 0; j < 25; j++) {
+                    createTask("Task " + writer + "-" + j); //waits for its msync, possibly one of another writer.
+                }
+            }));
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        List<Long> ids = taskRepository.findAllAsDTO().stream().map(TaskDTO::getId).toList();
+        Assertions.assertEquals(200, ids.size());
+
+        open(DataSize.ofMegabytes(1));
+        Assertions.assertEquals(ids, taskRepository.findAllAsDTO().stream().map(TaskDTO::getId).toList());
+        Assertions.assertEquals(200, taskRepository.changeVersion());
+    }
+
+    @Test
+    public void givenUpdatedTasks_whenFindChangedSince_thenSeekTheChangeOrderUpToTheSafeNumber() throws IOException {
+        open(DataSize.ofMegabytes(1));
+        Task first = createTask("Do The Dishes");
+        Task second = createTask("Wipe the floor");
+        Task third = createTask("Take out the trash");
+        transactionTemplate.executeWithoutResult(status -> {
+            Task task = taskRepository.findById(first.getId()).orElseThrow();
+            task.setCompleted(true);
+            taskRepository.recordChanges(List.of(task), List.of());
+        });
+        long upTo = taskRepository.safeChangeSeq();
+
+        List<Task> changed = taskRepository.findChangedSince(second.getChangeSeq(), second.getId(), upTo, Limit.unlimited());
+        Assertions.assertEquals(List.of(third.getId(), first.getId()), changed.stream().map(Task::getId).toList()); //the update moved the first one last.
+        Assertions.assertTrue(changed.getLast().getCompleted());
+        Assertions.assertEquals(List.of(second.getId()), taskRepository.findChangedSince(0, 0, upTo, Limit.of(1)).stream().map(Task::getId).toList());
+        Assertions.assertTrue(taskRepository.findChangedSince(0, 0, second.getChangeSeq() - 1, Limit.unlimited()).isEmpty());
+    }
+
+    @Test
+    public void givenNamePrefixInOtherCaseAndAccents_whenFindTasks_thenMatchLikeTheDatabaseCollation() throws IOException {
+        open(DataSize.ofMegabytes(1));
+        Task dishes = createTask("Do The Dishes");
+        Task uber = createTask("Über call");
+        createTask("Wipe the floor");
+
+        Assertions.assertEquals(List.of(dishes.getId()), findByNamePrefix("do the"));
+        Assertions.assertEquals(List.of(uber.getId()), findByNamePrefix("uber"));
+        Assertions.assertEquals(List.of(uber.getId()), findByNamePrefix("ÜB"));
+    }
+
+    private List<Long> findByNamePrefix(String namePrefix){
+        return taskRepository.findTasks(TaskFilterDTO.builder().namePrefix(namePrefix).build(), Sort.unsorted(), null, Limit.unlimited()).stream()
+                .map(TaskDTO::getId)
+                .toList();
+    }
+
+    private void open(DataSize logCapacity) throws IOException {
+        taskStore = new TaskStore(directory.toString(), logCapacity, Duration.ofHours(1), true);
+        taskStore.open();
+        taskRepository = new InMemoryTaskRepository(taskStore);
+        transactionTemplate = new TransactionTemplate(new TaskStoreTransactionManager(taskStore));
+        //the previous store is not closed, closing it would write a snapshot. It is only closed after the test.
+        stores.addFirst(taskStore);
+    }
+
+    private Task createTask(String taskName){
+        return transactionTemplate.execute(status -> {
+            Task task = Task.builder()
+                    .taskName(taskName)
+                    .taskDescription("Description")
+                    .dueDate(LocalDateTime.now().plusDays(1))
+                    .completed(false)
+                    .build();
+            taskRepository.recordChanges(List.of(task), List.of());
+            return task;
+        });
+    }
+
+    private void deleteTask(long id){
+        transactionTemplate.executeWithoutResult(status -> taskRepository.recordChanges(List.of(), List.of(id)));
+    }
+
+    private List<Path> logFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".log")).sorted().toList();
+        }
+    }
+
+    private Path onlyLogFile() throws IOException {
+        List<Path> logFiles = logFiles();
+        Assertions.assertEquals(1, logFiles.size());
+        return logFiles.getFirst();
+    }
+
+    private static void corruptLastEntry(Path logFile) throws IOException { //flips a payload byte, the CRC no longer matches.
+        try (FileChannel channel = FileChannel.open(logFile, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(Integer.BYTES);
+            long position = 0;
+            long lastEntry = -1;
+            while (true) {
+                header.clear();
+                channel.read(header, position);
+                int length = header.getInt(0);
+                if (length == 0) {
+                    break;
+                }
+                lastEntry = position;
+                position += 2 * Integer.BYTES + length;
+            }
+            ByteBuffer payloadByte = ByteBuffer.allocate(1);
+            channel.read(payloadByte, lastEntry + 2 * Integer.BYTES);
+            payloadByte.put(0, (byte) (payloadByte.get(0) ^ 0xff));
+            payloadByte.rewind();
+            channel.write(payloadByte, lastEntry + 2 * Integer.BYTES);
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package com.example.todolist.service;
+
+import com.example.todolist.config.CacheConfig;
+import com.example.todolist.dto.TaskBatchPatchDTO;
+import com.example.todolist.dto.TaskBatchResultDTO;
+import com.example.todolist.dto.TaskDTO;
+import com.example.todolist.dto.TaskPatchDTO;
+import com.example.todolist.mapper.TaskMapper;
+import com.example.todolist.model.Task;
+import com.example.todolist.repository.TaskRepository;
+import jakarta.validation.Validation;
+import org.hibernate.exception.ConstraintViolationException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TaskBatchServiceTest {
+    @Mock
+    TaskRepository taskRepository;
+
+    @Mock
+    TaskMapper taskMapper;
+
+    @Mock
+    PlatformTransactionManager transactionManager;
+
+    @Mock
+    ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    TaskWriteBehindBuffer writeBehindBuffer;
+
+    CacheManager cacheManager;
+
+    TaskBatchService taskBatchService;
+
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("MM-dd-yyyy HH:mm");
+    private static final LocalDateTime FUTURE_DATE_TIME = LocalDateTime.now().plusYears(1);
+    private static final LocalDateTime PAST_DATE_TIME = LocalDateTime.parse("07-19-2020 23:30", FORMATTER);
+
+    @BeforeEach
+    public void setUp() {
+        cacheManager = new ConcurrentMapCacheManager(CacheConfig.TASKS_CACHE);
+        taskBatchService = new TaskBatchService(taskRepository, taskMapper,
+                Validation.buildDefaultValidatorFactory().getValidator(),
+                new TransactionTemplate(transactionManager), cacheManager, eventPublisher, writeBehindBuffer, 2);
+    }
+
+    @Test
+    public void givenValidAndInvalidDTOs_whenCreateTasks_thenSaveOnlyValidOnesInChunks() {
+        TaskDTO first = createSampleTaskDTO("Task 1");
+        TaskDTO invalid = TaskDTO.builder().taskName(" ").taskDescription("Description").dueDate(PAST_DATE_TIME).completed(false).build();
+        TaskDTO second = createSampleTaskDTO("Task 2");
+        TaskDTO third = createSampleTaskDTO("Task 3");
+        Task firstTask = Task.builder().taskName("Task 1").build();
+        Task secondTask = Task.builder().taskName("Task 2").build();
+        Task thirdTask = Task.builder().taskName("Task 3").build();
+        when(taskMapper.toEntity(first)).thenReturn(firstTask);
+        when(taskMapper.toEntity(second)).thenReturn(secondTask);
+        when(taskMapper.toEntity(third)).thenReturn(thirdTask);
+        when(taskRepository.recordChanges(List.of(firstTask, secondTask), List.of())).thenAnswer(invocation -> {
+            firstTask.setId(1L);
+            secondTask.setId(2L);
+            return List.of();
+        });
+        when(taskRepository.recordChanges(List.of(thirdTask), List.of())).thenAnswer(invocation -> {
+            thirdTask.setId(3L);
+            return List.of();
+        });
+        when(taskMapper.toDTO(any(Task.class))).thenAnswer(invocation -> TaskDTO.builder()
+                .id(invocation.<Task>getArgument(0).getId())
+                .build());
+        List<TaskBatchResultDTO> results = taskBatchService.createTasks(List.of(first, invalid, second, third));
+        Assertions.assertEquals(4, results.size());
+        Assertions.assertEquals(201, results.get(0).getStatus());
+        Assertions.assertEquals(1L, results.get(0).getId());
+        Assertions.assertEquals(400, results.get(1).getStatus());
+        Assertions.assertEquals("dueDate: must be a future date, taskName: must not be blank", results.get(1).getError());
+        Assertions.assertEquals(2L, results.get(2).getId());
+        Assertions.assertEquals(3L, results.get(3).getId());
+        verify(taskRepository, times(2)).recordChanges(anyList(), eq(List.of())); //chunk size is 2
+        verify(transactionManager, times(2)).commit(any());
+        verify(eventPublisher, times(3)).publishEvent(any(TaskChangedEvent.class)); //one change feed event per saved task.
+    }
+
+    @Test
+    public void givenFailingChunk_whenCreateTasks_thenReportEveryItemOfTheChunkAsFailed() {
+        TaskDTO taskDTO = createSampleTaskDTO("Task 1");
+        when(taskMapper.toEntity(taskDTO)).thenReturn(Task.builder().build());
+        when(taskRepository.recordChanges(anyList(), anyList())).thenThrow(new IllegalStateException("database unavailable"));
+        List<TaskBatchResultDTO> results = taskBatchService.createTasks(List.of(taskDTO));
+        Assertions.assertEquals(500, results.getFirst().getStatus());
+        Assertions.assertFalse(results.getFirst().getError().contains("database unavailable")); //the cause is only logged.
+        verify(transactionManager).rollback(any());
+    }
+
+    @Test
+    public void givenChunkWithOneBadItem_whenCreateTasks_thenSaveTheOthersAndReportTheCauseOfTheBadOne() {
+        TaskDTO first = createSampleTaskDTO("Task 1");
+        TaskDTO duplicate = createSampleTaskDTO("Task 2");
+        when(taskMapper.toEntity(first)).thenAnswer(invocation -> Task.builder().taskName("Task 1").build());
+        when(taskMapper.toEntity(duplicate)).thenAnswer(invocation -> Task.builder().taskName("Task 2").build());
+        DataIntegrityViolationException violation = new DataIntegrityViolationException("could not execute batch",
+                new ConstraintViolationException("Duplicate entry", new SQLException("Duplicate entry"), "uk_tasks_task_name"));
+        when(taskRepository.recordChanges(anyList(), anyList())).thenAnswer(invocation -> {
+            List<Task> tasks = invocation.getArgument(0);
+            if (tasks.stream().anyMatch(task -> task.getTaskName().equals("Task 2"))) {
+                throw violation;
+            }
+            tasks.getFirst().setId(1L);
+            return List.of();
+        });
+        List<TaskBatchResultDTO> results = taskBatchService.createTasks(List.of(first, duplicate));
+        Assertions.assertEquals(201, results.get(0).getStatus());
+        Assertions.assertEquals(1L, results.get(0).getId());
+        Assertions.assertEquals(409, results.get(1).getStatus());
+        Assertions.assertEquals("Violates the database constraint uk_tasks_task_name", results.get(1).getError());
+        verify(transactionManager, times(2)).rollback(any()); //the chunk of both, then the bad item on its own.
+        verify(transactionManager).commit(any());
+    }
+
+    @Test
+    public void givenConcurrentUpdate_whenPatchTasks_thenReport409ForThatItem() {
+        TaskPatchDTO patch = TaskPatchDTO.builder().completed(true).build();
+        when(taskRepository.findAllById(List.of(1L))).thenReturn(List.of(Task.builder().id(1L).completed(false).build()));
+        when(taskRepository.recordChanges(anyCollection(), anyList())).thenThrow(new ObjectOptimisticLockingFailureException(Task.class, 1L));
+        List<TaskBatchResultDTO> results = taskBatchService.patchTasks(List.of(TaskBatchPatchDTO.builder().id(1L).patch(patch).build()));
+        Assertions.assertEquals(409, results.getFirst().getStatus());
+        Assertions.assertEquals("Task with id 1 was updated concurrently, retry the item", results.getFirst().getError());
+    }
+
+    @Test
+    public void givenExistingAndMissingIds_whenPatchTasks_thenPatchExistingAndReport404() {
+        TaskPatchDTO patch = TaskPatchDTO.builder().completed(true).build();
+        Task task = Task.builder().id(1L).taskName("Task 1").completed(false).build();
+        TaskDTO patchedTaskDTO = TaskDTO.builder().id(1L).taskName("Task 1").completed(true).build();
+        when(taskRepository.findAllById(List.of(1L, 5L))).thenReturn(List.of(task));
+        when(taskMapper.toDTO(task)).thenReturn(patchedTaskDTO);
+        List<TaskBatchResultDTO> results = taskBatchService.patchTasks(Arrays.asList(
+                TaskBatchPatchDTO.builder().id(1L).patch(patch).build(),
+                TaskBatchPatchDTO.builder().id(5L).patch(patch).build(),
+                TaskBatchPatchDTO.builder().patch(patch).build()));
+        Assertions.assertEquals(200, results.get(0).getStatus());
+        Assertions.assertEquals(404, results.get(1).getStatus());
+        Assertions.assertEquals("Task with id 5 not found", results.get(1).getError());
+        Assertions.assertEquals(400, results.get(2).getStatus());
+        Assertions.assertEquals(patchedTaskDTO, cacheManager.getCache(CacheConfig.TASKS_CACHE).get(1L).get());
+        verify(taskMapper).patchTaskFromDTO(patch, task);
+        verify(taskRepository, never()).save(any(Task.class)); //managed entities are flushed by dirty checking.
+    }
+
+    @Test
+    public void givenExistingMissingAndNullIds_whenDeleteTasks_thenDeleteExistingAndReport404() {
+        cacheManager.getCache(CacheConfig.TASKS_CACHE).put(1L, createSampleTaskDTO("Task 1"));
+        when(taskRepository.recordChanges(List.of(), Set.of(1L, 5L))).thenReturn(List.of(1L)); //deletes the existing ones with their tombstones.
+        List<TaskBatchResultDTO> results = taskBatchService.deleteTasks(Arrays.asList(1L, null, 5L));
+        Assertions.assertEquals(204, results.get(0).getStatus());
+        Assertions.assertEquals(400, results.get(1).getStatus());
+        Assertions.assertEquals(404, results.get(2).getStatus());
+        Assertions.assertNull(cacheManager.getCache(CacheConfig.TASKS_CACHE).get(1L));
+    }
+
+    @Test
+    public void givenIdsOnTwoPartitions_whenDeleteTasks_thenChunkPerPartitionAndFailOnlyTheFailingOne() {
+        when(taskRepository.partitionOf(anyLong())).thenAnswer(invocation -> (int) ((invocation.<Long>getArgument(0) - 1) / 1000));
+        when(taskRepository.recordChanges(List.of(), Set.of(1L, 2L))).thenReturn(List.of(1L, 2L));
+        when(taskRepository.recordChanges(List.of(), Set.of(1001L))).thenThrow(new IllegalStateException("shard unavailable"));
+        List<TaskBatchResultDTO> results = taskBatchService.deleteTasks(List.of(1L, 1001L, 2L));
+        Assertions.assertEquals(204, results.get(0).getStatus());
+        Assertions.assertEquals(500, results.get(1).getStatus()); //its chunk only held the items of its partition.
+        Assertions.assertEquals(204, results.get(2).getStatus());
+        verify(transactionManager).commit(any());
+        verify(transactionManager).rollback(any());
+    }
+
+    private TaskDTO createSampleTaskDTO(String taskName){
+        return TaskDTO.builder()
+                .taskName(taskName)
+                .taskDescription("Description")
+                .dueDate(FUTURE_DATE_TIME)
+                .completed(false)
+                .build();
+    }
+}
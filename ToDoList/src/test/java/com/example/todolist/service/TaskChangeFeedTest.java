@@ -0,0 +1,60 @@
+package com.example.todolist.service;
+
+import com.example.todolist.dto.TaskChangeDTO;
+import com.example.todolist.dto.TaskChangeType;
+import com.example.todolist.dto.TaskDTO;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+class TaskChangeFeedTest {
+
+    private final TaskChangeFeed taskChangeFeed = new TaskChangeFeed(3, Duration.ofMinutes(1));
+
+    @Test
+    public void givenChanges_whenPublish_thenAssignIncreasingSequenceNumbers() {
+        TaskChangeDTO created = taskChangeFeed.publish(TaskChangeType.CREATED, 1L, TaskDTO.builder().id(1L).build());
+        TaskChangeDTO deleted = taskChangeFeed.publish(TaskChangeType.DELETED, 1L, null);
+        Assertions.assertEquals(1, created.getSequence());
+        Assertions.assertEquals(2, deleted.getSequence());
+    }
+
+    @Test
+    public void givenBufferedLastEventId_whenChangesAfter_thenReturnOnlyLaterChanges() {
+        taskChangeFeed.onTaskChanged(TaskChangedEvent.deleted(1L));
+        taskChangeFeed.onTaskChanged(TaskChangedEvent.deleted(2L));
+        taskChangeFeed.onTaskChanged(TaskChangedEvent.deleted(3L));
+        List<TaskChangeDTO> changes = taskChangeFeed.changesAfter(1);
+        Assertions.assertEquals(List.of(2L, 3L), changes.stream().map(TaskChangeDTO::getSequence).toList());
+        Assertions.assertEquals(List.of(2L, 3L), changes.stream().map(TaskChangeDTO::getTaskId).toList());
+        Assertions.assertTrue(taskChangeFeed.changesAfter(3).isEmpty());
+    }
+
+    @Test
+    public void givenLastEventIdOlderThanBuffer_whenChangesAfter_thenReturnReset() {
+        for (long id = 1; id <= 5; id++) {
+            taskChangeFeed.onTaskChanged(TaskChangedEvent.deleted(id));
+        }
+        Assertions.assertEquals(3, taskChangeFeed.changesAfter(2).size()); //3, 4 and 5 are still buffered.
+        List<TaskChangeDTO> changes = taskChangeFeed.changesAfter(1);
+        Assertions.assertEquals(1, changes.size());
+        Assertions.assertEquals(TaskChangeType.RESET, changes.getFirst().getType());
+        Assertions.assertEquals(5, changes.getFirst().getSequence());
+    }
+
+    @Test
+    public void givenLastEventIdFromBeforeRestart_whenChangesAfter_thenReturnReset() {
+        taskChangeFeed.onTaskChanged(TaskChangedEvent.deleted(1L));
+        Assertions.assertEquals(TaskChangeType.RESET, taskChangeFeed.changesAfter(42).getFirst().getType());
+    }
+
+    @Test
+    public void givenSubscriber_whenCompleteAll_thenRemoveSubscriber() {
+        taskChangeFeed.subscribe(null);
+        Assertions.assertEquals(1, taskChangeFeed.subscriberCount());
+        taskChangeFeed.completeAll();
+        Assertions.assertEquals(0, taskChangeFeed.subscriberCount());
+    }
+}
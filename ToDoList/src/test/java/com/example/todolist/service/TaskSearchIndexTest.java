@@ -0,0 +1,127 @@
+package com.example.todolist.service;
+
+import com.example.todolist.dto.TaskDTO;
+import com.example.todolist.exception.SearchQueryTooBroadException;
+import com.example.todolist.repository.TaskRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.mockito.Mockito.*;
+
+class TaskSearchIndexTest {
+
+    private final TaskRepository taskRepository = mock(TaskRepository.class);
+    private final TaskSearchIndex taskSearchIndex = new TaskSearchIndex(taskRepository,
+            new TransactionTemplate(mock(PlatformTransactionManager.class)), 8, 2000);
+
+    @Test
+    public void givenText_whenTokenize_thenLowerCaseWordsAndDigits() {
+        Assertions.assertEquals(List.of("do", "the", "dishes", "2", "times"), TaskSearchIndex.tokenize("Do the DISHES, 2 times!", 10));
+        Assertions.assertEquals(List.of("a", "b"), TaskSearchIndex.tokenize("a b c", 2));
+        Assertions.assertTrue(TaskSearchIndex.tokenize("  --- ", 10).isEmpty());
+    }
+
+    @Test
+    public void givenTasks_whenSearch_thenRequireEveryTermAndMatchPrefixes() {
+        taskSearchIndex.index(task(1L, "Do the dishes", "Kitchen"));
+        taskSearchIndex.index(task(2L, "Wash the car", "Use the dish soap"));
+        taskSearchIndex.index(task(3L, "Walk the dog", "Around the park"));
+        Assertions.assertEquals(Set.of(1L, 2L), Set.copyOf(taskSearchIndex.search("dish", 10)));
+        Assertions.assertEquals(List.of(2L), taskSearchIndex.search("dish SOAP", 10));
+        Assertions.assertEquals(List.of(3L), taskSearchIndex.search("wal", 10));
+        Assertions.assertTrue(taskSearchIndex.search("dog car", 10).isEmpty());
+        Assertions.assertTrue(taskSearchIndex.search("?!", 10).isEmpty());
+    }
+
+    @Test
+    public void givenNameAndDescriptionMatches_whenSearch_thenRankExactNameMatchesFirst() {
+        taskSearchIndex.index(task(1L, "Groceries", "Buy milk and more milk"));
+        taskSearchIndex.index(task(2L, "Milk", "From the corner shop"));
+        taskSearchIndex.index(task(3L, "Milkshake", "Vanilla"));
+        Assertions.assertEquals(List.of(2L, 1L, 3L), taskSearchIndex.search("milk", 10));
+        Assertions.assertEquals(List.of(2L), taskSearchIndex.search("milk", 1));
+    }
+
+    @Test
+    public void givenChangedAndDeletedTasks_whenSearch_thenOnlyFindCurrentText() {
+        taskSearchIndex.onTaskChanged(TaskChangedEvent.created(task(1L, "Do the dishes", "Kitchen")));
+        taskSearchIndex.onTaskChanged(TaskChangedEvent.created(task(2L, "Wash the car", "Driveway")));
+        taskSearchIndex.onTaskChanged(TaskChangedEvent.updated(task(1L, "Wipe the floor", "Kitchen")));
+        taskSearchIndex.onTaskChanged(TaskChangedEvent.deleted(2L));
+        Assertions.assertTrue(taskSearchIndex.search("dishes", 10).isEmpty());
+        Assertions.assertEquals(List.of(1L), taskSearchIndex.search("floor", 10));
+        Assertions.assertTrue(taskSearchIndex.search("car", 10).isEmpty());
+        Assertions.assertEquals(1, taskSearchIndex.liveDocumentCount());
+    }
+
+    @Test
+    public void givenManyUpdates_whenCompacted_thenKeepResultsAndDropUnusedTerms() {
+        for (int round = 0; round < 3; round++) {
+            for (long id = 1; id <= 1000; id++) {
+                taskSearchIndex.index(task(id, "Task " + id + " round" + round, "Description"));
+            }
+        }
+        Assertions.assertEquals(1000, taskSearchIndex.liveDocumentCount());
+        Assertions.assertEquals(List.of(42L), taskSearchIndex.search("42 round2", 1)); //the exact match ahead of 420 to 429.
+        Assertions.assertEquals(11, taskSearchIndex.search("42 round2", 20).size());
+        Assertions.assertTrue(taskSearchIndex.search("round0", 10).isEmpty());
+        Assertions.assertTrue(taskSearchIndex.termCount() < 1010, "terms of old rounds should be compacted away");
+    }
+
+    @Test
+    public void givenStoredTasks_whenRebuild_thenReplaceIndex() {
+        taskSearchIndex.index(task(9L, "Stale task", "Gone"));
+        when(taskRepository.streamAllAsDTO()).thenReturn(Stream.of(task(1L, "Do the dishes", "Kitchen")));
+        taskSearchIndex.rebuild();
+        Assertions.assertEquals(List.of(1L), taskSearchIndex.search("kitchen", 10));
+        Assertions.assertTrue(taskSearchIndex.search("stale", 10).isEmpty());
+    }
+
+    @Test
+    public void givenChangesWhileReadingTheTable_whenRebuild_thenReplayThemOnTheNewIndex() {
+        taskSearchIndex.index(task(2L, "Wash the car", "Driveway"));
+        TaskDTO stored = task(1L, "Do the dishes", "Kitchen");
+        when(taskRepository.streamAllAsDTO()).thenReturn(Stream.of(stored, task(2L, "Wash the car", "Driveway")).peek(task -> {
+            if (task == stored) { //committed while the table is read, the index is not locked meanwhile.
+                Assertions.assertEquals(List.of(2L), taskSearchIndex.search("car", 10));
+                taskSearchIndex.index(task(3L, "Walk the dog", "Park"));
+                taskSearchIndex.remove(2L);
+            }
+        }));
+        taskSearchIndex.rebuild();
+        Assertions.assertEquals(List.of(3L), taskSearchIndex.search("dog", 10));
+        Assertions.assertTrue(taskSearchIndex.search("car", 10).isEmpty());
+        Assertions.assertEquals(2, taskSearchIndex.liveDocumentCount());
+    }
+
+    @Test
+    public void givenQueryWhoseEveryTermMatchesTooManyTasks_whenSearch_thenThrow() {
+        for (long id = 1; id <= 2001; id++) {
+            taskSearchIndex.index(task(id, "Task " + id, "Description"));
+        }
+        Assertions.assertThrows(SearchQueryTooBroadException.class, () -> taskSearchIndex.search("task description", 10));
+        Assertions.assertEquals(List.of(7L), taskSearchIndex.search("task 7 description", 1)); //the rare term picks the candidates.
+    }
+
+    @Test
+    public void givenLongDescription_whenIndex_thenOnlyIndexMaxTermsPerTask() {
+        taskSearchIndex.index(task(1L, "Plan", "one two three four five six seven eight nine ten"));
+        Assertions.assertEquals(List.of(1L), taskSearchIndex.search("eight", 10));
+        Assertions.assertTrue(taskSearchIndex.search("nine", 10).isEmpty());
+    }
+
+    private static TaskDTO task(long id, String taskName, String taskDescription) {
+        return TaskDTO.builder()
+                .id(id)
+                .taskName(taskName)
+                .taskDescription(taskDescription)
+                .completed(false)
+                .build();
+    }
+}
@@ -1,25 +1,48 @@
 package com.example.todolist.service;
 
 import com.example.todolist.dto.TaskDTO;
+import com.example.todolist.dto.TaskDueDateCountDTO;
+import com.example.todolist.dto.TaskFilterDTO;
+import com.example.todolist.dto.TaskPageDTO;
 import com.example.todolist.dto.TaskPatchDTO;
+import com.example.todolist.dto.TaskStatsDTO;
+import com.example.todolist.dto.TaskStatsWindow;
+import com.example.todolist.dto.TaskSyncDTO;
+import com.example.todolist.exception.InvalidCursorException;
+import com.example.todolist.exception.InvalidSortException;
+import com.example.todolist.exception.SyncTokenExpiredException;
 import com.example.todolist.exception.TaskNotFoundException;
+import com.example.todolist.exception.TaskVersionMismatchException;
 import com.example.todolist.mapper.TaskMapper;
 import com.example.todolist.model.Task;
+import com.example.todolist.model.TaskTombstone;
+import com.example.todolist.repository.TaskChangeStream;
 import com.example.todolist.repository.TaskRepository;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 
 import static org.mockito.Mockito.*;
 
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @ExtendWith(MockitoExtension.class)
 class TaskServiceTest {
@@ -29,6 +52,18 @@ class TaskServiceTest {
     @Mock
     TaskMapper taskMapper;
 
+    @Mock
+    ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    TaskWriteBehindBuffer writeBehindBuffer;
+
+    @Mock
+    TaskSearchIndex taskSearchIndex;
+
+    @Spy
+    TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+
     @InjectMocks
     TaskService taskService;
 
@@ -64,43 +99,40 @@ class TaskServiceTest {
         Task task = createSampleTask();
         TaskDTO taskDTO = createSampleTaskDTO();
         when(taskMapper.toEntity(taskDTO)).thenReturn(task);
-        when(taskRepository.save(task)).thenReturn(task);
         when(taskMapper.toDTO(task)).thenReturn(taskDTO);
         TaskDTO savedTask = taskService.createTask(taskDTO);
         Assertions.assertNotNull(savedTask);
         Assertions.assertEquals(taskDTO,savedTask);
         verify(taskMapper).toEntity(taskDTO);
-        verify(taskRepository).save(task);
+        verify(taskRepository).recordChanges(List.of(task), List.of()); //persists the task after its change sequence number is set.
+        verify(taskRepository, never()).save(any(Task.class));
         verify((taskMapper)).toDTO(task);
+        verify(eventPublisher).publishEvent(TaskChangedEvent.created(taskDTO));
     }
 
     @Test
     public void givenValidId_whenDeleteTask_thenDeleteTaskInRepository() {
-        when(taskRepository.existsById(VALID_ID)).thenReturn(true);
+        when(taskRepository.recordChanges(List.of(), List.of(VALID_ID))).thenReturn(List.of(VALID_ID));
         taskService.deleteTask(VALID_ID);
-        verify(taskRepository).existsById(VALID_ID);
-        verify(taskRepository).deleteById(VALID_ID);
+        verify(taskRepository).recordChanges(List.of(), List.of(VALID_ID));
+        verify(taskRepository, never()).existsById(anyLong());
+        verify(taskRepository, never()).deleteById(anyLong());
+        verify(eventPublisher).publishEvent(TaskChangedEvent.deleted(VALID_ID));
     }
 
     @Test
     public void givenInvalidId_whenDeleteTask_thenThrowTaskNotFoundException() {
-        when(taskRepository.existsById(INVALID_ID)).thenReturn(false);
+        when(taskRepository.recordChanges(List.of(), List.of(INVALID_ID))).thenReturn(List.of());
         TaskNotFoundException ex = Assertions.assertThrows(TaskNotFoundException.class, () -> taskService.deleteTask(INVALID_ID));
         Assertions.assertEquals("Task with id " + INVALID_ID + " not found", ex.getMessage());
-        verify(taskRepository).existsById(INVALID_ID);
-        verify(taskRepository, never()).deleteById(anyLong());
+        verify(taskRepository).recordChanges(List.of(), List.of(INVALID_ID));
+        verify(eventPublisher, never()).publishEvent(any());
     }
 
     @Test
     public void givenValidIdAndTaskDTO_whenEditTask_thenReturnUpdatedTaskDTO() {
         Task task = createSampleTask();
         TaskDTO taskDTO = createSampleTaskDTO();
-        Task updatedTask = Task.builder()
-                .taskName("Wipe the floor")
-                .taskDescription("Updated Description")
-                .dueDate(LOCAL_DATE_TIME.plusDays(5))
-                .completed(true)
-                .build();
         TaskDTO updatedTaskDTO = TaskDTO.builder()
                 .taskName("Wipe the floor")
                 .taskDescription("Updated Description")
@@ -109,14 +141,15 @@ class TaskServiceTest {
                 .build();
         when(taskRepository.findById(VALID_ID)).thenReturn(Optional.of(task));
         doNothing().when(taskMapper).editTaskFromDTO(taskDTO, task);
-        when(taskRepository.save(any(Task.class))).thenReturn(updatedTask);
-        when(taskMapper.toDTO(updatedTask)).thenReturn(updatedTaskDTO);
+        when(taskMapper.toDTO(task)).thenReturn(updatedTaskDTO);
         TaskDTO result = taskService.editTask(VALID_ID, taskDTO);
         Assertions.assertEquals(result, updatedTaskDTO);
         verify(taskRepository).findById(VALID_ID);
         verify(taskMapper).editTaskFromDTO(taskDTO, task);
-        verify(taskRepository).save(any(Task.class));
-        verify(taskMapper).toDTO(updatedTask);
+        verify(taskRepository, never()).save(any(Task.class)); //the managed entity is written by dirty checking on flush.
+        verify(taskRepository).recordChanges(List.of(task), List.of()); //sets the change sequence number on the managed entity and flushes it.
+        verify(taskMapper).toDTO(task);
+        verify(eventPublisher).publishEvent(TaskChangedEvent.updated(updatedTaskDTO));
     }
 
     @Test
@@ -141,24 +174,75 @@ class TaskServiceTest {
                 .taskName("Clean your room")
                 .taskDescription("Description")
                 .build();
-        Task updatedTask = Task.builder()
-                .taskName("Wipe the floor")
-                .taskDescription("Updated Description")
-                .build();
         TaskDTO updatedTaskDTO = TaskDTO.builder()
                 .taskName("Wipe the floor")
                 .taskDescription("Updated Description")
                 .build();
         when(taskRepository.findById(VALID_ID)).thenReturn(Optional.of(task));
         doNothing().when(taskMapper).patchTaskFromDTO(taskDTO, task);
-        when(taskRepository.save(any(Task.class))).thenReturn(updatedTask);
-        when(taskMapper.toDTO(updatedTask)).thenReturn(updatedTaskDTO);
+        when(taskMapper.toDTO(task)).thenReturn(updatedTaskDTO);
         TaskDTO result = taskService.patchTask(VALID_ID, taskDTO);
         Assertions.assertEquals(result, updatedTaskDTO);
         verify(taskRepository).findById(VALID_ID);
         verify(taskMapper).patchTaskFromDTO(taskDTO, task);
-        verify(taskRepository).save(any(Task.class));
-        verify(taskMapper).toDTO(updatedTask);
+        verify(taskRepository, never()).save(any(Task.class));
+        verify(taskRepository).recordChanges(List.of(task), List.of()); //sets the change sequence number on the managed entity and flushes it.
+        verify(taskMapper).toDTO(task);
+    }
+
+    @Test
+    public void givenMatchingVersion_whenEditTask_thenReturnUpdatedTaskDTO() {
+        Task task = createSampleTask();
+        task.setVersion(3);
+        TaskDTO taskDTO = createSampleTaskDTO();
+        when(taskRepository.findById(VALID_ID)).thenReturn(Optional.of(task));
+        when(taskMapper.toDTO(task)).thenReturn(taskDTO);
+        Assertions.assertEquals(taskDTO, taskService.editTask(VALID_ID, taskDTO, 3L));
+        verify(taskMapper).editTaskFromDTO(taskDTO, task);
+        verify(taskRepository).recordChanges(List.of(task), List.of());
+    }
+
+    @Test
+    public void givenStaleVersion_whenEditTask_thenThrowTaskVersionMismatchException() {
+        Task task = createSampleTask();
+        task.setVersion(3);
+        TaskDTO taskDTO = createSampleTaskDTO();
+        when(taskRepository.findById(VALID_ID)).thenReturn(Optional.of(task));
+        Assertions.assertThrows(TaskVersionMismatchException.class, () -> taskService.editTask(VALID_ID, taskDTO, 2L));
+        verify(taskMapper, never()).editTaskFromDTO(any(TaskDTO.class), any(Task.class));
+        verify(taskRepository, never()).flush();
+    }
+
+    @Test
+    public void givenStaleVersion_whenPatchTask_thenThrowTaskVersionMismatchException() {
+        Task task = createSampleTask();
+        task.setVersion(3);
+        TaskPatchDTO taskPatchDTO = TaskPatchDTO.builder().completed(true).build();
+        when(taskRepository.findById(VALID_ID)).thenReturn(Optional.of(task));
+        Assertions.assertThrows(TaskVersionMismatchException.class, () -> taskService.patchTask(VALID_ID, taskPatchDTO, 4L));
+        verify(taskMapper, never()).patchTaskFromDTO(any(TaskPatchDTO.class), any(Task.class));
+        verify(taskRepository, never()).flush();
+    }
+
+    @Test
+    public void givenBufferedDurability_whenPatchCompleted_thenBufferInsteadOfUpdate() {
+        TaskPatchDTO taskPatchDTO = TaskPatchDTO.builder().completed(true).build();
+        TaskDTO bufferedTaskDTO = createSampleTaskDTO();
+        when(writeBehindBuffer.accepts(taskPatchDTO)).thenReturn(true);
+        when(writeBehindBuffer.bufferCompleted(eq(VALID_ID), eq(true), any())).thenReturn(bufferedTaskDTO);
+        Assertions.assertEquals(bufferedTaskDTO, taskService.patchTask(VALID_ID, taskPatchDTO));
+        verify(taskRepository, never()).flush();
+        verify(taskRepository, never()).recordChanges(anyCollection(), anyCollection());
+        verify(eventPublisher, never()).publishEvent(any());
+        verify(transactionTemplate, never()).execute(any()); //no transaction and no connection for a buffered PATCH.
+    }
+
+    @Test
+    public void givenPendingPatch_whenGetTask_thenReturnPendingTask() {
+        TaskDTO pendingTaskDTO = createSampleTaskDTO();
+        when(writeBehindBuffer.getPending(VALID_ID)).thenReturn(pendingTaskDTO);
+        Assertions.assertEquals(pendingTaskDTO, taskService.getTask(VALID_ID));
+        verify(taskRepository, never()).findById(any());
     }
 
     @Test
@@ -187,28 +271,227 @@ class TaskServiceTest {
                 TaskDTO.builder().taskName("Task 1").taskDescription("Desc 1").build(),
                 TaskDTO.builder().taskName("Task 2").taskDescription("Desc 2").build()
         );
-        when(taskRepository.findAll()).thenReturn(taskList);
-        when(taskMapper.toDTOList(taskList)).thenReturn(taskDTOList);
+        when(taskRepository.findAllAsDTO()).thenReturn(taskDTOList);
         List<TaskDTO> result = taskService.getAllTasks();
         Assertions.assertEquals(result, taskDTOList);
         Assertions.assertEquals("Task 1", result.getFirst().getTaskName());
         Assertions.assertEquals("Desc 1", result.getFirst().getTaskDescription());
-        verify(taskRepository).findAll();
-        verify(taskMapper).toDTOList(taskList);
+        verify(taskRepository).findAllAsDTO();
+        verifyNoInteractions(taskMapper); //projected by the query, no entities to map.
     }
 
     @Test
     public void givenNoTasks_whenGetAllTasks_thenReturnEmptyTaskDTOList() {
-        List<Task> taskList = List.of();
         List<TaskDTO> taskDTOList = List.of();
-        when(taskRepository.findAll()).thenReturn(taskList);
-        when(taskMapper.toDTOList(taskList)).thenReturn(taskDTOList);
+        when(taskRepository.findAllAsDTO()).thenReturn(taskDTOList);
         List<TaskDTO> result = taskService.getAllTasks();
         Assertions.assertEquals(result, taskDTOList);
         Assertions.assertEquals(0, result.size());
         Assertions.assertNotNull(result);
-        verify(taskRepository).findAll();
-        verify(taskMapper).toDTOList(taskList);
+        verify(taskRepository).findAllAsDTO();
+    }
+
+    @Test
+    public void givenFilterAndSort_whenFindTasks_thenReturnMatchingTaskDTOList() {
+        TaskFilterDTO filter = TaskFilterDTO.builder().completed(false).dueBefore(LOCAL_DATE_TIME).build();
+        Sort sort = Sort.by(Sort.Direction.DESC, "dueDate");
+        List<TaskDTO> taskDTOList = List.of(createSampleTaskDTO());
+        when(taskRepository.findTasks(filter, sort, null, Limit.unlimited())).thenReturn(taskDTOList);
+        Assertions.assertEquals(taskDTOList, taskService.findTasks(filter, sort));
+        verify(taskRepository).findTasks(filter, sort, null, Limit.unlimited());
+    }
+
+    @Test
+    public void givenUnknownSortProperty_whenFindTasks_thenThrowInvalidSortException() {
+        TaskFilterDTO filter = TaskFilterDTO.builder().build();
+        InvalidSortException ex = Assertions.assertThrows(InvalidSortException.class,
+                () -> taskService.findTasks(filter, Sort.by("taskDescription")));
+        Assertions.assertEquals("Cannot sort tasks by taskDescription", ex.getMessage());
+        verify(taskRepository, never()).findTasks(any(), any(), any(), any());
+    }
+
+    @Test
+    public void givenMoreMatchesThanLimit_whenFindTaskPage_thenNextPageStartsAfterTheLastTask() {
+        TaskFilterDTO filter = TaskFilterDTO.builder().completed(false).build();
+        Sort sort = Sort.by(Sort.Direction.DESC, "dueDate").and(Sort.by("taskName", "completed"));
+        List<TaskDTO> taskDTOList = List.of(
+                TaskDTO.builder().id(4L).taskName("Task 4").dueDate(LOCAL_DATE_TIME).completed(false).build(),
+                TaskDTO.builder().id(2L).taskName("Task 2").completed(false).build(), //no due date, sorted last.
+                TaskDTO.builder().id(3L).taskName("Task 3").completed(false).build()
+        );
+        when(taskRepository.findTasks(filter, sort, null, Limit.of(3))).thenReturn(taskDTOList);
+        TaskPageDTO page = taskService.findTaskPage(filter, sort, null, 2);
+        Assertions.assertEquals(taskDTOList.subList(0, 2), page.getTasks());
+        Assertions.assertNotNull(page.getNextCursor());
+
+        TaskDTO after = TaskDTO.builder().id(2L).taskName("Task 2").completed(false).build(); //only the id and the sorted properties.
+        when(taskRepository.findTasks(filter, sort, after, Limit.of(3))).thenReturn(taskDTOList.subList(2, 3));
+        TaskPageDTO nextPage = taskService.findTaskPage(filter, sort, page.getNextCursor(), 2);
+        Assertions.assertEquals(taskDTOList.subList(2, 3), nextPage.getTasks());
+        Assertions.assertNull(nextPage.getNextCursor());
+    }
+
+    @Test
+    public void givenCursorOfAnotherSort_whenFindTaskPage_thenThrowInvalidCursorException() {
+        TaskFilterDTO filter = TaskFilterDTO.builder().build();
+        List<TaskDTO> taskDTOList = List.of(
+                TaskDTO.builder().id(1L).taskName("Task 1").build(),
+                TaskDTO.builder().id(2L).taskName("Task 2").build()
+        );
+        when(taskRepository.findTasks(filter, Sort.by("taskName"), null, Limit.of(2))).thenReturn(taskDTOList);
+        String cursor = taskService.findTaskPage(filter, Sort.by("taskName"), null, 1).getNextCursor();
+        Assertions.assertThrows(InvalidCursorException.class, () -> taskService.findTaskPage(filter, Sort.by("dueDate"), cursor, 1));
+        Assertions.assertThrows(InvalidCursorException.class, () -> taskService.findTaskPage(filter, Sort.unsorted(), cursor, 1));
+        Assertions.assertThrows(InvalidCursorException.class, () -> taskService.findTaskPage(filter, Sort.unsorted(), "not a cursor!", 1));
+        verify(taskRepository, never()).findTasks(any(), any(), any(TaskDTO.class), any());
+    }
+
+    @Test
+    public void givenSearchHits_whenSearchTasks_thenReturnTasksInIndexOrder() {
+        TaskDTO first = TaskDTO.builder().id(3L).taskName("Milk").build();
+        TaskDTO second = TaskDTO.builder().id(1L).taskName("Groceries").build();
+        when(taskSearchIndex.search("milk", 10)).thenReturn(List.of(3L, 1L, 2L));
+        when(taskRepository.findAllAsDTOByIdIn(List.of(3L, 1L, 2L))).thenReturn(List.of(second, first)); //2 was deleted.
+        Assertions.assertEquals(List.of(first, second), taskService.searchTasks("milk", 10));
+    }
+
+    @Test
+    public void givenNoSearchHits_whenSearchTasks_thenSkipDatabase() {
+        when(taskSearchIndex.search("milk", 10)).thenReturn(List.of());
+        Assertions.assertTrue(taskService.searchTasks("milk", 10).isEmpty());
+        verifyNoInteractions(taskRepository);
+    }
+
+    @Test
+    public void givenWindow_whenGetTaskStats_thenCountTotalsOverAllTasksAndDaysOnlyInTheWindow() {
+        TaskStatsWindow window = TaskStatsWindow.of(LocalDate.now(), LocalDate.now().plusDays(1), LocalDate.now());
+        TaskDueDateCountDTO today = new TaskDueDateCountDTO(LocalDate.now(), 2, 1);
+        TaskDueDateCountDTO tomorrow = new TaskDueDateCountDTO(LocalDate.now().plusDays(1), 1, 0);
+        when(taskRepository.count()).thenReturn(8L);
+        when(taskRepository.countCompleted()).thenReturn(4L);
+        when(taskRepository.countOverdue(any(LocalDateTime.class))).thenReturn(2L);
+        when(taskRepository.countByDueDate(LocalDate.now().atStartOfDay(), LocalDate.now().plusDays(2).atStartOfDay())).thenReturn(List.of(today, tomorrow));
+        TaskStatsDTO stats = taskService.getTaskStats(window);
+        Assertions.assertEquals(8, stats.getTotal());
+        Assertions.assertEquals(4, stats.getOpen());
+        Assertions.assertEquals(4, stats.getCompleted());
+        Assertions.assertEquals(2, stats.getOverdue());
+        Assertions.assertEquals(LocalDate.now(), stats.getFrom());
+        Assertions.assertEquals(List.of(today, tomorrow), stats.getDueDates());
+    }
+
+    @Test
+    public void givenMoreTasksThanLimit_whenGetTaskPage_thenReturnPageWithNextCursor() {
+        List<TaskDTO> taskDTOList = List.of(
+                TaskDTO.builder().id(1L).taskName("Task 1").build(),
+                TaskDTO.builder().id(2L).taskName("Task 2").build(),
+                TaskDTO.builder().id(3L).taskName("Task 3").build()
+        );
+        when(taskRepository.findPageAsDTO(0L, Limit.of(3))).thenReturn(taskDTOList);
+        TaskPageDTO page = taskService.getTaskPage(null, 2);
+        Assertions.assertEquals(taskDTOList.subList(0, 2), page.getTasks());
+        Assertions.assertNotNull(page.getNextCursor());
+        when(taskRepository.findPageAsDTO(2L, Limit.of(3))).thenReturn(List.of());
+        TaskPageDTO nextPage = taskService.getTaskPage(page.getNextCursor(), 2);
+        Assertions.assertTrue(nextPage.getTasks().isEmpty());
+        Assertions.assertNull(nextPage.getNextCursor());
+        verify(taskRepository).findPageAsDTO(2L, Limit.of(3));
+    }
+
+    @Test
+    public void givenLastPage_whenGetTaskPage_thenReturnPageWithoutNextCursor() {
+        List<TaskDTO> taskDTOList = List.of(TaskDTO.builder().id(1L).taskName("Task 1").build());
+        when(taskRepository.findPageAsDTO(0L, Limit.of(11))).thenReturn(taskDTOList);
+        TaskPageDTO page = taskService.getTaskPage(null, 10);
+        Assertions.assertEquals(taskDTOList, page.getTasks());
+        Assertions.assertNull(page.getNextCursor());
+    }
+
+    @Test
+    public void givenMalformedCursor_whenGetTaskPage_thenThrowInvalidCursorException() {
+        Assertions.assertThrows(InvalidCursorException.class, () -> taskService.getTaskPage("not a cursor!", 10));
+        Assertions.assertThrows(InvalidCursorException.class, () -> taskService.getTaskPage("AQ", 10));
+        verify(taskRepository, never()).findPageAsDTO(anyLong(), any(Limit.class));
+    }
+
+    @Test
+    public void givenChangesAndDeletes_whenSyncTasks_thenMergeThemInChangeOrderAndReturnNextToken() {
+        Task first = Task.builder().id(1L).changeSeq(3).build();
+        Task second = Task.builder().id(2L).changeSeq(5).build();
+        TaskTombstone tombstone = TaskTombstone.builder().taskId(7L).changeSeq(4).build();
+        List<TaskDTO> firstDTOs = List.of(TaskDTO.builder().id(1L).build());
+        when(taskRepository.changeStreamCount()).thenReturn(1);
+        TaskChangeStream changeStream = mock(TaskChangeStream.class);
+        when(taskRepository.changeStream(0)).thenReturn(changeStream);
+        when(changeStream.safeChangeSeq()).thenReturn(5L);
+        when(changeStream.findChangedSince(-1, 0, 5, Limit.of(3))).thenReturn(List.of(first, second));
+        when(changeStream.findTombstonesSince(-1, 0, 5, Limit.of(3))).thenReturn(List.of(tombstone));
+        when(taskMapper.toDTOList(List.of(first))).thenReturn(firstDTOs);
+        TaskSyncDTO page = taskService.syncTasks(null, 2);
+        Assertions.assertEquals(firstDTOs, page.getChanged());
+        Assertions.assertEquals(List.of(7L), page.getDeleted());
+        Assertions.assertTrue(page.isHasMore());
+
+        when(changeStream.findChangedSince(4, 7, 5, Limit.of(3))).thenReturn(List.of(second));
+        when(changeStream.findTombstonesSince(4, 7, 5, Limit.of(3))).thenReturn(List.of());
+        when(taskMapper.toDTOList(List.of(second))).thenReturn(List.of(TaskDTO.builder().id(2L).build()));
+        TaskSyncDTO nextPage = taskService.syncTasks(page.getToken(), 2); //the token points right after the tombstone.
+        Assertions.assertEquals(1, nextPage.getChanged().size());
+        Assertions.assertTrue(nextPage.getDeleted().isEmpty());
+        Assertions.assertFalse(nextPage.isHasMore());
+    }
+
+    @Test
+    public void givenFullSyncInProgress_whenTombstonesArePruned_thenExpireTheTokenOnlyPastWhereTheSyncStarted() {
+        Task first = Task.builder().id(1L).changeSeq(3).build();
+        Task second = Task.builder().id(2L).changeSeq(4).build();
+        when(taskRepository.changeStreamCount()).thenReturn(1);
+        TaskChangeStream changeStream = mock(TaskChangeStream.class);
+        when(taskRepository.changeStream(0)).thenReturn(changeStream);
+        when(changeStream.safeChangeSeq()).thenReturn(5L);
+        when(changeStream.findChangedSince(-1, 0, 5, Limit.of(2))).thenReturn(List.of(first, second));
+        TaskSyncDTO page = taskService.syncTasks(null, 1); //the client never gets a task deleted up to 5.
+        Assertions.assertTrue(page.isHasMore());
+
+        when(changeStream.prunedTombstonesUpTo()).thenReturn(5L);
+        when(changeStream.findChangedSince(3, 1, 5, Limit.of(2))).thenReturn(List.of(second));
+        Assertions.assertFalse(taskService.syncTasks(page.getToken(), 1).isHasMore());
+
+        when(changeStream.prunedTombstonesUpTo()).thenReturn(6L);
+        Assertions.assertThrows(SyncTokenExpiredException.class, () -> taskService.syncTasks(page.getToken(), 1));
+    }
+
+    @Test
+    public void givenTokenWithoutFloor_whenDeletesAfterItArePruned_thenThrowSyncTokenExpiredException() {
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(ByteBuffer.allocate(16).putLong(3).putLong(1).array());
+        when(taskRepository.changeStreamCount()).thenReturn(1);
+        TaskChangeStream changeStream = mock(TaskChangeStream.class);
+        when(taskRepository.changeStream(0)).thenReturn(changeStream);
+        when(changeStream.safeChangeSeq()).thenReturn(5L);
+        when(changeStream.prunedTombstonesUpTo()).thenReturn(2L);
+        Assertions.assertFalse(taskService.syncTasks(token, 10).isHasMore()); //nothing after the token was pruned.
+
+        when(changeStream.prunedTombstonesUpTo()).thenReturn(3L); //other tombstones of 3 may come after task 1.
+        Assertions.assertThrows(SyncTokenExpiredException.class, () -> taskService.syncTasks(token, 10));
+    }
+
+    @Test
+    public void givenMalformedToken_whenSyncTasks_thenThrowInvalidCursorException() {
+        Assertions.assertThrows(InvalidCursorException.class, () -> taskService.syncTasks("not a token!", 10));
+        verify(taskRepository, never()).changeStream(anyInt());
+    }
+
+    @Test
+    public void givenTasksExist_whenStreamAllTasks_thenPassEveryTaskToConsumer() {
+        List<TaskDTO> taskDTOList = List.of(
+                TaskDTO.builder().taskName("Task 1").build(),
+                TaskDTO.builder().taskName("Task 2").build()
+        );
+        when(taskRepository.streamAllAsDTO()).thenReturn(taskDTOList.stream());
+        List<TaskDTO> consumed = new ArrayList<>();
+        taskService.streamAllTasks(consumed::add);
+        Assertions.assertEquals(taskDTOList, consumed);
+        verify(taskRepository).streamAllAsDTO();
     }
 
     private Task createSampleTask(){
@@ -0,0 +1,147 @@
+package com.example.todolist.service;
+
+import com.example.todolist.config.CacheConfig;
+import com.example.todolist.dto.TaskDTO;
+import com.example.todolist.dto.TaskPatchDTO;
+import com.example.todolist.repository.TaskRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TaskWriteBehindBufferTest {
+    @Mock
+    TaskRepository taskRepository;
+
+    @Mock
+    PlatformTransactionManager transactionManager;
+
+    @Mock
+    ApplicationEventPublisher eventPublisher;
+
+    CacheManager cacheManager;
+
+    TaskWriteBehindBuffer writeBehindBuffer;
+
+    @BeforeEach
+    public void setUp() {
+        cacheManager = new ConcurrentMapCacheManager(CacheConfig.TASKS_CACHE);
+        writeBehindBuffer = createBuffer(TaskWriteBehindBuffer.Durability.BUFFERED);
+    }
+
+    @Test
+    public void givenSyncDurability_whenAccepts_thenReturnFalse() {
+        TaskWriteBehindBuffer syncBuffer = createBuffer(TaskWriteBehindBuffer.Durability.SYNC);
+        Assertions.assertFalse(syncBuffer.accepts(TaskPatchDTO.builder().completed(true).build()));
+    }
+
+    @Test
+    public void givenBufferedDurability_whenAccepts_thenOnlyAcceptCompletionOnlyPatches() {
+        Assertions.assertTrue(writeBehindBuffer.accepts(TaskPatchDTO.builder().completed(true).build()));
+        Assertions.assertFalse(writeBehindBuffer.accepts(TaskPatchDTO.builder().completed(true).taskName("Clean your room").build()));
+        Assertions.assertFalse(writeBehindBuffer.accepts(TaskPatchDTO.builder().taskName("Clean your room").build()));
+    }
+
+    @Test
+    public void givenCachedTask_whenBufferCompleted_thenUseCacheAndCoalescePatches() {
+        cacheManager.getCache(CacheConfig.TASKS_CACHE).put(1L, createSampleTaskDTO(1L));
+        writeBehindBuffer.bufferCompleted(1L, true, () -> Assertions.fail("the task is cached"));
+        TaskDTO result = writeBehindBuffer.bufferCompleted(1L, false, () -> Assertions.fail("the task is pending"));
+        Assertions.assertFalse(result.getCompleted());
+        Assertions.assertNull(result.getVersion());
+        Assertions.assertEquals("Do The Dishes", result.getTaskName());
+        Assertions.assertEquals(result, writeBehindBuffer.getPending(1L));
+        Assertions.assertEquals(1, writeBehindBuffer.pendingCount());
+        verifyNoInteractions(taskRepository);
+    }
+
+    @Test
+    public void givenPendingPatches_whenFlush_thenOneUpdatePerCompletedValue() {
+        writeBehindBuffer.bufferCompleted(1L, true, () -> createSampleTaskDTO(1L));
+        writeBehindBuffer.bufferCompleted(2L, true, () -> createSampleTaskDTO(2L));
+        writeBehindBuffer.bufferCompleted(3L, false, () -> createSampleTaskDTO(3L));
+        cacheManager.getCache(CacheConfig.TASKS_CACHE).put(1L, createSampleTaskDTO(1L));
+        when(taskRepository.updateCompleted(anyCollection(), anyBoolean(), any(LocalDateTime.class))).thenAnswer(call -> call.<List<?>>getArgument(0).size());
+        writeBehindBuffer.flush();
+        verify(taskRepository).updateCompleted(argThat(ids -> ids.containsAll(List.of(1L, 2L)) && ids.size() == 2), eq(true), any(LocalDateTime.class));
+        verify(taskRepository).updateCompleted(eq(List.of(3L)), eq(false), any(LocalDateTime.class));
+        verify(taskRepository, never()).recordChanges(anyCollection(), anyCollection()); //each UPDATE takes its own change sequence number.
+        verify(eventPublisher, times(3)).publishEvent(any(TaskChangedEvent.class));
+        Assertions.assertEquals(0, writeBehindBuffer.pendingCount());
+        Assertions.assertNull(cacheManager.getCache(CacheConfig.TASKS_CACHE).get(1L)); //reloaded with the new version.
+    }
+
+    @Test
+    public void givenTaskDeletedBeforeFlush_whenFlush_thenOnlyPublishMatchedTasks() {
+        writeBehindBuffer.bufferCompleted(1L, true, () -> createSampleTaskDTO(1L));
+        writeBehindBuffer.bufferCompleted(2L, true, () -> createSampleTaskDTO(2L));
+        cacheManager.getCache(CacheConfig.TASKS_CACHE).put(2L, createSampleTaskDTO(2L));
+        when(taskRepository.updateCompleted(anyCollection(), eq(true), any(LocalDateTime.class))).thenReturn(1);
+        when(taskRepository.findExistingIds(anyCollection())).thenReturn(List.of(1L));
+        writeBehindBuffer.flush();
+        verify(eventPublisher).publishEvent(argThat((TaskChangedEvent event) -> event.taskId() == 1L));
+        verifyNoMoreInteractions(eventPublisher);
+        Assertions.assertNotNull(cacheManager.getCache(CacheConfig.TASKS_CACHE).get(2L));
+    }
+
+    @Test
+    public void givenWindowBeingWritten_whenTakePending_thenWaitForTheFlush() throws InterruptedException {
+        writeBehindBuffer.bufferCompleted(1L, true, () -> createSampleTaskDTO(1L));
+        Thread[] taker = new Thread[1];
+        when(taskRepository.updateCompleted(anyCollection(), anyBoolean(), any(LocalDateTime.class))).thenAnswer(call -> {
+            taker[0] = Thread.ofPlatform().start(() -> writeBehindBuffer.takePending(1L)); //the pending map is already drained.
+            Assertions.assertFalse(taker[0].join(Duration.ofMillis(200)));
+            return 1;
+        });
+        writeBehindBuffer.flush();
+        Assertions.assertTrue(taker[0].join(Duration.ofSeconds(5)));
+    }
+
+    @Test
+    public void givenFailingWrite_whenFlush_thenKeepPatchesForTheNextWindow() {
+        writeBehindBuffer.bufferCompleted(1L, true, () -> createSampleTaskDTO(1L));
+        when(taskRepository.updateCompleted(anyCollection(), anyBoolean(), any(LocalDateTime.class))).thenThrow(new IllegalStateException("database down"));
+        writeBehindBuffer.flush();
+        Assertions.assertTrue(writeBehindBuffer.getPending(1L).getCompleted());
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    public void givenPendingPatch_whenTakePending_thenRemoveIt() {
+        writeBehindBuffer.bufferCompleted(1L, true, () -> createSampleTaskDTO(1L));
+        Assertions.assertTrue(writeBehindBuffer.takePending(1L).getCompleted());
+        Assertions.assertNull(writeBehindBuffer.takePending(1L));
+        writeBehindBuffer.flush();
+        verifyNoInteractions(taskRepository);
+    }
+
+    private TaskWriteBehindBuffer createBuffer(TaskWriteBehindBuffer.Durability durability) {
+        return new TaskWriteBehindBuffer(taskRepository, new TransactionTemplate(transactionManager), cacheManager,
+                eventPublisher, durability, Duration.ofMillis(200));
+    }
+
+    private static TaskDTO createSampleTaskDTO(long id) {
+        return TaskDTO.builder()
+                .id(id)
+                .taskName("Do The Dishes")
+                .taskDescription("Description")
+                .dueDate(LocalDateTime.now().plusDays(1))
+                .completed(false)
+                .version(0L)
+                .build();
+    }
+}